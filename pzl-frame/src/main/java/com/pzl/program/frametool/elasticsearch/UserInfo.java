@@ -2,10 +2,13 @@ package com.pzl.program.frametool.elasticsearch;
 
 import lombok.Data;
 
+import java.io.Serializable;
 import java.util.Date;
 
 @Data
-public class UserInfo {
+public class UserInfo implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private String name;
 
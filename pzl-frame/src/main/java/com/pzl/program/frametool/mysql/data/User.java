@@ -2,12 +2,16 @@ package com.pzl.program.frametool.mysql.data;
 
 import lombok.Data;
 
+import java.io.Serializable;
+
 /**
  * @author pzl
  * @date 2020-04-13
  */
 @Data
-public class User {
+public class User implements Serializable {
+
+    private static final long serialVersionUID = 1L;
 
     private Integer id;
     private String name;
@@ -0,0 +1,771 @@
+package com.pzl.program.frametool.redis;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisPipelineException;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Redis 异步操作工具类
+ * <p>
+ * 方法与RedisUtil同名同义,立即返回CompletableFuture,不占用调用线程等待网络往返。
+ * 命令按key进入少量分发线程(默认4个,每个线程占用一个连接)各自的队列,
+ * 分发线程一次取走队列中已有的全部命令(最多maxBatch条),通过流水线一次发送,收到回复后逐个完成对应的future。
+ * 并发越高,每次流水线携带的命令越多,几十个并发查询只需要一两次往返,而不是几十个线程各自等待一次往返。
+ * <p>
+ * 注意:
+ * 1、future在分发线程中完成,thenApply等回调如果比较耗时请使用thenApplyAsync并指定线程池,避免拖慢其他命令
+ * 2、队列满(默认共65536,平分给各分发线程)时直接返回失败的future(RejectedExecutionException),不阻塞调用线程
+ * 3、同一个key的命令总是由同一个分发线程发送,按提交顺序执行(多key命令按第一个key),不同key之间不保证顺序
+ * 4、开启本地近端缓存时,写命令完成后失效本地缓存,失效广播与写命令在同一个流水线中发送
+ * <p>
+ * 使用示例:
+ * CompletableFuture<String> name = asyncRedisUtil.get("user:1:name");
+ * CompletableFuture<Map<String, String>> profile = asyncRedisUtil.hGetAll("user:1:profile");
+ * CompletableFuture.allOf(name, profile).join();
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+@Slf4j
+@Component
+public class AsyncRedisUtil {
+
+    //分发线程数,即同时占用的连接数
+    @Value("${redis.async.dispatchers:4}")
+    private int dispatchers = 4;
+
+    //一次流水线最多发送的命令数
+    @Value("${redis.async.max-batch:256}")
+    private int maxBatch = 256;
+
+    //等待发送的命令数上限
+    @Value("${redis.async.queue-capacity:65536}")
+    private int queueCapacity = 65536;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    /**
+     * 本地近端缓存,配置 redis.near-cache.enabled=true 时注入
+     */
+    @Autowired(required = false)
+    private RedisNearCache redisNearCache;
+
+    //每个分发线程一个队列,同一个key的命令总是进入同一个队列
+    private volatile BlockingQueue<Command<?>>[] queues;
+
+    private final List<Thread> threads = new ArrayList<>();
+
+    private volatile boolean running;
+
+    //流水线次数和命令数,用于计算平均每次流水线携带的命令数
+    private final LongAdder pipelines = new LongAdder();
+
+    private final LongAdder commands = new LongAdder();
+
+    /**
+     * 启动分发线程
+     */
+    @PostConstruct
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        //不能直接创建泛型数组
+        @SuppressWarnings({"unchecked", "rawtypes"})
+        BlockingQueue<Command<?>>[] created = new BlockingQueue[dispatchers];
+        for (int i = 0; i < dispatchers; i++) {
+            created[i] = new ArrayBlockingQueue<>(Math.max(1, queueCapacity / dispatchers));
+        }
+        queues = created;
+        running = true;
+        for (int i = 0; i < dispatchers; i++) {
+            BlockingQueue<Command<?>> queue = created[i];
+            Thread thread = new Thread(() -> dispatch(queue), "redis-async-" + i);
+            thread.setDaemon(true);
+            thread.start();
+            threads.add(thread);
+        }
+    }
+
+    /**
+     * 停止接收新命令,发送完队列中的命令后停止分发线程
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        running = false;
+        for (Thread thread : threads) {
+            try {
+                thread.join(TimeUnit.SECONDS.toMillis(10));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        threads.clear();
+        if (queues != null) {
+            for (BlockingQueue<Command<?>> queue : queues) {
+                Command<?> command;
+                while ((command = queue.poll()) != null) {
+                    command.future.completeExceptionally(new RejectedExecutionException("AsyncRedisUtil is shut down"));
+                }
+            }
+        }
+    }
+
+    /*------------------------key相关操作---------------------------*/
+
+    /**
+     * 删除key
+     *
+     * @param key key
+     * @return 删除的key数
+     */
+    public CompletableFuture<Long> delete(String key) {
+        return write(Collections.singletonList(key), connection -> connection.del(key));
+    }
+
+    /**
+     * 批量删除key
+     *
+     * @param keys key列表
+     * @return 删除的key数
+     */
+    public CompletableFuture<Long> delete(Collection<String> keys) {
+        String[] keyArray = keys.toArray(new String[0]);
+        return write(keys, connection -> connection.del(keyArray));
+    }
+
+    /**
+     * 是否存在key
+     *
+     * @param key key
+     * @return boolean
+     */
+    public CompletableFuture<Boolean> hasKey(String key) {
+        return submit(key, connection -> connection.exists(key));
+    }
+
+    /**
+     * 设置过期时间
+     *
+     * @param key     key
+     * @param timeout 过期时间
+     * @param unit    时间单位
+     * @return boolean
+     */
+    public CompletableFuture<Boolean> expire(String key, long timeout, TimeUnit unit) {
+        return submit(key, connection -> connection.pExpire(key, unit.toMillis(timeout)));
+    }
+
+    /**
+     * 返回key的剩余的过期时间
+     *
+     * @param key  key
+     * @param unit 时间单位
+     * @return 剩余过期时间, -1永不过期, -2不存在
+     */
+    public CompletableFuture<Long> getExpire(String key, TimeUnit unit) {
+        return this.<Long>submit(key, connection -> connection.pTtl(key))
+                .thenApply(ttl -> ttl == null || ttl < 0 ? ttl : unit.convert(ttl, TimeUnit.MILLISECONDS));
+    }
+
+    /*------------------------string相关操作---------------------------*/
+
+    /**
+     * 获取指定key的值
+     *
+     * @param key key
+     * @return 值
+     */
+    public CompletableFuture<String> get(String key) {
+        return submit(key, connection -> connection.get(key));
+    }
+
+    /**
+     * 批量获取
+     *
+     * @param keys key列表
+     * @return 值列表, 与keys顺序一致
+     */
+    public CompletableFuture<List<String>> multiGet(Collection<String> keys) {
+        String[] keyArray = keys.toArray(new String[0]);
+        return submit(routeKey(keys), connection -> connection.mGet(keyArray));
+    }
+
+    /**
+     * 设置指定key的值
+     *
+     * @param key   key
+     * @param value 值
+     * @return 完成时为null
+     */
+    public CompletableFuture<Void> set(String key, String value) {
+        return writeStatus(Collections.singletonList(key), connection -> connection.set(key, value));
+    }
+
+    /**
+     * 将值value关联到key,并将key的过期时间设为timeout
+     *
+     * @param key     key
+     * @param value   值
+     * @param timeout 过期时间
+     * @param unit    时间单位
+     * @return 完成时为null
+     */
+    public CompletableFuture<Void> setEx(String key, String value, long timeout, TimeUnit unit) {
+        return writeStatus(Collections.singletonList(key), connection -> connection.pSetEx(key, unit.toMillis(timeout), value));
+    }
+
+    /**
+     * 只有在key不存在时设置key的值
+     *
+     * @param key   key
+     * @param value 值
+     * @return 之前已经存在返回false, 不存在返回true
+     */
+    public CompletableFuture<Boolean> setIfAbsent(String key, String value) {
+        return write(Collections.singletonList(key), connection -> connection.setNX(key, value));
+    }
+
+    /**
+     * 批量添加
+     *
+     * @param maps key-值
+     * @return 完成时为null
+     */
+    public CompletableFuture<Void> multiSet(Map<String, String> maps) {
+        Map<String, String> copy = new LinkedHashMap<>(maps);
+        return writeStatus(copy.keySet(), connection -> connection.mSetString(copy));
+    }
+
+    /**
+     * 增加(自增长),负数则为自减
+     *
+     * @param key       key
+     * @param increment 增量
+     * @return 增加后的值
+     */
+    public CompletableFuture<Long> incrBy(String key, long increment) {
+        return write(Collections.singletonList(key), connection -> connection.incrBy(key, increment));
+    }
+
+    /*------------------------hash相关操作---------------------------*/
+
+    /**
+     * 获取存储在哈希表中指定字段的值
+     *
+     * @param key   key
+     * @param field 字段
+     * @return 值
+     */
+    public CompletableFuture<String> hGet(String key, String field) {
+        return submit(key, connection -> connection.hGet(key, field));
+    }
+
+    /**
+     * 获取所有给定字段的值
+     *
+     * @param key key
+     * @return 字段-值
+     */
+    public CompletableFuture<Map<String, String>> hGetAll(String key) {
+        return submit(key, connection -> connection.hGetAll(key));
+    }
+
+    /**
+     * 添加哈希表字段
+     *
+     * @param key     key
+     * @param hashKey 字段
+     * @param value   值
+     * @return 新字段返回true, 覆盖已有字段返回false
+     */
+    public CompletableFuture<Boolean> hPut(String key, String hashKey, String value) {
+        return write(Collections.singletonList(key), connection -> connection.hSet(key, hashKey, value));
+    }
+
+    /**
+     * 批量添加哈希表字段
+     *
+     * @param key  key
+     * @param maps 字段-值
+     * @return 完成时为null
+     */
+    public CompletableFuture<Void> hPutAll(String key, Map<String, String> maps) {
+        Map<String, String> copy = new LinkedHashMap<>(maps);
+        return writeStatus(Collections.singletonList(key), connection -> connection.hMSet(key, copy));
+    }
+
+    /**
+     * 删除一个或多个哈希表字段
+     *
+     * @param key    key
+     * @param fields 字段
+     * @return 删除的字段数
+     */
+    public CompletableFuture<Long> hDelete(String key, String... fields) {
+        return write(Collections.singletonList(key), connection -> connection.hDel(key, fields));
+    }
+
+    /**
+     * 查看哈希表key中指定的字段是否存在
+     *
+     * @param key   key
+     * @param field 字段
+     * @return boolean
+     */
+    public CompletableFuture<Boolean> hExists(String key, String field) {
+        return submit(key, connection -> connection.hExists(key, field));
+    }
+
+    /**
+     * 为哈希表key中的指定字段的整数值加上增量increment
+     *
+     * @param key       key
+     * @param field     字段
+     * @param increment 增量
+     * @return 增加后的值
+     */
+    public CompletableFuture<Long> hIncrBy(String key, String field, long increment) {
+        return write(Collections.singletonList(key), connection -> connection.hIncrBy(key, field, increment));
+    }
+
+    /*------------------------list相关操作---------------------------*/
+
+    /**
+     * 存储在list头部
+     *
+     * @param key   key
+     * @param value 值
+     * @return 列表长度
+     */
+    public CompletableFuture<Long> lLeftPush(String key, String value) {
+        return submit(key, connection -> connection.lPush(key, value));
+    }
+
+    /**
+     * 存储在list尾部
+     *
+     * @param key   key
+     * @param value 值
+     * @return 列表长度
+     */
+    public CompletableFuture<Long> lRightPush(String key, String value) {
+        return submit(key, connection -> connection.rPush(key, value));
+    }
+
+    /**
+     * 获取列表指定范围内的元素
+     *
+     * @param key   key
+     * @param start 开始位置, 0是开始位置
+     * @param end   结束位置, -1返回所有
+     * @return 元素列表
+     */
+    public CompletableFuture<List<String>> lRange(String key, long start, long end) {
+        return submit(key, connection -> connection.lRange(key, start, end));
+    }
+
+    /**
+     * 移出并获取列表的第一个元素
+     *
+     * @param key key
+     * @return 删除的元素
+     */
+    public CompletableFuture<String> lLeftPop(String key) {
+        return submit(key, connection -> connection.lPop(key));
+    }
+
+    /**
+     * 移除并获取列表最后一个元素
+     *
+     * @param key key
+     * @return 删除的元素
+     */
+    public CompletableFuture<String> lRightPop(String key) {
+        return submit(key, connection -> connection.rPop(key));
+    }
+
+    /**
+     * 获取列表长度
+     *
+     * @param key key
+     * @return 列表长度
+     */
+    public CompletableFuture<Long> lLen(String key) {
+        return submit(key, connection -> connection.lLen(key));
+    }
+
+    /*------------------------set相关操作---------------------------*/
+
+    /**
+     * set添加元素
+     *
+     * @param key    key
+     * @param values 值
+     * @return 添加的元素数
+     */
+    public CompletableFuture<Long> sAdd(String key, String... values) {
+        return submit(key, connection -> connection.sAdd(key, values));
+    }
+
+    /**
+     * set移除元素
+     *
+     * @param key    key
+     * @param values 值
+     * @return 移除的元素数
+     */
+    public CompletableFuture<Long> sRemove(String key, String... values) {
+        return submit(key, connection -> connection.sRem(key, values));
+    }
+
+    /**
+     * 获取集合所有元素
+     *
+     * @param key key
+     * @return 元素集合
+     */
+    public CompletableFuture<Set<String>> sMembers(String key) {
+        return submit(key, connection -> connection.sMembers(key));
+    }
+
+    /**
+     * 判断集合是否包含value
+     *
+     * @param key   key
+     * @param value 值
+     * @return boolean
+     */
+    public CompletableFuture<Boolean> sIsMember(String key, String value) {
+        return submit(key, connection -> connection.sIsMember(key, value));
+    }
+
+    /**
+     * 获取集合的大小
+     *
+     * @param key key
+     * @return 元素个数
+     */
+    public CompletableFuture<Long> sSize(String key) {
+        return submit(key, connection -> connection.sCard(key));
+    }
+
+    /*------------------------zSet相关操作---------------------------*/
+
+    /**
+     * 添加元素,有序集合是按照元素的score值由小到大排列
+     *
+     * @param key   key
+     * @param value 值
+     * @param score 分数
+     * @return boolean
+     */
+    public CompletableFuture<Boolean> zAdd(String key, String value, double score) {
+        return submit(key, connection -> connection.zAdd(key, score, value));
+    }
+
+    /**
+     * 移除元素
+     *
+     * @param key    key
+     * @param values 值
+     * @return 移除的元素数
+     */
+    public CompletableFuture<Long> zRemove(String key, String... values) {
+        return submit(key, connection -> connection.zRem(key, values));
+    }
+
+    /**
+     * 增加元素的score值,并返回增加后的值
+     *
+     * @param key   key
+     * @param value 值
+     * @param delta 增量
+     * @return 增加后的分数
+     */
+    public CompletableFuture<Double> zIncrementScore(String key, String value, double delta) {
+        return submit(key, connection -> connection.zIncrBy(key, delta, value));
+    }
+
+    /**
+     * 获取集合中value元素的score值
+     *
+     * @param key   key
+     * @param value 值
+     * @return 分数
+     */
+    public CompletableFuture<Double> zScore(String key, String value) {
+        return submit(key, connection -> connection.zScore(key, value));
+    }
+
+    /**
+     * 返回元素在集合的排名,有序集合是按照元素的score值由小到大排列
+     *
+     * @param key   key
+     * @param value 值
+     * @return 0表示第一位
+     */
+    public CompletableFuture<Long> zRank(String key, String value) {
+        return submit(key, connection -> connection.zRank(key, value));
+    }
+
+    /**
+     * 获取集合的元素, 从小到大排序
+     *
+     * @param key   key
+     * @param start 开始位置
+     * @param end   结束位置, -1查询所有
+     * @return 元素集合
+     */
+    public CompletableFuture<Set<String>> zRange(String key, long start, long end) {
+        return submit(key, connection -> connection.zRange(key, start, end));
+    }
+
+    /**
+     * 获取集合的元素, 从大到小排序
+     *
+     * @param key   key
+     * @param start 开始位置
+     * @param end   结束位置, -1查询所有
+     * @return 元素集合
+     */
+    public CompletableFuture<Set<String>> zReverseRange(String key, long start, long end) {
+        return submit(key, connection -> connection.zRevRange(key, start, end));
+    }
+
+    /**
+     * 获取集合大小
+     *
+     * @param key key
+     * @return 元素个数
+     */
+    public CompletableFuture<Long> zSize(String key) {
+        return submit(key, connection -> connection.zCard(key));
+    }
+
+    /*------------------------统计---------------------------*/
+
+    /**
+     * 已发送的流水线次数
+     */
+    public long getPipelineCount() {
+        return pipelines.sum();
+    }
+
+    /**
+     * 已发送的命令数
+     */
+    public long getCommandCount() {
+        return commands.sum();
+    }
+
+    /**
+     * 等待发送的命令数
+     */
+    public int getPendingCount() {
+        BlockingQueue<Command<?>>[] current = queues;
+        int pending = 0;
+        if (current != null) {
+            for (BlockingQueue<Command<?>> queue : current) {
+                pending += queue.size();
+            }
+        }
+        return pending;
+    }
+
+    /*------------------------分发---------------------------*/
+
+    private <T> CompletableFuture<T> submit(String routeKey, Function<StringRedisConnection, Object> command) {
+        return submit(new Command<>(routeKey, false, command, null));
+    }
+
+    private <T> CompletableFuture<T> write(Collection<String> keys, Function<StringRedisConnection, Object> command) {
+        return submit(new Command<>(routeKey(keys), false, command, evictKeys(keys)));
+    }
+
+    private CompletableFuture<Void> writeStatus(Collection<String> keys, Consumer<StringRedisConnection> command) {
+        return submit(new Command<>(routeKey(keys), true, connection -> {
+            command.accept(connection);
+            return null;
+        }, evictKeys(keys)));
+    }
+
+    private Collection<String> evictKeys(Collection<String> keys) {
+        return redisNearCache == null || keys.isEmpty() ? null : new ArrayList<>(keys);
+    }
+
+    //多key命令按第一个key分配队列
+    private static String routeKey(Collection<String> keys) {
+        return keys.isEmpty() ? "" : keys.iterator().next();
+    }
+
+    private <T> CompletableFuture<T> submit(Command<T> command) {
+        BlockingQueue<Command<?>>[] current = queues;
+        if (!running || current == null) {
+            command.future.completeExceptionally(new RejectedExecutionException("AsyncRedisUtil is not running"));
+            return command.future;
+        }
+        int hash = command.routeKey.hashCode();
+        BlockingQueue<Command<?>> queue = current[((hash ^ (hash >>> 16)) & Integer.MAX_VALUE) % current.length];
+        if (!queue.offer(command)) {
+            command.future.completeExceptionally(new RejectedExecutionException("AsyncRedisUtil queue is full, capacity=" + queueCapacity));
+        } else if (!running && queue.remove(command)) {
+            //与shutdown并发时分发线程可能已经退出
+            command.future.completeExceptionally(new RejectedExecutionException("AsyncRedisUtil is shut down"));
+        }
+        return command.future;
+    }
+
+    private void dispatch(BlockingQueue<Command<?>> queue) {
+        List<Command<?>> batch = new ArrayList<>(maxBatch);
+        while (running || !queue.isEmpty()) {
+            try {
+                Command<?> first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, maxBatch - 1);
+                execute(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Throwable e) {
+                //execute内部已完成所有future,这里只防止分发线程意外退出
+                log.error("redis async dispatch fail", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void execute(List<Command<?>> batch) {
+        //为true时状态命令不会出现在流水线结果中
+        boolean skipStatus = stringRedisTemplate.getConnectionFactory().getConvertPipelineAndTxResults();
+        List<Object> replies;
+        try {
+            replies = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                StringRedisConnection stringRedisConnection = (StringRedisConnection) connection;
+                for (Command<?> command : batch) {
+                    command.command.apply(stringRedisConnection);
+                    if (command.evictKeys != null) {
+                        stringRedisConnection.publish(redisNearCache.getChannel(),
+                                redisNearCache.invalidationMessage(command.evictKeys));
+                    }
+                }
+                return null;
+            });
+        } catch (RedisPipelineException e) {
+            //部分命令失败,结果中对应位置为异常,其余结果没有经过反序列化
+            replies = new ArrayList<>(e.getPipelineResult().size());
+            for (Object reply : e.getPipelineResult()) {
+                replies.add(deserialize(reply));
+            }
+        } catch (RuntimeException e) {
+            for (Command<?> command : batch) {
+                command.future.completeExceptionally(e);
+            }
+            return;
+        }
+        pipelines.increment();
+        commands.add(batch.size());
+        int replyIndex = 0;
+        for (Command<?> command : batch) {
+            Object reply = null;
+            if (!command.status || !skipStatus) {
+                reply = replyIndex < replies.size() ? replies.get(replyIndex) : new IllegalStateException(
+                        "pipeline returned " + replies.size() + " replies for " + batch.size() + " commands");
+                replyIndex++;
+            }
+            if (command.evictKeys != null) {
+                redisNearCache.invalidateLocal(command.evictKeys);
+                //跳过广播命令的回复
+                replyIndex++;
+            }
+            command.complete(command.status && !(reply instanceof Throwable) ? null : reply);
+        }
+    }
+
+    //与StringRedisTemplate对流水线结果的反序列化一致
+    private Object deserialize(Object reply) {
+        RedisSerializer<String> serializer = stringRedisTemplate.getStringSerializer();
+        if (reply instanceof byte[]) {
+            return serializer.deserialize((byte[]) reply);
+        }
+        if (reply instanceof List) {
+            List<Object> list = new ArrayList<>(((List<?>) reply).size());
+            for (Object element : (List<?>) reply) {
+                list.add(deserialize(element));
+            }
+            return list;
+        }
+        if (reply instanceof Set) {
+            Set<Object> set = new LinkedHashSet<>();
+            for (Object element : (Set<?>) reply) {
+                set.add(deserialize(element));
+            }
+            return set;
+        }
+        if (reply instanceof Map) {
+            Map<Object, Object> map = new LinkedHashMap<>();
+            for (Map.Entry<?, ?> entry : ((Map<?, ?>) reply).entrySet()) {
+                map.put(deserialize(entry.getKey()), deserialize(entry.getValue()));
+            }
+            return map;
+        }
+        return reply;
+    }
+
+    private static final class Command<T> {
+
+        private final String routeKey;
+
+        //是否是只返回状态(OK)的命令
+        private final boolean status;
+
+        private final Function<StringRedisConnection, Object> command;
+
+        //写命令完成后需要失效本地缓存的key,未开启本地缓存时为null
+        private final Collection<String> evictKeys;
+
+        private final CompletableFuture<T> future = new CompletableFuture<>();
+
+        Command(String routeKey, boolean status, Function<StringRedisConnection, Object> command, Collection<String> evictKeys) {
+            this.routeKey = routeKey;
+            this.status = status;
+            this.command = command;
+            this.evictKeys = evictKeys;
+        }
+
+        @SuppressWarnings("unchecked")
+        void complete(Object reply) {
+            if (reply instanceof Throwable) {
+                future.completeExceptionally((Throwable) reply);
+            } else {
+                future.complete((T) reply);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.pzl.program.frametool.redis;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 延迟任务
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+@Getter
+@ToString
+public final class DelayJob {
+
+    /**
+     * 任务id,队列内唯一,重复写入同一id会覆盖之前的任务
+     */
+    private final String id;
+
+    /**
+     * 任务内容
+     */
+    private final String payload;
+
+    /**
+     * 到期时间(毫秒时间戳)
+     */
+    private final long dueTime;
+
+    /**
+     * 第几次投递,从1开始,写入时为0
+     */
+    private final int attempts;
+
+    DelayJob(String id, String payload, long dueTime, int attempts) {
+        this.id = id;
+        this.payload = payload;
+        this.dueTime = dueTime;
+        this.attempts = attempts;
+    }
+
+    /**
+     * 创建在指定延迟后到期的任务
+     *
+     * @param id      任务id
+     * @param payload 任务内容
+     * @param delay   延迟时间
+     * @param unit    时间单位
+     * @return DelayJob
+     */
+    public static DelayJob of(String id, String payload, long delay, TimeUnit unit) {
+        return new DelayJob(id, payload, System.currentTimeMillis() + unit.toMillis(delay), 0);
+    }
+
+    /**
+     * 创建在指定时间到期的任务
+     *
+     * @param id      任务id
+     * @param payload 任务内容
+     * @param dueTime 到期时间(毫秒时间戳)
+     * @return DelayJob
+     */
+    public static DelayJob at(String id, String payload, long dueTime) {
+        return new DelayJob(id, payload, dueTime, 0);
+    }
+
+}
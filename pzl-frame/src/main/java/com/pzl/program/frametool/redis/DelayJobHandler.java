@@ -0,0 +1,23 @@
+package com.pzl.program.frametool.redis;
+
+/**
+ * 延迟任务处理器
+ * <p>
+ * 正常返回视为处理成功并确认;抛出异常按退避时间重试,超过最大投递次数进入死信。
+ * 任务至少投递一次,处理超时、节点宕机时会重复投递,处理逻辑需要幂等。
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+@FunctionalInterface
+public interface DelayJobHandler {
+
+    /**
+     * 处理任务
+     *
+     * @param job 任务
+     * @throws Exception 处理失败
+     */
+    void handle(DelayJob job) throws Exception;
+
+}
@@ -0,0 +1,37 @@
+package com.pzl.program.frametool.redis;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * 排行榜条目
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+@Getter
+@ToString
+public final class LeaderboardEntry {
+
+    /**
+     * 成员
+     */
+    private final String member;
+
+    /**
+     * 分数
+     */
+    private final double score;
+
+    /**
+     * 排名,分数从高到低,从0开始
+     */
+    private final long rank;
+
+    LeaderboardEntry(String member, double score, long rank) {
+        this.member = member;
+        this.score = score;
+        this.rank = rank;
+    }
+
+}
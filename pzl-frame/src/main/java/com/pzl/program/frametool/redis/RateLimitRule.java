@@ -0,0 +1,103 @@
+package com.pzl.program.frametool.redis;
+
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 限流规则
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+@Getter
+@ToString
+public final class RateLimitRule {
+
+    /**
+     * 限流算法
+     */
+    public enum Algorithm {
+
+        /**
+         * 令牌桶:按固定速率生成令牌,允许不超过桶容量的突发
+         */
+        TOKEN_BUCKET("tb"),
+
+        /**
+         * 滑动窗口日志:任意一个窗口长度内的请求数不超过上限,精确但每个请求占用一个zset成员
+         */
+        SLIDING_WINDOW("sw");
+
+        private final String code;
+
+        Algorithm(String code) {
+            this.code = code;
+        }
+
+        public String getCode() {
+            return code;
+        }
+
+    }
+
+    private final Algorithm algorithm;
+
+    //令牌桶容量/窗口内请求上限
+    private final long capacity;
+
+    //令牌桶每秒生成的令牌数
+    private final double permitsPerSecond;
+
+    //滑动窗口长度(毫秒)
+    private final long windowMillis;
+
+    private RateLimitRule(Algorithm algorithm, long capacity, double permitsPerSecond, long windowMillis) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        this.algorithm = algorithm;
+        this.capacity = capacity;
+        this.permitsPerSecond = permitsPerSecond;
+        this.windowMillis = windowMillis;
+    }
+
+    /**
+     * 令牌桶规则
+     *
+     * @param capacity         桶容量,即最大突发请求数
+     * @param permitsPerSecond 每秒生成的令牌数
+     * @return 规则
+     */
+    public static RateLimitRule tokenBucket(long capacity, double permitsPerSecond) {
+        if (permitsPerSecond <= 0) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive: " + permitsPerSecond);
+        }
+        return new RateLimitRule(Algorithm.TOKEN_BUCKET, capacity, permitsPerSecond, 0);
+    }
+
+    /**
+     * 滑动窗口规则
+     *
+     * @param limit  窗口内请求上限
+     * @param window 窗口长度
+     * @param unit   时间单位
+     * @return 规则
+     */
+    public static RateLimitRule slidingWindow(long limit, long window, TimeUnit unit) {
+        long windowMillis = unit.toMillis(window);
+        if (windowMillis <= 0) {
+            throw new IllegalArgumentException("window must be at least 1ms: " + window + " " + unit);
+        }
+        return new RateLimitRule(Algorithm.SLIDING_WINDOW, limit, 0, windowMillis);
+    }
+
+    /**
+     * 脚本参数: 令牌桶为每秒生成数, 滑动窗口为窗口长度
+     */
+    String scriptParam() {
+        return algorithm == Algorithm.TOKEN_BUCKET ? String.valueOf(permitsPerSecond) : String.valueOf(windowMillis);
+    }
+
+}
@@ -0,0 +1,598 @@
+package com.pzl.program.frametool.redis;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisStringCommands.BitOperation;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Redis 批量(pipeline)操作
+ * <p>
+ * RedisUtil中的每个方法都是一次独立的网络往返(RTT),批量处理上万个key时绝大部分时间都耗在等待网络上。
+ * RedisBatch先把五种数据结构的操作按顺序排队,调用execute()时按chunkSize分段,
+ * 每一段通过executePipelined一次性发送,返回结果与入队顺序一一对应。
+ * <p>
+ * 注意:
+ * 1、SET/SETEX/HMSET/PFMERGE这类只返回状态(OK)的命令,Jedis在流水线中默认不返回结果,对应位置的结果为null
+ * 2、流水线不是事务,同一段内的命令不保证原子性
+ * 3、RedisBatch非线程安全,一个批次只在一个线程中使用
+ * <p>
+ * 使用示例:
+ * RedisBatch.Result result = redisUtil.batch()
+ * .set("k1", "v1")
+ * .get("k1")
+ * .hPut("h1", "f1", "v1")
+ * .zAdd("z1", "m1", 1.0)
+ * .execute();
+ * String value = result.get(1);
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+@Slf4j
+public class RedisBatch {
+
+    /**
+     * 默认每次流水线发送的命令数
+     */
+    public static final int DEFAULT_CHUNK_SIZE = 500;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final int chunkSize;
+
+    private final List<Operation> operations = new ArrayList<>();
+
+    RedisBatch(StringRedisTemplate stringRedisTemplate, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("chunkSize must be greater than 0");
+        }
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.chunkSize = chunkSize;
+    }
+
+    /*------------------------key相关操作---------------------------*/
+
+    /**
+     * 删除key,结果为Long
+     *
+     * @param key key
+     * @return this
+     */
+    public RedisBatch delete(String key) {
+        return add(false, connection -> connection.del(key));
+    }
+
+    /**
+     * 是否存在key,结果为Boolean
+     *
+     * @param key key
+     * @return this
+     */
+    public RedisBatch hasKey(String key) {
+        return add(false, connection -> connection.exists(key));
+    }
+
+    /**
+     * 设置过期时间,结果为Boolean
+     *
+     * @param key     key
+     * @param timeout 过期时间
+     * @param unit    时间单位
+     * @return this
+     */
+    public RedisBatch expire(String key, long timeout, TimeUnit unit) {
+        return add(false, connection -> connection.pExpire(key, unit.toMillis(timeout)));
+    }
+
+    /*------------------------string相关操作-----------------------------*/
+
+    /**
+     * 设置指定key的值,状态命令,结果为null
+     *
+     * @param key   key
+     * @param value 值
+     * @return this
+     */
+    public RedisBatch set(String key, String value) {
+        return add(true, connection -> connection.set(key, value));
+    }
+
+    /**
+     * 设置值并设置过期时间,状态命令,结果为null
+     *
+     * @param key     key
+     * @param value   值
+     * @param timeout 过期时间
+     * @param unit    时间单位
+     * @return this
+     */
+    public RedisBatch setEx(String key, String value, long timeout, TimeUnit unit) {
+        return add(true, connection -> connection.pSetEx(key, unit.toMillis(timeout), value));
+    }
+
+    /**
+     * 只有在 key 不存在时设置 key 的值,结果为Boolean
+     *
+     * @param key   key
+     * @param value 值
+     * @return this
+     */
+    public RedisBatch setIfAbsent(String key, String value) {
+        return add(false, connection -> connection.setNX(key, value));
+    }
+
+    /**
+     * 获取指定key的值,结果为String
+     *
+     * @param key key
+     * @return this
+     */
+    public RedisBatch get(String key) {
+        return add(false, connection -> connection.get(key));
+    }
+
+    /**
+     * 增加(自增长),负数则为自减,结果为Long
+     *
+     * @param key       key
+     * @param increment 增长的值
+     * @return this
+     */
+    public RedisBatch incrBy(String key, long increment) {
+        return add(false, connection -> connection.incrBy(key, increment));
+    }
+
+    /**
+     * 获取指定位置上的值,结果为Boolean
+     *
+     * @param key    key
+     * @param offset 位置
+     * @return this
+     */
+    public RedisBatch getBit(String key, long offset) {
+        return add(false, connection -> connection.getBit(key, offset));
+    }
+
+    /**
+     * 设置指定位置上的值,结果为Boolean(该位置原来的值)
+     *
+     * @param key    key
+     * @param offset 位置
+     * @param value  值,true为1,false为0
+     * @return this
+     */
+    public RedisBatch setBit(String key, long offset, boolean value) {
+        return add(false, connection -> connection.setBit(key, offset, value));
+    }
+
+    /**
+     * 统计值为1的位数,结果为Long
+     *
+     * @param key key
+     * @return this
+     */
+    public RedisBatch bitCount(String key) {
+        return add(false, connection -> connection.bitCount(key));
+    }
+
+    /**
+     * 位运算,结果保存到destKey,结果为Long(destKey的字节长度)
+     *
+     * @param op      运算
+     * @param destKey 目标key
+     * @param keys    参与运算的key
+     * @return this
+     */
+    public RedisBatch bitOp(BitOperation op, String destKey, String... keys) {
+        return add(false, connection -> connection.bitOp(op, destKey, keys));
+    }
+
+    /*-----------------------------------hash相关操作-----------------------------*/
+
+    /**
+     * hash结构中添加值,结果为Boolean
+     *
+     * @param key     key
+     * @param hashKey field
+     * @param value   值
+     * @return this
+     */
+    public RedisBatch hPut(String key, String hashKey, String value) {
+        return add(false, connection -> connection.hSet(key, hashKey, value));
+    }
+
+    /**
+     * 批量设置hash结构数据,状态命令,结果为null
+     *
+     * @param key  key
+     * @param maps (filed=map.key,value=map.value)
+     * @return this
+     */
+    public RedisBatch hPutAll(String key, Map<String, String> maps) {
+        return add(true, connection -> connection.hMSet(key, maps));
+    }
+
+    /**
+     * 获取存储在哈希表中指定字段的值,结果为String
+     *
+     * @param key   key
+     * @param field 字段
+     * @return this
+     */
+    public RedisBatch hGet(String key, String field) {
+        return add(false, connection -> connection.hGet(key, field));
+    }
+
+    /**
+     * 获取hash的所有字段和值,结果为Map
+     *
+     * @param key key
+     * @return this
+     */
+    public RedisBatch hGetAll(String key) {
+        return add(false, connection -> connection.hGetAll(key));
+    }
+
+    /**
+     * 删除一个或多个哈希表字段,结果为Long
+     *
+     * @param key    key
+     * @param fields 字段
+     * @return this
+     */
+    public RedisBatch hDelete(String key, String... fields) {
+        return add(false, connection -> connection.hDel(key, fields));
+    }
+
+    /**
+     * 为哈希表 key 中的指定字段的整数值加上增量 increment,结果为Long
+     *
+     * @param key       key
+     * @param field     字段
+     * @param increment 增量值
+     * @return this
+     */
+    public RedisBatch hIncrBy(String key, String field, long increment) {
+        return add(false, connection -> connection.hIncrBy(key, field, increment));
+    }
+
+    /*------------------------------list相关操作---------------------------------------*/
+
+    /**
+     * 存储在list头部,结果为Long
+     *
+     * @param key   key
+     * @param value 值
+     * @return this
+     */
+    public RedisBatch lLeftPush(String key, String value) {
+        return add(false, connection -> connection.lPush(key, value));
+    }
+
+    /**
+     * 存储在list尾部,结果为Long
+     *
+     * @param key   key
+     * @param value 值
+     * @return this
+     */
+    public RedisBatch lRightPush(String key, String value) {
+        return add(false, connection -> connection.rPush(key, value));
+    }
+
+    /**
+     * 批量存储在list尾部,结果为Long
+     *
+     * @param key    key
+     * @param values 值
+     * @return this
+     */
+    public RedisBatch lRightPushAll(String key, Collection<String> values) {
+        String[] array = values.toArray(new String[0]);
+        return add(false, connection -> connection.rPush(key, array));
+    }
+
+    /**
+     * 获取列表指定范围内的元素,结果为List
+     *
+     * @param key   key
+     * @param start 开始位置, 0是开始位置
+     * @param end   结束位置, -1返回所有
+     * @return this
+     */
+    public RedisBatch lRange(String key, long start, long end) {
+        return add(false, connection -> connection.lRange(key, start, end));
+    }
+
+    /**
+     * 获取列表长度,结果为Long
+     *
+     * @param key key
+     * @return this
+     */
+    public RedisBatch lLen(String key) {
+        return add(false, connection -> connection.lLen(key));
+    }
+
+    /*---------------------------set相关操作-------------------------------*/
+
+    /**
+     * set添加元素,结果为Long
+     *
+     * @param key    key
+     * @param values 值
+     * @return this
+     */
+    public RedisBatch sAdd(String key, String... values) {
+        return add(false, connection -> connection.sAdd(key, values));
+    }
+
+    /**
+     * set移除元素,结果为Long
+     *
+     * @param key    key
+     * @param values 值
+     * @return this
+     */
+    public RedisBatch sRemove(String key, String... values) {
+        return add(false, connection -> connection.sRem(key, values));
+    }
+
+    /**
+     * 判断集合是否包含value,结果为Boolean
+     *
+     * @param key   key
+     * @param value 值
+     * @return this
+     */
+    public RedisBatch sIsMember(String key, String value) {
+        return add(false, connection -> connection.sIsMember(key, value));
+    }
+
+    /**
+     * 获取集合所有元素,结果为Set
+     *
+     * @param key key
+     * @return this
+     */
+    public RedisBatch setMembers(String key) {
+        return add(false, connection -> connection.sMembers(key));
+    }
+
+    /*----------------------------zSet相关操作-----------------------------------*/
+
+    /**
+     * 添加元素,结果为Boolean
+     *
+     * @param key   key
+     * @param value 值
+     * @param score 分数
+     * @return this
+     */
+    public RedisBatch zAdd(String key, String value, double score) {
+        return add(false, connection -> connection.zAdd(key, score, value));
+    }
+
+    /**
+     * 移除元素,结果为Long
+     *
+     * @param key    key
+     * @param values 值
+     * @return this
+     */
+    public RedisBatch zRemove(String key, String... values) {
+        return add(false, connection -> connection.zRem(key, values));
+    }
+
+    /**
+     * 增加元素的score值,结果为Double
+     *
+     * @param key   key
+     * @param value 值
+     * @param delta 增加评分值
+     * @return this
+     */
+    public RedisBatch zIncrementScore(String key, String value, double delta) {
+        return add(false, connection -> connection.zIncrBy(key, delta, value));
+    }
+
+    /**
+     * 获取集合中value元素的score值,结果为Double
+     *
+     * @param key   key
+     * @param value 值
+     * @return this
+     */
+    public RedisBatch zScore(String key, String value) {
+        return add(false, connection -> connection.zScore(key, value));
+    }
+
+    /**
+     * 获取集合大小,结果为Long
+     *
+     * @param key key
+     * @return this
+     */
+    public RedisBatch zSize(String key) {
+        return add(false, connection -> connection.zCard(key));
+    }
+
+    /**
+     * 获取集合的元素,从小到大排序,结果为Set
+     *
+     * @param key   key
+     * @param start 开始位置
+     * @param end   结束位置,-1查询所有
+     * @return this
+     */
+    public RedisBatch zRange(String key, long start, long end) {
+        return add(false, connection -> connection.zRange(key, start, end));
+    }
+
+    /**
+     * 获取集合元素并且把score值也获取,结果为Set&lt;TypedTuple&lt;String&gt;&gt;
+     *
+     * @param key   key
+     * @param start 开始索引
+     * @param end   结束索引
+     * @return this
+     */
+    public RedisBatch zRangeWithScores(String key, long start, long end) {
+        return add(false, connection -> connection.zRangeWithScores(key, start, end));
+    }
+
+    /*----------------------------HyperLogLog相关操作-----------------------------------*/
+
+    /**
+     * 添加元素到HyperLogLog,结果为Long
+     *
+     * @param key    key
+     * @param values 元素
+     * @return this
+     */
+    public RedisBatch pfAdd(String key, String... values) {
+        return add(false, connection -> connection.pfAdd(key, values));
+    }
+
+    /**
+     * HyperLogLog基数估算值,多个key时为并集的估算值,结果为Long
+     *
+     * @param keys key列表
+     * @return this
+     */
+    public RedisBatch pfCount(String... keys) {
+        return add(false, connection -> connection.pfCount(keys));
+    }
+
+    /**
+     * 合并多个HyperLogLog到destKey,结果为"OK"
+     * (Jedis连接的流水线中PFMERGE不按状态命令处理,转换流水线结果时回复仍然保留)
+     *
+     * @param destKey    目标key
+     * @param sourceKeys 源key列表
+     * @return this
+     */
+    public RedisBatch pfMerge(String destKey, String... sourceKeys) {
+        return add(false, connection -> connection.pfMerge(destKey, sourceKeys));
+    }
+
+    /*----------------------------执行-----------------------------------*/
+
+    /**
+     * 已入队的命令数
+     *
+     * @return 命令数
+     */
+    public int size() {
+        return operations.size();
+    }
+
+    /**
+     * 分段通过流水线发送已入队的命令,执行后清空队列
+     *
+     * @return 与入队顺序一致的结果
+     */
+    public Result execute() {
+        if (operations.isEmpty()) {
+            return new Result(Collections.emptyList());
+        }
+        RedisConnectionFactory connectionFactory = stringRedisTemplate.getConnectionFactory();
+        //为true时状态命令不会出现在流水线结果中
+        boolean skipStatus = connectionFactory.getConvertPipelineAndTxResults();
+        List<Object> values = new ArrayList<>(operations.size());
+        try {
+            for (int from = 0; from < operations.size(); from += chunkSize) {
+                List<Operation> chunk = operations.subList(from, Math.min(from + chunkSize, operations.size()));
+                List<Object> replies = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+                    StringRedisConnection stringRedisConnection = (StringRedisConnection) connection;
+                    for (Operation operation : chunk) {
+                        operation.command.accept(stringRedisConnection);
+                    }
+                    return null;
+                });
+                int replyIndex = 0;
+                for (Operation operation : chunk) {
+                    if (operation.status && skipStatus) {
+                        values.add(null);
+                    } else if (replyIndex < replies.size()) {
+                        values.add(replies.get(replyIndex++));
+                    } else {
+                        throw new IllegalStateException("pipeline returned " + replies.size()
+                                + " replies for " + chunk.size() + " commands");
+                    }
+                }
+            }
+        } finally {
+            operations.clear();
+        }
+        log.debug("redis batch executed, commands={}, chunkSize={}", values.size(), chunkSize);
+        return new Result(values);
+    }
+
+    private RedisBatch add(boolean status, Consumer<StringRedisConnection> command) {
+        operations.add(new Operation(status, command));
+        return this;
+    }
+
+    /**
+     * 已入队的命令
+     */
+    private static class Operation {
+
+        //是否是只返回状态(OK)的命令
+        private final boolean status;
+
+        private final Consumer<StringRedisConnection> command;
+
+        Operation(boolean status, Consumer<StringRedisConnection> command) {
+            this.status = status;
+            this.command = command;
+        }
+
+    }
+
+    /**
+     * 批量执行结果,下标与入队顺序一致
+     */
+    public static class Result {
+
+        private final List<Object> values;
+
+        Result(List<Object> values) {
+            this.values = values;
+        }
+
+        /**
+         * 获取第index条命令的结果
+         *
+         * @param index 入队下标
+         * @param <T>   结果类型
+         * @return 结果
+         */
+        @SuppressWarnings("unchecked")
+        public <T> T get(int index) {
+            return (T) values.get(index);
+        }
+
+        public int size() {
+            return values.size();
+        }
+
+        public List<Object> asList() {
+            return Collections.unmodifiableList(values);
+        }
+
+    }
+
+}
@@ -0,0 +1,332 @@
+package com.pzl.program.frametool.redis;
+
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Redis 布隆过滤器(可扩容)
+ * <p>
+ * 用位图代替set判断"一定不存在/可能存在",1亿个元素1%误判率约占114MB,而同样的set要几十GB。
+ * 位置在客户端计算:对元素做一次murmur3_128,取两个64位值h1、h2,第i个位置为 (h1 + i * h2) mod m。
+ * 查询的所有位操作通过RedisBatch放在一个流水线里;添加通过Lua脚本(RedisScripts.BLOOM_ADD)
+ * 在服务端置位、判断是否新增并累加计数,一次往返。计数和位图只经过stringRedisTemplate读写,不进入近端缓存。
+ * <p>
+ * 扩容:实际插入数超过预期时误判率会迅速升高,这里按Scalable Bloom Filter的做法分层,
+ * 第i层容量为 expectedInsertions * 2^i,误判率为 fpp/2 * (1/2)^i,所有层的误判率之和不超过fpp。
+ * 插入写到最后一层,查询检查所有层。层数由Redis中的插入计数推算,各节点不需要额外同步。
+ * <p>
+ * 注意:布隆过滤器不支持删除;计数在元素新增时才加一,两个元素的位置完全重合时后插入的不计入。
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class RedisBloomFilter {
+
+    //Redis字符串最大512MB,即2^32位
+    private static final long MAX_BITS = 1L << 32;
+
+    //每层容量的增长倍数
+    private static final int GROWTH = 2;
+
+    //每层误判率的收紧比例
+    private static final double TIGHTENING = 0.5;
+
+    //一次脚本调用写入的元素数上限,避免单个脚本长时间阻塞Redis
+    private static final int ADD_CHUNK_SIZE = 200;
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private final RedisUtil redisUtil;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final String name;
+
+    private final long expectedInsertions;
+
+    private final double fpp;
+
+    private final String countKey;
+
+    //已计算的层参数
+    private final List<Layer> layers = new CopyOnWriteArrayList<>();
+
+    //最近一次从Redis读到的插入计数
+    private volatile long knownCount;
+
+    RedisBloomFilter(RedisUtil redisUtil, StringRedisTemplate stringRedisTemplate, String name,
+                     long expectedInsertions, double fpp) {
+        if (expectedInsertions <= 0) {
+            throw new IllegalArgumentException("expectedInsertions must be positive: " + expectedInsertions);
+        }
+        if (fpp <= 0 || fpp >= 1) {
+            throw new IllegalArgumentException("fpp must be between 0 and 1: " + fpp);
+        }
+        this.redisUtil = redisUtil;
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.name = name;
+        this.expectedInsertions = expectedInsertions;
+        this.fpp = fpp;
+        this.countKey = "bloom:{" + name + "}:count";
+        layer(0);
+    }
+
+    /**
+     * 添加元素,一次往返
+     *
+     * @param value 元素
+     * @return 是否新增,false表示可能已存在
+     */
+    public boolean add(String value) {
+        return addAll(Collections.singletonList(value)) == 1;
+    }
+
+    /**
+     * 批量添加,每段一次脚本调用
+     *
+     * @param values 元素
+     * @return 新增的元素数
+     */
+    public long addAll(Collection<String> values) {
+        List<String> list = new ArrayList<>(values);
+        if (list.size() > 1) {
+            //批量写入前先读取最新计数,本地计数可能落后于其他节点
+            approximateElementCount();
+        }
+        long added = 0;
+        int from = 0;
+        while (from < list.size()) {
+            //每段不超过最后一层的剩余容量,避免一次批量写入把最后一层写满后继续写入
+            long remaining = Math.max(1, totalCapacity(layerCount(knownCount)) - knownCount);
+            int to = (int) Math.min(list.size(), from + Math.min(remaining, ADD_CHUNK_SIZE));
+            added += addSegment(list.subList(from, to));
+            from = to;
+        }
+        return added;
+    }
+
+    private long addSegment(List<String> values) {
+        int layerCount = layerCount(knownCount);
+        List<String> keys = new ArrayList<>(layerCount + 1);
+        List<String> args = new ArrayList<>();
+        keys.add(countKey);
+        args.add(String.valueOf(layerCount));
+        for (int i = 0; i < layerCount; i++) {
+            keys.add(layer(i).key);
+            args.add(String.valueOf(layer(i).hashes));
+        }
+        for (String value : values) {
+            HashCode hash = hash(value);
+            for (int i = 0; i < layerCount; i++) {
+                for (long position : layer(i).positions(hash)) {
+                    args.add(String.valueOf(position));
+                }
+            }
+        }
+        List<?> result = stringRedisTemplate.execute(RedisScripts.BLOOM_ADD, keys, args.toArray());
+        updateCount(result.get(1));
+        return ((Number) result.get(0)).longValue();
+    }
+
+    /**
+     * 是否可能存在,一次往返
+     *
+     * @param value 元素
+     * @return false表示一定不存在
+     */
+    public boolean mightContain(String value) {
+        return mightContainAll(Collections.singletonList(value)).get(0);
+    }
+
+    /**
+     * 批量判断是否可能存在
+     *
+     * @param values 元素
+     * @return 与values顺序一致的结果,false表示一定不存在
+     */
+    public List<Boolean> mightContainAll(List<String> values) {
+        List<HashCode> hashes = new ArrayList<>(values.size());
+        List<Boolean> result = new ArrayList<>(values.size());
+        for (String value : values) {
+            hashes.add(hash(value));
+            result.add(false);
+        }
+        int checked = layerCount(knownCount);
+        check(hashes, result, 0, checked);
+        //读计数发现其他节点已经扩容,补查新增的层
+        int layerCount = layerCount(knownCount);
+        if (layerCount > checked) {
+            check(hashes, result, checked, layerCount);
+        }
+        return result;
+    }
+
+    private void check(List<HashCode> hashes, List<Boolean> result, int fromLayer, int toLayer) {
+        RedisBatch batch = redisUtil.batch(hashes.size() == 1 ? Integer.MAX_VALUE : RedisBatch.DEFAULT_CHUNK_SIZE);
+        batch.get(countKey);
+        for (int v = 0; v < hashes.size(); v++) {
+            if (result.get(v)) {
+                continue;
+            }
+            for (int i = fromLayer; i < toLayer; i++) {
+                Layer layer = layer(i);
+                for (long position : layer.positions(hashes.get(v))) {
+                    batch.getBit(layer.key, position);
+                }
+            }
+        }
+        RedisBatch.Result replies = batch.execute();
+        updateCount(replies.get(0));
+        int index = 1;
+        for (int v = 0; v < hashes.size(); v++) {
+            if (result.get(v)) {
+                continue;
+            }
+            boolean contains = false;
+            for (int i = fromLayer; i < toLayer; i++) {
+                boolean all = true;
+                for (int j = 0; j < layer(i).hashes; j++) {
+                    all &= Boolean.TRUE.equals(replies.get(index++));
+                }
+                contains |= all;
+            }
+            result.set(v, contains);
+        }
+    }
+
+    /**
+     * 近似的已插入元素数
+     *
+     * @return 元素数
+     */
+    public long approximateElementCount() {
+        updateCount(stringRedisTemplate.opsForValue().get(countKey));
+        return knownCount;
+    }
+
+    /**
+     * 当前层数
+     *
+     * @return 层数
+     */
+    public int layerCount() {
+        return layerCount(knownCount);
+    }
+
+    /**
+     * 删除过滤器的所有数据
+     */
+    public void delete() {
+        List<String> keys = new ArrayList<>();
+        keys.add(countKey);
+        for (int i = 0; i < layerCount(approximateElementCount()); i++) {
+            keys.add(layer(i).key);
+        }
+        stringRedisTemplate.delete(keys);
+        knownCount = 0;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    private static HashCode hash(String value) {
+        return HASH.hashString(value, StandardCharsets.UTF_8);
+    }
+
+    private void updateCount(Object reply) {
+        if (reply != null) {
+            knownCount = Long.parseLong(reply.toString());
+        }
+    }
+
+    //插入数达到前i层的容量之和时启用第i+1层
+    private int layerCount(long count) {
+        int layerCount = 1;
+        while (count >= totalCapacity(layerCount)) {
+            layerCount++;
+        }
+        return layerCount;
+    }
+
+    //前layerCount层的容量之和
+    private long totalCapacity(int layerCount) {
+        long capacity = expectedInsertions;
+        long total = 0;
+        for (int i = 0; i < layerCount; i++) {
+            total += capacity;
+            capacity *= GROWTH;
+        }
+        return total;
+    }
+
+    private Layer layer(int index) {
+        while (layers.size() <= index) {
+            synchronized (layers) {
+                int next = layers.size();
+                if (next <= index) {
+                    long capacity = expectedInsertions * (long) Math.pow(GROWTH, next);
+                    double layerFpp = fpp * (1 - TIGHTENING) * Math.pow(TIGHTENING, next);
+                    layers.add(new Layer("bloom:{" + name + "}:" + next, capacity, layerFpp));
+                }
+            }
+        }
+        return layers.get(index);
+    }
+
+    /**
+     * 一层布隆过滤器,对应一个位图key
+     */
+    private static class Layer {
+
+        private final String key;
+
+        //位数
+        private final long bits;
+
+        //哈希函数个数
+        private final int hashes;
+
+        Layer(String key, long capacity, double fpp) {
+            long bits = (long) Math.ceil(-capacity * Math.log(fpp) / (Math.log(2) * Math.log(2)));
+            if (bits > MAX_BITS) {
+                throw new IllegalArgumentException("bloom filter layer too large: " + key + ", bits=" + bits);
+            }
+            this.key = key;
+            this.bits = bits;
+            this.hashes = Math.max(1, (int) Math.round((double) bits / capacity * Math.log(2)));
+        }
+
+        long[] positions(HashCode hash) {
+            byte[] bytes = hash.asBytes();
+            long h1 = fromBytes(bytes, 0);
+            long h2 = fromBytes(bytes, 8);
+            long[] positions = new long[hashes];
+            long combined = h1;
+            for (int i = 0; i < hashes; i++) {
+                combined += h2;
+                positions[i] = (combined & Long.MAX_VALUE) % bits;
+            }
+            return positions;
+        }
+
+        private static long fromBytes(byte[] bytes, int offset) {
+            long value = 0;
+            for (int i = offset + 7; i >= offset; i--) {
+                value = (value << 8) | (bytes[i] & 0xFF);
+            }
+            return value;
+        }
+
+    }
+
+}
@@ -0,0 +1,236 @@
+package com.pzl.program.frametool.redis;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.function.Supplier;
+
+/**
+ * Redis 防击穿的缓存加载器(cache-aside)
+ * <p>
+ * 热点key过期的瞬间,大量请求同时未命中并一起回源数据库。getOrLoad通过三层手段把回源收敛到每个key一次:
+ * 1、进程内单飞:同一个key同一时刻只有一个线程执行loader,其余线程等待它的结果
+ * 2、分布式租约:回源前先用 SET NX PX 抢一个短租约,抢不到的节点轮询Redis等待抢到的节点写回,超时后自己回源兜底
+ * 3、提前刷新:命中时按 XFetch 算法(-delta * beta * ln(random) >= 剩余ttl)以一定概率异步刷新,
+ * 回源越慢、离过期越近,刷新概率越大,热点key通常在过期前就被刷新
+ * <p>
+ * loader返回null时写入空值占位(过期时间取null-ttl和缓存过期时间中较小的),这段时间内的读取和等待租约的节点直接得到null,
+ * 不会反复回源。占位值对RedisUtil.get等直接读取可见,同一个key不要混用两种读法。
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+@Slf4j
+@Component
+public class RedisCacheLoader {
+
+    //租约key后缀
+    private static final String LEASE_SUFFIX = ":lease";
+
+    //等待其他节点回源时的轮询间隔(毫秒)
+    private static final long LEASE_POLL_INTERVAL = 20;
+
+    //loader返回null时写入的占位值
+    static final String NULL_VALUE = "\u0000null";
+
+    //是否开启分布式租约
+    @Value("${redis.loader.lease-enabled:true}")
+    private boolean leaseEnabled = true;
+
+    //租约时间(毫秒),应大于一次回源的耗时
+    @Value("${redis.loader.lease-time:3000}")
+    private long leaseTime = 3000;
+
+    //未抢到租约时最多等待的时间(毫秒)
+    @Value("${redis.loader.lease-wait:3000}")
+    private long leaseWait = 3000;
+
+    //空值占位的过期时间(毫秒)
+    @Value("${redis.loader.null-ttl:5000}")
+    private long nullTtl = 5000;
+
+    //提前刷新系数,越大越早刷新,0表示关闭提前刷新
+    @Value("${redis.loader.beta:1.0}")
+    private double beta = 1.0;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Autowired(required = false)
+    private RedisNearCache redisNearCache;
+
+    //正在回源的key
+    private final ConcurrentMap<String, CompletableFuture<String>> inFlight = new ConcurrentHashMap<>();
+
+    //每个key最近一次回源耗时(毫秒),提前刷新算法中的delta
+    private final Cache<String, Long> loadTimes = CacheBuilder.newBuilder().maximumSize(10000).build();
+
+    //提前刷新线程池,刷新是尽力而为,满了直接放弃本次刷新
+    private final ThreadPoolExecutor refreshExecutor = new ThreadPoolExecutor(1, 4, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(1000),
+            new ThreadFactoryBuilder().setNameFormat("redis-refresh-%d").setDaemon(true).build(),
+            new ThreadPoolExecutor.AbortPolicy());
+
+    /**
+     * 读取缓存,未命中时回源并写入缓存
+     *
+     * @param key     key
+     * @param timeout 缓存过期时间
+     * @param unit    时间单位
+     * @param loader  回源方法
+     * @return 值
+     */
+    public String getOrLoad(String key, long timeout, TimeUnit unit, Supplier<String> loader) {
+        long ttl = unit.toMillis(timeout);
+        //GET和PTTL放在一个流水线里,一次往返
+        List<Object> results = stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            StringRedisConnection conn = (StringRedisConnection) connection;
+            conn.get(key);
+            conn.pTtl(key);
+            return null;
+        });
+        String value = (String) results.get(0);
+        if (value != null) {
+            if (shouldRefreshEarly(key, (Long) results.get(1))) {
+                refreshAsync(key, ttl, loader);
+            }
+            return unwrap(value);
+        }
+        return loadSingleFlight(key, ttl, loader);
+    }
+
+    /**
+     * XFetch: -delta * beta * ln(random) >= 剩余ttl 时提前刷新
+     */
+    private boolean shouldRefreshEarly(String key, Long pttl) {
+        //没有过期时间(-1)或已不存在(-2)
+        if (beta <= 0 || pttl == null || pttl <= 0) {
+            return false;
+        }
+        Long delta = loadTimes.getIfPresent(key);
+        if (delta == null) {
+            return false;
+        }
+        return -delta * beta * Math.log(ThreadLocalRandom.current().nextDouble()) >= pttl;
+    }
+
+    private void refreshAsync(String key, long ttl, Supplier<String> loader) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(key, future) != null) {
+            return;
+        }
+        try {
+            refreshExecutor.execute(() -> load(key, ttl, loader, future));
+        } catch (RejectedExecutionException e) {
+            //下一次命中会重新尝试
+            inFlight.remove(key, future);
+            future.complete(null);
+        }
+    }
+
+    private String loadSingleFlight(String key, long ttl, Supplier<String> loader) {
+        CompletableFuture<String> future = new CompletableFuture<>();
+        CompletableFuture<String> existing = inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            try {
+                return existing.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause();
+                throw cause instanceof RuntimeException ? (RuntimeException) cause : new IllegalStateException(cause);
+            }
+        }
+        return load(key, ttl, loader, future);
+    }
+
+    private String load(String key, long ttl, Supplier<String> loader, CompletableFuture<String> future) {
+        try {
+            String value = leaseEnabled ? loadWithLease(key, ttl, loader) : loadFromOrigin(key, ttl, loader);
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            log.warn("redis cache load fail, key={}", key, e);
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private String loadWithLease(String key, long ttl, Supplier<String> loader) {
+        String leaseKey = key + LEASE_SUFFIX;
+        String token = UUID.randomUUID().toString();
+        List<String> keys = Collections.singletonList(leaseKey);
+        Long acquired = stringRedisTemplate.execute(RedisScripts.SET_IF_ABSENT_PX, keys, token, String.valueOf(leaseTime));
+        if (acquired != null && acquired == 1) {
+            try {
+                return loadFromOrigin(key, ttl, loader);
+            } finally {
+                //只释放自己持有的租约
+                stringRedisTemplate.execute(RedisScripts.COMPARE_AND_DELETE, keys, token);
+            }
+        }
+        //其他节点正在回源,等待它写回
+        long deadline = System.currentTimeMillis() + leaseWait;
+        while (System.currentTimeMillis() < deadline) {
+            try {
+                Thread.sleep(LEASE_POLL_INTERVAL);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            String value = stringRedisTemplate.opsForValue().get(key);
+            if (value != null) {
+                return unwrap(value);
+            }
+        }
+        log.warn("redis cache lease wait timeout, load by self, key={}", key);
+        return loadFromOrigin(key, ttl, loader);
+    }
+
+    private String loadFromOrigin(String key, long ttl, Supplier<String> loader) {
+        long start = System.nanoTime();
+        String value = loader.get();
+        loadTimes.put(key, Math.max(1, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+        if (value != null) {
+            stringRedisTemplate.opsForValue().set(key, value, ttl, TimeUnit.MILLISECONDS);
+        } else {
+            stringRedisTemplate.opsForValue().set(key, NULL_VALUE, Math.min(ttl, nullTtl), TimeUnit.MILLISECONDS);
+        }
+        if (redisNearCache != null) {
+            redisNearCache.invalidate(key);
+        }
+        return value;
+    }
+
+    private static String unwrap(String value) {
+        return NULL_VALUE.equals(value) ? null : value;
+    }
+
+    /**
+     * 当前正在回源的key数量
+     *
+     * @return 数量
+     */
+    public int inFlightCount() {
+        return inFlight.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+}
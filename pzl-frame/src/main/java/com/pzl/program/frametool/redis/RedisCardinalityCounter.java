@@ -0,0 +1,288 @@
+package com.pzl.program.frametool.redis;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisStringCommands.BitOperation;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis 基数统计(按天分桶的UV、DAU)
+ * <p>
+ * 用sAdd/sSize统计独立访客,内存随访客数线性增长。这里提供两种固定或紧凑内存的计数方式:
+ * 1、独立访客(UV):每天一个HyperLogLog,每个key最多12KB,误差约0.81%,访客标识可以是任意字符串
+ * 2、活跃用户(DAU):每天一个bitmap,第userId位为1表示当天活跃,结果精确,占用 最大userId/8 字节,适合连续的数字ID
+ * <p>
+ * 跨天汇总:UV用PFCOUNT直接计算多天并集,或用rollupUnique把多天合并成一个key长期保存(如月UV);
+ * DAU用BITOP OR/AND计算区间内活跃过/每天都活跃的用户数,运算结果写入临时key,与BITCOUNT、EXPIRE在同一个流水线中执行。
+ * <p>
+ * 批量写入按batchSize个元素拼成一条PFADD,或每个userId一条SETBIT,连同EXPIRE一次流水线发送。
+ * key为 uv:{metric}:yyyyMMdd 和 dau:{metric}:yyyyMMdd,同一个指标的key哈希标签相同,集群和客户端分片下都在同一个节点,
+ * 可以做多key运算。
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+@Component
+public class RedisCardinalityCounter {
+
+    private static final DateTimeFormatter DAY = DateTimeFormatter.BASIC_ISO_DATE;
+
+    //bitmap最大长度为512MB,即2^32位
+    private static final long MAX_USER_ID = (1L << 32) - 1;
+
+    //按天分桶的key保留天数
+    @Value("${redis.cardinality.expire-days:400}")
+    private long expireDays = 400;
+
+    //一条PFADD携带的元素数
+    @Value("${redis.cardinality.batch-size:1000}")
+    private int batchSize = 1000;
+
+    //跨天位运算结果的临时key保留时间(秒)
+    @Value("${redis.cardinality.rollup-expire:300}")
+    private long rollupExpire = 300;
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    /*------------------------独立访客(HyperLogLog)---------------------------*/
+
+    /**
+     * 记录独立访客
+     *
+     * @param metric   指标名称
+     * @param day      日期
+     * @param visitors 访客标识
+     */
+    public void addUnique(String metric, LocalDate day, String... visitors) {
+        String key = uniqueKey(metric, day);
+        redisUtil.batch()
+                .pfAdd(key, visitors)
+                .expire(key, expireDays, TimeUnit.DAYS)
+                .execute();
+    }
+
+    /**
+     * 批量记录独立访客,每batchSize个访客一条PFADD,一次流水线发送
+     *
+     * @param metric   指标名称
+     * @param day      日期
+     * @param visitors 访客标识
+     */
+    public void addUnique(String metric, LocalDate day, Collection<String> visitors) {
+        if (visitors.isEmpty()) {
+            return;
+        }
+        String key = uniqueKey(metric, day);
+        RedisBatch batch = redisUtil.batch();
+        List<String> chunk = new ArrayList<>(Math.min(batchSize, visitors.size()));
+        for (Iterator<String> iterator = visitors.iterator(); iterator.hasNext(); ) {
+            chunk.add(iterator.next());
+            if (chunk.size() == batchSize || !iterator.hasNext()) {
+                batch.pfAdd(key, chunk.toArray(new String[0]));
+                chunk.clear();
+            }
+        }
+        batch.expire(key, expireDays, TimeUnit.DAYS).execute();
+    }
+
+    /**
+     * 某天的独立访客数(估算值)
+     *
+     * @param metric 指标名称
+     * @param day    日期
+     * @return 访客数
+     */
+    public long countUnique(String metric, LocalDate day) {
+        Long count = redisUtil.pfCount(uniqueKey(metric, day));
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 日期区间内的独立访客数(估算值,多天之间去重),不写入任何key
+     *
+     * @param metric 指标名称
+     * @param from   开始日期(包含)
+     * @param to     结束日期(包含)
+     * @return 访客数
+     */
+    public long countUnique(String metric, LocalDate from, LocalDate to) {
+        Long count = redisUtil.pfCount(uniqueKeys(metric, from, to));
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 把日期区间内每天的HyperLogLog合并为 uv:{metric}:yyyyMMdd-yyyyMMdd 长期保存(如月UV),
+     * 之后每天的key过期也不影响汇总结果
+     *
+     * @param metric 指标名称
+     * @param from   开始日期(包含)
+     * @param to     结束日期(包含)
+     * @return 区间内的独立访客数(估算值)
+     */
+    public long rollupUnique(String metric, LocalDate from, LocalDate to) {
+        String key = rollupKey("uv:", metric, from, to);
+        RedisBatch.Result result = redisUtil.batch()
+                .pfMerge(key, uniqueKeys(metric, from, to))
+                .pfCount(key)
+                .execute();
+        Long count = result.get(1);
+        return count == null ? 0 : count;
+    }
+
+    /*------------------------活跃用户(bitmap)---------------------------*/
+
+    /**
+     * 标记用户当天活跃
+     *
+     * @param metric 指标名称
+     * @param day    日期
+     * @param userId 用户ID, 0 ~ 2^32-1
+     * @return 此前是否已经活跃
+     */
+    public boolean markActive(String metric, LocalDate day, long userId) {
+        checkUserId(userId);
+        String key = activeKey(metric, day);
+        RedisBatch.Result result = redisUtil.batch()
+                .setBit(key, userId, true)
+                .expire(key, expireDays, TimeUnit.DAYS)
+                .execute();
+        return Boolean.TRUE.equals(result.get(0));
+    }
+
+    /**
+     * 批量标记用户当天活跃,一次流水线发送
+     *
+     * @param metric  指标名称
+     * @param day     日期
+     * @param userIds 用户ID, 0 ~ 2^32-1
+     */
+    public void markActive(String metric, LocalDate day, Collection<Long> userIds) {
+        if (userIds.isEmpty()) {
+            return;
+        }
+        String key = activeKey(metric, day);
+        RedisBatch batch = redisUtil.batch();
+        for (Long userId : userIds) {
+            checkUserId(userId);
+            batch.setBit(key, userId, true);
+        }
+        batch.expire(key, expireDays, TimeUnit.DAYS).execute();
+    }
+
+    /**
+     * 用户当天是否活跃
+     *
+     * @param metric 指标名称
+     * @param day    日期
+     * @param userId 用户ID
+     * @return boolean
+     */
+    public boolean isActive(String metric, LocalDate day, long userId) {
+        checkUserId(userId);
+        return redisUtil.getBit(activeKey(metric, day), userId);
+    }
+
+    /**
+     * 某天的活跃用户数
+     *
+     * @param metric 指标名称
+     * @param day    日期
+     * @return 用户数
+     */
+    public long countActive(String metric, LocalDate day) {
+        Long count = redisUtil.bitCount(activeKey(metric, day));
+        return count == null ? 0 : count;
+    }
+
+    /**
+     * 日期区间内活跃过的用户数(BITOP OR)
+     *
+     * @param metric 指标名称
+     * @param from   开始日期(包含)
+     * @param to     结束日期(包含)
+     * @return 用户数
+     */
+    public long countActive(String metric, LocalDate from, LocalDate to) {
+        return countActive(BitOperation.OR, metric, from, to);
+    }
+
+    /**
+     * 日期区间内每天都活跃的用户数(BITOP AND),可用于统计连续活跃、留存
+     *
+     * @param metric 指标名称
+     * @param from   开始日期(包含)
+     * @param to     结束日期(包含)
+     * @return 用户数
+     */
+    public long countActiveEveryDay(String metric, LocalDate from, LocalDate to) {
+        return countActive(BitOperation.AND, metric, from, to);
+    }
+
+    private long countActive(BitOperation op, String metric, LocalDate from, LocalDate to) {
+        String key = rollupKey("dau:", metric, from, to) + ":" + op.name().toLowerCase();
+        RedisBatch.Result result = redisUtil.batch()
+                .bitOp(op, key, activeKeys(metric, from, to))
+                .bitCount(key)
+                .expire(key, rollupExpire, TimeUnit.SECONDS)
+                .execute();
+        Long count = result.get(1);
+        return count == null ? 0 : count;
+    }
+
+    /*------------------------key---------------------------*/
+
+    private static String uniqueKey(String metric, LocalDate day) {
+        return "uv:{" + metric + "}:" + day.format(DAY);
+    }
+
+    private static String activeKey(String metric, LocalDate day) {
+        return "dau:{" + metric + "}:" + day.format(DAY);
+    }
+
+    private static String rollupKey(String prefix, String metric, LocalDate from, LocalDate to) {
+        return prefix + "{" + metric + "}:" + from.format(DAY) + "-" + to.format(DAY);
+    }
+
+    private static String[] uniqueKeys(String metric, LocalDate from, LocalDate to) {
+        List<String> keys = new ArrayList<>();
+        for (LocalDate day : days(from, to)) {
+            keys.add(uniqueKey(metric, day));
+        }
+        return keys.toArray(new String[0]);
+    }
+
+    private static String[] activeKeys(String metric, LocalDate from, LocalDate to) {
+        List<String> keys = new ArrayList<>();
+        for (LocalDate day : days(from, to)) {
+            keys.add(activeKey(metric, day));
+        }
+        return keys.toArray(new String[0]);
+    }
+
+    private static List<LocalDate> days(LocalDate from, LocalDate to) {
+        if (from.isAfter(to)) {
+            throw new IllegalArgumentException("from " + from + " is after to " + to);
+        }
+        List<LocalDate> days = new ArrayList<>();
+        for (LocalDate day = from; !day.isAfter(to); day = day.plusDays(1)) {
+            days.add(day);
+        }
+        return days;
+    }
+
+    private static void checkUserId(long userId) {
+        if (userId < 0 || userId > MAX_USER_ID) {
+            throw new IllegalArgumentException("userId must be between 0 and " + MAX_USER_ID + ": " + userId);
+        }
+    }
+
+}
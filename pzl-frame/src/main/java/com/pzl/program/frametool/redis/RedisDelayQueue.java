@@ -0,0 +1,476 @@
+package com.pzl.program.frametool.redis;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Redis 延迟队列,代替轮询数据库表实现重试、超时关单等定时任务
+ * <p>
+ * 每个队列使用以下key(队列名放在{}中,集群模式下落在同一个slot):
+ * delay:{queue}:delayed    zset,未到期任务,score为到期时间
+ * delay:{queue}:ready      list,已到期等待领取的任务
+ * delay:{queue}:processing zset,已领取处理中的任务,score为可见性截止时间
+ * delay:{queue}:jobs       hash,任务内容
+ * delay:{queue}:attempts   hash,投递次数
+ * delay:{queue}:dead       list,超过最大投递次数的任务id,内容保留在jobs中便于排查
+ * <p>
+ * 1、写入:scheduleAll每500个任务一次EVAL,不按任务逐个往返
+ * 2、搬运:消费端轮询线程用Lua把到期任务和可见性超时的任务成批移到ready,多个节点同时搬运也不会重复
+ * 3、领取:按空闲线程数成批领取,一次EVAL完成出队、登记processing和投递次数,投递次数已达上限的(处理一直超时)直接进入死信
+ * 4、确认:处理结果先在本地攒批,轮询线程每轮一次EVAL批量确认或安排重试
+ * <p>
+ * 任务至少投递一次:处理时间超过可见性超时、节点宕机、确认未送达都会重复投递,处理逻辑需要幂等。
+ * 时间使用客户端时钟,各节点时钟偏差会体现为到期时间的偏差。
+ * <pre>
+ * redisDelayQueue.schedule("order-timeout", orderId, 30, TimeUnit.MINUTES);
+ * redisDelayQueue.subscribe("order-timeout", job -&gt; orderService.closeIfUnpaid(job.getPayload()));
+ * </pre>
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+@Slf4j
+@Component
+public class RedisDelayQueue {
+
+    //key前缀
+    private static final String KEY_PREFIX = "delay:{";
+
+    //一次脚本调用处理的最大任务数,Lua unpack参数个数有限制
+    private static final int MAX_BATCH = 500;
+
+    //重试退避的最大倍数
+    private static final int MAX_BACKOFF_SHIFT = 10;
+
+    //空闲时的轮询间隔(毫秒)
+    @Value("${redis.delay-queue.poll-interval:100}")
+    private long pollInterval = 100;
+
+    //每次领取的最大任务数
+    @Value("${redis.delay-queue.batch-size:200}")
+    private int batchSize = 200;
+
+    //可见性超时(毫秒),领取后超过这个时间未确认则重新投递
+    @Value("${redis.delay-queue.visibility-timeout:30000}")
+    private long visibilityTimeout = 30000;
+
+    //每个订阅的处理线程数
+    @Value("${redis.delay-queue.worker-threads:8}")
+    private int workerThreads = 8;
+
+    //最大投递次数,超过后进入死信
+    @Value("${redis.delay-queue.max-attempts:16}")
+    private int maxAttempts = 16;
+
+    //首次重试的退避时间(毫秒),之后每次翻倍
+    @Value("${redis.delay-queue.retry-backoff:1000}")
+    private long retryBackoff = 1000;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /*----------------------------写入-----------------------------------*/
+
+    /**
+     * 写入延迟任务,id自动生成
+     *
+     * @param queue   队列名
+     * @param payload 任务内容
+     * @param delay   延迟时间
+     * @param unit    时间单位
+     * @return 任务id
+     */
+    public String schedule(String queue, String payload, long delay, TimeUnit unit) {
+        String id = UUID.randomUUID().toString().replace("-", "");
+        schedule(queue, DelayJob.of(id, payload, delay, unit));
+        return id;
+    }
+
+    /**
+     * 写入延迟任务,id已存在时覆盖
+     *
+     * @param queue 队列名
+     * @param job   任务
+     */
+    public void schedule(String queue, DelayJob job) {
+        scheduleAll(queue, Collections.singletonList(job));
+    }
+
+    /**
+     * 批量写入延迟任务,每500个任务一次往返
+     *
+     * @param queue 队列名
+     * @param jobs  任务列表
+     * @return 新增的任务数, 覆盖已有id的不计
+     */
+    public long scheduleAll(String queue, Collection<DelayJob> jobs) {
+        Keys keys = new Keys(queue);
+        List<String> scriptKeys = Arrays.asList(keys.delayed, keys.jobs, keys.attempts);
+        long added = 0;
+        List<Object> args = new ArrayList<>(Math.min(jobs.size(), MAX_BATCH) * 3);
+        for (DelayJob job : jobs) {
+            args.add(job.getId());
+            args.add(job.getPayload());
+            args.add(String.valueOf(job.getDueTime()));
+            if (args.size() == MAX_BATCH * 3) {
+                added += execute(RedisScripts.DELAY_SCHEDULE, scriptKeys, args);
+                args.clear();
+            }
+        }
+        if (!args.isEmpty()) {
+            added += execute(RedisScripts.DELAY_SCHEDULE, scriptKeys, args);
+        }
+        return added;
+    }
+
+    /**
+     * 取消未到期的任务
+     *
+     * @param queue 队列名
+     * @param id    任务id
+     * @return 是否取消成功, 任务不存在或已到期返回false
+     */
+    public boolean cancel(String queue, String id) {
+        Keys keys = new Keys(queue);
+        return execute(RedisScripts.DELAY_CANCEL, Arrays.asList(keys.delayed, keys.jobs, keys.attempts),
+                Collections.singletonList(id)) > 0;
+    }
+
+    /**
+     * 队列各阶段的任务数:delayed、ready、processing、dead,一次往返
+     *
+     * @param queue 队列名
+     * @return 阶段-任务数
+     */
+    public Map<String, Long> stats(String queue) {
+        Keys keys = new Keys(queue);
+        RedisBatch.Result result = new RedisBatch(stringRedisTemplate, RedisBatch.DEFAULT_CHUNK_SIZE)
+                .zSize(keys.delayed).lLen(keys.ready).zSize(keys.processing).lLen(keys.dead)
+                .execute();
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("delayed", result.get(0));
+        stats.put("ready", result.get(1));
+        stats.put("processing", result.get(2));
+        stats.put("dead", result.get(3));
+        return stats;
+    }
+
+    /*----------------------------消费-----------------------------------*/
+
+    /**
+     * 订阅队列,使用配置的处理线程数
+     *
+     * @param queue   队列名
+     * @param handler 处理器
+     * @return 订阅, close时停止消费
+     */
+    public Subscription subscribe(String queue, DelayJobHandler handler) {
+        return subscribe(queue, handler, workerThreads);
+    }
+
+    /**
+     * 订阅队列,同一个队列可以在多个节点上订阅,任务在订阅者之间分摊
+     *
+     * @param queue   队列名
+     * @param handler 处理器
+     * @param threads 处理线程数
+     * @return 订阅, close时停止消费
+     */
+    public Subscription subscribe(String queue, DelayJobHandler handler, int threads) {
+        Subscription subscription = new Subscription(queue, handler, threads);
+        subscriptions.add(subscription);
+        subscription.poller.start();
+        return subscription;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+    }
+
+    private long execute(RedisScript<Long> script, List<String> keys, List<?> args) {
+        Long result = stringRedisTemplate.execute(script, keys, args.toArray());
+        return result == null ? 0 : result;
+    }
+
+    /**
+     * 队列的key
+     */
+    private static class Keys {
+
+        private final String delayed;
+
+        private final String ready;
+
+        private final String processing;
+
+        private final String jobs;
+
+        private final String attempts;
+
+        private final String dead;
+
+        private Keys(String queue) {
+            String prefix = KEY_PREFIX + queue + "}:";
+            this.delayed = prefix + "delayed";
+            this.ready = prefix + "ready";
+            this.processing = prefix + "processing";
+            this.jobs = prefix + "jobs";
+            this.attempts = prefix + "attempts";
+            this.dead = prefix + "dead";
+        }
+
+    }
+
+    /**
+     * 队列订阅:一个轮询线程负责搬运、领取、批量确认,处理线程池负责执行处理器
+     */
+    public class Subscription implements AutoCloseable {
+
+        private final String queue;
+
+        private final Keys keys;
+
+        private final DelayJobHandler handler;
+
+        //本地最多持有的已领取未完成任务数,超出的留在Redis中由其他节点领取
+        private final int capacity;
+
+        private final ThreadPoolExecutor workers;
+
+        private final Thread poller;
+
+        //已领取未完成的任务数
+        private final AtomicInteger pending = new AtomicInteger();
+
+        //待确认的任务id
+        private final Queue<String> acks = new ConcurrentLinkedQueue<>();
+
+        //待重试的任务(id, 重试时间)
+        private final Queue<String[]> retries = new ConcurrentLinkedQueue<>();
+
+        private final AtomicLong delivered = new AtomicLong();
+
+        private final AtomicLong succeeded = new AtomicLong();
+
+        private final AtomicLong failed = new AtomicLong();
+
+        private volatile boolean running = true;
+
+        private Subscription(String queue, DelayJobHandler handler, int threads) {
+            this.queue = queue;
+            this.keys = new Keys(queue);
+            this.handler = handler;
+            this.capacity = threads * 4;
+            this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(),
+                    new ThreadFactoryBuilder().setNameFormat("redis-delay-" + queue + "-%d").setDaemon(true).build());
+            this.poller = new Thread(this::poll, "redis-delay-" + queue + "-poller");
+            this.poller.setDaemon(true);
+        }
+
+        private void poll() {
+            long idleNanos = TimeUnit.MILLISECONDS.toNanos(pollInterval);
+            //本地估计的ready长度,还够领取时不搬运,领空或每隔pollInterval搬运一次
+            long ready = 0;
+            long nextTransfer = 0;
+            while (running) {
+                try {
+                    flush();
+                    long now = System.currentTimeMillis();
+                    if (ready < batchSize || now >= nextTransfer) {
+                        ready = execute(RedisScripts.DELAY_TRANSFER,
+                                Arrays.asList(keys.delayed, keys.processing, keys.ready),
+                                Arrays.asList(String.valueOf(now), String.valueOf(MAX_BATCH)));
+                        nextTransfer = now + pollInterval;
+                    }
+                    int count = Math.min(batchSize, capacity - pending.get());
+                    int claimed = count > 0 ? claim(count) : 0;
+                    ready = claimed < count ? 0 : ready - claimed;
+                    //没有可领取的任务或处理线程已满时等待,处理线程空出一半时会被唤醒
+                    if (claimed == 0) {
+                        LockSupport.parkNanos(this, idleNanos);
+                    }
+                } catch (Exception e) {
+                    log.warn("redis delay queue poll fail, queue={}", queue, e);
+                    LockSupport.parkNanos(this, idleNanos);
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private int claim(int count) {
+            long deadline = System.currentTimeMillis() + visibilityTimeout;
+            List<String> result = stringRedisTemplate.execute(RedisScripts.DELAY_CLAIM,
+                    Arrays.asList(keys.ready, keys.processing, keys.jobs, keys.attempts, keys.dead),
+                    String.valueOf(deadline), String.valueOf(count), String.valueOf(maxAttempts));
+            if (result == null || result.isEmpty()) {
+                return 0;
+            }
+            for (int i = 0; i + 2 < result.size(); i += 3) {
+                String value = result.get(i + 1);
+                int separator = value.indexOf(':');
+                DelayJob job = new DelayJob(result.get(i), value.substring(separator + 1),
+                        Long.parseLong(value.substring(0, separator)), Integer.parseInt(result.get(i + 2)));
+                pending.incrementAndGet();
+                delivered.incrementAndGet();
+                workers.execute(new JobTask(job));
+            }
+            return result.size() / 3;
+        }
+
+        //批量提交确认和重试,失败的留在processing中,可见性超时后重新投递
+        private void flush() {
+            List<Object> ids = new ArrayList<>();
+            String id;
+            while ((id = acks.poll()) != null) {
+                ids.add(id);
+                if (ids.size() == MAX_BATCH || acks.isEmpty()) {
+                    execute(RedisScripts.DELAY_ACK,
+                            Arrays.asList(keys.processing, keys.jobs, keys.attempts, keys.delayed), ids);
+                    ids.clear();
+                }
+            }
+            String[] retry;
+            while ((retry = retries.poll()) != null) {
+                ids.add(retry[0]);
+                ids.add(retry[1]);
+                if (ids.size() == MAX_BATCH * 2 || retries.isEmpty()) {
+                    execute(RedisScripts.DELAY_RETRY, Arrays.asList(keys.processing, keys.delayed, keys.dead), ids);
+                    ids.clear();
+                }
+            }
+        }
+
+        private void retry(DelayJob job, boolean countAttempt) {
+            long due;
+            if (countAttempt && job.getAttempts() >= maxAttempts) {
+                log.warn("redis delay job dead, queue={}, id={}, attempts={}", queue, job.getId(), job.getAttempts());
+                due = -1;
+            } else if (countAttempt) {
+                due = System.currentTimeMillis()
+                        + (retryBackoff << Math.min(job.getAttempts() - 1, MAX_BACKOFF_SHIFT));
+            } else {
+                due = System.currentTimeMillis();
+            }
+            retries.add(new String[]{job.getId(), String.valueOf(due)});
+        }
+
+        /**
+         * 停止消费:停止领取,等待处理中的任务完成,未开始的任务放回队列
+         */
+        @Override
+        public void close() {
+            if (!running) {
+                return;
+            }
+            running = false;
+            subscriptions.remove(this);
+            LockSupport.unpark(poller);
+            try {
+                poller.join(TimeUnit.SECONDS.toMillis(5));
+                workers.shutdown();
+                workers.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            for (Runnable runnable : workers.shutdownNow()) {
+                retry(((JobTask) runnable).job, false);
+            }
+            try {
+                flush();
+            } catch (Exception e) {
+                log.warn("redis delay queue flush fail on close, queue={}", queue, e);
+            }
+        }
+
+        public String getQueue() {
+            return queue;
+        }
+
+        /**
+         * 已投递(领取)的任务数,包括重复投递
+         *
+         * @return 数量
+         */
+        public long getDelivered() {
+            return delivered.get();
+        }
+
+        /**
+         * 处理成功的任务数
+         *
+         * @return 数量
+         */
+        public long getSucceeded() {
+            return succeeded.get();
+        }
+
+        /**
+         * 处理失败的任务数
+         *
+         * @return 数量
+         */
+        public long getFailed() {
+            return failed.get();
+        }
+
+        /**
+         * 已领取未完成的任务数
+         *
+         * @return 数量
+         */
+        public int getPending() {
+            return pending.get();
+        }
+
+        /**
+         * 执行处理器的任务
+         */
+        private class JobTask implements Runnable {
+
+            private final DelayJob job;
+
+            private JobTask(DelayJob job) {
+                this.job = job;
+            }
+
+            @Override
+            public void run() {
+                try {
+                    handler.handle(job);
+                    acks.add(job.getId());
+                    succeeded.incrementAndGet();
+                } catch (Exception e) {
+                    log.warn("redis delay job fail, queue={}, id={}, attempts={}", queue, job.getId(), job.getAttempts(), e);
+                    retry(job, true);
+                    failed.incrementAndGet();
+                } finally {
+                    //处理线程从满载降到一半时唤醒轮询线程领取新任务
+                    if (pending.decrementAndGet() == capacity / 2) {
+                        LockSupport.unpark(poller);
+                    }
+                }
+            }
+
+        }
+
+    }
+
+}
@@ -0,0 +1,272 @@
+package com.pzl.program.frametool.redis;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.*;
+
+/**
+ * Redis 分布式锁
+ * <p>
+ * 1、加锁:一个Lua脚本里完成 SET NX PX 和防护令牌自增,一次往返,不存在setIfAbsent与expire之间宕机导致锁永不过期的问题
+ * 2、续期:不指定租期时由看门狗线程每 watchdogTimeout/3 续期一次,持有者宕机后最多watchdogTimeout后自动释放
+ * 3、释放:比较持有者标识后再删除,不会误删别人的锁
+ * 4、防护令牌:每次加锁成功返回一个单调递增的令牌,写共享资源时带上令牌,资源方拒绝比已见过的令牌小的请求,
+ * 防止持有者GC停顿等原因导致锁过期后,旧持有者和新持有者同时写入
+ * <p>
+ * 锁不可重入。
+ * <pre>
+ * try (RedisDistributedLock.Lease lease = redisDistributedLock.tryLock("order:1", 3, TimeUnit.SECONDS)) {
+ *     if (lease == null) {
+ *         return;
+ *     }
+ *     orderMapper.update(order, lease.getFencingToken());
+ * }
+ * </pre>
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+@Slf4j
+@Component
+public class RedisDistributedLock {
+
+    //锁key前缀,名称放在{}中,集群模式下锁key和令牌key落在同一个slot
+    private static final String KEY_PREFIX = "lock:{";
+
+    //等待锁时的最大退避时间(毫秒)
+    private static final long MAX_BACKOFF = 50;
+
+    //看门狗模式下的租期(毫秒)
+    @Value("${redis.lock.watchdog-timeout:30000}")
+    private long watchdogTimeout = 30000;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    private final ScheduledThreadPoolExecutor watchdog = newWatchdog();
+
+    private static ScheduledThreadPoolExecutor newWatchdog() {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1,
+                new ThreadFactoryBuilder().setNameFormat("redis-lock-watchdog-%d").setDaemon(true).build());
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    /**
+     * 尝试加锁一次,由看门狗自动续期
+     *
+     * @param name 锁名称
+     * @return 成功返回租约,失败返回null
+     */
+    public Lease tryLock(String name) {
+        return acquire(name, watchdogTimeout, true);
+    }
+
+    /**
+     * 在等待时间内尝试加锁,由看门狗自动续期
+     *
+     * @param name     锁名称
+     * @param waitTime 最长等待时间
+     * @param unit     时间单位
+     * @return 成功返回租约,超时或线程被中断返回null
+     */
+    public Lease tryLock(String name, long waitTime, TimeUnit unit) {
+        return tryLock(name, waitTime, unit, watchdogTimeout, true);
+    }
+
+    /**
+     * 在等待时间内尝试加锁,租期到了自动释放,不续期
+     *
+     * @param name      锁名称
+     * @param waitTime  最长等待时间
+     * @param leaseTime 租期
+     * @param unit      时间单位
+     * @return 成功返回租约,超时或线程被中断返回null
+     */
+    public Lease tryLock(String name, long waitTime, long leaseTime, TimeUnit unit) {
+        return tryLock(name, waitTime, unit, unit.toMillis(leaseTime), false);
+    }
+
+    /**
+     * 阻塞直到加锁成功,由看门狗自动续期
+     *
+     * @param name 锁名称
+     * @return 租约
+     * @throws InterruptedException 等待期间线程被中断
+     */
+    public Lease lockInterruptibly(String name) throws InterruptedException {
+        long backoff = 1;
+        while (true) {
+            Lease lease = acquire(name, watchdogTimeout, true);
+            if (lease != null) {
+                return lease;
+            }
+            backoff = sleepBackoff(backoff, Long.MAX_VALUE);
+        }
+    }
+
+    private Lease tryLock(String name, long waitTime, TimeUnit unit, long leaseMillis, boolean renew) {
+        long deadline = System.nanoTime() + unit.toNanos(waitTime);
+        long backoff = 1;
+        while (true) {
+            Lease lease = acquire(name, leaseMillis, renew);
+            if (lease != null) {
+                return lease;
+            }
+            long remaining = TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime());
+            if (remaining <= 0) {
+                return null;
+            }
+            try {
+                backoff = sleepBackoff(backoff, remaining);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return null;
+            }
+        }
+    }
+
+    //随机退避,避免所有等待者同时重试,退避上限按次翻倍
+    private static long sleepBackoff(long backoff, long remaining) throws InterruptedException {
+        Thread.sleep(Math.min(remaining, 1 + ThreadLocalRandom.current().nextLong(backoff)));
+        return Math.min(backoff * 2, MAX_BACKOFF);
+    }
+
+    private Lease acquire(String name, long leaseMillis, boolean renew) {
+        String key = KEY_PREFIX + name + "}";
+        String token = UUID.randomUUID().toString();
+        Long fencingToken = stringRedisTemplate.execute(RedisScripts.LOCK_ACQUIRE,
+                Arrays.asList(key, key + ":fence"), token, String.valueOf(leaseMillis));
+        if (fencingToken == null || fencingToken == 0) {
+            return null;
+        }
+        Lease lease = new Lease(name, key, token, fencingToken);
+        if (renew) {
+            long period = Math.max(1, leaseMillis / 3);
+            lease.renewal = watchdog.scheduleAtFixedRate(() -> renew(lease, leaseMillis), period, period, TimeUnit.MILLISECONDS);
+        }
+        return lease;
+    }
+
+    private void renew(Lease lease, long leaseMillis) {
+        try {
+            Long renewed = stringRedisTemplate.execute(RedisScripts.COMPARE_AND_PEXPIRE,
+                    Collections.singletonList(lease.key), lease.token, String.valueOf(leaseMillis));
+            if (renewed == null || renewed == 0) {
+                log.warn("redis lock lost, name={}, fencingToken={}", lease.name, lease.fencingToken);
+                lease.lost = true;
+                lease.cancelRenewal();
+            }
+        } catch (Exception e) {
+            //网络抖动时等下一次续期,租期内恢复不影响持有
+            log.warn("redis lock renew fail, name={}", lease.name, e);
+        }
+    }
+
+    /**
+     * 当前由看门狗续期的锁数量
+     *
+     * @return 数量
+     */
+    public int renewingCount() {
+        return watchdog.getQueue().size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watchdog.shutdownNow();
+    }
+
+    /**
+     * 锁租约,close时释放锁
+     */
+    public class Lease implements AutoCloseable {
+
+        private final String name;
+
+        private final String key;
+
+        private final String token;
+
+        private final long fencingToken;
+
+        private volatile ScheduledFuture<?> renewal;
+
+        private volatile boolean lost;
+
+        private volatile boolean released;
+
+        private Lease(String name, String key, String token, long fencingToken) {
+            this.name = name;
+            this.key = key;
+            this.token = token;
+            this.fencingToken = fencingToken;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * 防护令牌,同一把锁每次加锁成功都比上一次大
+         *
+         * @return 令牌
+         */
+        public long getFencingToken() {
+            return fencingToken;
+        }
+
+        /**
+         * 本地视角下是否仍持有锁(未释放且续期未失败),固定租期的锁过期后本地无法感知
+         *
+         * @return 是否持有
+         */
+        public boolean isHeld() {
+            return !released && !lost;
+        }
+
+        /**
+         * 释放锁
+         *
+         * @return 是否由自己释放,锁已过期或被他人持有返回false
+         */
+        public boolean unlock() {
+            if (released) {
+                return false;
+            }
+            released = true;
+            cancelRenewal();
+            List<String> keys = Collections.singletonList(key);
+            Long deleted = stringRedisTemplate.execute(RedisScripts.COMPARE_AND_DELETE, keys, token);
+            if (deleted == null || deleted == 0) {
+                log.warn("redis lock already expired before unlock, name={}, fencingToken={}", name, fencingToken);
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public void close() {
+            unlock();
+        }
+
+        private void cancelRenewal() {
+            ScheduledFuture<?> future = renewal;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,341 @@
+package com.pzl.program.frametool.redis;
+
+import com.google.common.base.Throwables;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Redis 排行榜
+ * <p>
+ * 写:incrementScore只在本地累加,每隔flushInterval(默认200毫秒)或累计maxPending个事件后,
+ * 每个排行榜的累计增量通过一次Lua脚本原子写入,同一成员在一个周期内的多次加分只占一次ZINCRBY。
+ * 每批增量带本节点递增的批次号,刷新失败(包括已执行但响应丢失)时下次用同一批次号重发,
+ * Redis中记录了各节点已写入的批次号(leaderboard:{board}:flushed),重发不会重复加分。
+ * 进程异常退出会丢失最近一个周期的加分,不适合需要精确计分的场景。
+ * <p>
+ * 读:top分页结果在本地缓存topCacheTtl(默认1秒),热门页面的访问不再每次查询Redis;
+ * around/rank用一次Lua脚本同时取得成员排名和前后的成员,不需要先查排名再查范围两次往返。
+ * 两者都只包含已刷新的分数。
+ * <p>
+ * 排行榜的Redis key为 leaderboard:{board}。
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+@Slf4j
+@Component
+public class RedisLeaderboard {
+
+    private static final String KEY_PREFIX = "leaderboard:";
+
+    //已写入批次号的key后缀
+    private static final String FLUSHED_SUFFIX = ":flushed";
+
+    //已写入批次号的过期时间(毫秒),远大于重试间隔
+    private static final long FLUSHED_TTL = TimeUnit.DAYS.toMillis(1);
+
+    //刷新间隔(毫秒)
+    @Value("${redis.leaderboard.flush-interval:200}")
+    private long flushInterval = 200;
+
+    //本地累计的事件数达到该值时立即刷新
+    @Value("${redis.leaderboard.max-pending:10000}")
+    private int maxPending = 10000;
+
+    //top分页缓存时间(毫秒),0不缓存
+    @Value("${redis.leaderboard.top-cache-ttl:1000}")
+    private long topCacheTtl = 1000;
+
+    //top分页缓存的页数
+    @Value("${redis.leaderboard.top-cache-size:1000}")
+    private long topCacheSize = 1000;
+
+    @Autowired
+    private RedisUtil redisUtil;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    //排行榜-成员-未刷新的增量
+    private final ConcurrentHashMap<String, ConcurrentHashMap<String, Double>> pending = new ConcurrentHashMap<>();
+
+    //排行榜-已发送但未确认写入的批次,下次刷新用同一批次号重发
+    private final ConcurrentHashMap<String, FlushBatch> unconfirmed = new ConcurrentHashMap<>();
+
+    //本节点标识,与批次号一起用于去重
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final AtomicLong batchSequence = new AtomicLong();
+
+    //上次刷新后的事件数
+    private final AtomicInteger pendingEvents = new AtomicInteger();
+
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+
+    private final LongAdder flushedCommands = new LongAdder();
+
+    private volatile Cache<String, List<LeaderboardEntry>> topCache;
+
+    private volatile ScheduledThreadPoolExecutor scheduler;
+
+    /**
+     * 启动定时刷新
+     */
+    @PostConstruct
+    public synchronized void start() {
+        if (scheduler != null) {
+            return;
+        }
+        topCache = CacheBuilder.newBuilder()
+                .maximumSize(topCacheSize)
+                .expireAfterWrite(topCacheTtl, TimeUnit.MILLISECONDS)
+                .build();
+        scheduler = new ScheduledThreadPoolExecutor(1,
+                new ThreadFactoryBuilder().setNameFormat("redis-leaderboard-flush").setDaemon(true).build());
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停止定时刷新,并刷新剩余的增量
+     */
+    @PreDestroy
+    public synchronized void shutdown() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+            scheduler = null;
+        }
+        flushQuietly();
+    }
+
+    /**
+     * 增加成员的分数,先在本地累加,异步刷新到Redis
+     *
+     * @param board  排行榜名称
+     * @param member 成员
+     * @param delta  增量,负数为减分
+     */
+    public void incrementScore(String board, String member, double delta) {
+        //在compute中累加,与flush取走整个成员表互斥,不会加到已被取走的表上
+        pending.compute(board, (name, members) -> {
+            ConcurrentHashMap<String, Double> current = members == null ? new ConcurrentHashMap<>() : members;
+            current.merge(member, delta, Double::sum);
+            return current;
+        });
+        if (pendingEvents.incrementAndGet() >= maxPending && flushRequested.compareAndSet(false, true)) {
+            ScheduledThreadPoolExecutor current = scheduler;
+            if (current != null) {
+                current.execute(this::flushQuietly);
+            } else {
+                flushRequested.set(false);
+            }
+        }
+    }
+
+    /**
+     * 立即把本地累计的增量写入Redis,每个排行榜一次Lua调用
+     *
+     * @return 写入的成员数(ZINCRBY命令数)
+     */
+    public synchronized int flush() {
+        flushRequested.set(false);
+        pendingEvents.set(0);
+        for (String board : pending.keySet()) {
+            //上一批未确认的排行榜先重发上一批,新的增量留到下一轮,保证同一排行榜的批次号按顺序写入
+            if (unconfirmed.containsKey(board)) {
+                continue;
+            }
+            Map<String, Double> drained = new HashMap<>();
+            //整个成员表取走并删除,排行榜不再活跃时不会留下空表
+            pending.computeIfPresent(board, (name, members) -> {
+                members.forEach((member, delta) -> {
+                    if (delta != 0) {
+                        drained.put(member, delta);
+                    }
+                });
+                return null;
+            });
+            if (!drained.isEmpty()) {
+                unconfirmed.put(board, new FlushBatch(batchSequence.incrementAndGet(), drained));
+            }
+        }
+        int commands = 0;
+        RuntimeException failure = null;
+        for (Map.Entry<String, FlushBatch> entry : unconfirmed.entrySet()) {
+            try {
+                commands += send(entry.getKey(), entry.getValue());
+                unconfirmed.remove(entry.getKey(), entry.getValue());
+            } catch (RuntimeException e) {
+                //留在unconfirmed中,下次刷新用同一批次号重发
+                if (failure == null) {
+                    failure = e;
+                }
+            }
+        }
+        flushedCommands.add(commands);
+        if (failure != null) {
+            throw failure;
+        }
+        return commands;
+    }
+
+    private int send(String board, FlushBatch batch) {
+        List<String> args = new ArrayList<>(3 + batch.deltas.size() * 2);
+        args.add(nodeId);
+        args.add(String.valueOf(batch.sequence));
+        args.add(String.valueOf(FLUSHED_TTL));
+        batch.deltas.forEach((member, delta) -> {
+            args.add(member);
+            args.add(String.valueOf(delta));
+        });
+        stringRedisTemplate.execute(RedisScripts.LEADERBOARD_FLUSH,
+                Arrays.asList(key(board), key(board) + FLUSHED_SUFFIX), args.toArray());
+        //重发时脚本可能返回0(上次已写入),同样计入已写入
+        return batch.deltas.size();
+    }
+
+    /**
+     * 分数从高到低分页查询,结果在本地缓存topCacheTtl
+     *
+     * @param board  排行榜名称
+     * @param offset 起始排名,从0开始
+     * @param count  数量
+     * @return 条目列表
+     */
+    public List<LeaderboardEntry> top(String board, long offset, int count) {
+        Cache<String, List<LeaderboardEntry>> cache = topCache;
+        if (cache == null || topCacheTtl <= 0) {
+            return loadTop(board, offset, count);
+        }
+        try {
+            return cache.get(board + "\n" + offset + "\n" + count, () -> loadTop(board, offset, count));
+        } catch (ExecutionException | UncheckedExecutionException e) {
+            Throwables.throwIfUnchecked(e.getCause());
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    /**
+     * 成员附近的排名,一次Lua调用
+     *
+     * @param board  排行榜名称
+     * @param member 成员
+     * @param radius 前后各取的名次数
+     * @return 按排名排列的条目列表, 成员不存在时为空列表
+     */
+    @SuppressWarnings("unchecked")
+    public List<LeaderboardEntry> around(String board, String member, int radius) {
+        List<Object> result = stringRedisTemplate.execute(RedisScripts.LEADERBOARD_AROUND,
+                Collections.singletonList(key(board)), member, String.valueOf(radius));
+        if (result == null || result.isEmpty()) {
+            return Collections.emptyList();
+        }
+        long rank = ((Number) result.get(0)).longValue();
+        List<LeaderboardEntry> entries = new ArrayList<>(result.size() / 2);
+        for (int i = 1; i + 1 < result.size(); i += 2) {
+            entries.add(new LeaderboardEntry((String) result.get(i), Double.parseDouble((String) result.get(i + 1)), rank++));
+        }
+        return entries;
+    }
+
+    /**
+     * 成员的排名和分数,一次Lua调用
+     *
+     * @param board  排行榜名称
+     * @param member 成员
+     * @return 条目, 成员不存在时为null
+     */
+    public LeaderboardEntry rank(String board, String member) {
+        List<LeaderboardEntry> entries = around(board, member, 0);
+        return entries.isEmpty() ? null : entries.get(0);
+    }
+
+    /**
+     * 删除排行榜,包括本地未刷新的增量
+     *
+     * @param board 排行榜名称
+     */
+    public void delete(String board) {
+        pending.remove(board);
+        unconfirmed.remove(board);
+        redisUtil.delete(Arrays.asList(key(board), key(board) + FLUSHED_SUFFIX));
+        Cache<String, List<LeaderboardEntry>> cache = topCache;
+        if (cache != null) {
+            cache.invalidateAll();
+        }
+    }
+
+    /**
+     * 本地未刷新的事件数
+     */
+    public int getPendingEvents() {
+        return pendingEvents.get();
+    }
+
+    /**
+     * 已刷新的ZINCRBY命令数
+     */
+    public long getFlushedCommands() {
+        return flushedCommands.sum();
+    }
+
+    private List<LeaderboardEntry> loadTop(String board, long offset, int count) {
+        Set<TypedTuple<String>> tuples = redisUtil.zReverseRangeWithScores(key(board), offset, offset + count - 1);
+        List<LeaderboardEntry> entries = new ArrayList<>(tuples == null ? 0 : tuples.size());
+        if (tuples != null) {
+            long rank = offset;
+            for (TypedTuple<String> tuple : tuples) {
+                entries.add(new LeaderboardEntry(tuple.getValue(), tuple.getScore(), rank++));
+            }
+        }
+        return Collections.unmodifiableList(entries);
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Exception e) {
+            log.warn("leaderboard flush fail, will retry, error:{}", e.getMessage());
+        }
+    }
+
+    private static String key(String board) {
+        return KEY_PREFIX + "{" + board + "}";
+    }
+
+    /**
+     * 一个排行榜的一批增量
+     */
+    private static final class FlushBatch {
+
+        private final long sequence;
+
+        private final Map<String, Double> deltas;
+
+        private FlushBatch(long sequence, Map<String, Double> deltas) {
+            this.sequence = sequence;
+            this.deltas = deltas;
+        }
+
+    }
+
+}
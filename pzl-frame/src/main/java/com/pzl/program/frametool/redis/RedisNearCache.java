@@ -0,0 +1,363 @@
+package com.pzl.program.frametool.redis;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.RemovalListener;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Redis 本地近端缓存(两级缓存的第一级)
+ * <p>
+ * 热点key一天只变化几次,却每次请求都要走一次Redis。开启后RedisUtil的get/hGet先查本地缓存,
+ * 未命中再查Redis并回填。本地缓存按key数量和写入时间双重限制,超出容量按LRU淘汰,每个hash key缓存的字段数也有上限。
+ * <p>
+ * 一致性:
+ * 1、RedisUtil的写操作(set/setEx/hPut/delete/expire等)先写Redis,再失效本地缓存,并通过Redis频道广播给其他节点
+ * 2、其他节点收到消息后失效各自的本地缓存,自己发出的消息直接忽略
+ * 3、回源前记下key所在分段的版本号,回填后再校验一次,期间该key被失效时删除刚回填的值,避免旧值覆盖
+ * 4、回源时在同一个流水线中读取PTTL,本地存活时间不超过key在Redis中的剩余过期时间
+ * 5、不经过RedisUtil的写入(RedisBatch、其他客户端)只能依靠过期时间兜底
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+@Slf4j
+public class RedisNearCache implements MessageListener {
+
+    //消息中节点标识与key的分隔符
+    private static final String SEPARATOR = "\n";
+
+    //失效版本号的分段数,不同key落在同一分段时只会多丢弃一次回填
+    private static final int VERSION_STRIPES = 4096;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private final String channel;
+
+    //string缓存,值为空时也缓存,防止不存在的key反复回源
+    private final Cache<String, Entry<String>> stringCache;
+
+    //hash缓存,一个key对应一组字段
+    private final Cache<String, ConcurrentMap<String, Entry<Object>>> hashCache;
+
+    //按key分段的失效版本号,key每次失效所在分段加一
+    private final AtomicLongArray versions = new AtomicLongArray(VERSION_STRIPES);
+
+    //本地最长存活时间(纳秒)
+    private final long expireAfterWriteNanos;
+
+    //每个hash key最多缓存的字段数
+    private final int maximumFieldsPerKey;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder missCount = new LongAdder();
+
+    private final LongAdder evictionCount = new LongAdder();
+
+    private final LongAdder invalidationCount = new LongAdder();
+
+    public RedisNearCache(StringRedisTemplate stringRedisTemplate, RedisNearCacheProperties properties) {
+        this.stringRedisTemplate = stringRedisTemplate;
+        this.channel = properties.getChannel();
+        this.expireAfterWriteNanos = TimeUnit.MILLISECONDS.toNanos(properties.getExpireAfterWrite());
+        this.maximumFieldsPerKey = properties.getMaximumFieldsPerKey();
+        this.stringCache = newCache(properties);
+        this.hashCache = newCache(properties);
+    }
+
+    private <V> Cache<String, V> newCache(RedisNearCacheProperties properties) {
+        RemovalListener<String, V> removalListener = notification -> {
+            if (notification.wasEvicted()) {
+                evictionCount.increment();
+            }
+        };
+        return CacheBuilder.newBuilder()
+                .maximumSize(properties.getMaximumSize())
+                .expireAfterWrite(properties.getExpireAfterWrite(), TimeUnit.MILLISECONDS)
+                .removalListener(removalListener)
+                .build();
+    }
+
+    /**
+     * 读取string,未命中时在一个流水线中读取值和PTTL并回填
+     *
+     * @param key key
+     * @return 值
+     */
+    public String get(String key) {
+        Entry<String> cached = stringCache.getIfPresent(key);
+        if (cached != null) {
+            if (!cached.isExpired(System.nanoTime())) {
+                hitCount.increment();
+                return cached.value;
+            }
+            expire(stringCache.asMap(), key, cached);
+        }
+        missCount.increment();
+        int stripe = stripe(key);
+        long stamp = versions.get(stripe);
+        List<Object> loaded = load(key, null);
+        String value = (String) loaded.get(0);
+        Entry<String> entry = newEntry(value, (Long) loaded.get(1));
+        if (entry != null && versions.get(stripe) == stamp) {
+            stringCache.put(key, entry);
+            //失效可能发生在校验之后、put之前,回填后再校验一次
+            if (versions.get(stripe) != stamp) {
+                stringCache.asMap().remove(key, entry);
+            }
+        }
+        return value;
+    }
+
+    /**
+     * 读取hash字段,未命中时在一个流水线中读取字段和PTTL并回填,key已缓存的字段数达到上限时不回填
+     *
+     * @param key   key
+     * @param field 字段
+     * @return 值
+     */
+    public Object hGet(String key, String field) {
+        ConcurrentMap<String, Entry<Object>> fields = hashCache.getIfPresent(key);
+        Entry<Object> cached = fields == null ? null : fields.get(field);
+        if (cached != null) {
+            if (!cached.isExpired(System.nanoTime())) {
+                hitCount.increment();
+                return cached.value;
+            }
+            expire(fields, field, cached);
+        }
+        missCount.increment();
+        int stripe = stripe(key);
+        long stamp = versions.get(stripe);
+        List<Object> loaded = load(key, field);
+        Object value = loaded.get(0);
+        Entry<Object> entry = newEntry(value, (Long) loaded.get(1));
+        if (entry != null && versions.get(stripe) == stamp) {
+            if (fields == null) {
+                fields = new ConcurrentHashMap<>();
+                ConcurrentMap<String, Entry<Object>> previous = hashCache.asMap().putIfAbsent(key, fields);
+                if (previous != null) {
+                    fields = previous;
+                }
+            }
+            if (fields.size() < maximumFieldsPerKey || fields.containsKey(field)) {
+                fields.put(field, entry);
+                if (versions.get(stripe) != stamp) {
+                    fields.remove(field, entry);
+                }
+            }
+        }
+        return value;
+    }
+
+    //GET/HGET和PTTL一次往返
+    private List<Object> load(String key, String field) {
+        byte[] rawKey = key.getBytes(StandardCharsets.UTF_8);
+        return stringRedisTemplate.executePipelined((RedisCallback<Object>) connection -> {
+            if (field == null) {
+                connection.get(rawKey);
+            } else {
+                connection.hGet(rawKey, field.getBytes(StandardCharsets.UTF_8));
+            }
+            connection.pTtl(rawKey);
+            return null;
+        });
+    }
+
+    //本地存活时间取expireAfterWrite和PTTL中较小的,PTTL为-1(不过期)或-2(不存在)时取expireAfterWrite
+    private <V> Entry<V> newEntry(V value, Long pttl) {
+        long ttl = expireAfterWriteNanos;
+        if (pttl != null && pttl >= 0) {
+            ttl = Math.min(ttl, TimeUnit.MILLISECONDS.toNanos(pttl));
+        }
+        return ttl > 0 ? new Entry<>(value, System.nanoTime() + ttl) : null;
+    }
+
+    private <K, V> void expire(ConcurrentMap<K, V> map, K key, V entry) {
+        if (map.remove(key, entry)) {
+            evictionCount.increment();
+        }
+    }
+
+    private static int stripe(String key) {
+        int h = key.hashCode();
+        return (h ^ (h >>> 16)) & (VERSION_STRIPES - 1);
+    }
+
+    /**
+     * 失效本地缓存并广播给其他节点
+     *
+     * @param keys key列表
+     */
+    public void invalidate(String... keys) {
+        for (String key : keys) {
+            invalidateLocal(key);
+        }
+        publish(String.join(SEPARATOR, keys));
+    }
+
+    /**
+     * 失效本地缓存并广播给其他节点
+     *
+     * @param keys key列表
+     */
+    public void invalidate(Collection<String> keys) {
+        if (keys.isEmpty()) {
+            return;
+        }
+        for (String key : keys) {
+            invalidateLocal(key);
+        }
+        publish(String.join(SEPARATOR, keys));
+    }
+
+    /**
+     * 只失效本地缓存,广播消息由调用方发送(AsyncRedisUtil把广播和写命令放在同一个流水线中)
+     *
+     * @param keys key列表
+     */
+    void invalidateLocal(Collection<String> keys) {
+        for (String key : keys) {
+            invalidateLocal(key);
+        }
+    }
+
+    /**
+     * 失效广播的频道
+     */
+    String getChannel() {
+        return channel;
+    }
+
+    /**
+     * 失效广播的消息内容
+     *
+     * @param keys key列表
+     * @return 消息
+     */
+    String invalidationMessage(Collection<String> keys) {
+        return nodeId + SEPARATOR + String.join(SEPARATOR, keys);
+    }
+
+    /**
+     * 清空本地缓存(不广播)
+     */
+    public void invalidateAll() {
+        for (int i = 0; i < VERSION_STRIPES; i++) {
+            versions.incrementAndGet(i);
+        }
+        stringCache.invalidateAll();
+        hashCache.invalidateAll();
+    }
+
+    /**
+     * 接收其他节点广播的失效消息
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        String[] parts = body.split(SEPARATOR);
+        if (parts.length < 2 || nodeId.equals(parts[0])) {
+            return;
+        }
+        for (int i = 1; i < parts.length; i++) {
+            invalidateLocal(parts[i]);
+        }
+    }
+
+    //先加版本号再删除,与回填后的再次校验配合,不会留下失效前读到的值
+    private void invalidateLocal(String key) {
+        versions.incrementAndGet(stripe(key));
+        stringCache.invalidate(key);
+        hashCache.invalidate(key);
+        invalidationCount.increment();
+    }
+
+    private void publish(String keys) {
+        try {
+            stringRedisTemplate.convertAndSend(channel, nodeId + SEPARATOR + keys);
+        } catch (Exception e) {
+            //广播失败时其他节点依靠过期时间兜底
+            log.warn("near cache invalidation publish fail, keys={}", keys, e);
+        }
+    }
+
+    /*------------------------统计---------------------------*/
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * 因容量或过期被淘汰的数量
+     *
+     * @return 淘汰数
+     */
+    public long getEvictionCount() {
+        stringCache.cleanUp();
+        hashCache.cleanUp();
+        return evictionCount.sum();
+    }
+
+    public long getInvalidationCount() {
+        return invalidationCount.sum();
+    }
+
+    /**
+     * 命中率
+     *
+     * @return 0~1
+     */
+    public double getHitRate() {
+        long hits = hitCount.sum();
+        long total = hits + missCount.sum();
+        return total == 0 ? 1.0 : (double) hits / total;
+    }
+
+    public long size() {
+        return stringCache.size() + hashCache.size();
+    }
+
+    /**
+     * 缓存的值和本地过期时间
+     */
+    private static final class Entry<V> {
+
+        private final V value;
+
+        //System.nanoTime()
+        private final long expireAt;
+
+        private Entry(V value, long expireAt) {
+            this.value = value;
+            this.expireAt = expireAt;
+        }
+
+        private boolean isExpired(long now) {
+            return now - expireAt >= 0;
+        }
+
+    }
+
+}
@@ -0,0 +1,43 @@
+package com.pzl.program.frametool.redis;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * Redis 本地近端缓存配置
+ * 配置 redis.near-cache.enabled=true 后生效,RedisUtil的get/hGet会自动先查本地缓存
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+@Configuration
+@EnableConfigurationProperties({RedisNearCacheProperties.class})
+@ConditionalOnProperty(prefix = "redis.near-cache", name = "enabled", havingValue = "true")
+public class RedisNearCacheConfig {
+
+    @Bean
+    public RedisNearCache redisNearCache(StringRedisTemplate stringRedisTemplate,
+                                         RedisNearCacheProperties redisNearCacheProperties) {
+        return new RedisNearCache(stringRedisTemplate, redisNearCacheProperties);
+    }
+
+    /**
+     * 订阅失效消息频道
+     */
+    @Bean
+    public RedisMessageListenerContainer redisNearCacheListenerContainer(RedisConnectionFactory redisConnectionFactory,
+                                                                         RedisNearCache redisNearCache,
+                                                                         RedisNearCacheProperties redisNearCacheProperties) {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        container.addMessageListener(redisNearCache, new ChannelTopic(redisNearCacheProperties.getChannel()));
+        return container;
+    }
+
+}
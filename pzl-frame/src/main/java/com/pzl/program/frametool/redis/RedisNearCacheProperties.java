@@ -0,0 +1,31 @@
+package com.pzl.program.frametool.redis;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * Redis 本地近端缓存配置属性类
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+@Data
+@ConfigurationProperties("redis.near-cache")
+public class RedisNearCacheProperties {
+
+    //是否开启本地缓存
+    private boolean enabled = false;
+
+    //string和hash各自最多缓存的key数量
+    private long maximumSize = 10000;
+
+    //写入后过期时间(毫秒),跨节点失效消息丢失时的兜底,key在Redis中的剩余过期时间更短时以后者为准
+    private long expireAfterWrite = 60000;
+
+    //每个hash key最多缓存的字段数,超出后新字段不再缓存
+    private int maximumFieldsPerKey = 1000;
+
+    //失效消息广播的频道
+    private String channel = "redis:near-cache:invalidate";
+
+}
@@ -0,0 +1,409 @@
+package com.pzl.program.frametool.redis;
+
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+
+import java.util.List;
+
+/**
+ * Redis Lua脚本
+ * <p>
+ * 通过 RedisTemplate.execute(script, keys, args) 执行,先用EVALSHA,服务端没有缓存时自动退回EVAL。
+ * 脚本在服务端原子执行,用于"判断+修改"必须一步完成的场景。
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public final class RedisScripts {
+
+    private RedisScripts() {
+    }
+
+    /**
+     * SET key value NX PX ttl,成功返回1,key已存在返回0
+     * <p>
+     * KEYS[1]=key, ARGV[1]=value, ARGV[2]=过期时间(毫秒)
+     * 1.8版本连接接口上的 set(key, value, expiration, option) 没有返回值,无法知道是否设置成功
+     */
+    public static final RedisScript<Long> SET_IF_ABSENT_PX = new DefaultRedisScript<>(
+            "if redis.call('set', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then return 1 else return 0 end",
+            Long.class);
+
+    /**
+     * 值等于期望值时删除,成功返回1,否则返回0
+     * <p>
+     * KEYS[1]=key, ARGV[1]=期望值
+     */
+    public static final RedisScript<Long> COMPARE_AND_DELETE = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    /**
+     * 获取分布式锁,成功返回自增的防护令牌(fencing token),锁被占用返回0
+     * <p>
+     * KEYS[1]=锁key, KEYS[2]=令牌计数key(不过期), ARGV[1]=持有者标识, ARGV[2]=租期(毫秒)
+     */
+    public static final RedisScript<Long> LOCK_ACQUIRE = new DefaultRedisScript<>(
+            "if redis.call('set', KEYS[1], ARGV[1], 'NX', 'PX', ARGV[2]) then return redis.call('incr', KEYS[2]) else return 0 end",
+            Long.class);
+
+    /**
+     * 值等于期望值时重新设置过期时间,成功返回1,否则返回0
+     * <p>
+     * KEYS[1]=key, ARGV[1]=期望值, ARGV[2]=过期时间(毫秒)
+     */
+    public static final RedisScript<Long> COMPARE_AND_PEXPIRE = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('pexpire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+
+    /**
+     * 限流,一次检查多个key,每个key独立判断,返回与KEYS顺序一致的列表,1为放行0为拒绝
+     * <p>
+     * KEYS=限流key列表, ARGV[1]=算法(tb:令牌桶 sw:滑动窗口日志), ARGV[2]=当前时间(毫秒),
+     * ARGV[3]=容量, ARGV[4]=令牌桶每秒生成数/滑动窗口长度(毫秒), ARGV[5]=本次申请数, ARGV[6]=请求标识
+     * <p>
+     * 令牌桶状态保存在hash(tokens, ts)中,空闲到桶满后过期;滑动窗口保存在zset中,score为请求时间
+     */
+    @SuppressWarnings("rawtypes")
+    public static final RedisScript<List> RATE_LIMIT = new DefaultRedisScript<>(
+            "local now = tonumber(ARGV[2]) "
+                    + "local capacity = tonumber(ARGV[3]) "
+                    + "local param = tonumber(ARGV[4]) "
+                    + "local permits = tonumber(ARGV[5]) "
+                    + "local result = {} "
+                    + "for i, key in ipairs(KEYS) do "
+                    + "  if ARGV[1] == 'tb' then "
+                    + "    local state = redis.call('hmget', key, 'tokens', 'ts') "
+                    + "    local tokens = tonumber(state[1]) or capacity "
+                    + "    local ts = tonumber(state[2]) or now "
+                    + "    tokens = math.min(capacity, tokens + math.max(0, now - ts) * param / 1000) "
+                    + "    result[i] = 0 "
+                    + "    if tokens >= permits then "
+                    + "      tokens = tokens - permits "
+                    + "      result[i] = 1 "
+                    + "    end "
+                    + "    redis.call('hmset', key, 'tokens', tokens, 'ts', now) "
+                    + "    redis.call('pexpire', key, math.ceil(capacity * 1000 / param) + 1000) "
+                    + "  else "
+                    + "    redis.call('zremrangebyscore', key, '-inf', now - param) "
+                    + "    result[i] = 0 "
+                    + "    if redis.call('zcard', key) + permits <= capacity then "
+                    + "      for j = 1, permits do "
+                    + "        redis.call('zadd', key, now, ARGV[6] .. ':' .. i .. ':' .. j) "
+                    + "      end "
+                    + "      redis.call('pexpire', key, param) "
+                    + "      result[i] = 1 "
+                    + "    end "
+                    + "  end "
+                    + "end "
+                    + "return result",
+            List.class);
+
+    /**
+     * 延迟队列:写入任务,"到期时间:内容"存hash,到期时间存zset,同一id重复写入会覆盖内容和到期时间并清零投递次数,返回新增的任务数
+     * <p>
+     * KEYS[1]=delayed(zset), KEYS[2]=jobs(hash), KEYS[3]=attempts(hash), ARGV=按(id, 内容, 到期时间毫秒)三个一组
+     */
+    public static final RedisScript<Long> DELAY_SCHEDULE = new DefaultRedisScript<>(
+            "local added = 0 "
+                    + "for i = 1, #ARGV, 3 do "
+                    + "  redis.call('hset', KEYS[2], ARGV[i], ARGV[i + 2] .. ':' .. ARGV[i + 1]) "
+                    + "  redis.call('hdel', KEYS[3], ARGV[i]) "
+                    + "  added = added + redis.call('zadd', KEYS[1], ARGV[i + 2], ARGV[i]) "
+                    + "end "
+                    + "return added",
+            Long.class);
+
+    /**
+     * 延迟队列:取消还未到期的任务,成功返回1,任务不存在或已到期返回0
+     * <p>
+     * KEYS[1]=delayed(zset), KEYS[2]=jobs(hash), KEYS[3]=attempts(hash), ARGV[1]=id
+     */
+    public static final RedisScript<Long> DELAY_CANCEL = new DefaultRedisScript<>(
+            "if redis.call('zrem', KEYS[1], ARGV[1]) == 0 then return 0 end "
+                    + "redis.call('hdel', KEYS[2], ARGV[1]) "
+                    + "redis.call('hdel', KEYS[3], ARGV[1]) "
+                    + "return 1",
+            Long.class);
+
+    /**
+     * 延迟队列:把到期任务和处理超时(可见性超时)的任务移到就绪list尾部,每个zset最多移动limit个,返回就绪list的长度
+     * <p>
+     * KEYS[1]=delayed(zset), KEYS[2]=processing(zset), KEYS[3]=ready(list), ARGV[1]=当前时间(毫秒), ARGV[2]=limit
+     */
+    public static final RedisScript<Long> DELAY_TRANSFER = new DefaultRedisScript<>(
+            "for i = 1, 2 do "
+                    + "  local ids = redis.call('zrangebyscore', KEYS[i], '-inf', ARGV[1], 'LIMIT', 0, ARGV[2]) "
+                    + "  if #ids > 0 then "
+                    + "    redis.call('zrem', KEYS[i], unpack(ids)) "
+                    + "    redis.call('rpush', KEYS[3], unpack(ids)) "
+                    + "  end "
+                    + "end "
+                    + "return redis.call('llen', KEYS[3])",
+            Long.class);
+
+    /**
+     * 延迟队列:从就绪list头部领取最多count个任务,放入processing并记录可见性截止时间,投递次数加1,
+     * 返回按(id, "到期时间:内容", 投递次数)三个一组的列表,内容已被删除(已确认或已取消)的任务直接丢弃,
+     * 投递次数已达maxAttempts的任务(可见性超时后重新入队的)放入死信list,不再投递
+     * <p>
+     * KEYS[1]=ready(list), KEYS[2]=processing(zset), KEYS[3]=jobs(hash), KEYS[4]=attempts(hash), KEYS[5]=dead(list),
+     * ARGV[1]=可见性截止时间(毫秒), ARGV[2]=count, ARGV[3]=maxAttempts
+     */
+    @SuppressWarnings("rawtypes")
+    public static final RedisScript<List> DELAY_CLAIM = new DefaultRedisScript<>(
+            "local result = {} "
+                    + "for i = 1, tonumber(ARGV[2]) do "
+                    + "  local id = redis.call('lpop', KEYS[1]) "
+                    + "  if not id then break end "
+                    + "  local payload = redis.call('hget', KEYS[3], id) "
+                    + "  if payload and tonumber(redis.call('hget', KEYS[4], id) or '0') >= tonumber(ARGV[3]) then "
+                    + "    redis.call('rpush', KEYS[5], id) "
+                    + "  elseif payload then "
+                    + "    redis.call('zadd', KEYS[2], ARGV[1], id) "
+                    + "    result[#result + 1] = id "
+                    + "    result[#result + 1] = payload "
+                    + "    result[#result + 1] = tostring(redis.call('hincrby', KEYS[4], id, 1)) "
+                    + "  end "
+                    + "end "
+                    + "return result",
+            List.class);
+
+    /**
+     * 延迟队列:确认任务处理完成,移出processing并删除内容;期间被重新写入(仍在delayed中)的任务保留内容,返回移出processing的个数
+     * <p>
+     * KEYS[1]=processing(zset), KEYS[2]=jobs(hash), KEYS[3]=attempts(hash), KEYS[4]=delayed(zset), ARGV=id列表
+     */
+    public static final RedisScript<Long> DELAY_ACK = new DefaultRedisScript<>(
+            "local acked = 0 "
+                    + "for i = 1, #ARGV do "
+                    + "  acked = acked + redis.call('zrem', KEYS[1], ARGV[i]) "
+                    + "  if not redis.call('zscore', KEYS[4], ARGV[i]) then "
+                    + "    redis.call('hdel', KEYS[2], ARGV[i]) "
+                    + "    redis.call('hdel', KEYS[3], ARGV[i]) "
+                    + "  end "
+                    + "end "
+                    + "return acked",
+            Long.class);
+
+    /**
+     * 延迟队列:处理失败的任务移出processing,重新放回delayed等待重试,到期时间为-1的放入死信list;
+     * 已经因超时被重新投递(不在processing中)的任务不处理,返回处理的个数
+     * <p>
+     * KEYS[1]=processing(zset), KEYS[2]=delayed(zset), KEYS[3]=dead(list), ARGV=按(id, 重试时间毫秒)两个一组
+     */
+    public static final RedisScript<Long> DELAY_RETRY = new DefaultRedisScript<>(
+            "local retried = 0 "
+                    + "for i = 1, #ARGV, 2 do "
+                    + "  if redis.call('zrem', KEYS[1], ARGV[i]) == 1 then "
+                    + "    if ARGV[i + 1] == '-1' then "
+                    + "      redis.call('rpush', KEYS[3], ARGV[i]) "
+                    + "    else "
+                    + "      redis.call('zadd', KEYS[2], ARGV[i + 1], ARGV[i]) "
+                    + "    end "
+                    + "    retried = retried + 1 "
+                    + "  end "
+                    + "end "
+                    + "return retried",
+            Long.class);
+
+    /**
+     * 排行榜:把一个节点一批成员的增量原子地加到排行榜上,同一节点的批次号不大于已写入的批次号时不重复执行,
+     * 返回写入的成员数(重复的批次返回0)
+     * <p>
+     * KEYS[1]=排行榜(zset), KEYS[2]=各节点已写入的批次号(hash), ARGV[1]=节点标识, ARGV[2]=批次号,
+     * ARGV[3]=批次号的过期时间(毫秒), ARGV[4..n]=成员1, 增量1, 成员2, 增量2...
+     */
+    public static final RedisScript<Long> LEADERBOARD_FLUSH = new DefaultRedisScript<>(
+            "if tonumber(redis.call('hget', KEYS[2], ARGV[1]) or '0') >= tonumber(ARGV[2]) then return 0 end "
+                    + "for i = 4, #ARGV, 2 do "
+                    + "  redis.call('zincrby', KEYS[1], ARGV[i + 1], ARGV[i]) "
+                    + "end "
+                    + "redis.call('hset', KEYS[2], ARGV[1], ARGV[2]) "
+                    + "redis.call('pexpire', KEYS[2], ARGV[3]) "
+                    + "return (#ARGV - 3) / 2",
+            Long.class);
+
+    /**
+     * 排行榜:成员附近的排名,按分数从高到低取成员前后各radius名,成员不存在返回空列表
+     * <p>
+     * KEYS[1]=排行榜(zset), ARGV[1]=成员, ARGV[2]=radius
+     * 返回 {起始排名, 成员1, 分数1, 成员2, 分数2, ...}
+     */
+    @SuppressWarnings("rawtypes")
+    public static final RedisScript<List> LEADERBOARD_AROUND = new DefaultRedisScript<>(
+            "local rank = redis.call('zrevrank', KEYS[1], ARGV[1]) "
+                    + "if not rank then return {} end "
+                    + "local radius = tonumber(ARGV[2]) "
+                    + "local from = math.max(rank - radius, 0) "
+                    + "local result = redis.call('zrevrange', KEYS[1], from, rank + radius, 'withscores') "
+                    + "table.insert(result, 1, from) "
+                    + "return result",
+            List.class);
+
+    /*
+     * Streams(Redis 5.0+):Jedis 2.9和spring-data-redis 1.8没有Streams命令,连接的execute也只接受Jedis已知的命令,
+     * 这里通过Lua脚本调用。脚本中不能使用XREADGROUP BLOCK,消费端空闲时按轮询间隔等待。
+     * 消息只有一个字段payload;XADD生成的id和XCLAIM不是确定性的,脚本开头开启按命令复制。
+     */
+
+    /**
+     * Stream:批量写入消息,按MAXLEN ~ 近似裁剪,返回消息id列表
+     * <p>
+     * KEYS[1]=stream, ARGV[1]=最大长度, ARGV[2..n]=消息内容
+     */
+    @SuppressWarnings("rawtypes")
+    public static final RedisScript<List> STREAM_ADD = new DefaultRedisScript<>(
+            "redis.replicate_commands() "
+                    + "local ids = {} "
+                    + "for i = 2, #ARGV do "
+                    + "  ids[#ids + 1] = redis.call('xadd', KEYS[1], 'MAXLEN', '~', ARGV[1], '*', 'payload', ARGV[i]) "
+                    + "end "
+                    + "return ids",
+            List.class);
+
+    /**
+     * Stream:创建消费组(stream不存在时一并创建),创建返回1,已存在返回0
+     * <p>
+     * KEYS[1]=stream, ARGV[1]=消费组, ARGV[2]=起始id(0为从头消费, $为只消费之后的消息)
+     */
+    public static final RedisScript<Long> STREAM_CREATE_GROUP = new DefaultRedisScript<>(
+            "local ok, err = pcall(redis.call, 'xgroup', 'CREATE', KEYS[1], ARGV[1], ARGV[2], 'MKSTREAM') "
+                    + "if ok then return 1 end "
+                    + "local message = type(err) == 'table' and err.err or tostring(err) "
+                    + "if string.find(message, 'BUSYGROUP') then return 0 end "
+                    + "return redis.error_reply(message)",
+            Long.class);
+
+    /**
+     * Stream:消费组读取最多count条新消息,登记到消费者的待确认列表(PEL)
+     * <p>
+     * KEYS[1]=stream, ARGV[1]=消费组, ARGV[2]=消费者, ARGV[3]=count
+     * 返回按(id, 内容, 投递次数)三个一组的列表
+     */
+    @SuppressWarnings("rawtypes")
+    public static final RedisScript<List> STREAM_READ = new DefaultRedisScript<>(
+            "redis.replicate_commands() "
+                    + "local result = {} "
+                    + "local streams = redis.call('xreadgroup', 'GROUP', ARGV[1], ARGV[2], 'COUNT', ARGV[3], "
+                    + "  'STREAMS', KEYS[1], '>') "
+                    + "if not streams then return result end "
+                    + "for _, entry in ipairs(streams[1][2]) do "
+                    + "  local fields = entry[2] "
+                    + "  result[#result + 1] = entry[1] "
+                    + "  result[#result + 1] = fields[2] or '' "
+                    + "  result[#result + 1] = '1' "
+                    + "end "
+                    + "return result",
+            List.class);
+
+    /**
+     * Stream:批量确认(XACK),返回确认的条数
+     * <p>
+     * KEYS[1]=stream, ARGV[1]=消费组, ARGV[2..n]=消息id
+     */
+    public static final RedisScript<Long> STREAM_ACK = new DefaultRedisScript<>(
+            "return redis.call('xack', KEYS[1], ARGV[1], unpack(ARGV, 2))",
+            Long.class);
+
+    /**
+     * Stream:接管其他消费者(已宕机或处理超时)空闲超过minIdle的待确认消息;
+     * 投递次数达到上限的确认后放入死信list(id:内容),已被裁剪的消息直接确认丢弃。
+     * 调用方自己正在处理(或已处理待确认)的消息不接管,否则处理时间超过minIdle的消息会被重复投递;
+     * 这些消息也在待确认列表中,XPENDING多取同样条数,避免它们占满count
+     * <p>
+     * KEYS[1]=stream, KEYS[2]=dead(list), ARGV[1]=消费组, ARGV[2]=消费者, ARGV[3]=minIdle(毫秒),
+     * ARGV[4]=count, ARGV[5]=最大投递次数, ARGV[6..n]=调用方正在处理的消息id
+     * 返回按(id, 内容, 投递次数)三个一组的列表
+     */
+    @SuppressWarnings("rawtypes")
+    public static final RedisScript<List> STREAM_RECLAIM = new DefaultRedisScript<>(
+            "redis.replicate_commands() "
+                    + "local result = {} "
+                    + "local minIdle = tonumber(ARGV[3]) "
+                    + "local count = tonumber(ARGV[4]) "
+                    + "local maxDeliveries = tonumber(ARGV[5]) "
+                    + "local inFlight = {} "
+                    + "for i = 6, #ARGV do inFlight[ARGV[i]] = true end "
+                    + "local ids = {} "
+                    + "local deliveries = {} "
+                    + "for _, p in ipairs(redis.call('xpending', KEYS[1], ARGV[1], '-', '+', count + #ARGV - 5)) do "
+                    + "  if p[3] >= minIdle and #ids < count and not (p[2] == ARGV[2] and inFlight[p[1]]) then "
+                    + "    if p[4] >= maxDeliveries then "
+                    + "      local entry = redis.call('xrange', KEYS[1], p[1], p[1])[1] "
+                    + "      if entry then redis.call('lpush', KEYS[2], p[1] .. ':' .. (entry[2][2] or '')) end "
+                    + "      redis.call('xack', KEYS[1], ARGV[1], p[1]) "
+                    + "    else "
+                    + "      ids[#ids + 1] = p[1] "
+                    + "      deliveries[p[1]] = p[4] + 1 "
+                    + "    end "
+                    + "  end "
+                    + "end "
+                    + "if #ids == 0 then return result end "
+                    + "local claimed = {} "
+                    + "for _, entry in ipairs(redis.call('xclaim', KEYS[1], ARGV[1], ARGV[2], ARGV[3], unpack(ids))) do "
+                    + "  if entry and entry[2] then "
+                    + "    claimed[entry[1]] = true "
+                    + "    result[#result + 1] = entry[1] "
+                    + "    result[#result + 1] = entry[2][2] or '' "
+                    + "    result[#result + 1] = tostring(deliveries[entry[1]]) "
+                    + "  end "
+                    + "end "
+                    + "for _, id in ipairs(ids) do "
+                    + "  if not claimed[id] then redis.call('xack', KEYS[1], ARGV[1], id) end "
+                    + "end "
+                    + "return result",
+            List.class);
+
+    /**
+     * Stream:队列状态,返回 {消息数, 消费组待确认数, 死信数}
+     * <p>
+     * KEYS[1]=stream, KEYS[2]=dead(list), ARGV[1]=消费组
+     */
+    @SuppressWarnings("rawtypes")
+    public static final RedisScript<List> STREAM_STATS = new DefaultRedisScript<>(
+            "if redis.call('exists', KEYS[1]) == 0 then return {0, 0, redis.call('llen', KEYS[2])} end "
+                    + "local ok, summary = pcall(redis.call, 'xpending', KEYS[1], ARGV[1]) "
+                    + "return {redis.call('xlen', KEYS[1]), ok and summary[1] or 0, redis.call('llen', KEYS[2])}",
+            List.class);
+
+    /**
+     * 布隆过滤器:批量添加元素并累加插入计数,返回 {新增的元素数, 最新的插入计数}
+     * <p>
+     * KEYS[1]=插入计数, KEYS[2..n]=各层位图(最后一层为写入层), ARGV[1]=层数,
+     * ARGV[2..层数+1]=各层的哈希函数个数, 之后按元素依次排列各层的位置
+     * 元素在前面的层全部命中,或写入层的位原本都已置位时,不算新增
+     */
+    @SuppressWarnings("rawtypes")
+    public static final RedisScript<List> BLOOM_ADD = new DefaultRedisScript<>(
+            "local layers = tonumber(ARGV[1]) "
+                    + "local hashes = {} "
+                    + "local per = 0 "
+                    + "for i = 1, layers do "
+                    + "  hashes[i] = tonumber(ARGV[1 + i]) "
+                    + "  per = per + hashes[i] "
+                    + "end "
+                    + "local added = 0 "
+                    + "local index = 2 + layers "
+                    + "while index + per - 1 <= #ARGV do "
+                    + "  local existed = false "
+                    + "  for i = 1, layers - 1 do "
+                    + "    local all = true "
+                    + "    for j = 0, hashes[i] - 1 do "
+                    + "      if all and redis.call('getbit', KEYS[1 + i], ARGV[index + j]) == 0 then all = false end "
+                    + "    end "
+                    + "    if all then existed = true end "
+                    + "    index = index + hashes[i] "
+                    + "  end "
+                    + "  local changed = false "
+                    + "  for j = 0, hashes[layers] - 1 do "
+                    + "    if redis.call('setbit', KEYS[1 + layers], ARGV[index + j], 1) == 0 then changed = true end "
+                    + "  end "
+                    + "  index = index + hashes[layers] "
+                    + "  if changed and not existed then added = added + 1 end "
+                    + "end "
+                    + "if added > 0 then return {added, redis.call('incrby', KEYS[1], added)} end "
+                    + "return {0, tonumber(redis.call('get', KEYS[1]) or '0')}",
+            List.class);
+
+}
@@ -0,0 +1,443 @@
+package com.pzl.program.frametool.redis;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Redis Stream队列,代替lLeftPush/lBRightPop的list队列
+ * <p>
+ * list队列弹出即删除,消费者处理中宕机消息就丢了,而且一次往返只能弹出一条。Stream队列:
+ * 1、写入:XADD按MAXLEN ~ maxLength近似裁剪,addAll每500条一次EVAL
+ * 2、消费:消费组内的多个消费者(可以在不同节点)分摊消息,每次XREADGROUP COUNT按空闲线程数成批读取,交给处理线程池
+ * 3、确认:处理成功的消息id先在本地攒批,轮询线程每轮一次XACK
+ * 4、接管:处理失败、消费者宕机的消息留在待确认列表(PEL)中,空闲超过minIdle后由其他消费者XCLAIM重新投递,
+ * 超过最大投递次数的消息确认后放入死信list
+ * <p>
+ * 消息至少投递一次,处理逻辑需要幂等。裁剪按消息总数进行,消费积压超过maxLength时未消费的旧消息也会被删除。
+ * 需要Redis 5.0及以上,命令通过Lua脚本执行(见RedisScripts),空闲时按pollInterval轮询。
+ * 每个队列使用以下key(队列名放在{}中,集群模式下落在同一个slot):
+ * stream:{queue}       stream,消息
+ * stream:{queue}:dead  list,超过最大投递次数的消息,格式为 id:内容
+ * <pre>
+ * redisStreamQueue.add("order-paid", orderId);
+ * redisStreamQueue.subscribe("order-paid", "point", message -&gt; pointService.grant(message.getPayload()));
+ * </pre>
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+@Slf4j
+@Component
+public class RedisStreamQueue {
+
+    //key前缀
+    private static final String KEY_PREFIX = "stream:{";
+
+    //一次脚本调用处理的最大消息数,Lua unpack参数个数有限制
+    private static final int MAX_BATCH = 500;
+
+    //stream最大长度,超出后近似裁剪最旧的消息
+    @Value("${redis.stream-queue.max-length:100000}")
+    private long maxLength = 100000;
+
+    //空闲时的轮询间隔(毫秒)
+    @Value("${redis.stream-queue.poll-interval:100}")
+    private long pollInterval = 100;
+
+    //每次读取的最大消息数
+    @Value("${redis.stream-queue.batch-size:100}")
+    private int batchSize = 100;
+
+    //每个订阅的处理线程数
+    @Value("${redis.stream-queue.worker-threads:8}")
+    private int workerThreads = 8;
+
+    //待确认消息空闲超过这个时间(毫秒)后由其他消费者接管
+    @Value("${redis.stream-queue.min-idle:30000}")
+    private long minIdle = 30000;
+
+    //最大投递次数,超过后进入死信
+    @Value("${redis.stream-queue.max-deliveries:16}")
+    private int maxDeliveries = 16;
+
+    @Autowired
+    private StringRedisTemplate stringRedisTemplate;
+
+    private final List<Subscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /*----------------------------写入-----------------------------------*/
+
+    /**
+     * 写入消息
+     *
+     * @param queue   队列名
+     * @param payload 消息内容
+     * @return 消息id
+     */
+    public String add(String queue, String payload) {
+        return addAll(queue, Collections.singletonList(payload)).get(0);
+    }
+
+    /**
+     * 批量写入消息,每500条一次往返
+     *
+     * @param queue    队列名
+     * @param payloads 消息内容列表
+     * @return 消息id列表, 与写入顺序一致
+     */
+    @SuppressWarnings("unchecked")
+    public List<String> addAll(String queue, Collection<String> payloads) {
+        List<String> scriptKeys = Collections.singletonList(streamKey(queue));
+        List<String> ids = new ArrayList<>(payloads.size());
+        List<Object> args = new ArrayList<>(Math.min(payloads.size(), MAX_BATCH) + 1);
+        args.add(String.valueOf(maxLength));
+        for (Iterator<String> iterator = payloads.iterator(); iterator.hasNext(); ) {
+            args.add(iterator.next());
+            if (args.size() == MAX_BATCH + 1 || !iterator.hasNext()) {
+                List<String> result = stringRedisTemplate.execute(RedisScripts.STREAM_ADD, scriptKeys, args.toArray());
+                ids.addAll(result);
+                args.subList(1, args.size()).clear();
+            }
+        }
+        return ids;
+    }
+
+    /**
+     * 队列状态:length(stream中的消息数)、pending(消费组已投递未确认的消息数)、dead(死信数),一次往返
+     *
+     * @param queue 队列名
+     * @param group 消费组
+     * @return 状态-数量
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Long> stats(String queue, String group) {
+        List<Long> result = stringRedisTemplate.execute(RedisScripts.STREAM_STATS,
+                Arrays.asList(streamKey(queue), deadKey(queue)), group);
+        Map<String, Long> stats = new LinkedHashMap<>();
+        stats.put("length", result.get(0));
+        stats.put("pending", result.get(1));
+        stats.put("dead", result.get(2));
+        return stats;
+    }
+
+    /*----------------------------消费-----------------------------------*/
+
+    /**
+     * 订阅队列,使用配置的处理线程数
+     *
+     * @param queue   队列名
+     * @param group   消费组,不同的消费组各自收到全部消息
+     * @param handler 处理器
+     * @return 订阅, close时停止消费
+     */
+    public Subscription subscribe(String queue, String group, StreamMessageHandler handler) {
+        return subscribe(queue, group, handler, workerThreads);
+    }
+
+    /**
+     * 订阅队列,消费组不存在时创建(从stream中最早的消息开始消费);
+     * 同一个消费组可以在多个节点上订阅,消息在订阅者之间分摊
+     *
+     * @param queue   队列名
+     * @param group   消费组
+     * @param handler 处理器
+     * @param threads 处理线程数
+     * @return 订阅, close时停止消费
+     */
+    public Subscription subscribe(String queue, String group, StreamMessageHandler handler, int threads) {
+        stringRedisTemplate.execute(RedisScripts.STREAM_CREATE_GROUP, Collections.singletonList(streamKey(queue)),
+                group, "0");
+        Subscription subscription = new Subscription(queue, group, handler, threads);
+        subscriptions.add(subscription);
+        subscription.poller.start();
+        return subscription;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (Subscription subscription : subscriptions) {
+            subscription.close();
+        }
+    }
+
+    private static String streamKey(String queue) {
+        return KEY_PREFIX + queue + "}";
+    }
+
+    private static String deadKey(String queue) {
+        return KEY_PREFIX + queue + "}:dead";
+    }
+
+    /**
+     * 队列订阅:一个轮询线程负责读取、接管、批量确认,处理线程池负责执行处理器
+     */
+    public class Subscription implements AutoCloseable {
+
+        private final String queue;
+
+        private final String group;
+
+        //消费者名称,每个订阅唯一
+        private final String consumer;
+
+        private final List<String> streamKeys;
+
+        private final StreamMessageHandler handler;
+
+        //本地最多持有的已读取未完成消息数,超出的留在Redis中由其他消费者读取
+        private final int capacity;
+
+        private final ThreadPoolExecutor workers;
+
+        private final Thread poller;
+
+        //已读取未完成的消息数
+        private final AtomicInteger pending = new AtomicInteger();
+
+        //待确认的消息id
+        private final Queue<String> acks = new ConcurrentLinkedQueue<>();
+
+        //已读取、处理中或处理成功未确认的消息id,接管时排除,避免处理慢的消息被自己重复接管
+        private final Set<String> inFlight = ConcurrentHashMap.newKeySet();
+
+        private final AtomicLong delivered = new AtomicLong();
+
+        private final AtomicLong reclaimed = new AtomicLong();
+
+        private final AtomicLong succeeded = new AtomicLong();
+
+        private final AtomicLong failed = new AtomicLong();
+
+        private volatile boolean running = true;
+
+        private Subscription(String queue, String group, StreamMessageHandler handler, int threads) {
+            this.queue = queue;
+            this.group = group;
+            this.consumer = group + "-" + UUID.randomUUID().toString().replace("-", "").substring(0, 12);
+            this.streamKeys = Collections.singletonList(streamKey(queue));
+            this.handler = handler;
+            this.capacity = threads * 4;
+            this.workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(),
+                    new ThreadFactoryBuilder().setNameFormat("redis-stream-" + queue + "-%d").setDaemon(true).build());
+            this.poller = new Thread(this::poll, "redis-stream-" + queue + "-poller");
+            this.poller.setDaemon(true);
+        }
+
+        private void poll() {
+            long idleNanos = TimeUnit.MILLISECONDS.toNanos(pollInterval);
+            //接管检查的间隔,空闲时间只需要粗略判断
+            long reclaimInterval = Math.max(pollInterval, minIdle / 4);
+            long nextReclaim = 0;
+            while (running) {
+                try {
+                    flush();
+                    int received = 0;
+                    long now = System.currentTimeMillis();
+                    if (now >= nextReclaim && capacity > pending.get()) {
+                        received += reclaim(Math.min(batchSize, capacity - pending.get()));
+                        nextReclaim = now + reclaimInterval;
+                    }
+                    int count = Math.min(batchSize, capacity - pending.get());
+                    if (count > 0) {
+                        received += read(count);
+                    }
+                    //没有新消息或处理线程已满时等待,处理线程空出一半时会被唤醒
+                    if (received == 0) {
+                        LockSupport.parkNanos(this, idleNanos);
+                    }
+                } catch (Exception e) {
+                    log.warn("redis stream queue poll fail, queue={}, group={}", queue, group, e);
+                    LockSupport.parkNanos(this, idleNanos);
+                }
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private int read(int count) {
+            return dispatch(stringRedisTemplate.execute(RedisScripts.STREAM_READ, streamKeys,
+                    group, consumer, String.valueOf(count)));
+        }
+
+        @SuppressWarnings("unchecked")
+        private int reclaim(int count) {
+            List<Object> args = new ArrayList<>(inFlight.size() + 5);
+            args.add(group);
+            args.add(consumer);
+            args.add(String.valueOf(minIdle));
+            args.add(String.valueOf(count));
+            args.add(String.valueOf(maxDeliveries));
+            args.addAll(inFlight);
+            List<String> result = stringRedisTemplate.execute(RedisScripts.STREAM_RECLAIM,
+                    Arrays.asList(streamKey(queue), deadKey(queue)), args.toArray());
+            if (result != null) {
+                reclaimed.addAndGet(result.size() / 3);
+            }
+            return dispatch(result);
+        }
+
+        private int dispatch(List<String> result) {
+            if (result == null || result.isEmpty()) {
+                return 0;
+            }
+            for (int i = 0; i + 2 < result.size(); i += 3) {
+                StreamMessage message = new StreamMessage(result.get(i), result.get(i + 1),
+                        Integer.parseInt(result.get(i + 2)));
+                inFlight.add(message.getId());
+                pending.incrementAndGet();
+                delivered.incrementAndGet();
+                workers.execute(new MessageTask(message));
+            }
+            return result.size() / 3;
+        }
+
+        //批量确认,失败的留在待确认列表中,空闲超时后重新投递
+        private void flush() {
+            List<Object> args = new ArrayList<>();
+            args.add(group);
+            String id;
+            while ((id = acks.poll()) != null) {
+                args.add(id);
+                if (args.size() == MAX_BATCH + 1 || acks.isEmpty()) {
+                    try {
+                        stringRedisTemplate.execute(RedisScripts.STREAM_ACK, streamKeys, args.toArray());
+                    } finally {
+                        //确认失败的消息留在待确认列表中,空闲超时后可以被接管
+                        inFlight.removeAll(args.subList(1, args.size()));
+                        args.subList(1, args.size()).clear();
+                    }
+                }
+            }
+        }
+
+        /**
+         * 停止消费:停止读取,等待处理中的消息完成并确认;
+         * 未开始处理的消息不确认,空闲超过minIdle后由其他消费者接管
+         */
+        @Override
+        public void close() {
+            if (!running) {
+                return;
+            }
+            running = false;
+            subscriptions.remove(this);
+            LockSupport.unpark(poller);
+            try {
+                poller.join(TimeUnit.SECONDS.toMillis(5));
+                workers.shutdown();
+                workers.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            workers.shutdownNow();
+            try {
+                flush();
+            } catch (Exception e) {
+                log.warn("redis stream queue flush fail on close, queue={}, group={}", queue, group, e);
+            }
+        }
+
+        public String getQueue() {
+            return queue;
+        }
+
+        public String getGroup() {
+            return group;
+        }
+
+        public String getConsumer() {
+            return consumer;
+        }
+
+        /**
+         * 已投递的消息数,包括接管的
+         *
+         * @return 数量
+         */
+        public long getDelivered() {
+            return delivered.get();
+        }
+
+        /**
+         * 从其他消费者(或自己之前失败的)待确认列表中接管的消息数
+         *
+         * @return 数量
+         */
+        public long getReclaimed() {
+            return reclaimed.get();
+        }
+
+        /**
+         * 处理成功的消息数
+         *
+         * @return 数量
+         */
+        public long getSucceeded() {
+            return succeeded.get();
+        }
+
+        /**
+         * 处理失败的消息数
+         *
+         * @return 数量
+         */
+        public long getFailed() {
+            return failed.get();
+        }
+
+        /**
+         * 已读取未完成的消息数
+         *
+         * @return 数量
+         */
+        public int getPending() {
+            return pending.get();
+        }
+
+        /**
+         * 执行处理器的任务
+         */
+        private class MessageTask implements Runnable {
+
+            private final StreamMessage message;
+
+            private MessageTask(StreamMessage message) {
+                this.message = message;
+            }
+
+            @Override
+            public void run() {
+                try {
+                    handler.handle(message);
+                    acks.add(message.getId());
+                    succeeded.incrementAndGet();
+                } catch (Exception e) {
+                    log.warn("redis stream message fail, queue={}, id={}, deliveries={}",
+                            queue, message.getId(), message.getDeliveries(), e);
+                    failed.incrementAndGet();
+                    //处理失败的消息空闲超时后重新投递,包括由自己接管
+                    inFlight.remove(message.getId());
+                } finally {
+                    //处理线程从满载降到一半时唤醒轮询线程读取新消息
+                    if (pending.decrementAndGet() == capacity / 2) {
+                        LockSupport.unpark(poller);
+                    }
+                }
+            }
+
+        }
+
+    }
+
+}
@@ -1,18 +1,31 @@
 package com.pzl.program.frametool.redis;
 
+import com.pzl.program.frametool.redis.codec.CompactBinaryCodec;
+import com.pzl.program.frametool.redis.codec.CompressingRedisCodec;
+import com.pzl.program.frametool.redis.codec.RedisCodec;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.data.redis.connection.DataType;
+import org.springframework.data.redis.connection.RedisStringCommands.BitOperation;
+import org.springframework.data.redis.connection.StringRedisConnection;
+import org.springframework.data.redis.core.ConvertingCursor;
 import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.RedisTemplate;
 import org.springframework.data.redis.core.ScanOptions;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+import org.springframework.data.redis.serializer.RedisSerializer;
+import org.springframework.data.redis.serializer.SerializationException;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.Map.Entry;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 /**
  * Redis 操作工具类
@@ -56,12 +69,38 @@ import java.util.concurrent.TimeUnit;
 @Component
 public class RedisUtil {
 
+    /**
+     * SCAN每次迭代返回数量的默认提示值
+     */
+    private static final long DEFAULT_SCAN_COUNT = 1000;
+
+    /**
+     * 未配置RedisCodec时使用的对象编解码器,与RedisCodecConfig默认的redisCodec格式相同(首字节为压缩标记)
+     */
+    private static final RedisCodec DEFAULT_CODEC = new CompressingRedisCodec(new CompactBinaryCodec(),
+            CompressingRedisCodec.Compression.LZ4, 1024);
+
     @Autowired
     private RedisTemplate redisTemplate;
 
     @Autowired
     private StringRedisTemplate stringRedisTemplate;
 
+    /**
+     * 本地近端缓存,配置 redis.near-cache.enabled=true 时注入
+     */
+    @Autowired(required = false)
+    private RedisNearCache redisNearCache;
+
+    @Autowired
+    private RedisCacheLoader redisCacheLoader;
+
+    /**
+     * 对象编解码器,未配置时使用紧凑二进制编码
+     */
+    @Autowired(required = false)
+    private RedisCodec redisCodec;
+
     /*------------------------key相关操作---------------------------*/
 
     /**
@@ -71,6 +110,7 @@ public class RedisUtil {
      */
     public void delete(String key) {
         stringRedisTemplate.delete(key);
+        evict(key);
     }
 
     /**
@@ -80,6 +120,7 @@ public class RedisUtil {
      */
     public void delete(Collection<String> keys) {
         stringRedisTemplate.delete(keys);
+        evict(keys);
     }
 
     /**
@@ -121,7 +162,9 @@ public class RedisUtil {
      * @return boolean
      */
     public boolean expire(String key, Long timeout, TimeUnit unit) {
-        return stringRedisTemplate.expire(key, timeout, unit);
+        Boolean result = stringRedisTemplate.expire(key, timeout, unit);
+        evict(key);
+        return result;
     }
 
     /**
@@ -132,18 +175,110 @@ public class RedisUtil {
      * @return boolean
      */
     public boolean expireAt(String key, Date date) {
-        return stringRedisTemplate.expireAt(key, date);
+        Boolean result = stringRedisTemplate.expireAt(key, date);
+        evict(key);
+        return result;
     }
 
     /**
      * 查找匹配的key(查找所有符合给定模式pattern的key)
      * eg： key* 查找以"key"开头的所有key
+     * <p>
+     * KEYS命令会阻塞Redis,这里改为通过SCAN分批迭代后汇总,不再阻塞服务端;
+     * 但结果仍然全部放在内存中,key数量很多时请使用 scan/scanStream 流式处理
      *
      * @param pattern 匹配模式
      * @return 匹配到的key列表
      */
     public Set<String> keys(String pattern) {
-        return stringRedisTemplate.keys(pattern);
+        Set<String> keys = new HashSet<>();
+        try (Cursor<String> cursor = scan(pattern, DEFAULT_SCAN_COUNT)) {
+            while (cursor.hasNext()) {
+                keys.add(cursor.next());
+            }
+        } catch (IOException e) {
+            log.warn("close scan cursor fail, pattern={}", pattern, e);
+        }
+        return keys;
+    }
+
+    /**
+     * 非阻塞的方式迭代当前数据库中的key(SCAN),用于替代keys命令
+     * 使用完毕必须关闭Cursor,否则连接不会归还连接池
+     *
+     * @param options 匹配模式和每次迭代的数量提示
+     * @return key游标
+     */
+    public Cursor<String> scan(ScanOptions options) {
+        RedisSerializer<String> serializer = stringRedisTemplate.getStringSerializer();
+        return stringRedisTemplate.executeWithStickyConnection((RedisCallback<Cursor<String>>) connection ->
+                new ConvertingCursor<>(connection.scan(options), serializer::deserialize));
+    }
+
+    /**
+     * 非阻塞的方式迭代匹配的key
+     *
+     * @param pattern 匹配模式
+     * @param count   每次迭代返回数量的提示值(COUNT)
+     * @return key游标
+     */
+    public Cursor<String> scan(String pattern, long count) {
+        return scan(ScanOptions.scanOptions().match(pattern).count(count).build());
+    }
+
+    /**
+     * 以Stream的方式迭代匹配的key,内存占用恒定
+     * 使用完毕必须关闭Stream(try-with-resources),否则连接不会归还连接池
+     *
+     * @param pattern 匹配模式
+     * @param count   每次迭代返回数量的提示值(COUNT)
+     * @return key流
+     */
+    public Stream<String> scanStream(String pattern, long count) {
+        Cursor<String> cursor = scan(pattern, count);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(cursor, Spliterator.NONNULL), false)
+                .onClose(() -> {
+                    try {
+                        cursor.close();
+                    } catch (IOException e) {
+                        log.warn("close scan cursor fail, pattern={}", pattern, e);
+                    }
+                });
+    }
+
+    /**
+     * 按模式批量删除key,通过SCAN迭代,每攒够batchSize个key执行一次DEL
+     *
+     * @param pattern   匹配模式
+     * @param batchSize 每批删除的数量,同时作为SCAN的COUNT提示值
+     * @return 删除的key数量
+     */
+    public long deleteByPattern(String pattern, int batchSize) {
+        long deleted = 0;
+        List<String> batch = new ArrayList<>(batchSize);
+        try (Cursor<String> cursor = scan(pattern, batchSize)) {
+            while (cursor.hasNext()) {
+                batch.add(cursor.next());
+                if (batch.size() >= batchSize) {
+                    deleted += deleteBatch(batch);
+                    batch.clear();
+                }
+            }
+        } catch (IOException e) {
+            log.warn("close scan cursor fail, pattern={}", pattern, e);
+        }
+        if (!batch.isEmpty()) {
+            deleted += deleteBatch(batch);
+        }
+        return deleted;
+    }
+
+    private long deleteBatch(List<String> keys) {
+        String[] array = keys.toArray(new String[0]);
+        Long count = stringRedisTemplate.execute((RedisCallback<Long>) connection ->
+                ((StringRedisConnection) connection).del(array));
+        evict(keys);
+        return count == null ? 0 : count;
     }
 
     /**
@@ -154,7 +289,9 @@ public class RedisUtil {
      * @return boolean
      */
     public boolean move(String key, int dbIndex) {
-        return stringRedisTemplate.move(key, dbIndex);
+        boolean moved = stringRedisTemplate.move(key, dbIndex);
+        evict(key);
+        return moved;
     }
 
     /**
@@ -164,7 +301,9 @@ public class RedisUtil {
      * @return boolean
      */
     public boolean persist(String key) {
-        return stringRedisTemplate.persist(key);
+        Boolean result = stringRedisTemplate.persist(key);
+        evict(key);
+        return result;
     }
 
     /**
@@ -207,6 +346,7 @@ public class RedisUtil {
      */
     public void rename(String oldKey, String newKey) {
         stringRedisTemplate.rename(oldKey, newKey);
+        evict(oldKey, newKey);
     }
 
     /**
@@ -217,7 +357,11 @@ public class RedisUtil {
      * @return boolean
      */
     public boolean renameIfAbsent(String oldKey, String newKey) {
-        return stringRedisTemplate.renameIfAbsent(oldKey, newKey);
+        boolean renamed = stringRedisTemplate.renameIfAbsent(oldKey, newKey);
+        if (renamed) {
+            evict(oldKey, newKey);
+        }
+        return renamed;
     }
 
     /**
@@ -241,6 +385,7 @@ public class RedisUtil {
      */
     public void set(String key, String value) {
         stringRedisTemplate.opsForValue().set(key, value);
+        evict(key);
     }
 
     /**
@@ -250,6 +395,9 @@ public class RedisUtil {
      * @return 值
      */
     public String get(String key) {
+        if (redisNearCache != null) {
+            return redisNearCache.get(key);
+        }
         return stringRedisTemplate.opsForValue().get(key);
     }
 
@@ -273,7 +421,9 @@ public class RedisUtil {
      * @return 旧值
      */
     public String getAndSet(String key, String value) {
-        return stringRedisTemplate.opsForValue().getAndSet(key, value);
+        String oldValue = stringRedisTemplate.opsForValue().getAndSet(key, value);
+        evict(key);
+        return oldValue;
     }
 
     /**
@@ -306,7 +456,35 @@ public class RedisUtil {
      * @return
      */
     public boolean setBit(String key, long offset, boolean value) {
-        return stringRedisTemplate.opsForValue().setBit(key, offset, value);
+        boolean oldBit = stringRedisTemplate.opsForValue().setBit(key, offset, value);
+        evict(key);
+        return oldBit;
+    }
+
+    /**
+     * 统计key所储存的字符串值中被设置为1的位数
+     *
+     * @param key key
+     * @return 位数
+     */
+    public Long bitCount(String key) {
+        return stringRedisTemplate.execute((RedisCallback<Long>) connection ->
+                ((StringRedisConnection) connection).bitCount(key));
+    }
+
+    /**
+     * 对一个或多个key的字符串值做位运算(AND/OR/XOR/NOT),结果保存到destKey
+     *
+     * @param op      运算
+     * @param destKey 目标key
+     * @param keys    参与运算的key
+     * @return 目标key的字节长度
+     */
+    public Long bitOp(BitOperation op, String destKey, String... keys) {
+        Long length = stringRedisTemplate.execute((RedisCallback<Long>) connection ->
+                ((StringRedisConnection) connection).bitOp(op, destKey, keys));
+        evict(destKey);
+        return length;
     }
 
     /**
@@ -320,6 +498,7 @@ public class RedisUtil {
      */
     public void setEx(String key, String value, long timeout, TimeUnit unit) {
         stringRedisTemplate.opsForValue().set(key, value, timeout, unit);
+        evict(key);
     }
 
     /**
@@ -330,7 +509,11 @@ public class RedisUtil {
      * @return 之前已经存在返回false, 不存在返回true
      */
     public boolean setIfAbsent(String key, String value) {
-        return stringRedisTemplate.opsForValue().setIfAbsent(key, value);
+        boolean absent = stringRedisTemplate.opsForValue().setIfAbsent(key, value);
+        if (absent) {
+            evict(key);
+        }
+        return absent;
     }
 
     /**
@@ -342,6 +525,7 @@ public class RedisUtil {
      */
     public void setRange(String key, String value, long offset) {
         stringRedisTemplate.opsForValue().set(key, value, offset);
+        evict(key);
     }
 
     /**
@@ -361,6 +545,7 @@ public class RedisUtil {
      */
     public void multiSet(Map<String, String> maps) {
         stringRedisTemplate.opsForValue().multiSet(maps);
+        evict(maps.keySet());
     }
 
     /**
@@ -370,7 +555,11 @@ public class RedisUtil {
      * @return 之前已经存在返回false, 不存在返回true
      */
     public boolean multiSetIfAbsent(Map<String, String> maps) {
-        return stringRedisTemplate.opsForValue().multiSetIfAbsent(maps);
+        boolean absent = stringRedisTemplate.opsForValue().multiSetIfAbsent(maps);
+        if (absent) {
+            evict(maps.keySet());
+        }
+        return absent;
     }
 
     /**
@@ -381,7 +570,9 @@ public class RedisUtil {
      * @return 值
      */
     public Long incrBy(String key, long increment) {
-        return stringRedisTemplate.opsForValue().increment(key, increment);
+        Long value = stringRedisTemplate.opsForValue().increment(key, increment);
+        evict(key);
+        return value;
     }
 
     /**
@@ -392,7 +583,9 @@ public class RedisUtil {
      * @return 值
      */
     public Double incrByFloat(String key, double increment) {
-        return stringRedisTemplate.opsForValue().increment(key, increment);
+        Double value = stringRedisTemplate.opsForValue().increment(key, increment);
+        evict(key);
+        return value;
     }
 
     /**
@@ -403,7 +596,9 @@ public class RedisUtil {
      * @return int
      */
     public Integer append(String key, String value) {
-        return stringRedisTemplate.opsForValue().append(key, value);
+        Integer length = stringRedisTemplate.opsForValue().append(key, value);
+        evict(key);
+        return length;
     }
 
 
@@ -417,6 +612,9 @@ public class RedisUtil {
      * @return 值
      */
     public Object hGet(String key, String field) {
+        if (redisNearCache != null) {
+            return redisNearCache.hGet(key, field);
+        }
         return stringRedisTemplate.opsForHash().get(key, field);
     }
 
@@ -450,6 +648,7 @@ public class RedisUtil {
      */
     public void hPut(String key, String hashKey, String value) {
         stringRedisTemplate.opsForHash().put(key, hashKey, value);
+        evict(key);
     }
 
     /**
@@ -460,6 +659,7 @@ public class RedisUtil {
      */
     public void hPutAll(String key, Map<String, String> maps) {
         stringRedisTemplate.opsForHash().putAll(key, maps);
+        evict(key);
     }
 
     /**
@@ -471,7 +671,11 @@ public class RedisUtil {
      * @return boolean
      */
     public boolean hPutIfAbsent(String key, String hashKey, String value) {
-        return stringRedisTemplate.opsForHash().putIfAbsent(key, hashKey, value);
+        boolean absent = stringRedisTemplate.opsForHash().putIfAbsent(key, hashKey, value);
+        if (absent) {
+            evict(key);
+        }
+        return absent;
     }
 
     /**
@@ -482,7 +686,9 @@ public class RedisUtil {
      * @return long
      */
     public Long hDelete(String key, Object... fields) {
-        return stringRedisTemplate.opsForHash().delete(key, fields);
+        Long count = stringRedisTemplate.opsForHash().delete(key, fields);
+        evict(key);
+        return count;
     }
 
     /**
@@ -505,7 +711,9 @@ public class RedisUtil {
      * @return 自增长后的值
      */
     public Long hIncrBy(String key, Object field, long increment) {
-        return stringRedisTemplate.opsForHash().increment(key, field, increment);
+        Long value = stringRedisTemplate.opsForHash().increment(key, field, increment);
+        evict(key);
+        return value;
     }
 
     /**
@@ -517,7 +725,9 @@ public class RedisUtil {
      * @return 自增长后的值
      */
     public Double hIncrByFloat(String key, Object field, double delta) {
-        return stringRedisTemplate.opsForHash().increment(key, field, delta);
+        Double value = stringRedisTemplate.opsForHash().increment(key, field, delta);
+        evict(key);
+        return value;
     }
 
     /**
@@ -1397,4 +1607,205 @@ public class RedisUtil {
         return stringRedisTemplate.opsForZSet().scan(key, options);
     }
 
+
+    /*----------------------------HyperLogLog相关操作-----------------------------------*/
+
+    /**
+     * 添加元素到HyperLogLog,固定占用最多12KB,基数估算的标准误差约0.81%
+     *
+     * @param key    key
+     * @param values 元素
+     * @return 1为估算值发生了变化, 0为没有变化
+     */
+    public Long pfAdd(String key, String... values) {
+        return stringRedisTemplate.opsForHyperLogLog().add(key, values);
+    }
+
+    /**
+     * 获取HyperLogLog的基数估算值,多个key时为并集的估算值(不修改任何key)
+     *
+     * @param keys key列表
+     * @return 基数
+     */
+    public Long pfCount(String... keys) {
+        return stringRedisTemplate.opsForHyperLogLog().size(keys);
+    }
+
+    /**
+     * 合并多个HyperLogLog到destKey
+     *
+     * @param destKey    目标key
+     * @param sourceKeys 源key列表
+     */
+    public void pfMerge(String destKey, String... sourceKeys) {
+        stringRedisTemplate.execute((RedisCallback<Object>) connection -> {
+            ((StringRedisConnection) connection).pfMerge(destKey, sourceKeys);
+            return null;
+        });
+        evict(destKey);
+    }
+
+    /*----------------------------批量(pipeline)操作-----------------------------------*/
+
+    /**
+     * 创建批量操作,命令入队后通过流水线分段发送,每段默认500条
+     *
+     * @return RedisBatch
+     */
+    public RedisBatch batch() {
+        return new RedisBatch(stringRedisTemplate, RedisBatch.DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * 创建批量操作
+     *
+     * @param chunkSize 每次流水线发送的命令数
+     * @return RedisBatch
+     */
+    public RedisBatch batch(int chunkSize) {
+        return new RedisBatch(stringRedisTemplate, chunkSize);
+    }
+
+    /*----------------------------对象操作-----------------------------------*/
+
+    /**
+     * 以二进制存储对象,编码方式由RedisCodec决定,默认紧凑二进制编码
+     *
+     * @param key   key
+     * @param value 对象
+     */
+    public void setObject(String key, Object value) {
+        byte[] rawKey = rawKey(key);
+        byte[] rawValue = codec().encode(value);
+        stringRedisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.set(rawKey, rawValue);
+            return null;
+        });
+        evict(key);
+    }
+
+    /**
+     * 以二进制存储对象,并设置过期时间
+     *
+     * @param key     key
+     * @param value   对象
+     * @param timeout 过期时间
+     * @param unit    时间单位
+     */
+    public void setObject(String key, Object value, long timeout, TimeUnit unit) {
+        byte[] rawKey = rawKey(key);
+        byte[] rawValue = codec().encode(value);
+        long millis = unit.toMillis(timeout);
+        stringRedisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.pSetEx(rawKey, millis, rawValue);
+            return null;
+        });
+        evict(key);
+    }
+
+    /**
+     * 获取setObject存储的对象
+     *
+     * @param key  key
+     * @param type 对象类型
+     * @return 对象, 不存在或解码失败(如类的字段已变化)时返回null
+     */
+    public <T> T getObject(String key, Class<T> type) {
+        byte[] rawKey = rawKey(key);
+        byte[] rawValue = stringRedisTemplate.execute((RedisCallback<byte[]>) connection -> connection.get(rawKey));
+        return decode(key, rawValue, type);
+    }
+
+    /**
+     * 批量获取setObject存储的对象,一次MGET
+     *
+     * @param keys key列表
+     * @param type 对象类型
+     * @return 对象列表, 与keys顺序一致, 不存在或解码失败的位置为null
+     */
+    public <T> List<T> multiGetObject(Collection<String> keys, Class<T> type) {
+        List<String> keyList = new ArrayList<>(keys);
+        byte[][] rawKeys = new byte[keyList.size()][];
+        for (int i = 0; i < rawKeys.length; i++) {
+            rawKeys[i] = rawKey(keyList.get(i));
+        }
+        List<byte[]> rawValues = stringRedisTemplate.execute((RedisCallback<List<byte[]>>) connection -> connection.mGet(rawKeys));
+        List<T> result = new ArrayList<>(keyList.size());
+        for (int i = 0; i < keyList.size(); i++) {
+            result.add(decode(keyList.get(i), rawValues == null ? null : rawValues.get(i), type));
+        }
+        return result;
+    }
+
+    private <T> T decode(String key, byte[] rawValue, Class<T> type) {
+        if (rawValue == null) {
+            return null;
+        }
+        try {
+            return codec().decode(rawValue, type);
+        } catch (SerializationException e) {
+            log.warn("redis object decode fail, key:{}, type:{}, error:{}", key, type.getName(), e.getMessage());
+            return null;
+        }
+    }
+
+    private byte[] rawKey(String key) {
+        return stringRedisTemplate.getStringSerializer().serialize(key);
+    }
+
+    private RedisCodec codec() {
+        return redisCodec != null ? redisCodec : DEFAULT_CODEC;
+    }
+
+    /*----------------------------布隆过滤器-----------------------------------*/
+
+    /**
+     * 创建基于位图的布隆过滤器,同名过滤器在各节点共享同一份数据
+     *
+     * @param name               名称
+     * @param expectedInsertions 预期插入数,超出后自动扩容
+     * @param fpp                期望的误判率,如0.01
+     * @return RedisBloomFilter
+     */
+    public RedisBloomFilter bloomFilter(String name, long expectedInsertions, double fpp) {
+        return new RedisBloomFilter(this, stringRedisTemplate, name, expectedInsertions, fpp);
+    }
+
+
+    /*----------------------------缓存加载-----------------------------------*/
+
+    /**
+     * 读取缓存,未命中时回源并写入缓存(防击穿)
+     * 同一key同时只有一个回源,临近过期时按概率提前异步刷新,详见RedisCacheLoader
+     *
+     * @param key     key
+     * @param timeout 缓存过期时间
+     * @param unit    时间单位
+     * @param loader  回源方法,返回null时不写缓存
+     * @return 值
+     */
+    public String getOrLoad(String key, long timeout, TimeUnit unit, Supplier<String> loader) {
+        return redisCacheLoader.getOrLoad(key, timeout, unit, loader);
+    }
+
+
+    /*----------------------------本地缓存失效-----------------------------------*/
+
+    /**
+     * 写操作后失效本地缓存并广播,未开启本地缓存时不做处理
+     *
+     * @param keys key列表
+     */
+    private void evict(String... keys) {
+        if (redisNearCache != null) {
+            redisNearCache.invalidate(keys);
+        }
+    }
+
+    private void evict(Collection<String> keys) {
+        if (redisNearCache != null) {
+            redisNearCache.invalidate(keys);
+        }
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,37 @@
+package com.pzl.program.frametool.redis;
+
+import lombok.Getter;
+import lombok.ToString;
+
+/**
+ * Stream队列消息
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+@Getter
+@ToString
+public final class StreamMessage {
+
+    /**
+     * 消息id,由Redis生成,格式为 毫秒时间戳-序号
+     */
+    private final String id;
+
+    /**
+     * 消息内容
+     */
+    private final String payload;
+
+    /**
+     * 第几次投递,从1开始
+     */
+    private final int deliveries;
+
+    StreamMessage(String id, String payload, int deliveries) {
+        this.id = id;
+        this.payload = payload;
+        this.deliveries = deliveries;
+    }
+
+}
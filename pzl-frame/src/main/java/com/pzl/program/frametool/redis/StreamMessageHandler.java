@@ -0,0 +1,23 @@
+package com.pzl.program.frametool.redis;
+
+/**
+ * Stream队列消息处理器
+ * <p>
+ * 正常返回视为处理成功并确认;抛出异常不确认,消息留在待确认列表中,空闲超过minIdle后重新投递,
+ * 超过最大投递次数进入死信。消息至少投递一次,处理逻辑需要幂等。
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+@FunctionalInterface
+public interface StreamMessageHandler {
+
+    /**
+     * 处理消息
+     *
+     * @param message 消息
+     * @throws Exception 处理失败
+     */
+    void handle(StreamMessage message) throws Exception;
+
+}
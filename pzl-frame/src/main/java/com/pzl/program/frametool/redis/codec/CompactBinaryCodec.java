@@ -0,0 +1,592 @@
+package com.pzl.program.frametool.redis.codec;
+
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * 紧凑二进制编解码器
+ * <p>
+ * 与JDK序列化相比不写类描述、字段名,与JSON相比不写字段名、数字不转字符串:
+ * 1、对象按字段名排序后依次写字段值,字段列表(Schema)按类缓存,反射访问器只在第一次使用时创建
+ * 2、每个值前写1个字节的类型标记,整数使用zigzag变长编码,小整数只占1个字节
+ * 3、对象的实际类型与声明类型(字段类型、集合泛型、decode参数)一致时不写类名,不一致时写类名,类名在一个值内只写一次,之后写下标
+ * 4、每个对象带上字段列表的指纹,类的字段增删改后旧数据解码会抛出SerializationException,由调用方按缓存未命中处理
+ * <p>
+ * 要求:对象有无参构造方法;static、transient字段不参与编码;不支持循环引用。
+ * <p>
+ * 解码时数据中的类名来自Redis,不可信:只接受与声明类型相同的类,或在允许的包内且可以赋值给声明类型的类,
+ * 其他类名不加载直接抛出SerializationException,避免用Redis中的数据实例化任意类。
+ * 支持的类型:基本类型及包装类、String、Date、BigDecimal、BigInteger、byte[]、枚举、List、Set、Map、普通JavaBean。
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class CompactBinaryCodec implements RedisCodec {
+
+    //格式版本,放在第一个字节
+    private static final byte VERSION = 1;
+
+    //最大嵌套深度,超出视为循环引用
+    private static final int MAX_DEPTH = 64;
+
+    /*------------------------类型标记---------------------------*/
+
+    private static final int NULL = 0;
+    private static final int TRUE = 1;
+    private static final int FALSE = 2;
+    private static final int BYTE = 3;
+    private static final int SHORT = 4;
+    private static final int CHAR = 5;
+    private static final int INT = 6;
+    private static final int LONG = 7;
+    private static final int FLOAT = 8;
+    private static final int DOUBLE = 9;
+    private static final int STRING = 10;
+    private static final int DATE = 11;
+    private static final int BIG_DECIMAL = 12;
+    private static final int BIG_INTEGER = 13;
+    private static final int BYTES = 14;
+    private static final int ENUM = 15;
+    private static final int LIST = 16;
+    private static final int SET = 17;
+    private static final int MAP = 18;
+    private static final int OBJECT = 19;
+    //实际类型与声明类型一致的对象,不写类名
+    private static final int KNOWN_OBJECT = 20;
+
+    //默认允许解码的包
+    public static final List<String> DEFAULT_ALLOWED_PACKAGES = Collections.singletonList("com.pzl.");
+
+    private final ConcurrentMap<Class<?>, Schema> schemas = new ConcurrentHashMap<>();
+
+    //允许解码的类名前缀
+    private final String[] allowedPackages;
+
+    public CompactBinaryCodec() {
+        this(DEFAULT_ALLOWED_PACKAGES);
+    }
+
+    /**
+     * @param allowedPackages 允许解码的包(类名前缀),如 com.pzl.;与声明类型相同的类不受限制
+     */
+    public CompactBinaryCodec(Collection<String> allowedPackages) {
+        this.allowedPackages = allowedPackages.toArray(new String[0]);
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        Output out = new Output();
+        out.writeByte(VERSION);
+        writeValue(out, value, value.getClass(), new HashMap<>(), 0);
+        return out.toByteArray();
+    }
+
+    @Override
+    public <T> T decode(byte[] bytes, Class<T> type) {
+        Input in = new Input(bytes);
+        int version = in.readByte();
+        if (version != VERSION) {
+            throw new SerializationException("unsupported compact binary version: " + version);
+        }
+        try {
+            Object value = readValue(in, type, new ArrayList<>(), 0);
+            return type.cast(adapt(value, type));
+        } catch (SerializationException e) {
+            throw e;
+        } catch (RuntimeException | ReflectiveOperationException e) {
+            throw new SerializationException("compact binary decode fail: " + type.getName(), e);
+        }
+    }
+
+    /*------------------------编码---------------------------*/
+
+    private void writeValue(Output out, Object value, Type declared, Map<Class<?>, Integer> classes, int depth) {
+        if (depth > MAX_DEPTH) {
+            throw new SerializationException("object graph too deep, circular reference?");
+        }
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            out.writeString((String) value);
+        } else if (value instanceof Integer) {
+            out.writeByte(INT);
+            out.writeZigZag((Integer) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeZigZag((Long) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte((Boolean) value ? TRUE : FALSE);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeFixed64(Double.doubleToLongBits((Double) value));
+        } else if (value instanceof Float) {
+            out.writeByte(FLOAT);
+            out.writeFixed32(Float.floatToIntBits((Float) value));
+        } else if (value instanceof Short) {
+            out.writeByte(SHORT);
+            out.writeZigZag((Short) value);
+        } else if (value instanceof Byte) {
+            out.writeByte(BYTE);
+            out.writeByte((Byte) value);
+        } else if (value instanceof Character) {
+            out.writeByte(CHAR);
+            out.writeVarLong((Character) value);
+        } else if (value instanceof Date) {
+            out.writeByte(DATE);
+            out.writeZigZag(((Date) value).getTime());
+        } else if (value instanceof BigDecimal) {
+            out.writeByte(BIG_DECIMAL);
+            out.writeString(value.toString());
+        } else if (value instanceof BigInteger) {
+            out.writeByte(BIG_INTEGER);
+            out.writeString(value.toString());
+        } else if (value instanceof byte[]) {
+            out.writeByte(BYTES);
+            byte[] bytes = (byte[]) value;
+            out.writeVarLong(bytes.length);
+            out.writeBytes(bytes);
+        } else if (value instanceof Enum) {
+            out.writeByte(ENUM);
+            writeClass(out, ((Enum<?>) value).getDeclaringClass(), classes);
+            out.writeString(((Enum<?>) value).name());
+        } else if (value instanceof Collection) {
+            Collection<?> collection = (Collection<?>) value;
+            out.writeByte(value instanceof Set ? SET : LIST);
+            out.writeVarLong(collection.size());
+            Type elementType = typeArgument(declared, 0);
+            for (Object element : collection) {
+                writeValue(out, element, elementType, classes, depth + 1);
+            }
+        } else if (value instanceof Map) {
+            Map<?, ?> map = (Map<?, ?>) value;
+            out.writeByte(MAP);
+            out.writeVarLong(map.size());
+            Type keyType = typeArgument(declared, 0);
+            Type valueType = typeArgument(declared, 1);
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                writeValue(out, entry.getKey(), keyType, classes, depth + 1);
+                writeValue(out, entry.getValue(), valueType, classes, depth + 1);
+            }
+        } else if (value.getClass().isArray()) {
+            throw new SerializationException("arrays other than byte[] are not supported: " + value.getClass().getName());
+        } else {
+            Schema schema = schema(value.getClass());
+            if (value.getClass() == rawClass(declared)) {
+                out.writeByte(KNOWN_OBJECT);
+            } else {
+                out.writeByte(OBJECT);
+                writeClass(out, value.getClass(), classes);
+            }
+            out.writeFixed32(schema.fingerprint);
+            for (Field field : schema.fields) {
+                try {
+                    writeValue(out, field.get(value), field.getGenericType(), classes, depth + 1);
+                } catch (IllegalAccessException e) {
+                    throw new SerializationException("field access fail: " + field, e);
+                }
+            }
+        }
+    }
+
+    //第一次出现的类写下标和类名,之后只写下标
+    private static void writeClass(Output out, Class<?> type, Map<Class<?>, Integer> classes) {
+        Integer index = classes.get(type);
+        if (index != null) {
+            out.writeVarLong(index);
+            return;
+        }
+        out.writeVarLong(classes.size());
+        classes.put(type, classes.size());
+        out.writeString(type.getName());
+    }
+
+    /*------------------------解码---------------------------*/
+
+    private Object readValue(Input in, Type declared, List<Class<?>> classes, int depth) throws ReflectiveOperationException {
+        if (depth > MAX_DEPTH) {
+            throw new SerializationException("object graph too deep");
+        }
+        int tag = in.readByte();
+        switch (tag) {
+            case NULL:
+                return null;
+            case TRUE:
+                return Boolean.TRUE;
+            case FALSE:
+                return Boolean.FALSE;
+            case BYTE:
+                return (byte) in.readByte();
+            case SHORT:
+                return (short) in.readZigZag();
+            case CHAR:
+                return (char) in.readVarLong();
+            case INT:
+                return (int) in.readZigZag();
+            case LONG:
+                return in.readZigZag();
+            case FLOAT:
+                return Float.intBitsToFloat(in.readFixed32());
+            case DOUBLE:
+                return Double.longBitsToDouble(in.readFixed64());
+            case STRING:
+                return in.readString();
+            case DATE:
+                return new Date(in.readZigZag());
+            case BIG_DECIMAL:
+                return new BigDecimal(in.readString());
+            case BIG_INTEGER:
+                return new BigInteger(in.readString());
+            case BYTES:
+                return in.readBytes(in.readLength());
+            case ENUM: {
+                Class<?> type = readClass(in, declared, classes);
+                if (!type.isEnum()) {
+                    throw new SerializationException("not an enum: " + type.getName());
+                }
+                return enumValue(type, in.readString());
+            }
+            case LIST:
+            case SET: {
+                int size = in.readLength();
+                Collection<Object> collection = tag == SET ? new LinkedHashSet<>(hashCapacity(size)) : new ArrayList<>(size);
+                Type elementType = typeArgument(declared, 0);
+                for (int i = 0; i < size; i++) {
+                    collection.add(readValue(in, elementType, classes, depth + 1));
+                }
+                return collection;
+            }
+            case MAP: {
+                int size = in.readLength();
+                Map<Object, Object> map = new LinkedHashMap<>(hashCapacity(size));
+                Type keyType = typeArgument(declared, 0);
+                Type valueType = typeArgument(declared, 1);
+                for (int i = 0; i < size; i++) {
+                    map.put(readValue(in, keyType, classes, depth + 1), readValue(in, valueType, classes, depth + 1));
+                }
+                return map;
+            }
+            case OBJECT:
+            case KNOWN_OBJECT: {
+                Class<?> type = tag == OBJECT ? readClass(in, declared, classes) : rawClass(declared);
+                if (type == Object.class) {
+                    throw new SerializationException("object type unknown, declared type required");
+                }
+                Schema schema = schema(type);
+                int fingerprint = in.readFixed32();
+                if (fingerprint != schema.fingerprint) {
+                    throw new SerializationException("schema changed since the value was written: " + type.getName());
+                }
+                Object object = schema.constructor.newInstance();
+                for (Field field : schema.fields) {
+                    Object value = readValue(in, field.getGenericType(), classes, depth + 1);
+                    //基本类型字段遇到null保持默认值
+                    if (value != null || !field.getType().isPrimitive()) {
+                        field.set(object, adapt(value, field.getType()));
+                    }
+                }
+                return object;
+            }
+            default:
+                throw new SerializationException("unknown type tag: " + tag);
+        }
+    }
+
+    //数据中的类名:与声明类型相同,或在允许的包内且可以赋值给声明类型,否则不加载
+    private Class<?> readClass(Input in, Type declared, List<Class<?>> classes) throws ClassNotFoundException {
+        Class<?> expected = rawClass(declared);
+        int index = (int) in.readVarLong();
+        Class<?> type;
+        if (index >= 0 && index < classes.size()) {
+            type = classes.get(index);
+        } else if (index == classes.size()) {
+            String name = in.readString();
+            if (name.equals(expected.getName())) {
+                type = expected;
+            } else if (isAllowed(name)) {
+                type = Class.forName(name, false, CompactBinaryCodec.class.getClassLoader());
+            } else {
+                throw new SerializationException("class not allowed: " + name);
+            }
+            classes.add(type);
+        } else {
+            throw new SerializationException("invalid class index: " + index);
+        }
+        //同一个类在不同位置出现时只写下标,每个位置都要校验
+        if (!expected.isAssignableFrom(type)) {
+            throw new SerializationException("class " + type.getName() + " is not assignable to " + expected.getName());
+        }
+        return type;
+    }
+
+    private boolean isAllowed(String name) {
+        for (String prefix : allowedPackages) {
+            if (name.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Object enumValue(Class<?> type, String name) {
+        return Enum.valueOf((Class<Enum>) type, name);
+    }
+
+    //集合解码为ArrayList/LinkedHashSet/LinkedHashMap,字段声明为其他具体类型时转换
+    @SuppressWarnings("unchecked")
+    private static Object adapt(Object value, Class<?> type) throws ReflectiveOperationException {
+        if (value == null || type.isInstance(value) || type.isPrimitive()
+                || type.isInterface() || Modifier.isAbstract(type.getModifiers())) {
+            return value;
+        }
+        if (value instanceof Collection && Collection.class.isAssignableFrom(type)) {
+            Collection<Object> collection = (Collection<Object>) type.getDeclaredConstructor().newInstance();
+            collection.addAll((Collection<Object>) value);
+            return collection;
+        }
+        if (value instanceof Map && Map.class.isAssignableFrom(type)) {
+            Map<Object, Object> map = (Map<Object, Object>) type.getDeclaredConstructor().newInstance();
+            map.putAll((Map<Object, Object>) value);
+            return map;
+        }
+        return value;
+    }
+
+    //按默认负载因子不扩容的初始容量
+    private static int hashCapacity(int size) {
+        return (int) Math.min(Integer.MAX_VALUE, size * 4L / 3 + 1);
+    }
+
+    //声明类型的原始类,未知时为Object
+    private static Class<?> rawClass(Type type) {
+        if (type instanceof Class) {
+            return (Class<?>) type;
+        }
+        if (type instanceof ParameterizedType) {
+            return (Class<?>) ((ParameterizedType) type).getRawType();
+        }
+        return Object.class;
+    }
+
+    //泛型参数,如List<User>中的User,未知时为Object
+    private static Type typeArgument(Type type, int index) {
+        if (type instanceof ParameterizedType) {
+            Type[] arguments = ((ParameterizedType) type).getActualTypeArguments();
+            if (index < arguments.length) {
+                return arguments[index];
+            }
+        }
+        return Object.class;
+    }
+
+    /*------------------------Schema---------------------------*/
+
+    private Schema schema(Class<?> type) {
+        Schema schema = schemas.get(type);
+        if (schema == null) {
+            schema = schemas.computeIfAbsent(type, Schema::new);
+        }
+        return schema;
+    }
+
+    /**
+     * 类的字段列表,按字段名排序,父类字段在前
+     */
+    private static class Schema {
+
+        private final Constructor<?> constructor;
+
+        private final Field[] fields;
+
+        private final int fingerprint;
+
+        Schema(Class<?> type) {
+            try {
+                this.constructor = type.getDeclaredConstructor();
+                this.constructor.setAccessible(true);
+            } catch (NoSuchMethodException e) {
+                throw new SerializationException("no default constructor: " + type.getName(), e);
+            }
+            Deque<Class<?>> hierarchy = new ArrayDeque<>();
+            for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+                hierarchy.push(c);
+            }
+            List<Field> fields = new ArrayList<>();
+            StringBuilder signature = new StringBuilder();
+            for (Class<?> c : hierarchy) {
+                List<Field> declared = new ArrayList<>();
+                for (Field field : c.getDeclaredFields()) {
+                    int modifiers = field.getModifiers();
+                    if (!Modifier.isStatic(modifiers) && !Modifier.isTransient(modifiers) && !field.isSynthetic()) {
+                        field.setAccessible(true);
+                        declared.add(field);
+                    }
+                }
+                declared.sort(Comparator.comparing(Field::getName));
+                for (Field field : declared) {
+                    signature.append(field.getName()).append(':').append(field.getType().getName()).append(';');
+                }
+                fields.addAll(declared);
+            }
+            this.fields = fields.toArray(new Field[0]);
+            this.fingerprint = signature.toString().hashCode();
+        }
+
+    }
+
+    /*------------------------读写缓冲---------------------------*/
+
+    private static class Output {
+
+        private byte[] buffer = new byte[128];
+
+        private int position;
+
+        void writeByte(int value) {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeBytes(byte[] bytes) {
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        //zigzag编码,绝对值小的负数也只占少量字节
+        void writeZigZag(long value) {
+            writeVarLong((value << 1) ^ (value >> 63));
+        }
+
+        void writeFixed32(int value) {
+            ensure(4);
+            for (int i = 0; i < 4; i++) {
+                buffer[position++] = (byte) (value >>> (i * 8));
+            }
+        }
+
+        void writeFixed64(long value) {
+            ensure(8);
+            for (int i = 0; i < 8; i++) {
+                buffer[position++] = (byte) (value >>> (i * 8));
+            }
+        }
+
+        void writeString(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarLong(bytes.length);
+            writeBytes(bytes);
+        }
+
+        private void ensure(int length) {
+            if (position + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+            }
+        }
+
+        byte[] toByteArray() {
+            return Arrays.copyOf(buffer, position);
+        }
+
+    }
+
+    private static class Input {
+
+        private final byte[] buffer;
+
+        private int position;
+
+        Input(byte[] buffer) {
+            this.buffer = buffer;
+        }
+
+        int readByte() {
+            if (position >= buffer.length) {
+                throw new SerializationException("unexpected end of compact binary data");
+            }
+            return buffer[position++];
+        }
+
+        /**
+         * 读取长度或元素个数:每个字节、每个元素至少占1个字节,超过剩余字节数的长度来自损坏的数据,
+         * 在按它分配内存之前拒绝
+         */
+        int readLength() {
+            long length = readVarLong();
+            if (length < 0 || length > buffer.length - position) {
+                throw new SerializationException("invalid length " + length + ", " + (buffer.length - position)
+                        + " bytes remaining");
+            }
+            return (int) length;
+        }
+
+        byte[] readBytes(int length) {
+            byte[] bytes = Arrays.copyOfRange(buffer, position, position + length);
+            position += length;
+            return bytes;
+        }
+
+        long readVarLong() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new SerializationException("malformed varint");
+        }
+
+        long readZigZag() {
+            long value = readVarLong();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        int readFixed32() {
+            int value = 0;
+            for (int i = 0; i < 4; i++) {
+                value |= (readByte() & 0xFF) << (i * 8);
+            }
+            return value;
+        }
+
+        long readFixed64() {
+            long value = 0;
+            for (int i = 0; i < 8; i++) {
+                value |= (long) (readByte() & 0xFF) << (i * 8);
+            }
+            return value;
+        }
+
+        String readString() {
+            int length = readLength();
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+    }
+
+}
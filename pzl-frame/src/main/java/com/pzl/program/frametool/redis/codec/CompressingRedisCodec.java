@@ -0,0 +1,193 @@
+package com.pzl.program.frametool.redis.codec;
+
+import net.jpountz.lz4.LZ4Compressor;
+import net.jpountz.lz4.LZ4Exception;
+import net.jpountz.lz4.LZ4Factory;
+import net.jpountz.lz4.LZ4SafeDecompressor;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.ByteArrayOutputStream;
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 压缩编解码器,包装另一个编解码器,编码结果超过阈值时压缩
+ * <p>
+ * 格式:第一个字节为压缩算法(0不压缩 1LZ4 2Deflate),压缩时后跟4字节原始长度,再跟数据。
+ * 压缩后没有变小时按不压缩存储。解码按首字节识别算法,修改压缩配置不影响读取旧数据。
+ * 解码时原始长度不超过压缩数据长度乘以算法的最大压缩比,数据损坏或被篡改时抛出SerializationException。
+ * LZ4速度快、压缩率一般,适合热点数据;Deflate压缩率高、CPU开销大,适合大而冷的数据。
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class CompressingRedisCodec implements RedisCodec {
+
+    /**
+     * 压缩算法
+     */
+    public enum Compression {
+
+        NONE(0), LZ4(1), DEFLATE(2);
+
+        private final int flag;
+
+        Compression(int flag) {
+            this.flag = flag;
+        }
+
+    }
+
+    private static final LZ4Factory LZ4_FACTORY = LZ4Factory.fastestInstance();
+
+    //解压后的最大长度,与Redis字符串的上限一致
+    private static final int MAX_LENGTH = 512 * 1024 * 1024;
+
+    //LZ4的最大压缩比约为255:1
+    private static final int LZ4_MAX_RATIO = 255;
+
+    //Deflate的最大压缩比约为1032:1
+    private static final int DEFLATE_MAX_RATIO = 1032;
+
+    private final RedisCodec delegate;
+
+    private final Compression compression;
+
+    private final int threshold;
+
+    /**
+     * @param delegate    实际的编解码器
+     * @param compression 压缩算法
+     * @param threshold   编码结果达到多少字节才压缩
+     */
+    public CompressingRedisCodec(RedisCodec delegate, Compression compression, int threshold) {
+        this.delegate = delegate;
+        this.compression = compression;
+        this.threshold = threshold;
+    }
+
+    @Override
+    public byte[] encode(Object value) {
+        byte[] raw = delegate.encode(value);
+        if (compression != Compression.NONE && raw.length >= threshold) {
+            byte[] compressed = compression == Compression.LZ4 ? lz4(raw) : deflate(raw);
+            if (compressed.length + 5 < raw.length) {
+                byte[] result = new byte[compressed.length + 5];
+                result[0] = (byte) compression.flag;
+                writeInt(result, raw.length);
+                System.arraycopy(compressed, 0, result, 5, compressed.length);
+                return result;
+            }
+        }
+        byte[] result = new byte[raw.length + 1];
+        result[0] = (byte) Compression.NONE.flag;
+        System.arraycopy(raw, 0, result, 1, raw.length);
+        return result;
+    }
+
+    @Override
+    public <T> T decode(byte[] bytes, Class<T> type) {
+        if (bytes.length == 0) {
+            throw new SerializationException("empty compressed data");
+        }
+        byte[] raw;
+        if (bytes[0] == Compression.NONE.flag) {
+            raw = Arrays.copyOfRange(bytes, 1, bytes.length);
+        } else if (bytes[0] == Compression.LZ4.flag) {
+            raw = lz4Decompress(bytes, readLength(bytes, LZ4_MAX_RATIO));
+        } else if (bytes[0] == Compression.DEFLATE.flag) {
+            raw = inflate(bytes, readLength(bytes, DEFLATE_MAX_RATIO));
+        } else {
+            throw new SerializationException("unknown compression flag: " + bytes[0]);
+        }
+        return delegate.decode(raw, type);
+    }
+
+    private static byte[] lz4(byte[] raw) {
+        LZ4Compressor compressor = LZ4_FACTORY.fastCompressor();
+        return compressor.compress(raw);
+    }
+
+    //使用safe解压,输入损坏时不会越界读写
+    private static byte[] lz4Decompress(byte[] bytes, int length) {
+        LZ4SafeDecompressor decompressor = LZ4_FACTORY.safeDecompressor();
+        byte[] raw = new byte[length];
+        int decompressed;
+        try {
+            decompressed = decompressor.decompress(bytes, 5, bytes.length - 5, raw, 0, length);
+        } catch (LZ4Exception e) {
+            throw new SerializationException("lz4 decompress fail", e);
+        }
+        if (decompressed != length) {
+            throw new SerializationException("lz4 length mismatch, expected " + length + " but was " + decompressed);
+        }
+        return raw;
+    }
+
+    private static byte[] deflate(byte[] raw) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(raw);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(raw.length / 2 + 16);
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                out.write(buffer, 0, length);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private static byte[] inflate(byte[] bytes, int length) {
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(bytes, 5, bytes.length - 5);
+            byte[] raw = new byte[length];
+            int offset = 0;
+            while (offset < length && !inflater.finished()) {
+                int inflated = inflater.inflate(raw, offset, length - offset);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new SerializationException("truncated deflate data");
+                }
+                offset += inflated;
+            }
+            if (offset != length) {
+                throw new SerializationException("inflate length mismatch, expected " + length + " but was " + offset);
+            }
+            return raw;
+        } catch (SerializationException e) {
+            throw e;
+        } catch (DataFormatException | RuntimeException e) {
+            throw new SerializationException("inflate fail", e);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static void writeInt(byte[] bytes, int value) {
+        for (int i = 0; i < 4; i++) {
+            bytes[1 + i] = (byte) (value >>> (i * 8));
+        }
+    }
+
+    //读取原始长度,按压缩数据长度和最大压缩比校验,避免按篡改的长度分配内存
+    private static int readLength(byte[] bytes, int maxRatio) {
+        if (bytes.length < 5) {
+            throw new SerializationException("truncated compressed data");
+        }
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            value |= (bytes[1 + i] & 0xFF) << (i * 8);
+        }
+        if (value <= 0 || value > MAX_LENGTH || value > (long) (bytes.length - 5) * maxRatio) {
+            throw new SerializationException("invalid decompressed length: " + value);
+        }
+        return value;
+    }
+
+}
@@ -0,0 +1,29 @@
+package com.pzl.program.frametool.redis.codec;
+
+import com.alibaba.fastjson.JSON;
+import org.springframework.data.redis.serializer.SerializationException;
+
+/**
+ * fastjson编解码器,存储为UTF-8的JSON,可读性好,体积介于JDK序列化和二进制之间
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class FastjsonRedisCodec implements RedisCodec {
+
+    @Override
+    public byte[] encode(Object value) {
+        return JSON.toJSONBytes(value);
+    }
+
+    @Override
+    public <T> T decode(byte[] bytes, Class<T> type) {
+        try {
+            return JSON.parseObject(bytes, type);
+        } catch (RuntimeException e) {
+            //除JSONException外,损坏的数据还可能引起NumberFormatException等,统一按解码失败处理
+            throw new SerializationException("fastjson deserialize fail: " + type.getName(), e);
+        }
+    }
+
+}
@@ -0,0 +1,35 @@
+package com.pzl.program.frametool.redis.codec;
+
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.io.*;
+
+/**
+ * JDK序列化编解码器,与RedisTemplate默认的JdkSerializationRedisSerializer格式一致,对象需要实现Serializable
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class JdkRedisCodec implements RedisCodec {
+
+    @Override
+    public byte[] encode(Object value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(value);
+        } catch (IOException e) {
+            throw new SerializationException("jdk serialize fail: " + value.getClass().getName(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Override
+    public <T> T decode(byte[] bytes, Class<T> type) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return type.cast(in.readObject());
+        } catch (IOException | ClassNotFoundException e) {
+            throw new SerializationException("jdk deserialize fail: " + type.getName(), e);
+        }
+    }
+
+}
@@ -0,0 +1,30 @@
+package com.pzl.program.frametool.redis.codec;
+
+/**
+ * Redis 对象编解码器
+ * RedisUtil的setObject/getObject通过它把对象转为字节数组存入Redis,实现需要线程安全
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public interface RedisCodec {
+
+    /**
+     * 编码
+     *
+     * @param value 对象,不为null
+     * @return 字节数组
+     */
+    byte[] encode(Object value);
+
+    /**
+     * 解码
+     *
+     * @param bytes 字节数组,不为null
+     * @param type  对象类型
+     * @param <T>   对象类型
+     * @return 对象
+     */
+    <T> T decode(byte[] bytes, Class<T> type);
+
+}
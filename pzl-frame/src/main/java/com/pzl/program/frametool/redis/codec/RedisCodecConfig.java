@@ -0,0 +1,26 @@
+package com.pzl.program.frametool.redis.codec;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnMissingBean;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Redis 对象编解码配置
+ * 默认使用紧凑二进制编码,超过阈值后压缩;自定义RedisCodec的Bean可以替换默认实现
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+@Configuration
+@EnableConfigurationProperties({RedisCodecProperties.class})
+public class RedisCodecConfig {
+
+    @Bean
+    @ConditionalOnMissingBean(RedisCodec.class)
+    public RedisCodec redisCodec(RedisCodecProperties redisCodecProperties) {
+        return new CompressingRedisCodec(new CompactBinaryCodec(redisCodecProperties.getAllowedPackages()),
+                redisCodecProperties.getCompression(), redisCodecProperties.getCompressThreshold());
+    }
+
+}
@@ -0,0 +1,28 @@
+package com.pzl.program.frametool.redis.codec;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Redis 对象编解码配置属性类
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+@Data
+@ConfigurationProperties("redis.codec")
+public class RedisCodecProperties {
+
+    //压缩算法: NONE/LZ4/DEFLATE
+    private CompressingRedisCodec.Compression compression = CompressingRedisCodec.Compression.LZ4;
+
+    //编码结果达到多少字节才压缩
+    private int compressThreshold = 1024;
+
+    //允许解码的包(类名前缀),Redis中的数据只能还原为这些包内的类
+    private List<String> allowedPackages = new ArrayList<>(CompactBinaryCodec.DEFAULT_ALLOWED_PACKAGES);
+
+}
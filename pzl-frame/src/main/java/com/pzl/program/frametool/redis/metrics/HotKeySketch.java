@@ -0,0 +1,210 @@
+package com.pzl.program.frametool.redis.metrics;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 热点key统计:Count-Min Sketch + top-k 集合
+ * <p>
+ * Count-Min Sketch 用 depth 行 width 列的计数器估计每个key的访问次数,内存固定,与key的数量无关,
+ * 估计值只会偏大不会偏小,偏大的量不超过 总次数 * e / width(概率 1 - e^-depth)。
+ * top-k 集合保存估计值最大的k个key:
+ * 1、已在集合中的key用CAS更新计数,不加锁,热点稳定后绝大部分调用走这条路径
+ * 2、不在集合中且估计值小于门槛(集合中最小的计数)的key直接返回
+ * 3、只有新key进入集合、淘汰最小的key时加锁,线性扫描找最小值,k通常只有几十
+ * <p>
+ * 衰减:每隔decayInterval所有计数减半,旧的热点逐渐让位给新的热点,由写入线程顺带完成,不需要额外线程。
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class HotKeySketch {
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    private final int depth;
+
+    //列数,2的幂,用位与代替取模
+    private final int width;
+
+    private final AtomicLongArray counters;
+
+    private final int k;
+
+    private final long decayInterval;
+
+    private final AtomicLong nextDecay;
+
+    //当前的热点key
+    private final ConcurrentMap<String, HotKey> hotKeys = new ConcurrentHashMap<>();
+
+    //集合满时最小的计数,小于它的key不可能进入集合。集合中的计数只增不减(衰减除外),门槛只会偏低
+    private volatile long threshold;
+
+    /**
+     * @param width         每行计数器数,向上取整为2的幂
+     * @param depth         行数(哈希函数个数)
+     * @param k             保留的热点key个数
+     * @param decayInterval 计数减半的间隔(毫秒),小于等于0不衰减
+     */
+    public HotKeySketch(int width, int depth, int k, long decayInterval) {
+        int columns = Integer.highestOneBit(Math.max(1, width));
+        this.width = columns < width ? columns << 1 : columns;
+        this.depth = depth;
+        this.counters = new AtomicLongArray(this.width * depth);
+        this.k = k;
+        this.decayInterval = decayInterval;
+        this.nextDecay = new AtomicLong(System.currentTimeMillis() + decayInterval);
+    }
+
+    /**
+     * 记录一次访问
+     *
+     * @param key key
+     */
+    public void add(String key) {
+        decayIfDue();
+        long hash = HASH.hashString(key, StandardCharsets.UTF_8).asLong();
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            int column = (h1 + i * h2) & (width - 1);
+            estimate = Math.min(estimate, counters.incrementAndGet(i * width + column));
+        }
+        HotKey hotKey = hotKeys.get(key);
+        if (hotKey != null) {
+            hotKey.update(estimate);
+            return;
+        }
+        if (estimate < threshold) {
+            return;
+        }
+        admit(key, estimate);
+    }
+
+    /**
+     * 估计key的访问次数
+     *
+     * @param key key
+     * @return 估计次数, 不小于实际次数
+     */
+    public long estimate(String key) {
+        long hash = HASH.hashString(key, StandardCharsets.UTF_8).asLong();
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        long estimate = Long.MAX_VALUE;
+        for (int i = 0; i < depth; i++) {
+            estimate = Math.min(estimate, counters.get(i * width + ((h1 + i * h2) & (width - 1))));
+        }
+        return estimate;
+    }
+
+    /**
+     * 当前的热点key,按次数从大到小
+     *
+     * @return key-估计次数
+     */
+    public LinkedHashMap<String, Long> top() {
+        List<Map.Entry<String, Long>> entries = new ArrayList<>(hotKeys.size());
+        for (HotKey hotKey : hotKeys.values()) {
+            entries.add(new AbstractMap.SimpleImmutableEntry<>(hotKey.key, hotKey.count.get()));
+        }
+        entries.sort(Map.Entry.<String, Long>comparingByValue().reversed());
+        LinkedHashMap<String, Long> top = new LinkedHashMap<>();
+        for (Map.Entry<String, Long> entry : entries) {
+            top.put(entry.getKey(), entry.getValue());
+        }
+        return top;
+    }
+
+    /**
+     * 所有计数减半
+     */
+    public synchronized void decay() {
+        //与并发的incrementAndGet、CAS更新之间没有原子性,少量误差对热点统计没有影响
+        for (int i = 0; i < counters.length(); i++) {
+            counters.set(i, counters.get(i) >> 1);
+        }
+        for (HotKey hotKey : hotKeys.values()) {
+            if (hotKey.count.updateAndGet(count -> count >> 1) == 0) {
+                hotKeys.remove(hotKey.key, hotKey);
+            }
+        }
+        updateThreshold(min());
+    }
+
+    private synchronized void admit(String key, long estimate) {
+        HotKey hotKey = hotKeys.get(key);
+        if (hotKey != null) {
+            hotKey.update(estimate);
+            return;
+        }
+        if (hotKeys.size() < k) {
+            hotKeys.put(key, new HotKey(key, estimate));
+        } else {
+            HotKey min = min();
+            if (min == null || estimate <= min.count.get()) {
+                updateThreshold(min);
+                return;
+            }
+            hotKeys.remove(min.key, min);
+            hotKeys.put(key, new HotKey(key, estimate));
+        }
+        updateThreshold(min());
+    }
+
+    //计数最小的key,持有锁时调用
+    private HotKey min() {
+        HotKey min = null;
+        for (HotKey hotKey : hotKeys.values()) {
+            if (min == null || hotKey.count.get() < min.count.get()) {
+                min = hotKey;
+            }
+        }
+        return min;
+    }
+
+    private void updateThreshold(HotKey min) {
+        threshold = hotKeys.size() < k || min == null ? 0 : min.count.get();
+    }
+
+    private void decayIfDue() {
+        if (decayInterval <= 0) {
+            return;
+        }
+        long due = nextDecay.get();
+        long now = System.currentTimeMillis();
+        if (now >= due && nextDecay.compareAndSet(due, now + decayInterval)) {
+            decay();
+        }
+    }
+
+    private static class HotKey {
+
+        private final String key;
+
+        private final AtomicLong count;
+
+        private HotKey(String key, long count) {
+            this.key = key;
+            this.count = new AtomicLong(count);
+        }
+
+        //估计值单调增加,取较大的一个,计数已经更大时不写
+        private void update(long estimate) {
+            if (estimate > count.get()) {
+                count.accumulateAndGet(estimate, Math::max);
+            }
+        }
+
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.pzl.program.frametool.redis.sharding;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * 一致性哈希环
+ * <p>
+ * 每个节点按 "节点名#序号" 在环上放置 virtualNodes 个虚拟节点,key顺时针找到的第一个虚拟节点即所属节点。
+ * 虚拟节点越多分布越均匀(160个时各节点key数偏差约在±10%以内),增删一个节点只迁移约 1/N 的key。
+ * <p>
+ * 哈希标签:key中包含 {xxx} 时只对第一个花括号内的内容计算哈希(与Redis Cluster规则一致),
+ * 如 {user:1}:follow 和 {user:1}:fans 一定落在同一节点,可以对它们执行sIntersect、zUnionAndStore等多key命令。
+ * <p>
+ * 环创建后不可变,查找为数组上的二分查找,线程安全。
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class ConsistentHashRing<T> {
+
+    private static final HashFunction HASH = Hashing.murmur3_128();
+
+    //虚拟节点的哈希值,从小到大
+    private final long[] points;
+
+    //与points一一对应的节点
+    private final T[] owners;
+
+    private final Map<String, T> nodes;
+
+    /**
+     * @param nodes        节点名-节点,节点名决定节点在环上的位置,节点地址不变时应保持不变
+     * @param virtualNodes 每个节点的虚拟节点数
+     */
+    @SuppressWarnings("unchecked")
+    public ConsistentHashRing(Map<String, T> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) {
+            throw new IllegalArgumentException("consistent hash ring requires at least one node");
+        }
+        if (virtualNodes <= 0) {
+            throw new IllegalArgumentException("virtualNodes must be positive: " + virtualNodes);
+        }
+        TreeMap<Long, T> ring = new TreeMap<>();
+        for (Map.Entry<String, T> entry : nodes.entrySet()) {
+            for (int i = 0; i < virtualNodes; i++) {
+                //极少数哈希冲突时后放入的节点覆盖先放入的,不影响正确性
+                ring.put(hash(entry.getKey() + "#" + i), entry.getValue());
+            }
+        }
+        this.points = new long[ring.size()];
+        this.owners = (T[]) new Object[ring.size()];
+        int i = 0;
+        for (Map.Entry<Long, T> entry : ring.entrySet()) {
+            points[i] = entry.getKey();
+            owners[i++] = entry.getValue();
+        }
+        this.nodes = Collections.unmodifiableMap(new LinkedHashMap<>(nodes));
+    }
+
+    /**
+     * key所属的节点
+     *
+     * @param key key
+     * @return 节点
+     */
+    public T get(String key) {
+        int index = Arrays.binarySearch(points, hash(hashTag(key)));
+        if (index < 0) {
+            index = -index - 1;
+            if (index == points.length) {
+                index = 0;
+            }
+        }
+        return owners[index];
+    }
+
+    /**
+     * 按所属节点对key分组,组内保持原顺序
+     *
+     * @param keys key列表
+     * @return 节点-key列表
+     */
+    public Map<T, List<String>> group(Collection<String> keys) {
+        Map<T, List<String>> groups = new LinkedHashMap<>();
+        for (String key : keys) {
+            groups.computeIfAbsent(get(key), node -> new ArrayList<>()).add(key);
+        }
+        return groups;
+    }
+
+    /**
+     * 所有节点
+     *
+     * @return 节点名-节点
+     */
+    public Map<String, T> getNodes() {
+        return nodes;
+    }
+
+    /**
+     * 计算哈希使用的部分:第一个非空的 {...} 内的内容,没有时为整个key
+     *
+     * @param key key
+     * @return 参与哈希的字符串
+     */
+    public static String hashTag(String key) {
+        int start = key.indexOf('{');
+        if (start >= 0) {
+            int end = key.indexOf('}', start + 1);
+            if (end > start + 1) {
+                return key.substring(start + 1, end);
+            }
+        }
+        return key;
+    }
+
+    private static long hash(String value) {
+        return HASH.hashString(value, StandardCharsets.UTF_8).asLong();
+    }
+
+}
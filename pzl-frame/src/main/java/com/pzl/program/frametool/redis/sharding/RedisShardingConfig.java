@@ -0,0 +1,86 @@
+package com.pzl.program.frametool.redis.sharding;
+
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.data.redis.RedisProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.util.StringUtils;
+import redis.clients.jedis.JedisPoolConfig;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Redis 客户端分片配置
+ * 配置 redis.sharding.enabled=true 和 redis.sharding.nodes 后生效,为每个节点创建一个Jedis连接池,
+ * 连接池、密码、超时沿用 spring.redis 的配置
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+@Configuration
+@EnableConfigurationProperties({RedisShardingProperties.class, RedisProperties.class})
+@ConditionalOnProperty(prefix = "redis.sharding", name = "enabled", havingValue = "true")
+public class RedisShardingConfig {
+
+    private final List<JedisConnectionFactory> connectionFactories = new ArrayList<>();
+
+    @Bean(destroyMethod = "shutdown")
+    public ShardedRedisUtil shardedRedisUtil(RedisShardingProperties redisShardingProperties,
+                                             RedisProperties redisProperties) {
+        if (redisShardingProperties.getNodes().isEmpty()) {
+            throw new IllegalStateException("redis.sharding.nodes must not be empty when redis.sharding.enabled=true");
+        }
+        Map<String, StringRedisTemplate> shards = new LinkedHashMap<>();
+        for (String node : redisShardingProperties.getNodes()) {
+            String[] hostAndPort = node.trim().split(":");
+            if (hostAndPort.length != 2) {
+                throw new IllegalStateException("invalid redis.sharding node, expected host:port: " + node);
+            }
+            JedisConnectionFactory connectionFactory = connectionFactory(hostAndPort[0],
+                    Integer.parseInt(hostAndPort[1]), redisProperties);
+            connectionFactories.add(connectionFactory);
+            shards.put(node.trim(), new StringRedisTemplate(connectionFactory));
+        }
+        return new ShardedRedisUtil(shards, redisShardingProperties.getVirtualNodes(),
+                redisShardingProperties.getParallelism());
+    }
+
+    /**
+     * 关闭各节点的连接池,在ShardedRedisUtil关闭之后执行
+     */
+    @PreDestroy
+    public void destroy() {
+        connectionFactories.forEach(JedisConnectionFactory::destroy);
+    }
+
+    private static JedisConnectionFactory connectionFactory(String host, int port, RedisProperties redisProperties) {
+        RedisProperties.Pool pool = redisProperties.getPool();
+        JedisPoolConfig poolConfig = new JedisPoolConfig();
+        if (pool != null) {
+            poolConfig.setMaxTotal(pool.getMaxActive());
+            poolConfig.setMaxIdle(pool.getMaxIdle());
+            poolConfig.setMinIdle(pool.getMinIdle());
+            poolConfig.setMaxWaitMillis(pool.getMaxWait());
+        }
+        JedisConnectionFactory connectionFactory = new JedisConnectionFactory(poolConfig);
+        connectionFactory.setHostName(host);
+        connectionFactory.setPort(port);
+        connectionFactory.setDatabase(redisProperties.getDatabase());
+        if (StringUtils.hasText(redisProperties.getPassword())) {
+            connectionFactory.setPassword(redisProperties.getPassword());
+        }
+        if (redisProperties.getTimeout() > 0) {
+            connectionFactory.setTimeout(redisProperties.getTimeout());
+        }
+        connectionFactory.afterPropertiesSet();
+        return connectionFactory;
+    }
+
+}
@@ -0,0 +1,32 @@
+package com.pzl.program.frametool.redis.sharding;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Redis 客户端分片配置属性类
+ * 密码、库、超时、连接池沿用 spring.redis 的配置,每个节点各自一个连接池
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+@Data
+@ConfigurationProperties("redis.sharding")
+public class RedisShardingProperties {
+
+    //是否开启分片
+    private boolean enabled = false;
+
+    //节点列表,格式 host:port,作为节点名参与哈希,扩容时只追加不要改已有节点的写法
+    private List<String> nodes = new ArrayList<>();
+
+    //每个节点的虚拟节点数
+    private int virtualNodes = 160;
+
+    //跨节点批量操作(multiGet/multiSet/delete)的并发线程数,线程都忙时由调用线程执行
+    private int parallelism = 16;
+
+}
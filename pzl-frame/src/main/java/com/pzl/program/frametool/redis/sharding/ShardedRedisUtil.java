@@ -0,0 +1,638 @@
+package com.pzl.program.frametool.redis.sharding;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * Redis 客户端分片操作工具类
+ * <p>
+ * 多个独立的Redis节点通过一致性哈希环(ConsistentHashRing)分担key,方法与RedisUtil同名同义:
+ * 1、单key命令直接路由到key所属节点
+ * 2、multiGet/multiSet/delete(Collection) 按节点分组后并发发给各节点,每个节点一次往返,结果按原顺序合并
+ * 3、sIntersect、zUnionAndStore、rename等多key命令要求所有key在同一节点,否则抛出IllegalArgumentException,
+ * 需要一起操作的key用哈希标签保证同节点,如 {user:1}:follow 与 {user:1}:fans
+ * <p>
+ * 未列出的命令可通过 template(key) 取得key所属节点的StringRedisTemplate执行。
+ * 配置 redis.sharding.enabled=true 后由RedisShardingConfig创建,不影响单节点的RedisUtil。
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class ShardedRedisUtil {
+
+    private final ConsistentHashRing<StringRedisTemplate> ring;
+
+    //跨节点批量操作的线程池,没有空闲线程时由调用线程执行
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * @param shards       节点名-节点的StringRedisTemplate
+     * @param virtualNodes 每个节点的虚拟节点数
+     * @param parallelism  跨节点批量操作的并发线程数
+     */
+    public ShardedRedisUtil(Map<String, StringRedisTemplate> shards, int virtualNodes, int parallelism) {
+        this.ring = new ConsistentHashRing<>(shards, virtualNodes);
+        this.executor = new ThreadPoolExecutor(parallelism, parallelism, 60L, TimeUnit.SECONDS,
+                new SynchronousQueue<>(),
+                new ThreadFactoryBuilder().setNameFormat("redis-shard-%d").setDaemon(true).build(),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * key所属节点的StringRedisTemplate
+     *
+     * @param key key
+     * @return StringRedisTemplate
+     */
+    public StringRedisTemplate template(String key) {
+        return ring.get(key);
+    }
+
+    /**
+     * 多个key所属的同一节点的StringRedisTemplate
+     *
+     * @param keys key列表
+     * @return StringRedisTemplate
+     * @throws IllegalArgumentException key不在同一节点
+     */
+    public StringRedisTemplate template(Collection<String> keys) {
+        StringRedisTemplate template = null;
+        for (String key : keys) {
+            StringRedisTemplate owner = ring.get(key);
+            if (template != null && template != owner) {
+                throw new IllegalArgumentException("keys are not on the same shard, use a hash tag such as {tag}:key: " + keys);
+            }
+            template = owner;
+        }
+        if (template == null) {
+            throw new IllegalArgumentException("keys must not be empty");
+        }
+        return template;
+    }
+
+    /**
+     * 一致性哈希环
+     *
+     * @return ConsistentHashRing
+     */
+    public ConsistentHashRing<StringRedisTemplate> getRing() {
+        return ring;
+    }
+
+    /**
+     * 关闭跨节点批量操作的线程池
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /*------------------------key相关操作---------------------------*/
+
+    /**
+     * 删除key
+     *
+     * @param key key
+     */
+    public void delete(String key) {
+        template(key).delete(key);
+    }
+
+    /**
+     * 批量删除key,各节点并发删除
+     *
+     * @param keys key列表
+     */
+    public void delete(Collection<String> keys) {
+        scatter(keys, (template, shardKeys) -> {
+            template.delete(shardKeys);
+            return null;
+        });
+    }
+
+    /**
+     * 是否存在key
+     *
+     * @param key key
+     * @return boolean
+     */
+    public boolean hasKey(String key) {
+        return Boolean.TRUE.equals(template(key).hasKey(key));
+    }
+
+    /**
+     * 设置过期时间
+     *
+     * @param key     key
+     * @param timeout 过期时间
+     * @param unit    时间单位
+     * @return boolean
+     */
+    public boolean expire(String key, Long timeout, TimeUnit unit) {
+        return Boolean.TRUE.equals(template(key).expire(key, timeout, unit));
+    }
+
+    /**
+     * 返回key的剩余的过期时间
+     *
+     * @param key  key
+     * @param unit 时间单位
+     * @return 剩余过期时间
+     */
+    public Long getExpire(String key, TimeUnit unit) {
+        return template(key).getExpire(key, unit);
+    }
+
+    /**
+     * 修改key的名称,两个key须在同一节点
+     *
+     * @param oldKey 旧key
+     * @param newKey 新key
+     */
+    public void rename(String oldKey, String newKey) {
+        template(Arrays.asList(oldKey, newKey)).rename(oldKey, newKey);
+    }
+
+    /*------------------------String相关操作---------------------------*/
+
+    /**
+     * 设置指定key的值
+     *
+     * @param key   key
+     * @param value 值
+     */
+    public void set(String key, String value) {
+        template(key).opsForValue().set(key, value);
+    }
+
+    /**
+     * 获取指定key的值
+     *
+     * @param key key
+     * @return 值
+     */
+    public String get(String key) {
+        return template(key).opsForValue().get(key);
+    }
+
+    /**
+     * 将值value关联到key,并将key的过期时间设为timeout
+     *
+     * @param key     key
+     * @param value   值
+     * @param timeout 过期时间
+     * @param unit    时间单位
+     */
+    public void setEx(String key, String value, long timeout, TimeUnit unit) {
+        template(key).opsForValue().set(key, value, timeout, unit);
+    }
+
+    /**
+     * 只有在key不存在时设置key的值
+     *
+     * @param key   key
+     * @param value 值
+     * @return 之前已经存在返回false, 不存在返回true
+     */
+    public boolean setIfAbsent(String key, String value) {
+        return Boolean.TRUE.equals(template(key).opsForValue().setIfAbsent(key, value));
+    }
+
+    /**
+     * 增加(自增长),负数则为自减
+     *
+     * @param key       key
+     * @param increment 增量
+     * @return 增加后的值
+     */
+    public Long incrBy(String key, long increment) {
+        return template(key).opsForValue().increment(key, increment);
+    }
+
+    /**
+     * 批量获取,按节点分组后各节点并发MGET
+     *
+     * @param keys key列表
+     * @return 值列表, 与keys顺序一致, 不存在的位置为null
+     */
+    public List<String> multiGet(Collection<String> keys) {
+        List<String> keyList = keys instanceof List ? (List<String>) keys : new ArrayList<>(keys);
+        Map<String, String> values = new HashMap<>(keyList.size() * 2);
+        List<Map<String, String>> parts = scatter(keyList, (template, shardKeys) -> {
+            List<String> shardValues = template.opsForValue().multiGet(shardKeys);
+            Map<String, String> part = new HashMap<>(shardKeys.size() * 2);
+            for (int i = 0; i < shardKeys.size(); i++) {
+                part.put(shardKeys.get(i), shardValues == null ? null : shardValues.get(i));
+            }
+            return part;
+        });
+        parts.forEach(values::putAll);
+        List<String> result = new ArrayList<>(keyList.size());
+        for (String key : keyList) {
+            result.add(values.get(key));
+        }
+        return result;
+    }
+
+    /**
+     * 批量添加,按节点分组后各节点并发MSET
+     *
+     * @param maps key-值
+     */
+    public void multiSet(Map<String, String> maps) {
+        scatter(maps.keySet(), (template, shardKeys) -> {
+            Map<String, String> part = new HashMap<>(shardKeys.size() * 2);
+            for (String key : shardKeys) {
+                part.put(key, maps.get(key));
+            }
+            template.opsForValue().multiSet(part);
+            return null;
+        });
+    }
+
+    /*------------------------hash相关操作---------------------------*/
+
+    /**
+     * 获取存储在哈希表中指定字段的值
+     *
+     * @param key   key
+     * @param field 字段
+     * @return 值
+     */
+    public Object hGet(String key, String field) {
+        return template(key).opsForHash().get(key, field);
+    }
+
+    /**
+     * 获取所有给定字段的值
+     *
+     * @param key key
+     * @return 字段-值
+     */
+    public Map<Object, Object> hGetAll(String key) {
+        return template(key).opsForHash().entries(key);
+    }
+
+    /**
+     * 添加哈希表字段
+     *
+     * @param key     key
+     * @param hashKey 字段
+     * @param value   值
+     */
+    public void hPut(String key, String hashKey, String value) {
+        template(key).opsForHash().put(key, hashKey, value);
+    }
+
+    /**
+     * 批量添加哈希表字段
+     *
+     * @param key  key
+     * @param maps 字段-值
+     */
+    public void hPutAll(String key, Map<String, String> maps) {
+        template(key).opsForHash().putAll(key, maps);
+    }
+
+    /**
+     * 删除一个或多个哈希表字段
+     *
+     * @param key    key
+     * @param fields 字段
+     * @return 删除的字段数
+     */
+    public Long hDelete(String key, Object... fields) {
+        return template(key).opsForHash().delete(key, fields);
+    }
+
+    /**
+     * 为哈希表key中的指定字段的整数值加上增量increment
+     *
+     * @param key       key
+     * @param field     字段
+     * @param increment 增量
+     * @return 增加后的值
+     */
+    public Long hIncrBy(String key, Object field, long increment) {
+        return template(key).opsForHash().increment(key, field, increment);
+    }
+
+    /*------------------------list相关操作---------------------------*/
+
+    /**
+     * 存储在list头部
+     *
+     * @param key   key
+     * @param value 值
+     * @return 列表长度
+     */
+    public Long lLeftPush(String key, String value) {
+        return template(key).opsForList().leftPush(key, value);
+    }
+
+    /**
+     * 存储在list尾部
+     *
+     * @param key   key
+     * @param value 值
+     * @return 列表长度
+     */
+    public Long lRightPush(String key, String value) {
+        return template(key).opsForList().rightPush(key, value);
+    }
+
+    /**
+     * 获取列表指定范围内的元素
+     *
+     * @param key   key
+     * @param start 开始位置, 0是开始位置
+     * @param end   结束位置, -1返回所有
+     * @return 元素列表
+     */
+    public List<String> lRange(String key, long start, long end) {
+        return template(key).opsForList().range(key, start, end);
+    }
+
+    /**
+     * 移出并获取列表的第一个元素
+     *
+     * @param key key
+     * @return 删除的元素
+     */
+    public String lLeftPop(String key) {
+        return template(key).opsForList().leftPop(key);
+    }
+
+    /**
+     * 移除并获取列表最后一个元素
+     *
+     * @param key key
+     * @return 删除的元素
+     */
+    public String lRightPop(String key) {
+        return template(key).opsForList().rightPop(key);
+    }
+
+    /**
+     * 获取列表长度
+     *
+     * @param key key
+     * @return 列表长度
+     */
+    public Long lLen(String key) {
+        return template(key).opsForList().size(key);
+    }
+
+    /*------------------------set相关操作---------------------------*/
+
+    /**
+     * set添加元素
+     *
+     * @param key    key
+     * @param values 值
+     * @return 添加的元素数
+     */
+    public Long sAdd(String key, String... values) {
+        return template(key).opsForSet().add(key, values);
+    }
+
+    /**
+     * set移除元素
+     *
+     * @param key    key
+     * @param values 值
+     * @return 移除的元素数
+     */
+    public Long sRemove(String key, Object... values) {
+        return template(key).opsForSet().remove(key, values);
+    }
+
+    /**
+     * 获取集合所有元素
+     *
+     * @param key key
+     * @return 元素集合
+     */
+    public Set<String> sMembers(String key) {
+        return template(key).opsForSet().members(key);
+    }
+
+    /**
+     * 判断集合是否包含value
+     *
+     * @param key   key
+     * @param value 值
+     * @return boolean
+     */
+    public boolean sIsMember(String key, Object value) {
+        return Boolean.TRUE.equals(template(key).opsForSet().isMember(key, value));
+    }
+
+    /**
+     * 获取key集合与多个集合的交集,所有key须在同一节点
+     *
+     * @param key       key
+     * @param otherKeys key列表
+     * @return 交集
+     */
+    public Set<String> sIntersect(String key, Collection<String> otherKeys) {
+        return template(withKey(key, otherKeys)).opsForSet().intersect(key, otherKeys);
+    }
+
+    /**
+     * key集合与多个集合的交集存储到destKey中,所有key须在同一节点
+     *
+     * @param key       key
+     * @param otherKeys key列表
+     * @param destKey   目标key
+     * @return 交集元素数
+     */
+    public Long sIntersectAndStore(String key, Collection<String> otherKeys, String destKey) {
+        return template(withKey(key, otherKeys, destKey)).opsForSet().intersectAndStore(key, otherKeys, destKey);
+    }
+
+    /**
+     * 获取key集合与多个集合的并集,所有key须在同一节点
+     *
+     * @param key       key
+     * @param otherKeys key列表
+     * @return 并集
+     */
+    public Set<String> sUnion(String key, Collection<String> otherKeys) {
+        return template(withKey(key, otherKeys)).opsForSet().union(key, otherKeys);
+    }
+
+    /**
+     * key集合与多个集合的并集存储到destKey中,所有key须在同一节点
+     *
+     * @param key       key
+     * @param otherKeys key列表
+     * @param destKey   目标key
+     * @return 并集元素数
+     */
+    public Long sUnionAndStore(String key, Collection<String> otherKeys, String destKey) {
+        return template(withKey(key, otherKeys, destKey)).opsForSet().unionAndStore(key, otherKeys, destKey);
+    }
+
+    /*------------------------zSet相关操作---------------------------*/
+
+    /**
+     * 添加元素,有序集合是按照元素的score值由小到大排列
+     *
+     * @param key   key
+     * @param value 值
+     * @param score 分数
+     * @return boolean
+     */
+    public boolean zAdd(String key, String value, double score) {
+        return Boolean.TRUE.equals(template(key).opsForZSet().add(key, value, score));
+    }
+
+    /**
+     * 增加元素的score值,并返回增加后的值
+     *
+     * @param key   key
+     * @param value 值
+     * @param delta 增量
+     * @return 增加后的分数
+     */
+    public Double zIncrementScore(String key, String value, double delta) {
+        return template(key).opsForZSet().incrementScore(key, value, delta);
+    }
+
+    /**
+     * 返回元素在集合的排名,有序集合是按照元素的score值由小到大排列
+     *
+     * @param key   key
+     * @param value 值
+     * @return 0表示第一位
+     */
+    public Long zRank(String key, Object value) {
+        return template(key).opsForZSet().rank(key, value);
+    }
+
+    /**
+     * 获取集合的元素, 从小到大排序
+     *
+     * @param key   key
+     * @param start 开始位置
+     * @param end   结束位置, -1查询所有
+     * @return 元素集合
+     */
+    public Set<String> zRange(String key, long start, long end) {
+        return template(key).opsForZSet().range(key, start, end);
+    }
+
+    /**
+     * 获取集合的元素, 从大到小排序
+     *
+     * @param key   key
+     * @param start 开始位置
+     * @param end   结束位置, -1查询所有
+     * @return 元素集合
+     */
+    public Set<String> zReverseRange(String key, long start, long end) {
+        return template(key).opsForZSet().reverseRange(key, start, end);
+    }
+
+    /**
+     * 获取集合中value元素的score值
+     *
+     * @param key   key
+     * @param value 值
+     * @return 分数
+     */
+    public Double zScore(String key, Object value) {
+        return template(key).opsForZSet().score(key, value);
+    }
+
+    /**
+     * 移除元素
+     *
+     * @param key    key
+     * @param values 值
+     * @return 移除的元素数
+     */
+    public Long zRemove(String key, Object... values) {
+        return template(key).opsForZSet().remove(key, values);
+    }
+
+    /**
+     * 计算多个有序集合的并集存储到destKey中,所有key须在同一节点
+     *
+     * @param key       key
+     * @param otherKeys key列表
+     * @param destKey   目标key
+     * @return 并集元素数
+     */
+    public Long zUnionAndStore(String key, Collection<String> otherKeys, String destKey) {
+        return template(withKey(key, otherKeys, destKey)).opsForZSet().unionAndStore(key, otherKeys, destKey);
+    }
+
+    /**
+     * 计算多个有序集合的交集存储到destKey中,所有key须在同一节点
+     *
+     * @param key       key
+     * @param otherKeys key列表
+     * @param destKey   目标key
+     * @return 交集元素数
+     */
+    public Long zIntersectAndStore(String key, Collection<String> otherKeys, String destKey) {
+        return template(withKey(key, otherKeys, destKey)).opsForZSet().intersectAndStore(key, otherKeys, destKey);
+    }
+
+    /**
+     * 按节点分组后并发执行,最后一组在调用线程执行,任一节点失败时抛出该节点的异常
+     *
+     * @param keys      key列表
+     * @param operation 节点-该节点的key,返回该节点的结果
+     * @return 各节点的结果
+     */
+    private <R> List<R> scatter(Collection<String> keys, BiFunction<StringRedisTemplate, List<String>, R> operation) {
+        Map<StringRedisTemplate, List<String>> groups = ring.group(keys);
+        if (groups.size() <= 1) {
+            List<R> results = new ArrayList<>(1);
+            groups.forEach((template, shardKeys) -> results.add(operation.apply(template, shardKeys)));
+            return results;
+        }
+        List<CompletableFuture<R>> futures = new ArrayList<>(groups.size());
+        Map.Entry<StringRedisTemplate, List<String>> local = null;
+        for (Map.Entry<StringRedisTemplate, List<String>> group : groups.entrySet()) {
+            if (local == null) {
+                local = group;
+                continue;
+            }
+            futures.add(CompletableFuture.supplyAsync(() -> operation.apply(group.getKey(), group.getValue()), executor));
+        }
+        List<R> results = new ArrayList<>(groups.size());
+        results.add(operation.apply(local.getKey(), local.getValue()));
+        try {
+            for (CompletableFuture<R> future : futures) {
+                results.add(future.join());
+            }
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+        return results;
+    }
+
+    private static List<String> withKey(String key, Collection<String> otherKeys, String... moreKeys) {
+        List<String> keys = new ArrayList<>(otherKeys.size() + 1 + moreKeys.length);
+        keys.add(key);
+        keys.addAll(otherKeys);
+        keys.addAll(Arrays.asList(moreKeys));
+        return keys;
+    }
+
+}
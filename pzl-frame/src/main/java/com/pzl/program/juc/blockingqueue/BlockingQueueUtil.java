@@ -29,6 +29,7 @@ import java.util.concurrent.TimeUnit;
  * --SynchronousQueue：不存储元素的阻塞队列，也即单个元素的队列。同步队列。（常用）
  * --LinkedTransferQueue：由链表组成的无界阻塞队列。
  * --LinkedBlockingDeque：由链表组成的双向阻塞队列。
+ * 高吞吐的生产者到单消费者交接(事件管道)可以用无锁的RingBuffer代替ArrayBlockingQueue。
  * <p>
  * <p>
  * BlockingQueue核心方法：
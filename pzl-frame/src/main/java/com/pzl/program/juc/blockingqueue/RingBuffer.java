@@ -0,0 +1,314 @@
+package com.pzl.program.juc.blockingqueue;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * 无锁有界环形队列,用于生产者到单个消费者的交接
+ * <p>
+ * ArrayBlockingQueue的put和take共用一把锁,每次交接都要加解锁并唤醒对方,高吞吐的事件管道里锁竞争是主要开销。这里:
+ * 1、数组预先分配,容量取2的幂,下标用位与计算,运行中不分配节点对象(对比LinkedBlockingQueue)
+ * 2、生产者下标tail和消费者下标head用类继承填充到不同缓存行(JDK8的@Contended需要-XX:-RestrictContended),互不伪共享
+ * 3、singleProducer:单生产者单消费者,生产者只看目标槽位是否为空,不读消费者下标,全程没有CAS
+ * 4、multiProducer:多生产者单消费者,生产者CAS tail抢占槽位后写入,消费者读到已抢占未写入的槽位时自旋等待
+ * 5、队列满/空时按WaitStrategy等待,没有唤醒机制;drain一次取一批,一批只更新一次head
+ * <p>
+ * 只能有一个消费者线程(poll/take/drain不能并发调用),单生产者版本只能有一个生产者线程,元素不能为null。
+ * 与阻塞队列的吞吐对比见benchmark.RingBufferBenchmark。
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public abstract class RingBuffer<E> extends RingBufferPad2 {
+
+    private static final AtomicLongFieldUpdater<RingBufferProducerFields> TAIL =
+            AtomicLongFieldUpdater.newUpdater(RingBufferProducerFields.class, "tail");
+
+    private static final AtomicLongFieldUpdater<RingBufferConsumerFields> HEAD =
+            AtomicLongFieldUpdater.newUpdater(RingBufferConsumerFields.class, "head");
+
+    final AtomicReferenceArray<E> buffer;
+
+    final int capacity;
+
+    final int mask;
+
+    private final WaitStrategy waitStrategy;
+
+    RingBuffer(int capacity, WaitStrategy waitStrategy) {
+        if (capacity <= 0 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("capacity must be between 1 and 2^30");
+        }
+        this.capacity = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.mask = this.capacity - 1;
+        this.buffer = new AtomicReferenceArray<>(this.capacity);
+        this.waitStrategy = Objects.requireNonNull(waitStrategy);
+    }
+
+    /**
+     * 单生产者单消费者
+     *
+     * @param capacity     容量,向上取2的幂
+     * @param waitStrategy 队列满/空时的等待策略
+     */
+    public static <E> RingBuffer<E> singleProducer(int capacity, WaitStrategy waitStrategy) {
+        return new SingleProducer<>(capacity, waitStrategy);
+    }
+
+    /**
+     * 多生产者单消费者
+     *
+     * @param capacity     容量,向上取2的幂
+     * @param waitStrategy 队列满/空时的等待策略
+     */
+    public static <E> RingBuffer<E> multiProducer(int capacity, WaitStrategy waitStrategy) {
+        return new MultiProducer<>(capacity, waitStrategy);
+    }
+
+    /**
+     * 入队,队列满时返回false
+     */
+    public abstract boolean offer(E e);
+
+    /**
+     * 入队,队列满时按等待策略等待
+     */
+    public void put(E e) throws InterruptedException {
+        for (int attempt = 0; !offer(e); attempt++) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            waitStrategy.idle(attempt);
+        }
+    }
+
+    /**
+     * 入队,队列满时最多等待timeout
+     *
+     * @return 超时返回false
+     */
+    public boolean offer(E e, long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        for (int attempt = 0; !offer(e); attempt++) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                return false;
+            }
+            waitStrategy.idle(attempt);
+        }
+        return true;
+    }
+
+    /**
+     * 出队,队列空时返回null
+     */
+    public E poll() {
+        long h = head;
+        int index = (int) h & mask;
+        E e = buffer.get(index);
+        if (e == null) {
+            if (h == tail) {
+                return null;
+            }
+            //槽位已被生产者抢占但还没写入,写入只差一步,自旋等待
+            for (int attempt = 0; (e = buffer.get(index)) == null; attempt++) {
+                WaitStrategy.YIELD.idle(attempt);
+            }
+        }
+        buffer.lazySet(index, null);
+        HEAD.lazySet(this, h + 1);
+        return e;
+    }
+
+    /**
+     * 出队,队列空时按等待策略等待
+     */
+    public E take() throws InterruptedException {
+        E e;
+        for (int attempt = 0; (e = poll()) == null; attempt++) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            waitStrategy.idle(attempt);
+        }
+        return e;
+    }
+
+    /**
+     * 出队,队列空时最多等待timeout
+     *
+     * @return 超时返回null
+     */
+    public E poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        E e;
+        for (int attempt = 0; (e = poll()) == null; attempt++) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            if (System.nanoTime() - deadline >= 0) {
+                return null;
+            }
+            waitStrategy.idle(attempt);
+        }
+        return e;
+    }
+
+    /**
+     * 批量出队,不等待,遇到空槽位(包括已抢占未写入的)即停止
+     *
+     * @param consumer 处理元素,抛出异常时已取出的元素(包括当前元素)视为已出队
+     * @param limit    最多取出的元素数
+     * @return 取出的元素数
+     */
+    public int drain(Consumer<? super E> consumer, int limit) {
+        long h = head;
+        int n = 0;
+        try {
+            while (n < limit) {
+                int index = (int) (h + n) & mask;
+                E e = buffer.get(index);
+                if (e == null) {
+                    break;
+                }
+                buffer.lazySet(index, null);
+                n++;
+                consumer.accept(e);
+            }
+        } finally {
+            if (n > 0) {
+                HEAD.lazySet(this, h + n);
+            }
+        }
+        return n;
+    }
+
+    /**
+     * 批量出队,队列空时按等待策略等待,至少取出一个
+     *
+     * @return 取出的元素数
+     */
+    public int awaitDrain(Consumer<? super E> consumer, int limit) throws InterruptedException {
+        int n;
+        for (int attempt = 0; (n = drain(consumer, limit)) == 0; attempt++) {
+            if (Thread.interrupted()) {
+                throw new InterruptedException();
+            }
+            waitStrategy.idle(attempt);
+        }
+        return n;
+    }
+
+    /**
+     * 当前元素数,并发读写时为近似值
+     */
+    public int size() {
+        long h = head;
+        long size = tail - h;
+        return (int) Math.max(0, Math.min(size, capacity));
+    }
+
+    public boolean isEmpty() {
+        return buffer.get((int) head & mask) == null && head == tail;
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    /**
+     * 单生产者:目标槽位为空即可写入(FastFlow),不读消费者下标
+     */
+    private static final class SingleProducer<E> extends RingBuffer<E> {
+
+        SingleProducer(int capacity, WaitStrategy waitStrategy) {
+            super(capacity, waitStrategy);
+        }
+
+        @Override
+        public boolean offer(E e) {
+            Objects.requireNonNull(e);
+            long t = tail;
+            int index = (int) t & mask;
+            if (buffer.get(index) != null) {
+                return false;
+            }
+            buffer.lazySet(index, e);
+            TAIL.lazySet(this, t + 1);
+            return true;
+        }
+
+    }
+
+    /**
+     * 多生产者:CAS tail抢占槽位,消费者下标缓存在生产者一侧,只在看起来满时重新读取
+     */
+    private static final class MultiProducer<E> extends RingBuffer<E> {
+
+        MultiProducer(int capacity, WaitStrategy waitStrategy) {
+            super(capacity, waitStrategy);
+        }
+
+        @Override
+        public boolean offer(E e) {
+            Objects.requireNonNull(e);
+            while (true) {
+                long t = tail;
+                if (t - headCache >= capacity) {
+                    long h = head;
+                    headCache = h;
+                    if (t - h >= capacity) {
+                        return false;
+                    }
+                }
+                if (TAIL.compareAndSet(this, t, t + 1)) {
+                    buffer.lazySet((int) t & mask, e);
+                    return true;
+                }
+            }
+        }
+
+    }
+
+}
+
+/**
+ * 填充缓存行,下面的生产者字段不与对象头及之前的数据共享缓存行
+ */
+abstract class RingBufferPad0 {
+    long p00, p01, p02, p03, p04, p05, p06, p07;
+}
+
+/**
+ * 生产者写的字段
+ */
+abstract class RingBufferProducerFields extends RingBufferPad0 {
+
+    volatile long tail;
+
+    //多生产者时缓存的消费者下标,可能落后,只用于判断是否需要重新读取head
+    long headCache;
+
+}
+
+abstract class RingBufferPad1 extends RingBufferProducerFields {
+    long p10, p11, p12, p13, p14, p15, p16, p17;
+}
+
+/**
+ * 消费者写的字段
+ */
+abstract class RingBufferConsumerFields extends RingBufferPad1 {
+
+    volatile long head;
+
+}
+
+abstract class RingBufferPad2 extends RingBufferConsumerFields {
+    long p20, p21, p22, p23, p24, p25, p26, p27;
+}
@@ -0,0 +1,63 @@
+package com.pzl.program.juc.blockingqueue;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * RingBuffer队列满(生产者)或空(消费者)时的等待策略
+ * <p>
+ * RingBuffer不用锁和条件变量,等待方只能轮询,策略决定轮询之间做什么:
+ * 1、BUSY_SPIN:一直自旋,延迟最低,每个等待线程占满一个核,只在生产者、消费者都绑定独占核时使用
+ * 2、YIELD:自旋一会后Thread.yield让出CPU,延迟低,空闲时CPU仍然较高
+ * 3、PARK:自旋、yield之后parkNanos,间隔逐步加大到上限,空闲时几乎不占CPU,唤醒延迟最高为上限
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+@FunctionalInterface
+public interface WaitStrategy {
+
+    //自旋次数,之后yield
+    int SPIN_TRIES = 100;
+
+    //yield次数,之后park
+    int YIELD_TRIES = 100;
+
+    WaitStrategy BUSY_SPIN = attempt -> {
+    };
+
+    WaitStrategy YIELD = attempt -> {
+        if (attempt >= SPIN_TRIES) {
+            Thread.yield();
+        }
+    };
+
+    WaitStrategy PARK = park(TimeUnit.MILLISECONDS.toNanos(1));
+
+    /**
+     * 等待一次,由调用方在条件满足前循环调用
+     *
+     * @param attempt 本次等待中已调用的次数,从0开始
+     */
+    void idle(int attempt);
+
+    /**
+     * 自旋、yield之后park,park时间从1微秒开始翻倍
+     *
+     * @param maxParkNanos 单次park的最长时间,即空闲后被唤醒的最大延迟
+     */
+    static WaitStrategy park(long maxParkNanos) {
+        return attempt -> {
+            if (attempt < SPIN_TRIES) {
+                return;
+            }
+            if (attempt < SPIN_TRIES + YIELD_TRIES) {
+                Thread.yield();
+                return;
+            }
+            int shift = Math.min(attempt - SPIN_TRIES - YIELD_TRIES, 20);
+            LockSupport.parkNanos(Math.min(1000L << shift, maxParkNanos));
+        };
+    }
+
+}
@@ -37,6 +37,8 @@ import java.util.concurrent.locks.ReentrantLock;
  * 所有的静态同步方法用的也是同一把锁——类对象本身，这两把锁是两个不同的对象，所以静态同步方法与非静态同步方法之间是不会有竞态条件的。
  * 但是一旦一个静态同步方法获取锁后，其他的静态同步方法都必须等待该方法释放锁后才能获取锁，而不管是同一个实例对象的静态同步方法之间，
  * 还是不同的实例对象的静态同步方法之间，只要它们同一个类的实例对象！
+ * <p>
+ * 按订单号、用户ID互斥时不要用一把全局锁,使用StripedLockManager。
  *
  * @author pzl
  * @date 2020-04-04
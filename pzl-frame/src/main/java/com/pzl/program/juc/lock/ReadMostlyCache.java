@@ -0,0 +1,286 @@
+package com.pzl.program.juc.lock;
+
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Function;
+
+/**
+ * 读多写少的缓存,基于StampedLock乐观读
+ * <p>
+ * ReentrantReadWriteLock的读锁每次加解锁都要CAS同一个state,核数多时读线程之间互相争用缓存行,读多写少反而被读锁拖慢。
+ * 这里读操作先乐观读(不写共享变量),读完校验期间没有写入则直接返回,校验失败才退化为读锁重读:
+ * 1、数据存放在开放寻址的数组中(线性探测,删除时后移),乐观读最多探测一圈,读到不一致的中间状态也不会死循环或越界
+ * 2、乐观读期间key的equals/hashCode抛出的异常视为读到了不一致状态,退化为读锁重读
+ * 3、写操作加写锁,写入会使进行中的乐观读全部失效,写多时退化为读锁,此时不如ConcurrentHashMap
+ * <p>
+ * key和value不能为null。computeIfAbsent在锁外加载,并发未命中同一个key时可能加载多次,只保留第一个写入的值。
+ * 各实现在不同读写比例、线程数下的对比见benchmark.ReadMostlyMapBenchmark。
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class ReadMostlyCache<K, V> {
+
+    private static final int DEFAULT_CAPACITY = 16;
+
+    //超过该负载因子扩容,线性探测负载过高时探测链变长
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private final StampedLock lock = new StampedLock();
+
+    private final LongAdder fallbacks = new LongAdder();
+
+    //key在偶数位,value在其后的奇数位
+    private Object[] table;
+
+    private int size;
+
+    public ReadMostlyCache() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * @param expectedSize 预计的元素个数
+     */
+    public ReadMostlyCache(int expectedSize) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("expectedSize must not be negative");
+        }
+        table = new Object[2 * tableSizeFor((int) (expectedSize / LOAD_FACTOR) + 1)];
+    }
+
+    public V get(K key) {
+        Objects.requireNonNull(key);
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                V value = find(table, key);
+                if (lock.validate(stamp)) {
+                    return value;
+                }
+            } catch (RuntimeException e) {
+                //读到了写入中的不一致状态,加读锁重读
+            }
+        }
+        fallbacks.increment();
+        stamp = lock.readLock();
+        try {
+            return find(table, key);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public V getOrDefault(K key, V defaultValue) {
+        V value = get(key);
+        return value != null ? value : defaultValue;
+    }
+
+    public boolean containsKey(K key) {
+        return get(key) != null;
+    }
+
+    /**
+     * @return 原来的值,没有时返回null
+     */
+    public V put(K key, V value) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        long stamp = lock.writeLock();
+        try {
+            return insert(key, value, false);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * @return 已存在的值,不存在时写入并返回null
+     */
+    public V putIfAbsent(K key, V value) {
+        Objects.requireNonNull(key);
+        Objects.requireNonNull(value);
+        long stamp = lock.writeLock();
+        try {
+            return insert(key, value, true);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 取缓存,不存在时在锁外调用loader加载后写入
+     *
+     * @param loader 加载函数,返回null时不写入
+     * @return 缓存中的值
+     */
+    public V computeIfAbsent(K key, Function<? super K, ? extends V> loader) {
+        V value = get(key);
+        if (value != null) {
+            return value;
+        }
+        V loaded = loader.apply(key);
+        if (loaded == null) {
+            return null;
+        }
+        V existing = putIfAbsent(key, loaded);
+        return existing != null ? existing : loaded;
+    }
+
+    /**
+     * @return 删除的值,不存在时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public V remove(K key) {
+        Objects.requireNonNull(key);
+        long stamp = lock.writeLock();
+        try {
+            Object[] tab = table;
+            int mask = tab.length - 2;
+            for (int i = indexFor(key, mask); tab[i] != null; i = (i + 2) & mask) {
+                if (tab[i].equals(key)) {
+                    V old = (V) tab[i + 1];
+                    delete(tab, i);
+                    size--;
+                    return old;
+                }
+            }
+            return null;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    public int size() {
+        long stamp = lock.tryOptimisticRead();
+        int current = size;
+        if (lock.validate(stamp)) {
+            return current;
+        }
+        stamp = lock.readLock();
+        try {
+            return size;
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    public void clear() {
+        long stamp = lock.writeLock();
+        try {
+            table = new Object[table.length];
+            size = 0;
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * 乐观读校验失败、退化为读锁的次数,持续偏高说明写入太频繁,应改用ConcurrentHashMap
+     */
+    public long getFallbackCount() {
+        return fallbacks.sum();
+    }
+
+    //查找key,最多探测一圈,乐观读时table可能正在被修改
+    @SuppressWarnings("unchecked")
+    private static <V> V find(Object[] tab, Object key) {
+        int mask = tab.length - 2;
+        int i = indexFor(key, mask);
+        for (int probes = tab.length >> 1; probes > 0; probes--) {
+            Object k = tab[i];
+            if (k == null) {
+                return null;
+            }
+            if (k.equals(key)) {
+                return (V) tab[i + 1];
+            }
+            i = (i + 2) & mask;
+        }
+        return null;
+    }
+
+    @SuppressWarnings("unchecked")
+    private V insert(K key, V value, boolean onlyIfAbsent) {
+        Object[] tab = table;
+        int mask = tab.length - 2;
+        int i = indexFor(key, mask);
+        for (Object k; (k = tab[i]) != null; i = (i + 2) & mask) {
+            if (k.equals(key)) {
+                V old = (V) tab[i + 1];
+                if (!onlyIfAbsent) {
+                    tab[i + 1] = value;
+                }
+                return old;
+            }
+        }
+        tab[i + 1] = value;
+        tab[i] = key;
+        if (++size > (tab.length >> 1) * LOAD_FACTOR) {
+            resize();
+        }
+        return null;
+    }
+
+    //容量翻倍,新数组填好后再替换引用,乐观读要么读旧数组要么读新数组
+    private void resize() {
+        Object[] old = table;
+        Object[] tab = new Object[old.length << 1];
+        int mask = tab.length - 2;
+        for (int j = 0; j < old.length; j += 2) {
+            Object k = old[j];
+            if (k != null) {
+                int i = indexFor(k, mask);
+                while (tab[i] != null) {
+                    i = (i + 2) & mask;
+                }
+                tab[i] = k;
+                tab[i + 1] = old[j + 1];
+            }
+        }
+        table = tab;
+    }
+
+    //删除后把探测链上后面的元素前移,保证查找不会在空位提前结束(不用墓碑)
+    private static void delete(Object[] tab, int i) {
+        int mask = tab.length - 2;
+        int hole = i;
+        int j = i;
+        while (true) {
+            j = (j + 2) & mask;
+            Object k = tab[j];
+            if (k == null) {
+                break;
+            }
+            int home = indexFor(k, mask);
+            //home不在(hole, j]区间内时,该元素可以前移到hole
+            boolean between = hole <= j ? hole < home && home <= j : hole < home || home <= j;
+            if (!between) {
+                tab[hole] = k;
+                tab[hole + 1] = tab[j + 1];
+                hole = j;
+            }
+        }
+        tab[hole] = null;
+        tab[hole + 1] = null;
+    }
+
+    //扰动hashCode后取偶数下标
+    private static int indexFor(Object key, int mask) {
+        int h = key.hashCode();
+        h ^= h >>> 16;
+        h *= 0x9E3779B9;
+        return (h << 1) & mask;
+    }
+
+    private static int tableSizeFor(int n) {
+        int capacity = Integer.highestOneBit(Math.max(n, 2) - 1) << 1;
+        return Math.max(capacity, DEFAULT_CAPACITY);
+    }
+
+}
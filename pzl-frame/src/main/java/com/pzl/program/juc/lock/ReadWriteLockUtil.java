@@ -13,6 +13,8 @@ import java.util.concurrent.locks.ReentrantReadWriteLock;
  * 读锁:共享锁
  * <p>
  * 读写数据的时候都会发生死锁,我们可以通过读写锁避免死锁。
+ * <p>
+ * 读多写少的缓存不要照搬这里的读写锁写法,读锁加解锁的CAS在多核下争用明显,使用ReadMostlyCache(StampedLock乐观读)。
  *
  * @author pzl
  * @date 2020-04-04
@@ -0,0 +1,258 @@
+package com.pzl.program.juc.lock;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 按业务ID(订单号、用户ID)加锁
+ * <p>
+ * 全局一把ReentrantLock(LockUtil的写法)会让不同订单互相等待,每个ID new一把锁放进Map又会无限增长。这里提供两种方式:
+ * 1、striped(n):固定n把锁(向上取2的幂),ID按hash映射到其中一把,内存固定,不同ID可能共用一把锁(假竞争),n越大越少
+ * 2、weak():每个ID一把锁,锁对象弱引用,没有线程持有或等待时被GC回收,Map中的条目在之后的调用中清理
+ * <p>
+ * 同时锁多个ID(如转账的两个账户)用lockAll,按锁的全局顺序加锁,不会因两个线程加锁顺序相反而死锁。
+ * 锁可重入,加锁返回Held,在try-with-resources中释放:
+ * try (StripedLockManager.Held held = locks.lock(orderId)) {
+ * ...
+ * }
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public abstract class StripedLockManager {
+
+    private static final Comparator<OrderedLock> ORDER = Comparator.comparingLong(lock -> lock.order);
+
+    private StripedLockManager() {
+    }
+
+    /**
+     * 固定数量的锁
+     *
+     * @param stripes 锁的数量,向上取2的幂
+     */
+    public static StripedLockManager striped(int stripes) {
+        return new Striped(stripes);
+    }
+
+    /**
+     * 每个key一把锁,不再使用的锁自动回收
+     */
+    public static StripedLockManager weak() {
+        return new Weak();
+    }
+
+    /**
+     * key对应的锁
+     */
+    abstract OrderedLock lockFor(Object key);
+
+    /**
+     * 加锁,一直等待
+     */
+    public Held lock(Object key) {
+        OrderedLock lock = lockFor(Objects.requireNonNull(key));
+        lock.lock();
+        return new Held(Collections.singletonList(lock));
+    }
+
+    /**
+     * 加锁,可被中断
+     */
+    public Held lockInterruptibly(Object key) throws InterruptedException {
+        OrderedLock lock = lockFor(Objects.requireNonNull(key));
+        lock.lockInterruptibly();
+        return new Held(Collections.singletonList(lock));
+    }
+
+    /**
+     * 在超时时间内加锁
+     *
+     * @return 加锁成功返回Held,超时返回null
+     */
+    public Held tryLock(Object key, long timeout, TimeUnit unit) throws InterruptedException {
+        OrderedLock lock = lockFor(Objects.requireNonNull(key));
+        return lock.tryLock(timeout, unit) ? new Held(Collections.singletonList(lock)) : null;
+    }
+
+    /**
+     * 按顺序锁住多个key,映射到同一把锁的key只加一次
+     */
+    public Held lockAll(Collection<?> keys) {
+        List<OrderedLock> locks = ordered(keys);
+        for (OrderedLock lock : locks) {
+            lock.lock();
+        }
+        return new Held(locks);
+    }
+
+    /**
+     * 在超时时间内按顺序锁住多个key,超时时释放已加的锁
+     *
+     * @return 全部加锁成功返回Held,超时返回null
+     */
+    public Held tryLockAll(Collection<?> keys, long timeout, TimeUnit unit) throws InterruptedException {
+        List<OrderedLock> locks = ordered(keys);
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        int acquired = 0;
+        try {
+            for (OrderedLock lock : locks) {
+                if (!lock.tryLock(deadline - System.nanoTime(), TimeUnit.NANOSECONDS)) {
+                    break;
+                }
+                acquired++;
+            }
+        } finally {
+            if (acquired < locks.size()) {
+                for (int i = acquired - 1; i >= 0; i--) {
+                    locks.get(i).unlock();
+                }
+            }
+        }
+        return acquired == locks.size() ? new Held(locks) : null;
+    }
+
+    /**
+     * 当前线程是否持有key对应的锁
+     */
+    public boolean isHeldByCurrentThread(Object key) {
+        return lockFor(Objects.requireNonNull(key)).isHeldByCurrentThread();
+    }
+
+    //排序后去掉相邻的同一把锁
+    private List<OrderedLock> ordered(Collection<?> keys) {
+        OrderedLock[] locks = new OrderedLock[keys.size()];
+        int n = 0;
+        for (Object key : keys) {
+            locks[n++] = lockFor(Objects.requireNonNull(key));
+        }
+        Arrays.sort(locks, 0, n, ORDER);
+        List<OrderedLock> distinct = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            if (i == 0 || locks[i] != locks[i - 1]) {
+                distinct.add(locks[i]);
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * 已持有的锁,close时按加锁的相反顺序释放,只能在加锁的线程中释放一次
+     */
+    public static final class Held implements AutoCloseable {
+
+        //同时持有锁对象的强引用,weak模式下持有期间锁不会被回收
+        private final List<OrderedLock> locks;
+
+        private boolean released;
+
+        private Held(List<OrderedLock> locks) {
+            this.locks = locks;
+        }
+
+        @Override
+        public void close() {
+            if (released) {
+                return;
+            }
+            released = true;
+            for (int i = locks.size() - 1; i >= 0; i--) {
+                locks.get(i).unlock();
+            }
+        }
+
+    }
+
+    /**
+     * 带全局顺序的锁,多key加锁时按order从小到大
+     */
+    static final class OrderedLock extends ReentrantLock {
+
+        private static final long serialVersionUID = 1L;
+
+        private final long order;
+
+        OrderedLock(long order) {
+            this.order = order;
+        }
+
+    }
+
+    private static final class Striped extends StripedLockManager {
+
+        private final OrderedLock[] locks;
+
+        private final int mask;
+
+        Striped(int stripes) {
+            if (stripes <= 0 || stripes > 1 << 30) {
+                throw new IllegalArgumentException("stripes must be between 1 and 2^30");
+            }
+            int size = stripes == 1 ? 1 : Integer.highestOneBit(stripes - 1) << 1;
+            this.locks = new OrderedLock[size];
+            for (int i = 0; i < size; i++) {
+                locks[i] = new OrderedLock(i);
+            }
+            this.mask = size - 1;
+        }
+
+        @Override
+        OrderedLock lockFor(Object key) {
+            //扰动hashCode,避免连续ID只落在低位相同的几把锁上
+            int h = key.hashCode() * 0x9E3779B9;
+            return locks[(h ^ h >>> 16) & mask];
+        }
+
+    }
+
+    private static final class Weak extends StripedLockManager {
+
+        private final ConcurrentHashMap<Object, LockRef> locks = new ConcurrentHashMap<>();
+
+        private final ReferenceQueue<OrderedLock> queue = new ReferenceQueue<>();
+
+        private final AtomicLong sequence = new AtomicLong();
+
+        @Override
+        OrderedLock lockFor(Object key) {
+            purge();
+            while (true) {
+                LockRef ref = locks.get(key);
+                OrderedLock lock = ref == null ? null : ref.get();
+                if (lock != null) {
+                    return lock;
+                }
+                OrderedLock created = new OrderedLock(sequence.getAndIncrement());
+                LockRef createdRef = new LockRef(key, created, queue);
+                if (ref == null ? locks.putIfAbsent(key, createdRef) == null : locks.replace(key, ref, createdRef)) {
+                    return created;
+                }
+            }
+        }
+
+        //清理已被回收的锁对应的条目
+        private void purge() {
+            for (LockRef ref; (ref = (LockRef) queue.poll()) != null; ) {
+                locks.remove(ref.key, ref);
+            }
+        }
+
+    }
+
+    private static final class LockRef extends WeakReference<OrderedLock> {
+
+        private final Object key;
+
+        LockRef(Object key, OrderedLock lock, ReferenceQueue<OrderedLock> queue) {
+            super(lock, queue);
+            this.key = key;
+        }
+
+    }
+
+}
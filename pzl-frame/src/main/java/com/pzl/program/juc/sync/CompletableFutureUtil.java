@@ -4,6 +4,8 @@ import java.util.concurrent.CompletableFuture;
 
 /**
  * 异步回调
+ * <p>
+ * 示例使用公共ForkJoinPool,业务中的并发调用、超时和对冲请求见FanOut
  *
  * @author pzl
  * @date 2020-04-05
@@ -0,0 +1,544 @@
+package com.pzl.program.juc.sync;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 并发调用(扇出)并在截止时间内汇总结果(扇入)
+ * <p>
+ * 1、阻塞调用(RestTemplate、RedisUtil、JDBC)用call提交到指定线程池,异步调用(AsyncRedisUtil)用callAsync直接发起
+ * 2、gather等待全部完成或总超时,超时返回已完成的部分结果,未完成的调用被取消(阻塞调用中断执行线程),gather返回后不会再有调用在执行
+ * 3、对冲请求:hedge(name)后,某个调用超过同名调用历史耗时的p95仍未返回时,再发一次相同的调用,先返回的为准,另一个取消。
+ * 只对幂等的读调用开启;每个调用最多对冲一次,正常情况下约5%的调用会多发一次。
+ * 耗时统计包括成功的调用和被取消(超时、对冲中落后)的调用,后者记录取消时已经过的时间,避免慢调用被截掉后分位数偏低。
+ * 效果见FanOutHedgeBenchmark
+ * <p>
+ * 使用示例:
+ * FanOut.Result<Long, User> result = FanOut.<Long, User>on(executorService)
+ * .timeout(200, TimeUnit.MILLISECONDS)
+ * .hedge("user-service")
+ * .call(1L, () -> restTemplate.getForObject(url, User.class, 1L))
+ * .call(2L, () -> restTemplate.getForObject(url, User.class, 2L))
+ * .gather();
+ * result.getValues() 已返回的结果,result.getFailures() 抛出的异常,result.getTimedOut() 超时未返回的key
+ * <p>
+ * 异步调用不占线程池线程:FanOut.<String, String>on(null).timeout(50, TimeUnit.MILLISECONDS)
+ * .callAsync(key1, () -> asyncRedisUtil.get(key1)).callAsync(key2, () -> asyncRedisUtil.get(key2)).gather();
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+@Slf4j
+public final class FanOut<K, T> {
+
+    //对冲请求和超时取消共用的定时线程
+    private static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "fan-out-hedge");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    //按名称统计的调用耗时,用于计算对冲延迟
+    private static final Map<String, LatencyTracker> TRACKERS = new ConcurrentHashMap<>();
+
+    private final Executor executor;
+
+    private final Map<K, Slot<T>> slots = new LinkedHashMap<>();
+
+    private long timeoutNanos = Long.MAX_VALUE;
+
+    private LatencyTracker tracker;
+
+    private double hedgePercentile;
+
+    private FanOut(Executor executor) {
+        this.executor = executor;
+    }
+
+    /**
+     * @param executor 执行阻塞调用的线程池,只使用callAsync时可以为null
+     */
+    public static <K, T> FanOut<K, T> on(Executor executor) {
+        return new FanOut<>(executor);
+    }
+
+    /**
+     * 总超时,从gather开始计算
+     */
+    public FanOut<K, T> timeout(long timeout, TimeUnit unit) {
+        this.timeoutNanos = unit.toNanos(timeout);
+        return this;
+    }
+
+    /**
+     * 开启对冲,超过同名调用p95耗时仍未返回时再发一次
+     *
+     * @param name 调用名称,如下游服务名,同名调用共享耗时统计
+     */
+    public FanOut<K, T> hedge(String name) {
+        return hedge(name, 0.95);
+    }
+
+    /**
+     * 开启对冲
+     *
+     * @param name       调用名称
+     * @param percentile 对冲延迟取历史耗时的分位数,0到1
+     */
+    public FanOut<K, T> hedge(String name, double percentile) {
+        this.tracker = TRACKERS.computeIfAbsent(name, LatencyTracker::new);
+        this.hedgePercentile = percentile;
+        return this;
+    }
+
+    /**
+     * 添加一个阻塞调用,在线程池中执行
+     */
+    public FanOut<K, T> call(K key, Supplier<? extends T> call) {
+        Objects.requireNonNull(executor, "executor is required for blocking calls");
+        slots.put(key, new Slot<>(() -> new BlockingAttempt<>(call, executor)));
+        return this;
+    }
+
+    /**
+     * 添加一个异步调用,如AsyncRedisUtil的方法
+     */
+    public FanOut<K, T> callAsync(K key, Supplier<? extends CompletionStage<? extends T>> call) {
+        slots.put(key, new Slot<>(() -> new AsyncAttempt<>(call)));
+        return this;
+    }
+
+    /**
+     * 发起所有调用,等待全部完成或超时
+     *
+     * @return 结果,调用线程被中断时返回中断前已完成的部分
+     */
+    public Result<K, T> gather() {
+        long start = System.nanoTime();
+        long hedgeDelay = tracker == null ? -1 : tracker.percentile(hedgePercentile);
+        List<CompletableFuture<T>> futures = new ArrayList<>(slots.size());
+        for (Slot<T> slot : slots.values()) {
+            slot.launch(tracker);
+            if (hedgeDelay >= 0) {
+                slot.scheduleHedge(hedgeDelay, tracker);
+            }
+            futures.add(slot.result);
+        }
+        try {
+            long remaining = timeoutNanos == Long.MAX_VALUE ? Long.MAX_VALUE : timeoutNanos - (System.nanoTime() - start);
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).get(remaining, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException | TimeoutException e) {
+            //失败的调用在下面逐个处理,超时的调用被取消
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        Result<K, T> result = new Result<>();
+        for (Map.Entry<K, Slot<T>> entry : slots.entrySet()) {
+            Slot<T> slot = entry.getValue();
+            CompletableFuture<T> future = slot.result;
+            if (!future.isDone()) {
+                slot.cancel();
+                result.timedOut.add(entry.getKey());
+                continue;
+            }
+            try {
+                result.values.put(entry.getKey(), future.join());
+            } catch (CompletionException | CancellationException e) {
+                result.failures.put(entry.getKey(), e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+            }
+        }
+        result.hedged = slots.values().stream().filter(slot -> slot.hedged).count();
+        return result;
+    }
+
+    /**
+     * 扇入结果
+     */
+    public static class Result<K, T> {
+
+        private final Map<K, T> values = new LinkedHashMap<>();
+
+        private final Map<K, Throwable> failures = new LinkedHashMap<>();
+
+        private final Set<K> timedOut = new LinkedHashSet<>();
+
+        private long hedged;
+
+        /**
+         * 成功返回的结果
+         */
+        public Map<K, T> getValues() {
+            return values;
+        }
+
+        /**
+         * 抛出异常的调用
+         */
+        public Map<K, Throwable> getFailures() {
+            return failures;
+        }
+
+        /**
+         * 超时未返回、已取消的调用
+         */
+        public Set<K> getTimedOut() {
+            return timedOut;
+        }
+
+        /**
+         * 发出了对冲请求的调用数
+         */
+        public long getHedged() {
+            return hedged;
+        }
+
+        /**
+         * 全部调用都成功返回
+         */
+        public boolean isComplete() {
+            return failures.isEmpty() && timedOut.isEmpty();
+        }
+
+        public T get(K key) {
+            return values.get(key);
+        }
+
+        @Override
+        public String toString() {
+            return "Result[values=" + values.size() + ", failures=" + failures.keySet() + ", timedOut=" + timedOut
+                    + ", hedged=" + hedged + "]";
+        }
+
+    }
+
+    /**
+     * 一个key的调用,包括主调用和可能的对冲调用,先完成的结果为准
+     */
+    private static class Slot<T> {
+
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+
+        private final Supplier<Attempt<T>> attempts;
+
+        private final List<Attempt<T>> launched = new ArrayList<>(2);
+
+        private volatile ScheduledFuture<?> hedge;
+
+        private volatile boolean hedged;
+
+        Slot(Supplier<Attempt<T>> attempts) {
+            this.attempts = attempts;
+            //任一调用完成后取消其它调用
+            result.whenComplete((value, e) -> cancelAttempts());
+        }
+
+        void launch(LatencyTracker tracker) {
+            Attempt<T> attempt = attempts.get();
+            synchronized (launched) {
+                launched.add(attempt);
+            }
+            attempt.start(result, tracker, false);
+        }
+
+        void scheduleHedge(long delayNanos, LatencyTracker tracker) {
+            if (result.isDone()) {
+                return;
+            }
+            hedge = SCHEDULER.schedule(() -> {
+                Attempt<T> attempt = attempts.get();
+                //在锁内检查并登记:结果在这之后完成时cancelAttempts一定能看到这次调用并取消它
+                synchronized (launched) {
+                    if (result.isDone()) {
+                        return;
+                    }
+                    launched.add(attempt);
+                }
+                hedged = true;
+                attempt.start(result, tracker, true);
+            }, delayNanos, TimeUnit.NANOSECONDS);
+        }
+
+        void cancel() {
+            result.completeExceptionally(new CancellationException("fan-out call timed out"));
+            cancelAttempts();
+        }
+
+        private void cancelAttempts() {
+            ScheduledFuture<?> scheduled = hedge;
+            if (scheduled != null) {
+                scheduled.cancel(false);
+            }
+            List<Attempt<T>> snapshot;
+            synchronized (launched) {
+                snapshot = new ArrayList<>(launched);
+            }
+            snapshot.forEach(Attempt::cancel);
+        }
+
+    }
+
+    /**
+     * 一次调用
+     */
+    private interface Attempt<T> {
+
+        /**
+         * @param result  结果,成功或失败时完成它(对冲调用失败时不完成,等待主调用)
+         * @param tracker 耗时统计,可以为null
+         * @param hedge   是否为对冲调用
+         */
+        void start(CompletableFuture<T> result, LatencyTracker tracker, boolean hedge);
+
+        /**
+         * 取消调用,可能先于start被调用,此时start不再发起调用
+         */
+        void cancel();
+
+    }
+
+    /**
+     * 每次调用只记录一次耗时:成功时记录,或执行中被取消时记录已经过的时间
+     */
+    private static class Elapsed {
+
+        private final LatencyTracker tracker;
+
+        private final long start = System.nanoTime();
+
+        private final AtomicBoolean recorded = new AtomicBoolean();
+
+        Elapsed(LatencyTracker tracker) {
+            this.tracker = tracker;
+        }
+
+        void record() {
+            if (tracker != null && recorded.compareAndSet(false, true)) {
+                tracker.record(System.nanoTime() - start);
+            }
+        }
+
+    }
+
+    /**
+     * 在线程池中执行的阻塞调用,取消时中断执行线程
+     */
+    private static class BlockingAttempt<T> implements Attempt<T>, Runnable {
+
+        private final Supplier<? extends T> call;
+
+        private final Executor executor;
+
+        private CompletableFuture<T> result;
+
+        private LatencyTracker tracker;
+
+        private boolean hedge;
+
+        private Thread runner;
+
+        private Elapsed elapsed;
+
+        private boolean cancelled;
+
+        private boolean interrupted;
+
+        BlockingAttempt(Supplier<? extends T> call, Executor executor) {
+            this.call = call;
+            this.executor = executor;
+        }
+
+        @Override
+        public void start(CompletableFuture<T> result, LatencyTracker tracker, boolean hedge) {
+            this.result = result;
+            this.tracker = tracker;
+            this.hedge = hedge;
+            try {
+                executor.execute(this);
+            } catch (RuntimeException e) {
+                if (!hedge) {
+                    result.completeExceptionally(e);
+                }
+            }
+        }
+
+        @Override
+        public void run() {
+            synchronized (this) {
+                if (cancelled) {
+                    return;
+                }
+                runner = Thread.currentThread();
+                elapsed = new Elapsed(tracker);
+            }
+            try {
+                T value = call.get();
+                elapsed.record();
+                result.complete(value);
+            } catch (RuntimeException | Error e) {
+                if (!hedge) {
+                    result.completeExceptionally(e);
+                }
+            } finally {
+                synchronized (this) {
+                    runner = null;
+                    //清除取消时设置的中断标记,不影响线程池执行下一个任务
+                    if (interrupted) {
+                        Thread.interrupted();
+                    }
+                }
+            }
+        }
+
+        @Override
+        public synchronized void cancel() {
+            cancelled = true;
+            if (runner != null && runner != Thread.currentThread()) {
+                elapsed.record();
+                interrupted = true;
+                runner.interrupt();
+            }
+        }
+
+    }
+
+    /**
+     * 返回CompletionStage的异步调用
+     */
+    private static class AsyncAttempt<T> implements Attempt<T> {
+
+        private final Supplier<? extends CompletionStage<? extends T>> call;
+
+        private volatile CompletableFuture<? extends T> future;
+
+        private volatile Elapsed elapsed;
+
+        private volatile boolean cancelled;
+
+        AsyncAttempt(Supplier<? extends CompletionStage<? extends T>> call) {
+            this.call = call;
+        }
+
+        @Override
+        public void start(CompletableFuture<T> result, LatencyTracker tracker, boolean hedge) {
+            if (cancelled) {
+                return;
+            }
+            Elapsed current = new Elapsed(tracker);
+            elapsed = current;
+            CompletionStage<? extends T> stage;
+            try {
+                stage = call.get();
+            } catch (RuntimeException e) {
+                if (!hedge) {
+                    result.completeExceptionally(e);
+                }
+                return;
+            }
+            future = stage.toCompletableFuture();
+            //发起期间被取消
+            if (cancelled) {
+                cancel();
+                return;
+            }
+            stage.whenComplete((value, e) -> {
+                if (e == null) {
+                    current.record();
+                    result.complete(value);
+                } else if (!hedge) {
+                    result.completeExceptionally(e instanceof CompletionException && e.getCause() != null ? e.getCause() : e);
+                }
+            });
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            CompletableFuture<? extends T> current = future;
+            if (current != null && current.cancel(false)) {
+                elapsed.record();
+            }
+        }
+
+    }
+
+    /**
+     * 最近若干次调用耗时的环形缓冲,分位数每记录一批重新计算一次。
+     * 被取消的调用记录的是取消时已经过的时间,是实际耗时的下限
+     */
+    static class LatencyTracker {
+
+        //保留的样本数
+        private static final int SAMPLES = 1024;
+
+        //样本不足时不对冲
+        private static final int MIN_SAMPLES = 20;
+
+        //每记录多少次重新计算分位数
+        private static final int REFRESH = 64;
+
+        private final String name;
+
+        private final long[] samples = new long[SAMPLES];
+
+        //记录总数,按名称共享的tracker存活整个进程,int会在2^31次后回绕为负数
+        private final AtomicLong count = new AtomicLong();
+
+        private volatile double cachedPercentile = -1;
+
+        private volatile long cachedValue = -1;
+
+        private volatile long cachedAt = -REFRESH;
+
+        LatencyTracker(String name) {
+            this.name = name;
+        }
+
+        void record(long nanos) {
+            long index = count.getAndIncrement();
+            samples[(int) (index % SAMPLES)] = nanos;
+        }
+
+        /**
+         * @return 分位数耗时(纳秒),样本不足时返回-1
+         */
+        long percentile(double percentile) {
+            long total = count.get();
+            if (total < MIN_SAMPLES) {
+                return -1;
+            }
+            if (percentile == cachedPercentile && total - cachedAt < REFRESH) {
+                return cachedValue;
+            }
+            long[] copy = Arrays.copyOf(samples, (int) Math.min(total, SAMPLES));
+            Arrays.sort(copy);
+            long value = copy[Math.min(copy.length - 1, (int) (copy.length * percentile))];
+            cachedValue = value;
+            cachedPercentile = percentile;
+            cachedAt = total;
+            return value;
+        }
+
+        @Override
+        public String toString() {
+            return "LatencyTracker[" + name + "]";
+        }
+
+    }
+
+}
@@ -0,0 +1,156 @@
+package com.pzl.program.juc.threadpool;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 线程池背压信号,生产者据此暂停/恢复拉取消息,避免任务堆到拒绝策略
+ * <p>
+ * 饱和度 = 队列中的任务数 / 队列容量。饱和度达到highWatermark时进入暂停状态,降到lowWatermark以下才恢复,
+ * 两个阈值之间保持原状态,避免在临界点频繁切换。
+ * 1、拉模式:Kafka消费循环每次poll前调用isPaused(),为true时consumer.pause(partitions),为false时resume
+ * 2、推模式:addListener注册回调,后台每checkInterval检查一次,状态变化时回调,
+ * 如ActiveMQ的DefaultMessageListenerContainer在onPause中stop()、onResume中start()
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+@Slf4j
+public class BackpressureMonitor implements Closeable {
+
+    private final ThreadPoolExecutor executor;
+
+    private final double highWatermark;
+
+    private final double lowWatermark;
+
+    private final long checkInterval;
+
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile boolean paused;
+
+    //状态切换和监听器通知的锁
+    private final Object transitionLock = new Object();
+
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param executor      线程池
+     * @param highWatermark 进入暂停的饱和度,0到1
+     * @param lowWatermark  恢复的饱和度,不大于highWatermark
+     * @param checkInterval 推模式的检查间隔(毫秒)
+     */
+    public BackpressureMonitor(ThreadPoolExecutor executor, double highWatermark, double lowWatermark,
+                               long checkInterval) {
+        if (highWatermark <= 0 || highWatermark > 1 || lowWatermark < 0 || lowWatermark > highWatermark) {
+            throw new IllegalArgumentException("invalid watermarks: high=" + highWatermark + ", low=" + lowWatermark);
+        }
+        this.executor = executor;
+        this.highWatermark = highWatermark;
+        this.lowWatermark = lowWatermark;
+        this.checkInterval = checkInterval;
+    }
+
+    /**
+     * 当前饱和度,0到1,无界队列始终为0
+     */
+    public double getSaturation() {
+        BlockingQueue<Runnable> queue = executor.getQueue();
+        int size = queue.size();
+        int remaining = queue.remainingCapacity();
+        if (remaining == Integer.MAX_VALUE) {
+            return 0;
+        }
+        long capacity = (long) size + remaining;
+        return capacity == 0 ? 1 : (double) size / capacity;
+    }
+
+    /**
+     * 重新计算并返回是否应暂停拉取,状态变化时通知监听器
+     * <p>
+     * 状态切换和通知在同一把锁内完成,多个线程(消费线程、后台检查)同时调用时,
+     * 监听器收到的onPause/onResume与状态切换的顺序一致,不会出现先收到恢复再收到暂停
+     */
+    public boolean isPaused() {
+        if (!shouldFlip(getSaturation())) {
+            return paused;
+        }
+        synchronized (transitionLock) {
+            //其他线程可能已经切换,重新计算
+            double saturation = getSaturation();
+            if (!shouldFlip(saturation)) {
+                return paused;
+            }
+            boolean pause = !paused;
+            paused = pause;
+            log.info("线程池背压{}, 饱和度 {}", pause ? "暂停" : "恢复", String.format("%.2f", saturation));
+            for (Listener listener : listeners) {
+                try {
+                    if (pause) {
+                        listener.onPause(saturation);
+                    } else {
+                        listener.onResume(saturation);
+                    }
+                } catch (RuntimeException e) {
+                    log.error("背压监听器执行失败", e);
+                }
+            }
+            return pause;
+        }
+    }
+
+    //暂停状态降到低水位以下,或运行状态达到高水位
+    private boolean shouldFlip(double saturation) {
+        return paused ? saturation <= lowWatermark : saturation >= highWatermark;
+    }
+
+    /**
+     * 注册监听器,第一次注册时启动后台检查
+     */
+    public synchronized void addListener(Listener listener) {
+        listeners.add(listener);
+        if (scheduler == null) {
+            scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "backpressure-monitor");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::isPaused, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * 背压状态变化回调
+     */
+    public interface Listener {
+
+        /**
+         * 饱和度达到高水位,应暂停拉取
+         */
+        void onPause(double saturation);
+
+        /**
+         * 饱和度降到低水位,可以恢复拉取
+         */
+        void onResume(double saturation);
+
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.pzl.program.juc.threadpool;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * 带租户、优先级和截止时间的任务,由DeadlineTaskExecutor创建
+ * <p>
+ * 截止时间已过的任务不再执行,get()抛出ExecutionException(cause为TimeoutException)。
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class DeadlineTask<T> extends FutureTask<T> implements Prioritized {
+
+    //没有截止时间
+    public static final long NO_DEADLINE = Long.MAX_VALUE;
+
+    private final String tenant;
+
+    private final int priority;
+
+    //截止时间,System.nanoTime()
+    private final long deadline;
+
+    //提交顺序,同优先级同截止时间时先提交先执行
+    private final long sequence;
+
+    private final Consumer<DeadlineTask<?>> onExpired;
+
+    DeadlineTask(Callable<T> callable, String tenant, int priority, long deadline, long sequence,
+                 Consumer<DeadlineTask<?>> onExpired) {
+        super(callable);
+        this.tenant = tenant;
+        this.priority = priority;
+        this.deadline = deadline;
+        this.sequence = sequence;
+        this.onExpired = onExpired;
+    }
+
+    @Override
+    public void run() {
+        if (isExpired(System.nanoTime())) {
+            expire();
+            return;
+        }
+        super.run();
+    }
+
+    /**
+     * @param now System.nanoTime()
+     * @return 截止时间是否已过
+     */
+    public boolean isExpired(long now) {
+        return deadline != NO_DEADLINE && now - deadline >= 0;
+    }
+
+    /**
+     * 距截止时间的剩余时间,没有截止时间返回Long.MAX_VALUE
+     */
+    public long getRemaining(TimeUnit unit) {
+        return deadline == NO_DEADLINE ? Long.MAX_VALUE : unit.convert(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+    }
+
+    public String getTenant() {
+        return tenant;
+    }
+
+    @Override
+    public int getPriority() {
+        return priority;
+    }
+
+    long getDeadline() {
+        return deadline;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * 标记为过期并回调,任务已完成或已取消时忽略
+     */
+    void expire() {
+        if (isDone()) {
+            return;
+        }
+        setException(new TimeoutException("deadline exceeded, tenant=" + tenant + ", priority=" + priority));
+        if (onExpired != null) {
+            onExpired.accept(this);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DeadlineTask[tenant=" + tenant + ", priority=" + priority + ", sequence=" + sequence + "]";
+    }
+
+}
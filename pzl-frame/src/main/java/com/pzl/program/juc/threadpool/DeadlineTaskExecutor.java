@@ -0,0 +1,154 @@
+package com.pzl.program.juc.threadpool;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * 支持截止时间、优先级和租户公平的线程池
+ * <p>
+ * 上游已经超时的请求继续留在FIFO队列里,轮到时照样执行,既浪费线程又挤占了还来得及的请求。
+ * 这里每个任务带租户、优先级和截止时间(一般为上游请求剩余的超时时间):
+ * 1、队列按租户轮转出队,租户内按优先级、截止时间排序,单租户排队数有上限,见TenantFairBlockingQueue
+ * 2、截止时间已过的任务在出队时丢弃,不占用线程,get()抛出TimeoutException,并回调expiredListener
+ * 3、队列满或租户排队数达到上限时交给拒绝策略
+ * <p>
+ * 线程数固定(core=max),非FIFO队列下ThreadPoolExecutor只在队列满时才扩线程,弹性线程没有意义。
+ * 不带参数的execute/submit按默认租户、NORM_PRIORITY(或Prioritized的优先级)、无截止时间提交,
+ * execute提交的任务同样包装成DeadlineTask,任务抛出的异常不会打印,需要结果或异常请用submit。
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class DeadlineTaskExecutor extends ThreadPoolExecutor {
+
+    public static final String DEFAULT_TENANT = "default";
+
+    private final TenantFairBlockingQueue queue;
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final LongAdder expiredCount = new LongAdder();
+
+    private final Consumer<DeadlineTask<?>> onExpired = this::expired;
+
+    private volatile Consumer<DeadlineTask<?>> expiredListener;
+
+    /**
+     * @param threads            线程数
+     * @param queueCapacity      队列容量
+     * @param maxQueuedPerTenant 单个租户最多排队的任务数
+     * @param threadFactory      线程工厂
+     * @param handler            拒绝策略
+     */
+    public DeadlineTaskExecutor(int threads, int queueCapacity, int maxQueuedPerTenant, ThreadFactory threadFactory,
+                                RejectedExecutionHandler handler) {
+        this(threads, new TenantFairBlockingQueue(queueCapacity, maxQueuedPerTenant), threadFactory, handler);
+    }
+
+    private DeadlineTaskExecutor(int threads, TenantFairBlockingQueue queue, ThreadFactory threadFactory,
+                                 RejectedExecutionHandler handler) {
+        super(threads, threads, 0, TimeUnit.MILLISECONDS, queue, threadFactory, handler);
+        this.queue = queue;
+    }
+
+    /**
+     * 提交任务
+     *
+     * @param tenant   租户,如调用方应用名、用户ID
+     * @param priority 优先级,越大越先执行
+     * @param timeout  距截止时间的时长,小于等于0或超出System.nanoTime()可表示的范围表示没有截止时间
+     * @param unit     时间单位
+     * @param task     任务
+     * @return 任务结果,过期时get()抛出ExecutionException(cause为TimeoutException)
+     */
+    public <T> DeadlineTask<T> submit(String tenant, int priority, long timeout, TimeUnit unit, Callable<T> task) {
+        DeadlineTask<T> future = newTask(task, tenant, priority, deadline(timeout, unit));
+        execute(future);
+        return future;
+    }
+
+    /**
+     * 提交任务,参数同submit(String, int, long, TimeUnit, Callable)
+     */
+    public DeadlineTask<Object> submit(String tenant, int priority, long timeout, TimeUnit unit, Runnable task) {
+        return submit(tenant, priority, timeout, unit, Executors.callable(task));
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        if (command instanceof DeadlineTask) {
+            super.execute(command);
+        } else {
+            super.execute(newTask(Executors.callable(command), DEFAULT_TENANT, Prioritized.priorityOf(command),
+                    DeadlineTask.NO_DEADLINE));
+        }
+    }
+
+    //截止时间。nanoTime只能比较相差不到2^63的两个值,超过一半范围(约146年)或相加溢出的按没有截止时间处理
+    static long deadline(long timeout, TimeUnit unit) {
+        if (timeout <= 0) {
+            return DeadlineTask.NO_DEADLINE;
+        }
+        long now = System.nanoTime();
+        long nanos = unit.toNanos(timeout);
+        if (nanos >= Long.MAX_VALUE / 2 || (now > 0 && nanos >= Long.MAX_VALUE - now)) {
+            return DeadlineTask.NO_DEADLINE;
+        }
+        return now + nanos;
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return newTask(Executors.callable(runnable, value), DEFAULT_TENANT, Prioritized.priorityOf(runnable),
+                DeadlineTask.NO_DEADLINE);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return newTask(callable, DEFAULT_TENANT, Prioritized.priorityOf(callable), DeadlineTask.NO_DEADLINE);
+    }
+
+    /**
+     * 任务因超过截止时间被丢弃时的回调,在丢弃任务的线程(工作线程或提交线程)中执行
+     */
+    public void setExpiredListener(Consumer<DeadlineTask<?>> expiredListener) {
+        this.expiredListener = expiredListener;
+    }
+
+    /**
+     * 因超过截止时间被丢弃的任务数
+     */
+    public long getExpiredCount() {
+        return expiredCount.sum();
+    }
+
+    /**
+     * 各租户的排队任务数
+     */
+    public Map<String, Integer> getTenantQueueSizes() {
+        return queue.tenantSizes();
+    }
+
+    private <T> DeadlineTask<T> newTask(Callable<T> callable, String tenant, int priority, long deadline) {
+        return new DeadlineTask<>(callable, tenant == null ? DEFAULT_TENANT : tenant, priority, deadline,
+                sequence.getAndIncrement(), onExpired);
+    }
+
+    private void expired(DeadlineTask<?> task) {
+        expiredCount.increment();
+        Consumer<DeadlineTask<?>> listener = expiredListener;
+        if (listener != null) {
+            listener.accept(task);
+        }
+    }
+
+}
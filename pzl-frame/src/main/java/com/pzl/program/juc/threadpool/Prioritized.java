@@ -0,0 +1,32 @@
+package com.pzl.program.juc.threadpool;
+
+/**
+ * 带优先级的任务,队列满时ShedOldestByPriorityPolicy优先丢弃优先级低的排队任务
+ * <p>
+ * 只有通过execute提交、或提交到ResizableThreadPoolExecutor的任务能保留优先级,
+ * 其它线程池的submit会把任务包装成FutureTask,优先级按NORM_PRIORITY处理。
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public interface Prioritized {
+
+    int MIN_PRIORITY = -10;
+
+    int NORM_PRIORITY = 0;
+
+    int MAX_PRIORITY = 10;
+
+    /**
+     * 优先级,越大越重要
+     */
+    int getPriority();
+
+    /**
+     * 任务的优先级,未实现Prioritized的任务为NORM_PRIORITY
+     */
+    static int priorityOf(Object task) {
+        return task instanceof Prioritized ? ((Prioritized) task).getPriority() : NORM_PRIORITY;
+    }
+
+}
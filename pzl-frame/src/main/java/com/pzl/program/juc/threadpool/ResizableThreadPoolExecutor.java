@@ -0,0 +1,174 @@
+package com.pzl.program.juc.threadpool;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.RunnableFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 运行时可调整核心线程数、最大线程数和队列容量的线程池
+ * <p>
+ * ThreadPoolExecutor本身支持setCorePoolSize/setMaximumPoolSize,但两者有先后约束(core不能大于max),
+ * 队列容量则取决于队列实现。这里使用ResizableBlockingQueue,三个参数通过resize一次调整:
+ * 1、扩大max时先设max再设core,缩小max时先设core再设max,任何时刻都满足core<=max
+ * 2、队列缩容不丢弃已排队的任务,它们照常被执行,新任务在队列降到新容量以下之前走扩线程/拒绝策略
+ * 3、线程数缩小时多余的线程在执行完手头任务、空闲后退出,不会中断正在执行的任务
+ * submit提交的Prioritized任务包装后保留优先级,供ShedOldestByPriorityPolicy使用,同时保留原任务的类型供TaskWatchdog统计。
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+@Slf4j
+public class ResizableThreadPoolExecutor extends ThreadPoolExecutor {
+
+    private final ResizableBlockingQueue<Runnable> queue;
+
+    private volatile TaskWatchdog watchdog;
+
+    public ResizableThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                                       int queueCapacity, ThreadFactory threadFactory,
+                                       RejectedExecutionHandler handler) {
+        this(corePoolSize, maximumPoolSize, keepAliveTime, unit, new ResizableBlockingQueue<>(queueCapacity),
+                threadFactory, handler);
+    }
+
+    private ResizableThreadPoolExecutor(int corePoolSize, int maximumPoolSize, long keepAliveTime, TimeUnit unit,
+                                        ResizableBlockingQueue<Runnable> queue, ThreadFactory threadFactory,
+                                        RejectedExecutionHandler handler) {
+        super(corePoolSize, maximumPoolSize, keepAliveTime, unit, queue, threadFactory, handler);
+        this.queue = queue;
+    }
+
+    /**
+     * 调整线程数和队列容量
+     *
+     * @param corePoolSize    核心线程数,大于等于0
+     * @param maximumPoolSize 最大线程数,大于0且不小于核心线程数
+     * @param queueCapacity   队列容量,大于0
+     */
+    public synchronized void resize(int corePoolSize, int maximumPoolSize, int queueCapacity) {
+        if (corePoolSize < 0 || maximumPoolSize <= 0 || maximumPoolSize < corePoolSize || queueCapacity <= 0) {
+            throw new IllegalArgumentException("invalid thread pool size: corePoolSize=" + corePoolSize
+                    + ", maximumPoolSize=" + maximumPoolSize + ", queueCapacity=" + queueCapacity);
+        }
+        int oldCore = getCorePoolSize();
+        int oldMax = getMaximumPoolSize();
+        int oldCapacity = queue.getCapacity();
+        if (maximumPoolSize >= oldCore) {
+            setMaximumPoolSize(maximumPoolSize);
+            setCorePoolSize(corePoolSize);
+        } else {
+            setCorePoolSize(corePoolSize);
+            setMaximumPoolSize(maximumPoolSize);
+        }
+        queue.setCapacity(queueCapacity);
+        log.info("线程池调整: corePoolSize {} -> {}, maximumPoolSize {} -> {}, queueCapacity {} -> {}, 排队任务数 {}",
+                oldCore, corePoolSize, oldMax, maximumPoolSize, oldCapacity, queueCapacity, queue.size());
+    }
+
+    /**
+     * 按配置调整,包括空闲线程存活时间(毫秒)
+     */
+    public synchronized void resize(ThreadPoolProperties properties) {
+        resize(properties.getCorePoolSize(), properties.getMaximumPoolSize(), properties.getQueueCapacity());
+        if (properties.getKeepAliveTime() > 0) {
+            setKeepAliveTime(properties.getKeepAliveTime(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 设置任务看门狗,为null时不记录
+     */
+    public void setWatchdog(TaskWatchdog watchdog) {
+        this.watchdog = watchdog;
+    }
+
+    @Override
+    protected void beforeExecute(Thread t, Runnable r) {
+        TaskWatchdog current = watchdog;
+        if (current != null) {
+            current.beforeExecute(t, r);
+        }
+    }
+
+    @Override
+    protected void afterExecute(Runnable r, Throwable t) {
+        TaskWatchdog current = watchdog;
+        if (current != null) {
+            current.afterExecute(r);
+        }
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Runnable runnable, T value) {
+        return new PrioritizedFutureTask<>(runnable, value, Prioritized.priorityOf(runnable), runnable);
+    }
+
+    @Override
+    protected <T> RunnableFuture<T> newTaskFor(Callable<T> callable) {
+        return new PrioritizedFutureTask<>(callable, Prioritized.priorityOf(callable), callable);
+    }
+
+    public int getQueueCapacity() {
+        return queue.getCapacity();
+    }
+
+    /**
+     * 当前参数和运行状态
+     */
+    public Map<String, Object> status() {
+        Map<String, Object> status = new LinkedHashMap<>();
+        status.put("corePoolSize", getCorePoolSize());
+        status.put("maximumPoolSize", getMaximumPoolSize());
+        status.put("keepAliveTime", getKeepAliveTime(TimeUnit.MILLISECONDS));
+        status.put("queueCapacity", queue.getCapacity());
+        status.put("queueSize", queue.size());
+        status.put("poolSize", getPoolSize());
+        status.put("activeCount", getActiveCount());
+        status.put("largestPoolSize", getLargestPoolSize());
+        status.put("taskCount", getTaskCount());
+        status.put("completedTaskCount", getCompletedTaskCount());
+        return status;
+    }
+
+    /**
+     * 保留优先级和原任务类型的FutureTask
+     */
+    private static class PrioritizedFutureTask<T> extends FutureTask<T> implements Prioritized, TaskWatchdog.Typed {
+
+        private final int priority;
+
+        private final Object source;
+
+        PrioritizedFutureTask(Runnable runnable, T value, int priority, Object source) {
+            super(runnable, value);
+            this.priority = priority;
+            this.source = source;
+        }
+
+        PrioritizedFutureTask(Callable<T> callable, int priority, Object source) {
+            super(callable);
+            this.priority = priority;
+            this.source = source;
+        }
+
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+
+        @Override
+        public String getTaskType() {
+            return TaskWatchdog.typeOf(source);
+        }
+
+    }
+
+}
@@ -0,0 +1,196 @@
+package com.pzl.program.juc.threadpool;
+
+import com.google.common.util.concurrent.RateLimiter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 线程池饱和时的提交策略,代替直接抛异常的AbortPolicy
+ * <p>
+ * 1、BlockPolicy:提交方阻塞等待队列空位,最多等待timeout,突发流量被摊平到提交方,超时才拒绝
+ * 2、ShedOldestByPriorityPolicy:丢弃队列中优先级最低且最早的任务,为更重要的新任务腾出位置(任务实现Prioritized),
+ * 被丢弃的任务如果是Future则取消,等待结果的调用方会收到CancellationException
+ * 3、RateLimitedCallerRunsPolicy:由提交线程执行任务,但限制每秒执行的个数,超出部分交给后备策略。
+ * 不限速的CallerRunsPolicy在持续过载时会让提交线程(如Web请求线程、MQ消费线程)都去执行任务
+ * <p>
+ * 策略只处理已经饱和的情况,生产者(Kafka/ActiveMQ消费者)应根据BackpressureMonitor的信号提前暂停拉取。
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+@Slf4j
+public final class SubmissionPolicies {
+
+    public static final String ABORT = "abort";
+
+    public static final String BLOCK = "block";
+
+    public static final String SHED_OLDEST = "shed-oldest";
+
+    public static final String CALLER_RUNS = "caller-runs";
+
+    private SubmissionPolicies() {
+    }
+
+    /**
+     * 按名称创建策略
+     *
+     * @param name             abort/block/shed-oldest/caller-runs
+     * @param blockTimeout     block等待队列空位的最长时间(毫秒),caller-runs超出速率后也按此等待
+     * @param callerRunsPerSec caller-runs每秒由提交线程执行的任务数
+     * @return 拒绝策略
+     */
+    public static RejectedExecutionHandler of(String name, long blockTimeout, double callerRunsPerSec) {
+        return of(name, blockTimeout, callerRunsPerSec, task -> {
+        });
+    }
+
+    /**
+     * 按名称创建策略
+     *
+     * @param name             abort/block/shed-oldest/caller-runs
+     * @param blockTimeout     block等待队列空位的最长时间(毫秒),caller-runs超出速率后也按此等待
+     * @param callerRunsPerSec caller-runs每秒由提交线程执行的任务数
+     * @param onShed           shed-oldest丢弃任务后的回调(如计数),在打印日志之后执行
+     * @return 拒绝策略
+     */
+    public static RejectedExecutionHandler of(String name, long blockTimeout, double callerRunsPerSec,
+                                              Consumer<Runnable> onShed) {
+        switch (name == null ? ABORT : name) {
+            case ABORT:
+                return new ThreadPoolExecutor.AbortPolicy();
+            case BLOCK:
+                return new BlockPolicy(blockTimeout, TimeUnit.MILLISECONDS);
+            case SHED_OLDEST:
+                return new ShedOldestByPriorityPolicy(ShedOldestByPriorityPolicy.LOG_SHED.andThen(onShed));
+            case CALLER_RUNS:
+                return new RateLimitedCallerRunsPolicy(callerRunsPerSec,
+                        new BlockPolicy(blockTimeout, TimeUnit.MILLISECONDS));
+            default:
+                throw new IllegalArgumentException("unknown rejection policy: " + name);
+        }
+    }
+
+    /**
+     * 阻塞等待队列空位,超时抛RejectedExecutionException
+     */
+    public static class BlockPolicy implements RejectedExecutionHandler {
+
+        private final long timeout;
+
+        private final TimeUnit unit;
+
+        public BlockPolicy(long timeout, TimeUnit unit) {
+            this.timeout = timeout;
+            this.unit = unit;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("Executor has been shut down, rejected task " + task);
+            }
+            try {
+                if (!executor.getQueue().offer(task, timeout, unit)) {
+                    throw new RejectedExecutionException("Queue still full after waiting " + timeout + " "
+                            + unit + ", rejected task " + task);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted while waiting to submit task " + task, e);
+            }
+            //绕过execute直接入队,需要自己处理等待期间线程池关闭、线程全部超时退出的情况
+            if (executor.isShutdown() && executor.getQueue().remove(task)) {
+                throw new RejectedExecutionException("Executor has been shut down, rejected task " + task);
+            }
+            if (executor.getPoolSize() == 0) {
+                executor.prestartCoreThread();
+            }
+        }
+
+    }
+
+    /**
+     * 丢弃优先级比新任务低的排队任务中最低、最早的一个,没有则拒绝新任务
+     */
+    public static class ShedOldestByPriorityPolicy implements RejectedExecutionHandler {
+
+        //默认的丢弃回调,打印日志
+        static final Consumer<Runnable> LOG_SHED = task -> log.warn("线程池饱和, 丢弃低优先级任务: {}", task);
+
+        private final Consumer<Runnable> onShed;
+
+        public ShedOldestByPriorityPolicy() {
+            this(LOG_SHED);
+        }
+
+        /**
+         * @param onShed 任务被丢弃后的回调,在提交线程中执行
+         */
+        public ShedOldestByPriorityPolicy(Consumer<Runnable> onShed) {
+            this.onShed = onShed;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            if (executor.isShutdown()) {
+                throw new RejectedExecutionException("Executor has been shut down, rejected task " + task);
+            }
+            int lowest = Prioritized.priorityOf(task);
+            Runnable victim = null;
+            //队列按提交顺序遍历,严格小于保证同优先级中取最早的
+            for (Runnable queued : executor.getQueue()) {
+                int priority = Prioritized.priorityOf(queued);
+                if (priority < lowest) {
+                    lowest = priority;
+                    victim = queued;
+                }
+            }
+            if (victim == null || !executor.getQueue().remove(victim)) {
+                throw new RejectedExecutionException("No lower priority task to shed, rejected task " + task);
+            }
+            if (victim instanceof Future) {
+                ((Future<?>) victim).cancel(false);
+            }
+            onShed.accept(victim);
+            executor.execute(task);
+        }
+
+    }
+
+    /**
+     * 限速的调用者执行策略,超出速率交给后备策略
+     */
+    public static class RateLimitedCallerRunsPolicy implements RejectedExecutionHandler {
+
+        private final RateLimiter rateLimiter;
+
+        private final RejectedExecutionHandler fallback;
+
+        /**
+         * @param permitsPerSecond 每秒由提交线程执行的任务数
+         * @param fallback         超出速率时的策略
+         */
+        public RateLimitedCallerRunsPolicy(double permitsPerSecond, RejectedExecutionHandler fallback) {
+            this.rateLimiter = RateLimiter.create(permitsPerSecond);
+            this.fallback = fallback;
+        }
+
+        @Override
+        public void rejectedExecution(Runnable task, ThreadPoolExecutor executor) {
+            if (!executor.isShutdown() && rateLimiter.tryAcquire()) {
+                task.run();
+                return;
+            }
+            fallback.rejectedExecution(task, executor);
+        }
+
+    }
+
+}
@@ -0,0 +1,314 @@
+package com.pzl.program.juc.threadpool;
+
+import io.prometheus.client.Counter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.Closeable;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 线程池任务看门狗:发现卡住的任务,统计各类任务的耗时
+ * <p>
+ * 下游挂起时任务一直占着线程,只能从线程栈里发现。线程池在beforeExecute/afterExecute中调用本类记录每个工作线程正在执行的任务:
+ * 1、后台每checkInterval检查一次,执行超过budget的任务记一次卡住,打印warn日志和线程栈,之后每次检查追加一次栈采样
+ * 2、interrupt开启时中断卡住的任务(只中断一次,任务需要响应中断,如阻塞IO、sleep、wait)
+ * 3、按任务类型累计次数、墙钟时间和CPU时间,类型取任务类名(lambda取所在类),任务可实现Typed自定义类型
+ * <p>
+ * 指标通过Prometheus导出:thread_pool_task_wall_seconds_total / thread_pool_task_cpu_seconds_total /
+ * thread_pool_tasks_total / thread_pool_stuck_tasks_total,标签为pool和type。
+ * 开销:每个任务两次ConcurrentHashMap操作、两次System.nanoTime,开启CPU统计再加两次getCurrentThreadCpuTime(约1微秒)。
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+@Slf4j
+public class TaskWatchdog implements Closeable {
+
+    private static final Counter WALL = Counter.build()
+            .name("thread_pool_task_wall_seconds_total").help("Wall time spent running tasks, by task type")
+            .labelNames("pool", "type")
+            .register();
+
+    private static final Counter CPU = Counter.build()
+            .name("thread_pool_task_cpu_seconds_total").help("CPU time spent running tasks, by task type")
+            .labelNames("pool", "type")
+            .register();
+
+    private static final Counter TASKS = Counter.build()
+            .name("thread_pool_tasks_total").help("Finished tasks, by task type")
+            .labelNames("pool", "type")
+            .register();
+
+    private static final Counter STUCK = Counter.build()
+            .name("thread_pool_stuck_tasks_total").help("Tasks that ran longer than the watchdog budget")
+            .labelNames("pool", "type")
+            .register();
+
+    //每个卡住的任务最多保留的栈采样数
+    private static final int MAX_SAMPLES = 5;
+
+    private final String pool;
+
+    private final long budgetNanos;
+
+    private final boolean interrupt;
+
+    private final int stackDepth;
+
+    private final boolean cpuTime;
+
+    private final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    //工作线程 -> 正在执行的任务
+    private final Map<Thread, Running> running = new ConcurrentHashMap<>();
+
+    private final Map<String, TypeStats> stats = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService scheduler;
+
+    /**
+     * @param pool          线程池名称,作为指标的pool标签
+     * @param budget        任务执行时间预算(毫秒),超过即视为卡住
+     * @param checkInterval 检查间隔(毫秒)
+     * @param interrupt     是否中断卡住的任务
+     * @param stackDepth    栈采样保留的帧数
+     */
+    public TaskWatchdog(String pool, long budget, long checkInterval, boolean interrupt, int stackDepth) {
+        this.pool = pool;
+        this.budgetNanos = TimeUnit.MILLISECONDS.toNanos(budget);
+        this.interrupt = interrupt;
+        this.stackDepth = stackDepth;
+        this.cpuTime = threadMXBean.isCurrentThreadCpuTimeSupported() && threadMXBean.isThreadCpuTimeEnabled();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, pool + "-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::check, checkInterval, checkInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 任务开始,在工作线程中调用(ThreadPoolExecutor.beforeExecute)
+     */
+    public void beforeExecute(Thread thread, Runnable task) {
+        running.put(thread, new Running(thread, typeOf(task), System.nanoTime(), cpuTime ? threadMXBean.getCurrentThreadCpuTime() : 0));
+    }
+
+    /**
+     * 任务结束,在工作线程中调用(ThreadPoolExecutor.afterExecute)
+     */
+    public void afterExecute(Runnable task) {
+        Running current = running.remove(Thread.currentThread());
+        if (current == null) {
+            return;
+        }
+        long wall = System.nanoTime() - current.start;
+        long cpu = cpuTime ? threadMXBean.getCurrentThreadCpuTime() - current.cpuStart : 0;
+        //与check中的中断互斥,保证不会中断到下一个任务
+        synchronized (current) {
+            current.finished = true;
+        }
+        TypeStats typeStats = stats.computeIfAbsent(current.type, TypeStats::new);
+        typeStats.record(wall, cpu);
+    }
+
+    /**
+     * 各类任务的统计,按墙钟时间从大到小
+     */
+    public List<Map<String, Object>> taskStats() {
+        List<TypeStats> all = new ArrayList<>(stats.values());
+        all.sort(Comparator.comparingLong((TypeStats s) -> s.wallNanos.sum()).reversed());
+        List<Map<String, Object>> result = new ArrayList<>(all.size());
+        for (TypeStats typeStats : all) {
+            long count = typeStats.count.sum();
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("type", typeStats.type);
+            item.put("count", count);
+            item.put("wallMillis", TimeUnit.NANOSECONDS.toMillis(typeStats.wallNanos.sum()));
+            item.put("cpuMillis", TimeUnit.NANOSECONDS.toMillis(typeStats.cpuNanos.sum()));
+            item.put("avgWallMillis", count == 0 ? 0 : typeStats.wallNanos.sum() / count / 1e6);
+            item.put("maxWallMillis", TimeUnit.NANOSECONDS.toMillis(typeStats.maxWallNanos.get()));
+            item.put("stuck", typeStats.stuck.sum());
+            result.add(item);
+        }
+        return result;
+    }
+
+    /**
+     * 当前执行超过预算的任务及其栈采样
+     */
+    public List<Map<String, Object>> stuckTasks() {
+        long now = System.nanoTime();
+        List<Map<String, Object>> result = new ArrayList<>();
+        for (Running current : running.values()) {
+            if (!current.stuck) {
+                continue;
+            }
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("type", current.type);
+            item.put("thread", current.thread.getName());
+            item.put("elapsedMillis", TimeUnit.NANOSECONDS.toMillis(now - current.start));
+            item.put("interrupted", current.interrupted);
+            synchronized (current) {
+                item.put("samples", new ArrayList<>(current.samples));
+            }
+            result.add(item);
+        }
+        return result;
+    }
+
+    @Override
+    public void close() {
+        scheduler.shutdownNow();
+    }
+
+    private void check() {
+        long now = System.nanoTime();
+        for (Running current : running.values()) {
+            if (now - current.start < budgetNanos) {
+                continue;
+            }
+            List<String> stack = stackOf(current.thread);
+            synchronized (current) {
+                if (current.finished) {
+                    continue;
+                }
+                if (current.samples.size() >= MAX_SAMPLES) {
+                    current.samples.removeFirst();
+                }
+                current.samples.addLast(stack);
+                if (!current.stuck) {
+                    current.stuck = true;
+                    stats.computeIfAbsent(current.type, TypeStats::new).stuck();
+                    log.warn("线程池 {} 任务执行超过 {}ms: type={}, thread={}, stack:\n\t{}", pool,
+                            TimeUnit.NANOSECONDS.toMillis(budgetNanos), current.type, current.thread.getName(),
+                            String.join("\n\t", stack));
+                }
+                if (interrupt && !current.interrupted) {
+                    current.interrupted = true;
+                    current.thread.interrupt();
+                    log.warn("线程池 {} 中断卡住的任务: type={}, thread={}", pool, current.type, current.thread.getName());
+                }
+            }
+        }
+    }
+
+    private List<String> stackOf(Thread thread) {
+        StackTraceElement[] elements = thread.getStackTrace();
+        List<String> stack = new ArrayList<>(Math.min(elements.length, stackDepth));
+        for (int i = 0; i < elements.length && i < stackDepth; i++) {
+            stack.add(elements[i].toString());
+        }
+        return stack;
+    }
+
+    /**
+     * 任务类型,实现Typed的任务取getTaskType,lambda取所在类名
+     */
+    static String typeOf(Object task) {
+        if (task instanceof Typed) {
+            return ((Typed) task).getTaskType();
+        }
+        String name = task.getClass().getName();
+        int lambda = name.indexOf("$$Lambda");
+        return lambda > 0 ? name.substring(0, lambda) : name;
+    }
+
+    /**
+     * 自定义任务类型,线程池包装任务时也通过它传递原任务的类型
+     */
+    public interface Typed {
+
+        String getTaskType();
+
+    }
+
+    /**
+     * 正在执行的任务
+     */
+    private static class Running {
+
+        private final Thread thread;
+
+        private final String type;
+
+        private final long start;
+
+        private final long cpuStart;
+
+        private final Deque<List<String>> samples = new ArrayDeque<>();
+
+        private volatile boolean stuck;
+
+        private volatile boolean interrupted;
+
+        private boolean finished;
+
+        Running(Thread thread, String type, long start, long cpuStart) {
+            this.thread = thread;
+            this.type = type;
+            this.start = start;
+            this.cpuStart = cpuStart;
+        }
+
+    }
+
+    /**
+     * 一类任务的累计统计
+     */
+    private class TypeStats {
+
+        private final String type;
+
+        private final LongAdder count = new LongAdder();
+
+        private final LongAdder wallNanos = new LongAdder();
+
+        private final LongAdder cpuNanos = new LongAdder();
+
+        private final LongAccumulator maxWallNanos = new LongAccumulator(Math::max, 0);
+
+        private final LongAdder stuck = new LongAdder();
+
+        private final Counter.Child wallCounter;
+
+        private final Counter.Child cpuCounter;
+
+        private final Counter.Child taskCounter;
+
+        private final Counter.Child stuckCounter;
+
+        TypeStats(String type) {
+            this.type = type;
+            this.wallCounter = WALL.labels(pool, type);
+            this.cpuCounter = CPU.labels(pool, type);
+            this.taskCounter = TASKS.labels(pool, type);
+            this.stuckCounter = STUCK.labels(pool, type);
+        }
+
+        void record(long wall, long cpu) {
+            count.increment();
+            wallNanos.add(wall);
+            cpuNanos.add(cpu);
+            maxWallNanos.accumulate(wall);
+            taskCounter.inc();
+            wallCounter.inc(wall / 1e9);
+            cpuCounter.inc(cpu / 1e9);
+        }
+
+        void stuck() {
+            stuck.increment();
+            stuckCounter.inc();
+        }
+
+    }
+
+}
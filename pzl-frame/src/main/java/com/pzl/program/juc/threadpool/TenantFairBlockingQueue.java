@@ -0,0 +1,378 @@
+package com.pzl.program.juc.threadpool;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 按租户公平出队的有界优先级队列,DeadlineTaskExecutor的任务队列,元素必须是DeadlineTask
+ * <p>
+ * 1、每个租户一个优先级队列:优先级高的先出,同优先级截止时间早的先出,再按提交顺序
+ * 2、出队时在有任务的租户之间轮转,每轮每个租户出一个任务,某个租户积压再多也只占一份
+ * 3、入队时限制单个租户的排队数,避免一个租户占满整个队列
+ * 4、出队时跳过已过期的任务,队列满时先清理过期任务再判断,过期回调在释放锁之后执行
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+class TenantFairBlockingQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+
+    private static final Comparator<DeadlineTask<?>> ORDER = Comparator
+            .comparingInt((DeadlineTask<?> task) -> -task.getPriority())
+            .thenComparingLong(DeadlineTask::getDeadline)
+            .thenComparingLong(DeadlineTask::getSequence);
+
+    private final ReentrantLock lock = new ReentrantLock();
+
+    private final Condition notEmpty = lock.newCondition();
+
+    private final Condition notFull = lock.newCondition();
+
+    private final Map<String, PriorityQueue<DeadlineTask<?>>> tenants = new HashMap<>();
+
+    //有排队任务的租户,按轮转顺序
+    private final ArrayDeque<String> ring = new ArrayDeque<>();
+
+    private final int capacity;
+
+    private final int maxPerTenant;
+
+    private int count;
+
+    TenantFairBlockingQueue(int capacity, int maxPerTenant) {
+        if (capacity <= 0 || maxPerTenant <= 0) {
+            throw new IllegalArgumentException("capacity and maxPerTenant must be greater than 0");
+        }
+        this.capacity = capacity;
+        this.maxPerTenant = maxPerTenant;
+    }
+
+    @Override
+    public boolean offer(Runnable e) {
+        DeadlineTask<?> task = (DeadlineTask<?>) Objects.requireNonNull(e);
+        List<DeadlineTask<?>> expired = null;
+        boolean added;
+        lock.lock();
+        try {
+            if (count >= capacity || tenantSize(task.getTenant()) >= maxPerTenant) {
+                expired = purgeExpired();
+            }
+            added = count < capacity && tenantSize(task.getTenant()) < maxPerTenant;
+            if (added) {
+                enqueue(task);
+            }
+        } finally {
+            lock.unlock();
+        }
+        expireAll(expired);
+        return added;
+    }
+
+    @Override
+    public boolean offer(Runnable e, long timeout, TimeUnit unit) throws InterruptedException {
+        DeadlineTask<?> task = (DeadlineTask<?>) Objects.requireNonNull(e);
+        long nanos = unit.toNanos(timeout);
+        lock.lockInterruptibly();
+        try {
+            while (count >= capacity || tenantSize(task.getTenant()) >= maxPerTenant) {
+                if (nanos <= 0) {
+                    return false;
+                }
+                nanos = notFull.awaitNanos(nanos);
+            }
+            enqueue(task);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public void put(Runnable e) throws InterruptedException {
+        DeadlineTask<?> task = (DeadlineTask<?>) Objects.requireNonNull(e);
+        lock.lockInterruptibly();
+        try {
+            while (count >= capacity || tenantSize(task.getTenant()) >= maxPerTenant) {
+                notFull.await();
+            }
+            enqueue(task);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Runnable poll() {
+        while (true) {
+            DeadlineTask<?> task;
+            lock.lock();
+            try {
+                if (count == 0) {
+                    return null;
+                }
+                task = dequeue();
+            } finally {
+                lock.unlock();
+            }
+            if (!task.isExpired(System.nanoTime())) {
+                return task;
+            }
+            task.expire();
+        }
+    }
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        long deadline = System.nanoTime() + unit.toNanos(timeout);
+        while (true) {
+            DeadlineTask<?> task;
+            lock.lockInterruptibly();
+            try {
+                long nanos = deadline - System.nanoTime();
+                while (count == 0) {
+                    if (nanos <= 0) {
+                        return null;
+                    }
+                    nanos = notEmpty.awaitNanos(nanos);
+                }
+                task = dequeue();
+            } finally {
+                lock.unlock();
+            }
+            if (!task.isExpired(System.nanoTime())) {
+                return task;
+            }
+            task.expire();
+        }
+    }
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        while (true) {
+            DeadlineTask<?> task;
+            lock.lockInterruptibly();
+            try {
+                while (count == 0) {
+                    notEmpty.await();
+                }
+                task = dequeue();
+            } finally {
+                lock.unlock();
+            }
+            if (!task.isExpired(System.nanoTime())) {
+                return task;
+            }
+            task.expire();
+        }
+    }
+
+    /**
+     * 下一个出队的任务,可能已过期
+     */
+    @Override
+    public Runnable peek() {
+        lock.lock();
+        try {
+            String tenant = ring.peekFirst();
+            return tenant == null ? null : tenants.get(tenant).peek();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int size() {
+        lock.lock();
+        try {
+            return count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int remainingCapacity() {
+        lock.lock();
+        try {
+            return capacity - count;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 各租户的排队任务数
+     */
+    public Map<String, Integer> tenantSizes() {
+        lock.lock();
+        try {
+            Map<String, Integer> sizes = new HashMap<>();
+            tenants.forEach((tenant, queue) -> sizes.put(tenant, queue.size()));
+            return sizes;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public boolean remove(Object o) {
+        if (!(o instanceof DeadlineTask)) {
+            return false;
+        }
+        String tenant = ((DeadlineTask<?>) o).getTenant();
+        lock.lock();
+        try {
+            PriorityQueue<DeadlineTask<?>> queue = tenants.get(tenant);
+            if (queue == null || !queue.remove(o)) {
+                return false;
+            }
+            count--;
+            if (queue.isEmpty()) {
+                tenants.remove(tenant);
+                ring.remove(tenant);
+            }
+            notFull.signalAll();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public Object[] toArray() {
+        lock.lock();
+        try {
+            List<Object> all = new ArrayList<>(count);
+            for (String tenant : ring) {
+                all.addAll(tenants.get(tenant));
+            }
+            return all.toArray();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c) {
+        return drainTo(c, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public int drainTo(Collection<? super Runnable> c, int maxElements) {
+        Objects.requireNonNull(c);
+        if (c == this) {
+            throw new IllegalArgumentException();
+        }
+        lock.lock();
+        try {
+            int n = 0;
+            while (n < maxElements && count > 0) {
+                c.add(dequeue());
+                n++;
+            }
+            return n;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 迭代当前元素的快照,迭代器的remove删除队列中的同一个元素
+     */
+    @Override
+    public Iterator<Runnable> iterator() {
+        Object[] snapshot = toArray();
+        return new Iterator<Runnable>() {
+
+            private int cursor;
+
+            private int last = -1;
+
+            @Override
+            public boolean hasNext() {
+                return cursor < snapshot.length;
+            }
+
+            @Override
+            public Runnable next() {
+                if (cursor >= snapshot.length) {
+                    throw new NoSuchElementException();
+                }
+                last = cursor;
+                return (Runnable) snapshot[cursor++];
+            }
+
+            @Override
+            public void remove() {
+                if (last < 0) {
+                    throw new IllegalStateException();
+                }
+                TenantFairBlockingQueue.this.remove(snapshot[last]);
+                last = -1;
+            }
+
+        };
+    }
+
+    private int tenantSize(String tenant) {
+        PriorityQueue<DeadlineTask<?>> queue = tenants.get(tenant);
+        return queue == null ? 0 : queue.size();
+    }
+
+    private void enqueue(DeadlineTask<?> task) {
+        PriorityQueue<DeadlineTask<?>> queue = tenants.get(task.getTenant());
+        if (queue == null) {
+            queue = new PriorityQueue<>(ORDER);
+            tenants.put(task.getTenant(), queue);
+            ring.addLast(task.getTenant());
+        }
+        queue.add(task);
+        count++;
+        notEmpty.signal();
+    }
+
+    //轮到的租户出一个任务,还有剩余则排到队尾
+    private DeadlineTask<?> dequeue() {
+        String tenant = ring.pollFirst();
+        PriorityQueue<DeadlineTask<?>> queue = tenants.get(tenant);
+        DeadlineTask<?> task = queue.poll();
+        if (queue.isEmpty()) {
+            tenants.remove(tenant);
+        } else {
+            ring.addLast(tenant);
+        }
+        count--;
+        //等待者可能受单租户上限限制,signal可能唤醒不到能入队的线程
+        notFull.signalAll();
+        return task;
+    }
+
+    //移除所有已过期的任务,返回值在释放锁后调用expireAll
+    private List<DeadlineTask<?>> purgeExpired() {
+        long now = System.nanoTime();
+        List<DeadlineTask<?>> expired = new ArrayList<>();
+        Iterator<Map.Entry<String, PriorityQueue<DeadlineTask<?>>>> iterator = tenants.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, PriorityQueue<DeadlineTask<?>>> entry = iterator.next();
+            entry.getValue().removeIf(task -> task.isExpired(now) && expired.add(task));
+            if (entry.getValue().isEmpty()) {
+                iterator.remove();
+                ring.remove(entry.getKey());
+            }
+        }
+        count -= expired.size();
+        if (!expired.isEmpty()) {
+            notFull.signalAll();
+        }
+        return expired;
+    }
+
+    private static void expireAll(List<DeadlineTask<?>> expired) {
+        if (expired != null) {
+            expired.forEach(DeadlineTask::expire);
+        }
+    }
+
+}
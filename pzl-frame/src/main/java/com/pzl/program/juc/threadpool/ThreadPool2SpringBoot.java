@@ -1,15 +1,16 @@
 package com.pzl.program.juc.threadpool;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
-import org.springframework.util.concurrent.ListenableFuture;
 
-import java.util.concurrent.Callable;
 import java.util.concurrent.Executor;
-import java.util.concurrent.Future;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 
 /**
@@ -17,6 +18,11 @@ import java.util.concurrent.ThreadPoolExecutor;
  * <p>
  * 一、自定义线程池
  * 根据业务配置不同的线程池
+ * 二、线程池监控
+ * 两个线程池都使用VisiableThreadPoolTaskExecutor,指标以pool标签区分
+ * 三、虚拟线程模式
+ * thread.async.virtual=true且运行在JDK21及以上时,两个执行器改为每个任务一个虚拟线程,
+ * 用信号量限制并发数代替队列,适合阻塞IO任务,见VirtualThreadTaskExecutor
  *
  * @author pzl
  * @date 2020-04-05
@@ -26,9 +32,29 @@ import java.util.concurrent.ThreadPoolExecutor;
 @Configuration
 public class ThreadPool2SpringBoot {
 
+    //任务排队和执行时间的采样率
+    @Value("${thread.metrics.sample-rate:0.1}")
+    private double sampleRate = 0.1;
+
+    //是否使用虚拟线程执行任务(JDK21及以上),不支持时使用下面配置的平台线程池
+    @Value("${thread.async.virtual:false}")
+    private boolean virtual = false;
+
+    //虚拟线程模式下同时执行的任务数上限
+    @Value("${thread.async.concurrency-limit:1000}")
+    private int concurrencyLimit = 1000;
+
+    //虚拟线程模式下达到上限时提交方等待的最长时间(毫秒)
+    @Value("${thread.async.acquire-timeout:1000}")
+    private long acquireTimeout = 1000;
+
     @Bean
     public Executor asyncServiceExecutor() {
-        ThreadPoolTaskExecutor threadPoolTaskExecutor = new VisiableThreadPoolTaskExecutor();
+        Executor virtualThreadExecutor = virtualThreadExecutor("async-service");
+        if (virtualThreadExecutor != null) {
+            return virtualThreadExecutor;
+        }
+        ThreadPoolTaskExecutor threadPoolTaskExecutor = new VisiableThreadPoolTaskExecutor("async-service", sampleRate);
         //核心线程数
         threadPoolTaskExecutor.setCorePoolSize(5);
         threadPoolTaskExecutor.setAllowCoreThreadTimeOut(true);
@@ -47,7 +73,11 @@ public class ThreadPool2SpringBoot {
 
     @Bean
     public Executor customServiceExecutor() {
-        ThreadPoolTaskExecutor threadPoolTaskExecutor = new ThreadPoolTaskExecutor();
+        Executor virtualThreadExecutor = virtualThreadExecutor("custom-service");
+        if (virtualThreadExecutor != null) {
+            return virtualThreadExecutor;
+        }
+        ThreadPoolTaskExecutor threadPoolTaskExecutor = new VisiableThreadPoolTaskExecutor("custom-service", sampleRate);
         //线程核心数目
         threadPoolTaskExecutor.setCorePoolSize(10);
         threadPoolTaskExecutor.setAllowCoreThreadTimeOut(true);
@@ -64,63 +94,44 @@ public class ThreadPool2SpringBoot {
         return threadPoolTaskExecutor;
     }
 
+    //每个任务一个虚拟线程,信号量限制并发数,未开启或JDK不支持时返回null
+    private Executor virtualThreadExecutor(String pool) {
+        if (!virtual) {
+            return null;
+        }
+        ThreadFactory threadFactory = VirtualThreadTaskExecutor.virtualThreadFactory(pool + "-");
+        if (threadFactory == null) {
+            log.warn("当前JDK不支持虚拟线程, {} 使用平台线程池", pool);
+            return null;
+        }
+        VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor(threadFactory, concurrencyLimit, acquireTimeout);
+        executor.setTaskDecorator(new ThreadPoolMetrics(pool, sampleRate));
+        log.info("{} 使用虚拟线程, 并发上限 {}", pool, concurrencyLimit);
+        return executor;
+    }
+
 }
 
 /**
- * 若是想在使用连接池的时候，打印出连接池的各项参数，应当设置
+ * 带监控的线程池:排队时间、执行时间(抽样)、拒绝次数和线程池状态通过Prometheus导出,见ThreadPoolMetrics
+ * 提交任务时不再读取线程池状态,getTaskCount/getActiveCount需要获取线程池的mainLock,每次提交都调用会成为瓶颈
  */
-@Slf4j
 class VisiableThreadPoolTaskExecutor extends ThreadPoolTaskExecutor {
 
-    //打印队列的详细信息
-    private void showThreadPoolInfo(String prefix) {
-        ThreadPoolExecutor threadPoolExecutor = getThreadPoolExecutor();
-        if (null == threadPoolExecutor) {
-            return;
-        }
-        log.info("{}, {},taskCount [{}], completedTaskCount [{}], activeCount [{}], queueSize [{}]",
-                this.getThreadNamePrefix(),
-                prefix,
-                threadPoolExecutor.getTaskCount(),
-                threadPoolExecutor.getCompletedTaskCount(),
-                threadPoolExecutor.getActiveCount(),
-                threadPoolExecutor.getQueue().size());
-    }
-
-    @Override
-    public void execute(Runnable task) {
-        showThreadPoolInfo("1. do execute");
-        super.execute(task);
-    }
+    private final ThreadPoolMetrics metrics;
 
-    @Override
-    public void execute(Runnable task, long startTimeout) {
-        showThreadPoolInfo("2. do execute");
-        super.execute(task, startTimeout);
-    }
-
-    @Override
-    public Future<?> submit(Runnable task) {
-        showThreadPoolInfo("1. do submit");
-        return super.submit(task);
-    }
-
-    @Override
-    public <T> Future<T> submit(Callable<T> task) {
-        showThreadPoolInfo("2. do submit");
-        return super.submit(task);
-    }
-
-    @Override
-    public ListenableFuture<?> submitListenable(Runnable task) {
-        showThreadPoolInfo("1. do submitListenable");
-        return super.submitListenable(task);
+    VisiableThreadPoolTaskExecutor(String pool, double sampleRate) {
+        this.metrics = new ThreadPoolMetrics(pool, sampleRate);
+        setTaskDecorator(metrics);
     }
 
     @Override
-    public <T> ListenableFuture<T> submitListenable(Callable<T> task) {
-        showThreadPoolInfo("2. do submitListenable");
-        return super.submitListenable(task);
+    protected ExecutorService initializeExecutor(ThreadFactory threadFactory,
+                                                 RejectedExecutionHandler rejectedExecutionHandler) {
+        ExecutorService executor = super.initializeExecutor(threadFactory,
+                metrics.rejectedExecutionHandler(rejectedExecutionHandler));
+        metrics.monitor(getThreadPoolExecutor());
+        return executor;
     }
 
 }
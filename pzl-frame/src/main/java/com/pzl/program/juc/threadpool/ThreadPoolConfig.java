@@ -1,38 +1,144 @@
 package com.pzl.program.juc.threadpool;
 
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.bind.PropertySourcesPropertyValues;
+import org.springframework.boot.bind.RelaxedDataBinder;
 import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.ConfigurableEnvironment;
 
 import java.util.concurrent.*;
 
 /**
  * 线程池配置信息
- * 使用时:直接 private  ExecutorService executorService; 注入即可
+ * 使用时:直接 private  ExecutorService executorService; 注入即可(@Primary,与DeadlineTaskExecutor区分)
+ * 线程数和队列容量可在运行时调整,不会丢失排队中的任务:
+ * 1、修改配置中心的thread.pool.*后调用/refresh(或POST /env修改)
+ * 2、POST /threadpool?corePoolSize=&maximumPoolSize=&queueCapacity=
+ * 饱和时的提交策略由thread.pool.rejectionPolicy指定,生产者可注入BackpressureMonitor在队列快满时暂停拉取
+ * 执行超过thread.pool.watchdog.budget的任务打印线程栈,GET /threadpool/watchdog查看各类任务耗时和卡住的任务
  *
  * @author pzl
  */
+@Slf4j
 @Configuration
 @EnableConfigurationProperties({ThreadPoolProperties.class})//使使用 @ConfigurationProperties 注解的类生效
 public class ThreadPoolConfig {
 
+    private static final String PREFIX = "thread.pool";
+
     @Autowired
     private ThreadPoolProperties threadPoolProperties;
 
+    @Autowired
+    private ConfigurableEnvironment environment;
+
+    //线程池状态和拒绝次数通过Prometheus导出,pool标签为thread-pool
+    private final ThreadPoolMetrics metrics = new ThreadPoolMetrics("thread-pool", 0);
+
     @Bean
-    public ExecutorService buildThreadPool() {
+    @Primary
+    public ResizableThreadPoolExecutor buildThreadPool() {
         ThreadFactory namedThreadFactory = new ThreadFactoryBuilder().build();
-        ThreadPoolExecutor threadPoolExecutor = new ThreadPoolExecutor(
+        ResizableThreadPoolExecutor threadPoolExecutor = new ResizableThreadPoolExecutor(
                 threadPoolProperties.getCorePoolSize(),  //核心线程池大小
                 threadPoolProperties.getMaximumPoolSize(), //最大线程数
                 threadPoolProperties.getKeepAliveTime(), //空闲线程存活时间
                 TimeUnit.MILLISECONDS, //时间单位
-                new ArrayBlockingQueue<>(threadPoolProperties.getQueueCapacity()), //阻塞队列
+                threadPoolProperties.getQueueCapacity(), //阻塞队列容量,可调整
                 namedThreadFactory,   //线程工厂
-                new ThreadPoolExecutor.AbortPolicy()); //线程池拒绝策略
+                rejectedExecutionHandler(threadPoolProperties)); //线程池拒绝策略,记录拒绝和丢弃次数
+        metrics.monitor(threadPoolExecutor);
         return threadPoolExecutor;
     }
 
+    /**
+     * 截止时间/优先级线程池,上游已超时的任务不再执行,租户之间公平调度
+     * 使用时:注入DeadlineTaskExecutor,调用submit(tenant, priority, timeout, unit, task)
+     */
+    @Bean
+    public DeadlineTaskExecutor deadlineTaskExecutor() {
+        ThreadPoolProperties.Deadline deadline = threadPoolProperties.getDeadline();
+        ThreadPoolMetrics deadlineMetrics = new ThreadPoolMetrics("deadline-pool", 0);
+        DeadlineTaskExecutor executor = new DeadlineTaskExecutor(
+                deadline.getThreads(),
+                deadline.getQueueCapacity(),
+                deadline.getMaxQueuedPerTenant(),
+                new ThreadFactoryBuilder().setNameFormat("deadline-pool-%d").build(),
+                deadlineMetrics.rejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy()));
+        executor.setExpiredListener(task -> {
+            deadlineMetrics.recordExpired();
+            log.debug("任务超过截止时间, 已丢弃: {}", task);
+        });
+        deadlineMetrics.monitor(executor);
+        return executor;
+    }
+
+    /**
+     * 线程池背压信号,生产者(Kafka/ActiveMQ消费者)据此暂停拉取
+     */
+    @Bean
+    public BackpressureMonitor threadPoolBackpressure(ResizableThreadPoolExecutor buildThreadPool) {
+        return new BackpressureMonitor(buildThreadPool, threadPoolProperties.getBackpressureHigh(),
+                threadPoolProperties.getBackpressureLow(), 100);
+    }
+
+    /**
+     * 任务看门狗,发现执行超过预算的任务并统计各类任务的耗时
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "thread.pool.watchdog", name = "enabled", havingValue = "true", matchIfMissing = true)
+    public TaskWatchdog threadPoolWatchdog(ResizableThreadPoolExecutor buildThreadPool) {
+        ThreadPoolProperties.Watchdog watchdog = threadPoolProperties.getWatchdog();
+        TaskWatchdog taskWatchdog = new TaskWatchdog("thread-pool", watchdog.getBudget(),
+                watchdog.getCheckInterval(), watchdog.isInterrupt(), watchdog.getStackDepth());
+        buildThreadPool.setWatchdog(taskWatchdog);
+        return taskWatchdog;
+    }
+
+    @Bean
+    public ThreadPoolMvcEndpoint threadPoolMvcEndpoint(ResizableThreadPoolExecutor buildThreadPool,
+                                                       ObjectProvider<TaskWatchdog> threadPoolWatchdog) {
+        return new ThreadPoolMvcEndpoint(buildThreadPool, threadPoolWatchdog.getIfAvailable());
+    }
+
+    /**
+     * 配置变更时调整线程池
+     * 直接从Environment重新绑定,不依赖ConfigurationPropertiesRebinder与本监听器的执行先后
+     */
+    @EventListener
+    public void onEnvironmentChange(EnvironmentChangeEvent event) {
+        boolean changed = false;
+        for (String key : event.getKeys()) {
+            if (key.startsWith(PREFIX)) {
+                changed = true;
+                break;
+            }
+        }
+        if (!changed) {
+            return;
+        }
+        ThreadPoolProperties fresh = new ThreadPoolProperties();
+        new RelaxedDataBinder(fresh, PREFIX).bind(new PropertySourcesPropertyValues(environment.getPropertySources()));
+        try {
+            buildThreadPool().resize(fresh);
+            buildThreadPool().setRejectedExecutionHandler(rejectedExecutionHandler(fresh));
+        } catch (IllegalArgumentException e) {
+            log.error("线程池配置无效,保持原配置: {}", e.getMessage());
+        }
+    }
+
+    private RejectedExecutionHandler rejectedExecutionHandler(ThreadPoolProperties properties) {
+        return metrics.rejectedExecutionHandler(SubmissionPolicies.of(properties.getRejectionPolicy(),
+                properties.getBlockTimeout(), properties.getCallerRunsPerSecond(), task -> metrics.recordShed()));
+    }
+
 }
@@ -0,0 +1,258 @@
+package com.pzl.program.juc.threadpool;
+
+import io.prometheus.client.Collector;
+import io.prometheus.client.CollectorRegistry;
+import io.prometheus.client.Counter;
+import io.prometheus.client.GaugeMetricFamily;
+import io.prometheus.client.Histogram;
+import org.springframework.core.task.TaskDecorator;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * 线程池监控,通过Prometheus(/prometheus端点)导出,替代每次提交任务都打印线程池状态的日志
+ * <p>
+ * 1、thread_pool_queue_wait_seconds / thread_pool_execution_seconds:任务排队时间和执行时间分布(直方图),只记录抽样的任务
+ * 2、thread_pool_rejected_total:最终被拒绝(拒绝策略抛出RejectedExecutionException)的任务数,
+ * Block等到空位、CallerRuns由提交线程执行、ShedOldest腾出位置后接受的任务不计入
+ * 3、thread_pool_shed_total / thread_pool_expired_total:被ShedOldest丢弃的排队任务数、因超过截止时间被丢弃的任务数,不抽样
+ * 4、thread_pool_size、thread_pool_active_threads、thread_pool_queue_size等:采集时才读取线程池状态
+ * <p>
+ * 开销:getTaskCount/getActiveCount等方法要获取线程池的mainLock,每次提交都调用会和工作线程抢锁,
+ * 这里只在Prometheus采集时调用一次。提交路径上只有一次随机数,未抽中的任务原样提交,
+ * 抽中的任务多一个包装对象、三次System.nanoTime和两次直方图记录(无锁累加)。
+ * <p>
+ * 使用:ThreadPoolTaskExecutor设置setTaskDecorator(metrics),拒绝策略用rejectedExecutionHandler包装,
+ * ShedOldestByPriorityPolicy的丢弃回调中调用recordShed,
+ * 初始化后调用monitor(executor)注册状态指标,见VisiableThreadPoolTaskExecutor。
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class ThreadPoolMetrics implements TaskDecorator {
+
+    private static final Histogram QUEUE_WAIT = Histogram.build()
+            .name("thread_pool_queue_wait_seconds").help("Time tasks spent waiting in the thread pool queue (sampled)")
+            .labelNames("pool")
+            .buckets(0.0001, 0.0005, 0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5, 10)
+            .register();
+
+    private static final Histogram EXECUTION = Histogram.build()
+            .name("thread_pool_execution_seconds").help("Time tasks spent running in the thread pool (sampled)")
+            .labelNames("pool")
+            .buckets(0.0001, 0.0005, 0.001, 0.005, 0.01, 0.05, 0.1, 0.5, 1, 5, 10)
+            .register();
+
+    private static final Counter REJECTED = Counter.build()
+            .name("thread_pool_rejected_total").help("Tasks rejected by the thread pool")
+            .labelNames("pool")
+            .register();
+
+    private static final Counter SHED = Counter.build()
+            .name("thread_pool_shed_total").help("Queued tasks discarded to make room for higher priority tasks")
+            .labelNames("pool")
+            .register();
+
+    private static final Counter EXPIRED = Counter.build()
+            .name("thread_pool_expired_total").help("Tasks dropped because their deadline passed before execution")
+            .labelNames("pool")
+            .register();
+
+    //被监控的线程池,采集时读取状态
+    private static final Map<String, ThreadPoolExecutor> POOLS = new ConcurrentHashMap<>();
+
+    static {
+        new Collector() {
+            @Override
+            public List<MetricFamilySamples> collect() {
+                return collectPools();
+            }
+        }.register();
+    }
+
+    private final String pool;
+
+    private final Histogram.Child queueWait;
+
+    private final Histogram.Child execution;
+
+    private final Counter.Child rejected;
+
+    private final Counter.Child shed;
+
+    private final Counter.Child expired;
+
+    //当前线程是否正在执行拒绝策略,ShedOldest腾出位置后重新execute,嵌套的拒绝只在最外层计数
+    private final ThreadLocal<Boolean> rejecting = new ThreadLocal<>();
+
+    //采样率,0到1
+    private volatile double sampleRate;
+
+    /**
+     * @param pool       线程池名称,作为指标的pool标签
+     * @param sampleRate 排队和执行时间的采样率,0到1
+     */
+    public ThreadPoolMetrics(String pool, double sampleRate) {
+        this.pool = pool;
+        this.queueWait = QUEUE_WAIT.labels(pool);
+        this.execution = EXECUTION.labels(pool);
+        this.rejected = REJECTED.labels(pool);
+        this.shed = SHED.labels(pool);
+        this.expired = EXPIRED.labels(pool);
+        setSampleRate(sampleRate);
+    }
+
+    /**
+     * 注册线程池状态指标,同名线程池后注册的覆盖先注册的,线程池终止后不再导出
+     *
+     * @param executor 线程池
+     */
+    public void monitor(ThreadPoolExecutor executor) {
+        POOLS.put(pool, executor);
+    }
+
+    /**
+     * 抽中的任务包装为记录排队和执行时间的任务,未抽中的原样返回
+     */
+    @Override
+    public Runnable decorate(Runnable task) {
+        double rate = sampleRate;
+        if (rate <= 0 || ThreadLocalRandom.current().nextDouble() >= rate) {
+            return task;
+        }
+        return new TimedRunnable(task, queueWait, execution);
+    }
+
+    /**
+     * 包装拒绝策略,原拒绝策略抛出RejectedExecutionException(任务最终没有被接受)时计数
+     *
+     * @param delegate 原拒绝策略
+     * @return 计数的拒绝策略
+     */
+    public RejectedExecutionHandler rejectedExecutionHandler(RejectedExecutionHandler delegate) {
+        return (task, executor) -> {
+            boolean outermost = rejecting.get() == null;
+            if (outermost) {
+                rejecting.set(Boolean.TRUE);
+            }
+            try {
+                delegate.rejectedExecution(task, executor);
+            } catch (RejectedExecutionException e) {
+                if (outermost) {
+                    rejected.inc();
+                }
+                throw e;
+            } finally {
+                if (outermost) {
+                    rejecting.remove();
+                }
+            }
+        };
+    }
+
+    /**
+     * 记录一个被ShedOldestByPriorityPolicy丢弃的排队任务
+     */
+    public void recordShed() {
+        shed.inc();
+    }
+
+    /**
+     * 记录一个因超过截止时间被丢弃的任务,见DeadlineTaskExecutor
+     */
+    public void recordExpired() {
+        expired.inc();
+    }
+
+    /**
+     * 运行时调整采样率
+     *
+     * @param sampleRate 采样率,0到1,0关闭排队和执行时间统计
+     */
+    public void setSampleRate(double sampleRate) {
+        this.sampleRate = Math.max(0, Math.min(1, sampleRate));
+    }
+
+    public String getPool() {
+        return pool;
+    }
+
+    private static List<Collector.MetricFamilySamples> collectPools() {
+        List<String> labels = Collections.singletonList("pool");
+        GaugeMetricFamily core = new GaugeMetricFamily("thread_pool_core_size", "Thread pool core size", labels);
+        GaugeMetricFamily max = new GaugeMetricFamily("thread_pool_max_size", "Thread pool maximum size", labels);
+        GaugeMetricFamily size = new GaugeMetricFamily("thread_pool_size", "Current number of threads", labels);
+        GaugeMetricFamily largest = new GaugeMetricFamily("thread_pool_largest_size", "Largest number of threads", labels);
+        GaugeMetricFamily active = new GaugeMetricFamily("thread_pool_active_threads", "Threads running tasks", labels);
+        GaugeMetricFamily queued = new GaugeMetricFamily("thread_pool_queue_size", "Tasks waiting in the queue", labels);
+        GaugeMetricFamily remaining = new GaugeMetricFamily("thread_pool_queue_remaining", "Remaining queue capacity", labels);
+        GaugeMetricFamily completed = new GaugeMetricFamily("thread_pool_completed_tasks", "Completed tasks", labels);
+        Iterator<Map.Entry<String, ThreadPoolExecutor>> iterator = POOLS.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<String, ThreadPoolExecutor> entry = iterator.next();
+            ThreadPoolExecutor executor = entry.getValue();
+            if (executor.isTerminated()) {
+                iterator.remove();
+                continue;
+            }
+            List<String> value = Collections.singletonList(entry.getKey());
+            core.addMetric(value, executor.getCorePoolSize());
+            max.addMetric(value, executor.getMaximumPoolSize());
+            size.addMetric(value, executor.getPoolSize());
+            largest.addMetric(value, executor.getLargestPoolSize());
+            active.addMetric(value, executor.getActiveCount());
+            queued.addMetric(value, executor.getQueue().size());
+            remaining.addMetric(value, executor.getQueue().remainingCapacity());
+            completed.addMetric(value, executor.getCompletedTaskCount());
+        }
+        return Arrays.asList(core, max, size, largest, active, queued, remaining, completed);
+    }
+
+    /**
+     * 记录排队时间和执行时间的任务,保留原任务的优先级
+     */
+    private static class TimedRunnable implements Runnable, Prioritized {
+
+        private final Runnable task;
+
+        private final Histogram.Child queueWait;
+
+        private final Histogram.Child execution;
+
+        private final long submitted = System.nanoTime();
+
+        TimedRunnable(Runnable task, Histogram.Child queueWait, Histogram.Child execution) {
+            this.task = task;
+            this.queueWait = queueWait;
+            this.execution = execution;
+        }
+
+        @Override
+        public void run() {
+            long start = System.nanoTime();
+            queueWait.observe((start - submitted) / 1e9);
+            try {
+                task.run();
+            } finally {
+                execution.observe((System.nanoTime() - start) / 1e9);
+            }
+        }
+
+        @Override
+        public int getPriority() {
+            return Prioritized.priorityOf(task);
+        }
+
+        @Override
+        public String toString() {
+            return task.toString();
+        }
+
+    }
+
+}
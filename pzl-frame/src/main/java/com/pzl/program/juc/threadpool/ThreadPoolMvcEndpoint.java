@@ -0,0 +1,81 @@
+package com.pzl.program.juc.threadpool;
+
+import org.springframework.boot.actuate.endpoint.mvc.AbstractNamedMvcEndpoint;
+import org.springframework.boot.actuate.endpoint.mvc.ActuatorMediaTypes;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestMethod;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseBody;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 线程池管理端点
+ * <p>
+ * GET  /threadpool 查看线程池参数和运行状态
+ * POST /threadpool?corePoolSize=&maximumPoolSize=&queueCapacity= 调整线程池,未传的参数保持不变
+ * GET  /threadpool/watchdog 各类任务的次数、墙钟时间、CPU时间,以及当前卡住的任务和栈采样
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class ThreadPoolMvcEndpoint extends AbstractNamedMvcEndpoint {
+
+    private final ResizableThreadPoolExecutor executor;
+
+    private final TaskWatchdog watchdog;
+
+    /**
+     * @param executor 线程池
+     * @param watchdog 任务看门狗,可以为null
+     */
+    public ThreadPoolMvcEndpoint(ResizableThreadPoolExecutor executor, TaskWatchdog watchdog) {
+        super("threadpool", "/threadpool", true);
+        this.executor = executor;
+        this.watchdog = watchdog;
+    }
+
+    @RequestMapping(method = RequestMethod.GET, produces = {ActuatorMediaTypes.APPLICATION_ACTUATOR_V1_JSON_VALUE,
+            MediaType.APPLICATION_JSON_VALUE})
+    @ResponseBody
+    public Map<String, Object> status() {
+        return executor.status();
+    }
+
+    @RequestMapping(value = "/watchdog", method = RequestMethod.GET, produces = {
+            ActuatorMediaTypes.APPLICATION_ACTUATOR_V1_JSON_VALUE, MediaType.APPLICATION_JSON_VALUE})
+    @ResponseBody
+    public ResponseEntity<?> watchdog() {
+        if (watchdog == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND)
+                    .body(Collections.singletonMap("message", "thread.pool.watchdog is disabled"));
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("stuck", watchdog.stuckTasks());
+        report.put("tasks", watchdog.taskStats());
+        return ResponseEntity.ok(report);
+    }
+
+    @RequestMapping(method = RequestMethod.POST, produces = {ActuatorMediaTypes.APPLICATION_ACTUATOR_V1_JSON_VALUE,
+            MediaType.APPLICATION_JSON_VALUE})
+    @ResponseBody
+    public ResponseEntity<?> resize(@RequestParam(required = false) Integer corePoolSize,
+                                    @RequestParam(required = false) Integer maximumPoolSize,
+                                    @RequestParam(required = false) Integer queueCapacity) {
+        try {
+            executor.resize(corePoolSize != null ? corePoolSize : executor.getCorePoolSize(),
+                    maximumPoolSize != null ? maximumPoolSize : executor.getMaximumPoolSize(),
+                    queueCapacity != null ? queueCapacity : executor.getQueueCapacity());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body(Collections.singletonMap("message", e.getMessage()));
+        }
+        return ResponseEntity.ok(executor.status());
+    }
+
+}
@@ -24,4 +24,59 @@ public class ThreadPoolProperties {
     //阻塞队列容量
     private int queueCapacity;
 
+    //饱和时的提交策略:abort/block/shed-oldest/caller-runs,见SubmissionPolicies
+    private String rejectionPolicy = SubmissionPolicies.ABORT;
+
+    //block策略等待队列空位的最长时间(毫秒)
+    private long blockTimeout = 1000;
+
+    //caller-runs策略每秒由提交线程执行的任务数,超出后按block等待
+    private double callerRunsPerSecond = 100;
+
+    //队列饱和度达到该值时发出背压信号,生产者暂停拉取
+    private double backpressureHigh = 0.8;
+
+    //队列饱和度降到该值时解除背压
+    private double backpressureLow = 0.5;
+
+    //截止时间/优先级线程池,见DeadlineTaskExecutor
+    private Deadline deadline = new Deadline();
+
+    //任务看门狗,见TaskWatchdog
+    private Watchdog watchdog = new Watchdog();
+
+    @Data
+    public static class Deadline {
+
+        //线程数
+        private int threads = 20;
+
+        //阻塞队列容量
+        private int queueCapacity = 1000;
+
+        //单个租户最多排队的任务数
+        private int maxQueuedPerTenant = 200;
+
+    }
+
+    @Data
+    public static class Watchdog {
+
+        //是否开启
+        private boolean enabled = true;
+
+        //任务执行时间预算(毫秒),超过视为卡住
+        private long budget = 30000;
+
+        //检查间隔(毫秒)
+        private long checkInterval = 1000;
+
+        //是否中断卡住的任务
+        private boolean interrupt = false;
+
+        //栈采样保留的帧数
+        private int stackDepth = 30;
+
+    }
+
 }
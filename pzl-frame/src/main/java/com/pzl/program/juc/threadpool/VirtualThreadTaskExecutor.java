@@ -0,0 +1,199 @@
+package com.pzl.program.juc.threadpool;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.core.task.AsyncListenableTaskExecutor;
+import org.springframework.core.task.TaskDecorator;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.util.concurrent.ListenableFuture;
+import org.springframework.util.concurrent.ListenableFutureTask;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 每个任务一个线程、用信号量限制并发数的执行器,用于JDBC、RestTemplate、Redis等阻塞IO任务
+ * <p>
+ * 固定大小线程池+有界队列在IO任务堆积时只能拒绝:线程都阻塞在IO上,队列很快排满。
+ * 虚拟线程阻塞时不占用平台线程,每个任务一个虚拟线程即可,不需要池化和排队,
+ * 用信号量限制同时执行的任务数保护下游(连接池、数据库),许可用完时提交方最多等待acquireTimeout,超时抛TaskRejectedException。
+ * <p>
+ * 虚拟线程需要JDK21及以上,项目按JDK8编译,通过反射创建Thread.ofVirtual()的ThreadFactory,
+ * 不支持时virtualThreadFactory返回null,由调用方回退到平台线程池,见ThreadPool2SpringBoot。
+ * 也可以传入普通ThreadFactory,每个任务一个平台线程。
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+@Slf4j
+public class VirtualThreadTaskExecutor implements AsyncListenableTaskExecutor, DisposableBean {
+
+    private final ThreadFactory threadFactory;
+
+    private final int concurrencyLimit;
+
+    private final Semaphore permits;
+
+    //提交方等待许可的最长时间(毫秒)
+    private final long acquireTimeout;
+
+    private volatile TaskDecorator taskDecorator;
+
+    private volatile boolean shutdown;
+
+    /**
+     * @param threadFactory    线程工厂,一般为virtualThreadFactory
+     * @param concurrencyLimit 同时执行的任务数上限
+     * @param acquireTimeout   许可用完时提交方等待的最长时间(毫秒),0不等待
+     */
+    public VirtualThreadTaskExecutor(ThreadFactory threadFactory, int concurrencyLimit, long acquireTimeout) {
+        if (concurrencyLimit <= 0) {
+            throw new IllegalArgumentException("concurrencyLimit must be greater than 0: " + concurrencyLimit);
+        }
+        this.threadFactory = threadFactory;
+        this.concurrencyLimit = concurrencyLimit;
+        this.permits = new Semaphore(concurrencyLimit);
+        this.acquireTimeout = acquireTimeout;
+    }
+
+    /**
+     * 创建虚拟线程工厂,线程名为prefix加序号
+     *
+     * @param prefix 线程名前缀
+     * @return 当前JDK不支持虚拟线程时返回null
+     */
+    public static ThreadFactory virtualThreadFactory(String prefix) {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            Class<?> ofVirtual = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            builder = ofVirtual.getMethod("name", String.class, long.class).invoke(builder, prefix, 0L);
+            return (ThreadFactory) ofVirtual.getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            //JDK21以下没有Thread.ofVirtual,JDK19/20未开启--enable-preview时抛UnsupportedOperationException
+            return null;
+        }
+    }
+
+    /**
+     * 任务装饰器,如ThreadPoolMetrics,在取得许可后调用
+     */
+    public void setTaskDecorator(TaskDecorator taskDecorator) {
+        this.taskDecorator = taskDecorator;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        execute(task, TIMEOUT_INDEFINITE);
+    }
+
+    /**
+     * @param startTimeout 为TIMEOUT_IMMEDIATE时不等待许可,否则最多等待acquireTimeout
+     */
+    @Override
+    public void execute(Runnable task, long startTimeout) {
+        if (task == null) {
+            throw new NullPointerException();
+        }
+        if (shutdown) {
+            throw new TaskRejectedException("Executor has been shut down, rejected task " + task);
+        }
+        acquire(task, startTimeout == TIMEOUT_IMMEDIATE ? 0 : acquireTimeout);
+        TaskDecorator decorator = taskDecorator;
+        Runnable runnable = decorator != null ? decorator.decorate(task) : task;
+        try {
+            threadFactory.newThread(() -> {
+                try {
+                    runnable.run();
+                } finally {
+                    permits.release();
+                }
+            }).start();
+        } catch (RuntimeException | Error e) {
+            permits.release();
+            throw new TaskRejectedException("Failed to start thread for task " + task, e);
+        }
+    }
+
+    @Override
+    public Future<?> submit(Runnable task) {
+        FutureTask<Object> future = new FutureTask<>(task, null);
+        execute(future);
+        return future;
+    }
+
+    @Override
+    public <T> Future<T> submit(Callable<T> task) {
+        FutureTask<T> future = new FutureTask<>(task);
+        execute(future);
+        return future;
+    }
+
+    @Override
+    public ListenableFuture<?> submitListenable(Runnable task) {
+        ListenableFutureTask<Object> future = new ListenableFutureTask<>(task, null);
+        execute(future);
+        return future;
+    }
+
+    @Override
+    public <T> ListenableFuture<T> submitListenable(Callable<T> task) {
+        ListenableFutureTask<T> future = new ListenableFutureTask<>(task);
+        execute(future);
+        return future;
+    }
+
+    /**
+     * 正在执行的任务数
+     */
+    public int getActiveCount() {
+        return concurrencyLimit - permits.availablePermits();
+    }
+
+    /**
+     * 等待许可的提交方个数(估计值)
+     */
+    public int getWaitingCount() {
+        return permits.getQueueLength();
+    }
+
+    public int getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    /**
+     * 不再接受新任务,最多等待timeout让正在执行的任务结束
+     *
+     * @return 超时前所有任务都已结束返回true
+     */
+    public boolean shutdown(long timeout, TimeUnit unit) throws InterruptedException {
+        shutdown = true;
+        if (permits.tryAcquire(concurrencyLimit, timeout, unit)) {
+            permits.release(concurrencyLimit);
+            return true;
+        }
+        return false;
+    }
+
+    @Override
+    public void destroy() throws InterruptedException {
+        if (!shutdown(30, TimeUnit.SECONDS)) {
+            log.warn("执行器关闭时仍有 {} 个任务未结束", getActiveCount());
+        }
+    }
+
+    private void acquire(Runnable task, long timeout) {
+        try {
+            if (!permits.tryAcquire(timeout, TimeUnit.MILLISECONDS)) {
+                throw new TaskRejectedException("Concurrency limit " + concurrencyLimit + " reached, rejected task " + task);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new TaskRejectedException("Interrupted while waiting to submit task " + task, e);
+        }
+    }
+
+}
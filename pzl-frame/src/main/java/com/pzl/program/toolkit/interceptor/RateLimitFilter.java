@@ -0,0 +1,169 @@
+package com.pzl.program.toolkit.interceptor;
+
+import com.alibaba.fastjson.JSONObject;
+import com.google.common.net.InetAddresses;
+import com.pzl.program.frametool.redis.RateLimitRule;
+import com.pzl.program.frametool.redis.RedisRateLimiter;
+import com.pzl.program.toolkit.enums.ResultStatusCode;
+import com.pzl.program.toolkit.properties.RateLimitProperties;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.commons.lang3.StringUtils;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 接口限流过滤器
+ * 按客户端IP(可选再加请求路径)限流,超出后返回429
+ * <p>
+ * 客户端IP默认取连接的对端地址。X-Forwarded-For可以由客户端任意伪造,只有对端地址在受信任代理列表中时才读取,
+ * 并从右向左跳过受信任的代理,取第一个不受信任的地址;未配置受信任代理时忽略该请求头。
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+@Slf4j
+public class RateLimitFilter implements Filter {
+
+    //HTTP 429 Too Many Requests
+    private static final int SC_TOO_MANY_REQUESTS = 429;
+
+    private final RedisRateLimiter redisRateLimiter;
+
+    private final RateLimitProperties properties;
+
+    private final RateLimitRule rule;
+
+    private final List<IpRange> trustedProxies = new ArrayList<>();
+
+    public RateLimitFilter(RedisRateLimiter redisRateLimiter, RateLimitProperties properties) {
+        this.redisRateLimiter = redisRateLimiter;
+        this.properties = properties;
+        this.rule = properties.toRule();
+        for (String proxy : properties.getTrustedProxies()) {
+            trustedProxies.add(IpRange.parse(proxy.trim()));
+        }
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) throws ServletException {
+        // Do nothing
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain filterChain)
+            throws IOException, ServletException {
+        if (!(request instanceof HttpServletRequest) || tryAcquire((HttpServletRequest) request)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        HttpServletResponse httpResponse = (HttpServletResponse) response;
+        httpResponse.setStatus(SC_TOO_MANY_REQUESTS);
+        httpResponse.setContentType("application/json;charset=UTF-8");
+        JSONObject body = new JSONObject();
+        body.put("respCode", ResultStatusCode.FAILURE.getRespCode());
+        body.put("message", "请求过于频繁,请稍后再试");
+        httpResponse.getWriter().write(body.toJSONString());
+    }
+
+    private boolean tryAcquire(HttpServletRequest request) {
+        String key = "api:" + clientIp(request);
+        if (properties.isPerUri()) {
+            key = key + ":" + request.getRequestURI();
+        }
+        try {
+            return redisRateLimiter.tryAcquire(key, rule);
+        } catch (Exception e) {
+            log.warn("rate limit check fail, key={}, failOpen={}", key, properties.isFailOpen(), e);
+            return properties.isFailOpen();
+        }
+    }
+
+    String clientIp(HttpServletRequest request) {
+        String remoteAddr = request.getRemoteAddr();
+        String forwarded = request.getHeader("X-Forwarded-For");
+        if (StringUtils.isBlank(forwarded) || !isTrustedProxy(remoteAddr)) {
+            return remoteAddr;
+        }
+        //每经过一个代理在右边追加一个地址,左边的部分可能是客户端伪造的
+        String[] hops = StringUtils.split(forwarded, ',');
+        for (int i = hops.length - 1; i >= 0; i--) {
+            String hop = hops[i].trim();
+            if (!InetAddresses.isInetAddress(hop)) {
+                return remoteAddr;
+            }
+            if (i == 0 || !isTrustedProxy(hop)) {
+                return hop;
+            }
+        }
+        return remoteAddr;
+    }
+
+    private boolean isTrustedProxy(String ip) {
+        if (trustedProxies.isEmpty() || !InetAddresses.isInetAddress(ip)) {
+            return false;
+        }
+        InetAddress address = InetAddresses.forString(ip);
+        for (IpRange range : trustedProxies) {
+            if (range.contains(address)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public void destroy() {
+        // Do nothing
+    }
+
+    /**
+     * IP地址段,单个IP或CIDR(如10.0.0.0/8、fd00::/8)
+     */
+    private static final class IpRange {
+
+        private final byte[] network;
+
+        private final int prefix;
+
+        private IpRange(byte[] network, int prefix) {
+            this.network = network;
+            this.prefix = prefix;
+        }
+
+        static IpRange parse(String value) {
+            String ip = StringUtils.substringBefore(value, "/");
+            if (!InetAddresses.isInetAddress(ip)) {
+                throw new IllegalArgumentException("invalid trusted proxy: " + value);
+            }
+            byte[] network = InetAddresses.forString(ip).getAddress();
+            int prefix = value.contains("/") ? Integer.parseInt(StringUtils.substringAfter(value, "/")) : network.length * 8;
+            if (prefix < 0 || prefix > network.length * 8) {
+                throw new IllegalArgumentException("invalid trusted proxy prefix: " + value);
+            }
+            return new IpRange(network, prefix);
+        }
+
+        boolean contains(InetAddress address) {
+            byte[] bytes = address.getAddress();
+            if (bytes.length != network.length) {
+                return false;
+            }
+            int bits = prefix;
+            for (int i = 0; bits > 0; i++, bits -= 8) {
+                int mask = bits >= 8 ? 0xFF : (0xFF << (8 - bits)) & 0xFF;
+                if ((bytes[i] & mask) != (network[i] & mask)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+    }
+
+}
@@ -1,5 +1,9 @@
 package com.pzl.program.toolkit.interceptor;
 
+import com.pzl.program.frametool.redis.RedisRateLimiter;
+import com.pzl.program.toolkit.properties.RateLimitProperties;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -13,6 +17,7 @@ import org.springframework.web.servlet.config.annotation.WebMvcConfigurerAdapter
  * @author pzl
  */
 @Configuration
+@EnableConfigurationProperties({RateLimitProperties.class})
 public class WebConfig extends WebMvcConfigurerAdapter {
 
     /**
@@ -50,4 +55,19 @@ public class WebConfig extends WebMvcConfigurerAdapter {
         return filterBean;
     }
 
+    /**
+     * 接口限流过滤器,配置 rate-limit.filter.enabled=true 后生效,排在其他过滤器之前
+     */
+    @Bean
+    @ConditionalOnProperty(prefix = "rate-limit.filter", name = "enabled", havingValue = "true")
+    public FilterRegistrationBean rateLimitFilter(RedisRateLimiter redisRateLimiter,
+                                                  RateLimitProperties rateLimitProperties) {
+        FilterRegistrationBean filterBean = new FilterRegistrationBean();
+        filterBean.setFilter(new RateLimitFilter(redisRateLimiter, rateLimitProperties));
+        filterBean.setName("rateLimitFilter");
+        filterBean.addUrlPatterns(rateLimitProperties.getUrlPatterns());
+        filterBean.setOrder(1);
+        return filterBean;
+    }
+
 }
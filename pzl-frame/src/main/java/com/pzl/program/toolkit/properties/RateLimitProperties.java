@@ -0,0 +1,53 @@
+package com.pzl.program.toolkit.properties;
+
+import com.pzl.program.frametool.redis.RateLimitRule;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 接口限流过滤器 属性配置
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+@Data
+@ConfigurationProperties("rate-limit.filter")
+public class RateLimitProperties {
+
+    //是否开启限流过滤器
+    private boolean enabled = false;
+
+    //限流算法
+    private RateLimitRule.Algorithm algorithm = RateLimitRule.Algorithm.TOKEN_BUCKET;
+
+    //令牌桶容量/窗口内请求上限
+    private long capacity = 100;
+
+    //令牌桶每秒生成的令牌数
+    private double permitsPerSecond = 50;
+
+    //滑动窗口长度(毫秒)
+    private long window = 1000;
+
+    //是否按"客户端IP+请求路径"分别限流,默认只按客户端IP
+    private boolean perUri = false;
+
+    //Redis异常时是否放行
+    private boolean failOpen = true;
+
+    private String[] urlPatterns = {"/*"};
+
+    //受信任的反向代理(IP或CIDR),请求来自这些地址时才按X-Forwarded-For取客户端IP,为空时只用连接的对端地址
+    private List<String> trustedProxies = new ArrayList<>();
+
+    public RateLimitRule toRule() {
+        return algorithm == RateLimitRule.Algorithm.TOKEN_BUCKET
+                ? RateLimitRule.tokenBucket(capacity, permitsPerSecond)
+                : RateLimitRule.slidingWindow(capacity, window, TimeUnit.MILLISECONDS);
+    }
+
+}
@@ -0,0 +1,131 @@
+package com.pzl.program.frametool.redis;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * AsyncRedisUtil一次流水线中的回复与future的对应:状态命令、近端缓存失效广播、失败的命令混在同一批中
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class AsyncRedisUtilTest {
+
+    private EmbeddedRedis redis;
+
+    private StringRedisTemplate template;
+
+    //第一次流水线在这里等待,期间提交的命令进入同一批
+    private final CountDownLatch entered = new CountDownLatch(1);
+
+    private final CountDownLatch gate = new CountDownLatch(1);
+
+    private RedisNearCache nearCache;
+
+    private AsyncRedisUtil asyncRedisUtil;
+
+    @Before
+    public void setUp() {
+        redis = EmbeddedRedis.start();
+        template = redis.getStringRedisTemplate();
+        StringRedisTemplate gated = new StringRedisTemplate(redis.getConnectionFactory()) {
+            @Override
+            public List<Object> executePipelined(RedisCallback<?> action) {
+                entered.countDown();
+                try {
+                    gate.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return super.executePipelined(action);
+            }
+        };
+        RedisNearCacheProperties properties = new RedisNearCacheProperties();
+        properties.setExpireAfterWrite(60000);
+        nearCache = new RedisNearCache(template, properties);
+        asyncRedisUtil = new AsyncRedisUtil();
+        ReflectionTestUtils.setField(asyncRedisUtil, "stringRedisTemplate", gated);
+        ReflectionTestUtils.setField(asyncRedisUtil, "redisNearCache", nearCache);
+        ReflectionTestUtils.setField(asyncRedisUtil, "dispatchers", 1);
+        asyncRedisUtil.start();
+    }
+
+    @After
+    public void tearDown() {
+        gate.countDown();
+        asyncRedisUtil.shutdown();
+        redis.getConnectionFactory().setConvertPipelineAndTxResults(true);
+    }
+
+    @Test
+    public void repliesMatchedInMixedBatch() throws InterruptedException {
+        assertRepliesMatched();
+    }
+
+    @Test
+    public void repliesMatchedWithStatusRepliesInPipeline() throws InterruptedException {
+        //不转换流水线结果时,状态命令的回复出现在结果中
+        redis.getConnectionFactory().setConvertPipelineAndTxResults(false);
+        assertRepliesMatched();
+    }
+
+    private void assertRepliesMatched() throws InterruptedException {
+        template.opsForValue().set("counter", "10");
+        template.opsForValue().set("text", "abc");
+        template.opsForValue().set("plain", "v");
+        //近端缓存中已有旧值
+        assertEquals("10", nearCache.get("counter"));
+
+        //占住分发线程,后面的命令在队列中积累
+        CompletableFuture<String> first = asyncRedisUtil.get("plain");
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        long pipelines = asyncRedisUtil.getPipelineCount();
+
+        CompletableFuture<Void> hPutAll = asyncRedisUtil.hPutAll("hash", Collections.singletonMap("f", "1"));
+        CompletableFuture<Long> incr = asyncRedisUtil.incrBy("counter", 5);
+        CompletableFuture<Long> failed = asyncRedisUtil.incrBy("text", 1);
+        CompletableFuture<Void> set = asyncRedisUtil.set("other", "x");
+        CompletableFuture<String> get = asyncRedisUtil.get("plain");
+        CompletableFuture<Map<String, String>> hGetAll = asyncRedisUtil.hGetAll("hash");
+        CompletableFuture<Long> incrAgain = asyncRedisUtil.incrBy("counter", 1);
+        CompletableFuture<Long> size = asyncRedisUtil.lLen("absent");
+        gate.countDown();
+
+        assertEquals("v", first.join());
+        assertNull(hPutAll.join());
+        assertEquals(Long.valueOf(15), incr.join());
+        try {
+            failed.join();
+            fail();
+        } catch (CompletionException expected) {
+            //值不是整数
+        }
+        assertNull(set.join());
+        assertEquals("v", get.join());
+        assertEquals(Collections.singletonMap("f", "1"), hGetAll.join());
+        assertEquals(Long.valueOf(16), incrAgain.join());
+        assertEquals(Long.valueOf(0), size.join());
+        //第一条命令一次流水线,其余命令在同一次流水线中发送
+        assertEquals(pipelines + 2, asyncRedisUtil.getPipelineCount());
+        //写命令失效了本地缓存
+        assertEquals("16", nearCache.get("counter"));
+    }
+
+}
@@ -0,0 +1,124 @@
+package com.pzl.program.frametool.redis;
+
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.redis.connection.jedis.JedisConnectionFactory;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+import redis.embedded.RedisServer;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.ServerSocket;
+
+/**
+ * 测试用的嵌入式Redis(6.2),整个测试进程共用一个服务端,JVM退出时停止
+ * <p>
+ * RedisScripts中的Lua脚本在这里由真实的Redis执行,而不是benchmark中基于内存的替身。
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public final class EmbeddedRedis {
+
+    private static EmbeddedRedis instance;
+
+    private final RedisServer server;
+
+    private final JedisConnectionFactory connectionFactory;
+
+    private final StringRedisTemplate stringRedisTemplate;
+
+    private EmbeddedRedis() throws IOException {
+        int port = freePort();
+        this.server = RedisServer.newRedisServer().port(port).bind("127.0.0.1")
+                .setting("save \"\"").setting("appendonly no").build();
+        server.start();
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.stop();
+            } catch (IOException ignored) {
+                //进程退出时忽略
+            }
+        }));
+        this.connectionFactory = new JedisConnectionFactory();
+        connectionFactory.setHostName("127.0.0.1");
+        connectionFactory.setPort(port);
+        connectionFactory.afterPropertiesSet();
+        this.stringRedisTemplate = new StringRedisTemplate(connectionFactory);
+    }
+
+    /**
+     * 启动(只启动一次)并清空数据
+     *
+     * @return EmbeddedRedis
+     */
+    public static synchronized EmbeddedRedis start() {
+        if (instance == null) {
+            try {
+                instance = new EmbeddedRedis();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        instance.flushAll();
+        return instance;
+    }
+
+    public JedisConnectionFactory getConnectionFactory() {
+        return connectionFactory;
+    }
+
+    public StringRedisTemplate getStringRedisTemplate() {
+        return stringRedisTemplate;
+    }
+
+    public void flushAll() {
+        stringRedisTemplate.execute((RedisCallback<Object>) connection -> {
+            connection.flushAll();
+            return null;
+        });
+    }
+
+    /**
+     * 创建组件,注入必需的@Autowired字段(StringRedisTemplate、RedisTemplate、其他@Component)
+     *
+     * @param type 组件类型
+     * @return 组件实例
+     */
+    public <T> T newComponent(Class<T> type) {
+        T component = BeanUtils.instantiateClass(type);
+        ReflectionUtils.doWithFields(type, field -> {
+            Autowired autowired = field.getAnnotation(Autowired.class);
+            if (autowired == null || !autowired.required()) {
+                return;
+            }
+            Object value;
+            if (field.getType() == StringRedisTemplate.class) {
+                value = stringRedisTemplate;
+            } else if (field.getType() == RedisTemplate.class) {
+                RedisTemplate<Object, Object> redisTemplate = new RedisTemplate<>();
+                redisTemplate.setConnectionFactory(connectionFactory);
+                redisTemplate.afterPropertiesSet();
+                value = redisTemplate;
+            } else if (field.getType().isAnnotationPresent(Component.class)) {
+                value = newComponent(field.getType());
+            } else {
+                return;
+            }
+            ReflectionUtils.makeAccessible(field);
+            ReflectionUtils.setField(field, component, value);
+        });
+        return component;
+    }
+
+    private static int freePort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+}
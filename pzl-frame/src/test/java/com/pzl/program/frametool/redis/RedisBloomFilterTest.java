@@ -0,0 +1,102 @@
+package com.pzl.program.frametool.redis;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * RedisBloomFilter添加、查询、计数与分层扩容
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class RedisBloomFilterTest {
+
+    private StringRedisTemplate template;
+
+    private RedisUtil redisUtil;
+
+    @Before
+    public void setUp() {
+        EmbeddedRedis redis = EmbeddedRedis.start();
+        template = redis.getStringRedisTemplate();
+        redisUtil = redis.newComponent(RedisUtil.class);
+    }
+
+    @Test
+    public void addAndMightContain() {
+        RedisBloomFilter filter = redisUtil.bloomFilter("users", 1000, 0.01);
+        assertTrue(filter.add("a"));
+        assertFalse(filter.add("a"));
+        assertTrue(filter.mightContain("a"));
+        assertFalse(filter.mightContain("b"));
+        assertEquals(1, filter.approximateElementCount());
+        assertEquals("1", template.opsForValue().get("bloom:{users}:count"));
+    }
+
+    @Test
+    public void addAllCountsNewElementsOnly() {
+        RedisBloomFilter filter = redisUtil.bloomFilter("users", 1000, 0.01);
+        filter.add("a");
+        //批内重复的元素和已存在的元素都不计入
+        assertEquals(2, filter.addAll(Arrays.asList("a", "b", "c", "b")));
+        assertEquals(3, filter.approximateElementCount());
+        assertEquals(Arrays.asList(true, true, true, false), filter.mightContainAll(Arrays.asList("a", "b", "c", "d")));
+    }
+
+    @Test
+    public void layerGrowth() {
+        RedisBloomFilter filter = redisUtil.bloomFilter("users", 100, 0.01);
+        List<String> values = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            values.add("member-" + i);
+        }
+        long added = filter.addAll(values);
+        assertEquals(added, filter.approximateElementCount());
+        //各层容量100、200、400、800,写入1000个元素后至少启用4层
+        assertTrue(added > 900);
+        assertEquals(4, filter.layerCount());
+        for (int i = 0; i < 4; i++) {
+            assertTrue(template.hasKey("bloom:{users}:" + i));
+        }
+        for (String value : values) {
+            assertTrue(value, filter.mightContain(value));
+        }
+
+        //其他节点从计数推算出层数,查询所有层
+        RedisBloomFilter other = redisUtil.bloomFilter("users", 100, 0.01);
+        assertEquals(Arrays.asList(true, true), other.mightContainAll(Arrays.asList("member-0", "member-999")));
+        assertEquals(4, other.layerCount());
+        int falsePositives = 0;
+        for (int i = 0; i < 1000; i++) {
+            if (other.mightContain("absent-" + i)) {
+                falsePositives++;
+            }
+        }
+        assertTrue("false positives: " + falsePositives, falsePositives < 30);
+    }
+
+    @Test
+    public void delete() {
+        RedisBloomFilter filter = redisUtil.bloomFilter("users", 10, 0.01);
+        for (int i = 0; i < 20; i++) {
+            filter.add("member-" + i);
+        }
+        assertTrue(filter.layerCount() > 1);
+        filter.delete();
+        assertEquals(0, filter.approximateElementCount());
+        assertEquals(1, filter.layerCount());
+        assertFalse(template.hasKey("bloom:{users}:count"));
+        assertFalse(template.hasKey("bloom:{users}:0"));
+        assertFalse(template.hasKey("bloom:{users}:1"));
+    }
+
+}
@@ -0,0 +1,77 @@
+package com.pzl.program.frametool.redis;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * RedisCacheLoader的回源写入、空值占位和租约等待
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class RedisCacheLoaderTest {
+
+    private StringRedisTemplate template;
+
+    private RedisCacheLoader loader;
+
+    @Before
+    public void setUp() {
+        EmbeddedRedis redis = EmbeddedRedis.start();
+        template = redis.getStringRedisTemplate();
+        loader = redis.newComponent(RedisCacheLoader.class);
+    }
+
+    @Test
+    public void loadedValueCached() {
+        AtomicInteger loads = new AtomicInteger();
+        assertEquals("v1", loader.getOrLoad("k", 1, TimeUnit.MINUTES, () -> "v" + loads.incrementAndGet()));
+        assertEquals("v1", loader.getOrLoad("k", 1, TimeUnit.MINUTES, () -> "v" + loads.incrementAndGet()));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void nullResultCachedBriefly() {
+        AtomicInteger loads = new AtomicInteger();
+        for (int i = 0; i < 3; i++) {
+            assertNull(loader.getOrLoad("absent", 1, TimeUnit.MINUTES, () -> {
+                loads.incrementAndGet();
+                return null;
+            }));
+        }
+        assertEquals(1, loads.get());
+        //占位的过期时间不超过null-ttl
+        long pttl = template.getExpire("absent", TimeUnit.MILLISECONDS);
+        assertTrue(pttl > 0 && pttl <= 5000);
+    }
+
+    @Test
+    public void leaseWaiterRecognisesNullPlaceholder() throws Exception {
+        //模拟其他节点持有租约,回源结果为null
+        template.opsForValue().set("k:lease", "other", 3000, TimeUnit.MILLISECONDS);
+        CompletableFuture.runAsync(() -> {
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            template.opsForValue().set("k", RedisCacheLoader.NULL_VALUE, 5, TimeUnit.SECONDS);
+        });
+        AtomicInteger loads = new AtomicInteger();
+        long start = System.nanoTime();
+        assertNull(loader.getOrLoad("k", 1, TimeUnit.MINUTES, () -> "self" + loads.incrementAndGet()));
+        //没有等到租约超时,也没有自己回源
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+        assertEquals(0, loads.get());
+    }
+
+}
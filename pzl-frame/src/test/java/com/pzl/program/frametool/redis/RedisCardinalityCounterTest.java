@@ -0,0 +1,109 @@
+package com.pzl.program.frametool.redis;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * RedisCardinalityCounter按天计数与跨天汇总,流水线中含状态回复(PFMERGE)时结果下标不偏移
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class RedisCardinalityCounterTest {
+
+    private static final LocalDate DAY1 = LocalDate.of(2026, 10, 1);
+
+    private static final LocalDate DAY2 = LocalDate.of(2026, 10, 2);
+
+    private EmbeddedRedis redis;
+
+    private StringRedisTemplate template;
+
+    private RedisCardinalityCounter counter;
+
+    @Before
+    public void setUp() {
+        redis = EmbeddedRedis.start();
+        template = redis.getStringRedisTemplate();
+        counter = redis.newComponent(RedisCardinalityCounter.class);
+    }
+
+    @After
+    public void tearDown() {
+        redis.getConnectionFactory().setConvertPipelineAndTxResults(true);
+    }
+
+    @Test
+    public void uniqueVisitors() {
+        assertUniqueVisitors();
+    }
+
+    @Test
+    public void uniqueVisitorsWithStatusRepliesInPipeline() {
+        //不转换流水线结果时,PFMERGE的OK出现在结果中
+        redis.getConnectionFactory().setConvertPipelineAndTxResults(false);
+        assertUniqueVisitors();
+    }
+
+    @Test
+    public void activeUsers() {
+        assertActiveUsers();
+    }
+
+    @Test
+    public void activeUsersWithStatusRepliesInPipeline() {
+        redis.getConnectionFactory().setConvertPipelineAndTxResults(false);
+        assertActiveUsers();
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void userIdOutOfRangeRejected() {
+        counter.markActive("login", DAY1, 1L << 32);
+    }
+
+    private void assertUniqueVisitors() {
+        counter.addUnique("page", DAY1, "a", "b", "c");
+        List<String> visitors = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            visitors.add("v" + i);
+        }
+        //超过batchSize,分多条PFADD
+        counter.addUnique("page", DAY2, visitors);
+        counter.addUnique("page", DAY2, "a");
+        assertEquals(3, counter.countUnique("page", DAY1));
+        long day2 = counter.countUnique("page", DAY2);
+        assertTrue(String.valueOf(day2), Math.abs(day2 - 2501) < 2501 * 0.03);
+        assertTrue(template.getExpire("uv:{page}:20261002") > 0);
+
+        long union = counter.countUnique("page", DAY1, DAY2);
+        assertEquals(union, counter.rollupUnique("page", DAY1, DAY2));
+        assertTrue(String.valueOf(union), Math.abs(union - 2503) < 2503 * 0.03);
+        assertTrue(template.hasKey("uv:{page}:20261001-20261002"));
+    }
+
+    private void assertActiveUsers() {
+        assertFalse(counter.markActive("login", DAY1, 1));
+        assertTrue(counter.markActive("login", DAY1, 1));
+        counter.markActive("login", DAY1, Arrays.asList(2L, 3L));
+        counter.markActive("login", DAY2, Arrays.asList(3L, 4L, 1L << 20));
+        assertTrue(counter.isActive("login", DAY1, 2));
+        assertFalse(counter.isActive("login", DAY2, 2));
+        assertEquals(3, counter.countActive("login", DAY1));
+        assertEquals(5, counter.countActive("login", DAY1, DAY2));
+        assertEquals(1, counter.countActiveEveryDay("login", DAY1, DAY2));
+        long ttl = template.getExpire("dau:{login}:20261001-20261002:or");
+        assertTrue(String.valueOf(ttl), ttl > 0 && ttl <= 300);
+    }
+
+}
@@ -0,0 +1,125 @@
+package com.pzl.program.frametool.redis;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * RedisNearCache的回源回填、失效、本地过期时间和字段数上限
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class RedisNearCacheTest {
+
+    private EmbeddedRedis redis;
+
+    private StringRedisTemplate template;
+
+    @Before
+    public void setUp() {
+        redis = EmbeddedRedis.start();
+        template = redis.getStringRedisTemplate();
+    }
+
+    @Test
+    public void hitAfterLoadAndMissingKeyCached() {
+        RedisNearCache cache = new RedisNearCache(template, properties(60000, 10));
+        template.opsForValue().set("k", "v1");
+        assertEquals("v1", cache.get("k"));
+        //绕过RedisUtil的写入只能等本地过期
+        template.opsForValue().set("k", "v2");
+        assertEquals("v1", cache.get("k"));
+        assertNull(cache.get("absent"));
+        template.opsForValue().set("absent", "x");
+        assertNull(cache.get("absent"));
+        assertEquals(2, cache.getHitCount());
+        assertEquals(2, cache.getMissCount());
+        cache.invalidate("k", "absent");
+        assertEquals("v2", cache.get("k"));
+        assertEquals("x", cache.get("absent"));
+    }
+
+    @Test
+    public void localLifetimeCappedAtRedisTtl() throws InterruptedException {
+        RedisNearCache cache = new RedisNearCache(template, properties(60000, 10));
+        template.opsForValue().set("short", "v", 200, TimeUnit.MILLISECONDS);
+        template.opsForHash().put("hash", "f", "v");
+        template.expire("hash", 200, TimeUnit.MILLISECONDS);
+        assertEquals("v", cache.get("short"));
+        assertEquals("v", cache.hGet("hash", "f"));
+        Thread.sleep(300);
+        //Redis中已过期,本地不能继续返回旧值
+        assertNull(cache.get("short"));
+        assertNull(cache.hGet("hash", "f"));
+        assertEquals(2, cache.getEvictionCount());
+    }
+
+    @Test
+    public void invalidationDuringLoadNotLost() {
+        AtomicReference<RedisNearCache> holder = new AtomicReference<>();
+        StringRedisTemplate racing = new StringRedisTemplate(redis.getConnectionFactory()) {
+            @Override
+            public List<Object> executePipelined(RedisCallback<?> action) {
+                List<Object> result = super.executePipelined(action);
+                //读到旧值之后、回填之前有写入并失效
+                template.opsForValue().set("k", "new");
+                holder.get().invalidate(Collections.singletonList("k"));
+                return result;
+            }
+        };
+        racing.afterPropertiesSet();
+        RedisNearCache cache = new RedisNearCache(racing, properties(60000, 10));
+        holder.set(cache);
+        template.opsForValue().set("k", "old");
+        assertEquals("old", cache.get("k"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void fieldsPerKeyBounded() {
+        RedisNearCache cache = new RedisNearCache(template, properties(60000, 2));
+        for (int i = 0; i < 3; i++) {
+            template.opsForHash().put("h", "f" + i, "v" + i);
+        }
+        for (int i = 0; i < 3; i++) {
+            assertEquals("v" + i, cache.hGet("h", "f" + i));
+        }
+        template.opsForHash().put("h", "f2", "changed");
+        //第三个字段超出上限未缓存,每次回源
+        assertEquals("changed", cache.hGet("h", "f2"));
+        assertEquals("v0", cache.hGet("h", "f0"));
+        assertEquals(1, cache.getHitCount());
+    }
+
+    @Test
+    public void expireThroughRedisUtilEvictsLocalCopy() {
+        RedisNearCache cache = new RedisNearCache(template, properties(60000, 10));
+        RedisUtil redisUtil = redis.newComponent(RedisUtil.class);
+        ReflectionTestUtils.setField(redisUtil, "redisNearCache", cache);
+        redisUtil.set("k", "v");
+        assertEquals("v", redisUtil.get("k"));
+        redisUtil.expire("k", 100L, TimeUnit.MILLISECONDS);
+        assertEquals("v", redisUtil.get("k"));
+        //重新回源时读到了新的过期时间
+        assertEquals(2, cache.getMissCount());
+    }
+
+    private static RedisNearCacheProperties properties(long expireAfterWrite, int maximumFieldsPerKey) {
+        RedisNearCacheProperties properties = new RedisNearCacheProperties();
+        properties.setExpireAfterWrite(expireAfterWrite);
+        properties.setMaximumFieldsPerKey(maximumFieldsPerKey);
+        return properties;
+    }
+
+}
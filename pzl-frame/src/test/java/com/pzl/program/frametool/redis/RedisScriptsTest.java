@@ -0,0 +1,300 @@
+package com.pzl.program.frametool.redis;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * RedisScripts中的Lua脚本在嵌入式Redis上的执行结果
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class RedisScriptsTest {
+
+    private static final List<String> DELAY_KEYS = Arrays.asList("delay:{q}:delayed", "delay:{q}:ready",
+            "delay:{q}:processing", "delay:{q}:jobs", "delay:{q}:attempts", "delay:{q}:dead");
+
+    private EmbeddedRedis redis;
+
+    private StringRedisTemplate template;
+
+    @Before
+    public void setUp() {
+        redis = EmbeddedRedis.start();
+        template = redis.getStringRedisTemplate();
+    }
+
+    @Test
+    public void setIfAbsentAndCompareAndDelete() {
+        List<String> key = Collections.singletonList("k");
+        assertEquals(Long.valueOf(1), template.execute(RedisScripts.SET_IF_ABSENT_PX, key, "a", "10000"));
+        assertEquals(Long.valueOf(0), template.execute(RedisScripts.SET_IF_ABSENT_PX, key, "b", "10000"));
+        assertTrue(template.getExpire("k", TimeUnit.MILLISECONDS) > 0);
+        assertEquals(Long.valueOf(0), template.execute(RedisScripts.COMPARE_AND_DELETE, key, "b"));
+        assertEquals(Long.valueOf(1), template.execute(RedisScripts.COMPARE_AND_DELETE, key, "a"));
+        assertNull(template.opsForValue().get("k"));
+    }
+
+    @Test
+    public void distributedLockFencingToken() {
+        RedisDistributedLock lock = redis.newComponent(RedisDistributedLock.class);
+        try {
+            RedisDistributedLock.Lease first = lock.tryLock("order", 0, 10, TimeUnit.SECONDS);
+            assertNotNull(first);
+            assertNull(lock.tryLock("order", 0, 10, TimeUnit.SECONDS));
+            assertTrue(first.unlock());
+            RedisDistributedLock.Lease second = lock.tryLock("order", 0, 10, TimeUnit.SECONDS);
+            assertNotNull(second);
+            assertTrue(second.getFencingToken() > first.getFencingToken());
+            second.close();
+            assertFalse(second.isHeld());
+        } finally {
+            lock.shutdown();
+        }
+    }
+
+    @Test
+    public void rateLimiterTokenBucket() {
+        RedisRateLimiter limiter = redis.newComponent(RedisRateLimiter.class);
+        RateLimitRule rule = RateLimitRule.tokenBucket(5, 0.001);
+        int passed = 0;
+        for (int i = 0; i < 10; i++) {
+            passed += limiter.tryAcquire("tb", rule) ? 1 : 0;
+        }
+        assertEquals(5, passed);
+        assertFalse(limiter.tryAcquire("tb", rule));
+        //不足时一个也不扣
+        assertFalse(limiter.tryAcquire("tb2", RateLimitRule.tokenBucket(5, 0.001), 6));
+        assertTrue(limiter.tryAcquire("tb2", RateLimitRule.tokenBucket(5, 0.001), 5));
+    }
+
+    @Test
+    public void rateLimiterSlidingWindowPerKey() {
+        RedisRateLimiter limiter = redis.newComponent(RedisRateLimiter.class);
+        RateLimitRule rule = RateLimitRule.slidingWindow(2, 1, TimeUnit.MINUTES);
+        assertEquals(Arrays.asList(true, true), limiter.tryAcquire(Arrays.asList("a", "b"), rule, 1));
+        assertEquals(Arrays.asList(true, true), limiter.tryAcquire(Arrays.asList("a", "b"), rule, 1));
+        assertEquals(Arrays.asList(false, true), limiter.tryAcquire(Arrays.asList("a", "c"), rule, 1));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void delayQueueLifecycle() {
+        long now = System.currentTimeMillis();
+        List<String> scheduleKeys = Arrays.asList(DELAY_KEYS.get(0), DELAY_KEYS.get(3), DELAY_KEYS.get(4));
+        assertEquals(Long.valueOf(2), template.execute(RedisScripts.DELAY_SCHEDULE, scheduleKeys,
+                "j1", "p1", String.valueOf(now - 1), "j2", "p2", String.valueOf(now + 60000)));
+        //覆盖已有id不计为新增
+        assertEquals(Long.valueOf(0), template.execute(RedisScripts.DELAY_SCHEDULE, scheduleKeys,
+                "j1", "p1", String.valueOf(now - 1)));
+
+        assertEquals(Long.valueOf(1), transfer(now));
+        List<String> claimed = claim(now + 30000, 10);
+        assertEquals(Arrays.asList("j1", (now - 1) + ":p1", "1"), claimed);
+        assertEquals(Long.valueOf(1), template.opsForZSet().size(DELAY_KEYS.get(2)));
+
+        //可见性超时后重新投递,投递次数累加
+        assertEquals(Long.valueOf(1), transfer(now + 30001));
+        assertEquals("2", claim(now + 60000, 10).get(2));
+
+        assertEquals(Long.valueOf(1), template.execute(RedisScripts.DELAY_ACK,
+                Arrays.asList(DELAY_KEYS.get(2), DELAY_KEYS.get(3), DELAY_KEYS.get(4), DELAY_KEYS.get(0)), "j1"));
+        assertFalse(template.opsForHash().hasKey(DELAY_KEYS.get(3), "j1"));
+        assertFalse(template.opsForHash().hasKey(DELAY_KEYS.get(4), "j1"));
+
+        assertEquals(Long.valueOf(1), template.execute(RedisScripts.DELAY_CANCEL, scheduleKeys, "j2"));
+        assertEquals(Long.valueOf(0), template.execute(RedisScripts.DELAY_CANCEL, scheduleKeys, "j2"));
+        assertEquals(Long.valueOf(0), template.opsForHash().size(DELAY_KEYS.get(3)));
+    }
+
+    @Test
+    public void delayQueueRetryAndDeadLetter() {
+        long now = System.currentTimeMillis();
+        template.execute(RedisScripts.DELAY_SCHEDULE, Arrays.asList(DELAY_KEYS.get(0), DELAY_KEYS.get(3),
+                DELAY_KEYS.get(4)), "j1", "p1", String.valueOf(now - 1), "j2", "p2", String.valueOf(now - 1));
+        transfer(now);
+        assertEquals(6, claim(now + 30000, 10).size());
+        List<String> retryKeys = Arrays.asList(DELAY_KEYS.get(2), DELAY_KEYS.get(0), DELAY_KEYS.get(5));
+        assertEquals(Long.valueOf(2), template.execute(RedisScripts.DELAY_RETRY, retryKeys,
+                "j1", String.valueOf(now + 1000), "j2", "-1"));
+        //不在processing中的不处理
+        assertEquals(Long.valueOf(0), template.execute(RedisScripts.DELAY_RETRY, retryKeys, "j1", "-1"));
+        assertEquals(Double.valueOf(now + 1000), template.opsForZSet().score(DELAY_KEYS.get(0), "j1"));
+        assertEquals(Collections.singletonList("j2"), template.opsForList().range(DELAY_KEYS.get(5), 0, -1));
+    }
+
+    @Test
+    public void delayQueueExpiredProcessingDeadLettered() {
+        long now = System.currentTimeMillis();
+        template.execute(RedisScripts.DELAY_SCHEDULE, Arrays.asList(DELAY_KEYS.get(0), DELAY_KEYS.get(3),
+                DELAY_KEYS.get(4)), "j1", "p1", String.valueOf(now - 1));
+        transfer(now);
+        assertEquals("1", claim(now + 1000, 10, 2).get(2));
+        transfer(now + 1001);
+        assertEquals("2", claim(now + 2000, 10, 2).get(2));
+        //处理一直超时,达到最大投递次数后进入死信,不再投递
+        transfer(now + 2001);
+        assertTrue(claim(now + 3000, 10, 2).isEmpty());
+        assertEquals(Collections.singletonList("j1"), template.opsForList().range(DELAY_KEYS.get(5), 0, -1));
+        assertEquals(Long.valueOf(0), template.opsForZSet().size(DELAY_KEYS.get(2)));
+        assertEquals(Long.valueOf(0), transfer(now + 3001));
+        assertEquals((now - 1) + ":p1", template.opsForHash().get(DELAY_KEYS.get(3), "j1"));
+    }
+
+    @Test
+    public void delayQueueStats() {
+        RedisDelayQueue queue = redis.newComponent(RedisDelayQueue.class);
+        queue.schedule("q", "a", 1, TimeUnit.MINUTES);
+        queue.schedule("q", "b", 1, TimeUnit.MINUTES);
+        Map<String, Long> stats = queue.stats("q");
+        assertEquals(Long.valueOf(2), stats.get("delayed"));
+        assertEquals(Long.valueOf(0), stats.get("ready"));
+        assertEquals(Long.valueOf(0), stats.get("dead"));
+    }
+
+    @Test
+    public void leaderboardFlushIdempotentPerNode() {
+        List<String> keys = Arrays.asList("leaderboard:{g}", "leaderboard:{g}:flushed");
+        assertEquals(Long.valueOf(2), template.execute(RedisScripts.LEADERBOARD_FLUSH, keys,
+                "n1", "1", "60000", "a", "1.5", "b", "2"));
+        //同一节点重发同一批次不重复加分,其他节点的批次号独立
+        assertEquals(Long.valueOf(0), template.execute(RedisScripts.LEADERBOARD_FLUSH, keys,
+                "n1", "1", "60000", "a", "1.5", "b", "2"));
+        assertEquals(Long.valueOf(1), template.execute(RedisScripts.LEADERBOARD_FLUSH, keys,
+                "n2", "1", "60000", "a", "1"));
+        assertEquals(Double.valueOf(2.5), template.opsForZSet().score("leaderboard:{g}", "a"));
+        assertEquals(Double.valueOf(2), template.opsForZSet().score("leaderboard:{g}", "b"));
+        assertTrue(template.getExpire("leaderboard:{g}:flushed") > 0);
+    }
+
+    @Test
+    public void leaderboardFlushResendsAfterLostResponse() {
+        AtomicInteger failures = new AtomicInteger(1);
+        StringRedisTemplate lossy = new StringRedisTemplate(redis.getConnectionFactory()) {
+            @Override
+            public <T> T execute(RedisScript<T> script, List<String> keys, Object... args) {
+                T result = super.execute(script, keys, args);
+                //脚本已执行,响应丢失
+                if (failures.getAndDecrement() > 0) {
+                    throw new RedisConnectionFailureException("read timed out");
+                }
+                return result;
+            }
+        };
+        lossy.afterPropertiesSet();
+        RedisLeaderboard leaderboard = redis.newComponent(RedisLeaderboard.class);
+        ReflectionTestUtils.setField(leaderboard, "stringRedisTemplate", lossy);
+        leaderboard.incrementScore("game", "m", 5);
+        try {
+            leaderboard.flush();
+            fail();
+        } catch (RedisConnectionFailureException expected) {
+            //下次刷新重发
+        }
+        leaderboard.incrementScore("game", "m", 1);
+        assertEquals(1, leaderboard.flush());
+        assertEquals(Double.valueOf(5), template.opsForZSet().score("leaderboard:{game}", "m"));
+        assertEquals(1, leaderboard.flush());
+        assertEquals(0, leaderboard.flush());
+        assertEquals(Double.valueOf(6), template.opsForZSet().score("leaderboard:{game}", "m"));
+    }
+
+    @Test
+    public void leaderboardFlushAndAround() {
+        RedisLeaderboard leaderboard = redis.newComponent(RedisLeaderboard.class);
+        for (int i = 0; i < 10; i++) {
+            leaderboard.incrementScore("game", "m" + i, i + 1);
+            leaderboard.incrementScore("game", "m" + i, i + 1);
+        }
+        assertEquals(10, leaderboard.flush());
+        assertEquals(0, leaderboard.flush());
+        List<LeaderboardEntry> around = leaderboard.around("game", "m5", 2);
+        assertEquals(5, around.size());
+        assertEquals("m7", around.get(0).getMember());
+        assertEquals(2, around.get(0).getRank());
+        assertEquals(12.0, around.get(2).getScore(), 0);
+        assertEquals(0, leaderboard.around("game", "m9", 1).get(0).getRank());
+        assertTrue(leaderboard.around("game", "missing", 1).isEmpty());
+        assertNull(leaderboard.rank("game", "missing"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void streamReadAckReclaimAndDeadLetter() {
+        List<String> stream = Collections.singletonList("stream:{s}");
+        List<String> ids = template.execute(RedisScripts.STREAM_ADD, stream, "1000", "a", "b", "c");
+        assertEquals(3, ids.size());
+        assertEquals(Long.valueOf(1), template.execute(RedisScripts.STREAM_CREATE_GROUP, stream, "g", "0"));
+        assertEquals(Long.valueOf(0), template.execute(RedisScripts.STREAM_CREATE_GROUP, stream, "g", "0"));
+
+        List<String> read = template.execute(RedisScripts.STREAM_READ, stream, "g", "c1", "10");
+        assertEquals(Arrays.asList(ids.get(0), "a", "1", ids.get(1), "b", "1", ids.get(2), "c", "1"), read);
+        assertTrue(template.execute(RedisScripts.STREAM_READ, stream, "g", "c1", "10").isEmpty());
+        assertEquals(Long.valueOf(1), template.execute(RedisScripts.STREAM_ACK, stream, "g", ids.get(0)));
+
+        List<String> reclaimKeys = Arrays.asList("stream:{s}", "stream:{s}:dead");
+        //投递次数未到上限的被c2接管,投递次数加1
+        List<String> reclaimed = template.execute(RedisScripts.STREAM_RECLAIM, reclaimKeys, "g", "c2", "0", "10", "3");
+        assertEquals(Arrays.asList(ids.get(1), "b", "2", ids.get(2), "c", "2"), reclaimed);
+        template.execute(RedisScripts.STREAM_RECLAIM, reclaimKeys, "g", "c2", "0", "10", "3");
+        //达到上限进入死信并确认
+        assertTrue(template.execute(RedisScripts.STREAM_RECLAIM, reclaimKeys, "g", "c2", "0", "10", "3").isEmpty());
+        assertEquals(2L, (long) template.opsForList().size("stream:{s}:dead"));
+
+        List<Long> stats = template.execute(RedisScripts.STREAM_STATS, reclaimKeys, "g");
+        assertEquals(Arrays.asList(3L, 0L, 2L), stats);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void streamReclaimSkipsCallerInFlight() {
+        List<String> stream = Collections.singletonList("stream:{s}");
+        List<String> ids = template.execute(RedisScripts.STREAM_ADD, stream, "1000", "a", "b");
+        template.execute(RedisScripts.STREAM_CREATE_GROUP, stream, "g", "0");
+        template.execute(RedisScripts.STREAM_READ, stream, "g", "c1", "10");
+
+        List<String> reclaimKeys = Arrays.asList("stream:{s}", "stream:{s}:dead");
+        //c1正在处理a,只接管自己失败的b;count为1时a不占名额
+        List<String> reclaimed = template.execute(RedisScripts.STREAM_RECLAIM, reclaimKeys,
+                "g", "c1", "0", "1", "3", ids.get(0));
+        assertEquals(Arrays.asList(ids.get(1), "b", "2"), reclaimed);
+        //其他消费者不受c1正在处理的消息影响
+        reclaimed = template.execute(RedisScripts.STREAM_RECLAIM, reclaimKeys, "g", "c2", "0", "10", "3", ids.get(0));
+        assertEquals(Arrays.asList(ids.get(0), "a", "2", ids.get(1), "b", "3"), reclaimed);
+    }
+
+    private Long transfer(long now) {
+        return template.execute(RedisScripts.DELAY_TRANSFER,
+                Arrays.asList(DELAY_KEYS.get(0), DELAY_KEYS.get(2), DELAY_KEYS.get(1)), String.valueOf(now), "100");
+    }
+
+    private List<String> claim(long deadline, int count) {
+        return claim(deadline, count, 16);
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<String> claim(long deadline, int count, int maxAttempts) {
+        return template.execute(RedisScripts.DELAY_CLAIM, Arrays.asList(DELAY_KEYS.get(1), DELAY_KEYS.get(2),
+                DELAY_KEYS.get(3), DELAY_KEYS.get(4), DELAY_KEYS.get(5)),
+                String.valueOf(deadline), String.valueOf(count), String.valueOf(maxAttempts));
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.pzl.program.frametool.redis;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * RedisStreamQueue消费、接管与死信
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class RedisStreamQueueTest {
+
+    private StringRedisTemplate template;
+
+    private RedisStreamQueue queue;
+
+    @Before
+    public void setUp() {
+        EmbeddedRedis redis = EmbeddedRedis.start();
+        template = redis.getStringRedisTemplate();
+        queue = redis.newComponent(RedisStreamQueue.class);
+        ReflectionTestUtils.setField(queue, "pollInterval", 10L);
+        ReflectionTestUtils.setField(queue, "minIdle", 200L);
+        ReflectionTestUtils.setField(queue, "maxDeliveries", 3);
+    }
+
+    @After
+    public void tearDown() {
+        queue.shutdown();
+    }
+
+    @Test
+    public void slowHandlerNotReclaimedBySelf() throws InterruptedException {
+        AtomicInteger calls = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(1);
+        RedisStreamQueue.Subscription subscription = queue.subscribe("slow", "g", message -> {
+            calls.incrementAndGet();
+            //处理时间远超minIdle,期间轮询线程多次执行接管
+            Thread.sleep(1000);
+            done.countDown();
+        }, 2);
+        queue.add("slow", "m");
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        //确认后待确认列表为空
+        long deadline = System.currentTimeMillis() + 5000;
+        while (queue.stats("slow", "g").get("pending") > 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(Long.valueOf(0), queue.stats("slow", "g").get("pending"));
+        assertEquals(1, calls.get());
+        assertEquals(0, subscription.getReclaimed());
+        assertEquals(1, subscription.getSucceeded());
+    }
+
+    @Test
+    public void failedMessageReclaimedThenDeadLettered() throws InterruptedException {
+        List<Integer> deliveries = new CopyOnWriteArrayList<>();
+        List<String> succeeded = new CopyOnWriteArrayList<>();
+        RedisStreamQueue.Subscription subscription = queue.subscribe("orders", "g", message -> {
+            //poison一直失败,retry第一次失败
+            if ("poison".equals(message.getPayload())) {
+                deliveries.add(message.getDeliveries());
+                throw new IllegalStateException("poison");
+            }
+            if (message.getDeliveries() == 1) {
+                throw new IllegalStateException("retry");
+            }
+            succeeded.add(message.getPayload());
+        }, 2);
+        List<String> ids = queue.addAll("orders", Arrays.asList("poison", "retry"));
+
+        long deadline = System.currentTimeMillis() + 10000;
+        while ((queue.stats("orders", "g").get("dead") == 0 || succeeded.isEmpty()
+                || queue.stats("orders", "g").get("pending") > 0) && System.currentTimeMillis() < deadline) {
+            Thread.sleep(20);
+        }
+        //第一次由XREADGROUP投递,之后由自己接管重新投递,达到最大投递次数后进入死信
+        assertEquals(Arrays.asList(1, 2, 3), deliveries);
+        assertEquals(Collections.singletonList("retry"), succeeded);
+        assertEquals(Collections.singletonList(ids.get(0) + ":poison"), template.opsForList().range("stream:{orders}:dead", 0, -1));
+        assertEquals(Long.valueOf(0), queue.stats("orders", "g").get("pending"));
+        assertEquals(Long.valueOf(2), queue.stats("orders", "g").get("length"));
+        assertEquals(3, subscription.getReclaimed());
+        assertEquals(1, subscription.getSucceeded());
+        assertEquals(4, subscription.getFailed());
+    }
+
+}
@@ -0,0 +1,70 @@
+package com.pzl.program.frametool.redis;
+
+import com.pzl.program.frametool.redis.codec.CompactBinaryCodec;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.core.RedisCallback;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * RedisUtil对象读写:未配置RedisCodec时的默认格式,以及无法解码的数据按未命中处理
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class RedisUtilObjectTest {
+
+    private EmbeddedRedis redis;
+
+    private RedisUtil redisUtil;
+
+    @Before
+    public void setUp() {
+        redis = EmbeddedRedis.start();
+        redisUtil = redis.newComponent(RedisUtil.class);
+    }
+
+    @Test
+    public void defaultCodecRoundTrip() {
+        StringBuilder large = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            large.append("value-");
+        }
+        redisUtil.setObject("small", "v");
+        redisUtil.setObject("large", large.toString());
+        assertEquals("v", redisUtil.getObject("small", String.class));
+        assertEquals(large.toString(), redisUtil.getObject("large", String.class));
+        //默认格式与redisCodec Bean相同,首字节为压缩标记
+        assertEquals(0, raw("small")[0]);
+        assertEquals(1, raw("large")[0]);
+    }
+
+    @Test
+    public void undecodableValueReturnsNull() {
+        //未压缩的紧凑二进制(首字节为版本号1)会被识别为LZ4,长度不合法
+        set("plain", new CompactBinaryCodec().encode("v"));
+        assertNull(redisUtil.getObject("plain", String.class));
+        set("lz4", new byte[]{1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x7F, 0});
+        assertNull(redisUtil.getObject("lz4", String.class));
+        set("garbage", "not encoded".getBytes(StandardCharsets.UTF_8));
+        assertEquals(Arrays.asList(null, null), redisUtil.multiGetObject(Arrays.asList("lz4", "garbage"), String.class));
+    }
+
+    private byte[] raw(String key) {
+        return redis.getStringRedisTemplate().execute((RedisCallback<byte[]>) connection ->
+                connection.get(key.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private void set(String key, byte[] value) {
+        redis.getStringRedisTemplate().execute((RedisCallback<Object>) connection -> {
+            connection.set(key.getBytes(StandardCharsets.UTF_8), value);
+            return null;
+        });
+    }
+
+}
@@ -0,0 +1,105 @@
+package com.pzl.program.frametool.redis;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * RedisUtil基于SCAN的keys/scan/scanStream/deleteByPattern
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class RedisUtilScanTest {
+
+    private static final int USERS = 1050;
+
+    private StringRedisTemplate template;
+
+    private RedisUtil redisUtil;
+
+    private Set<String> users;
+
+    @Before
+    public void setUp() {
+        EmbeddedRedis redis = EmbeddedRedis.start();
+        template = redis.getStringRedisTemplate();
+        redisUtil = redis.newComponent(RedisUtil.class);
+        users = new HashSet<>();
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < USERS; i++) {
+            users.add("user:" + i);
+            values.put("user:" + i, "v");
+        }
+        for (int i = 0; i < 10; i++) {
+            values.put("order:" + i, "v");
+        }
+        template.opsForValue().multiSet(values);
+    }
+
+    @Test
+    public void keysDeduplicatedAcrossRehash() throws IOException {
+        //迭代过程中写入大量key触发rehash,SCAN可能重复返回,但迭代期间一直存在的key至少返回一次
+        List<String> scanned = new ArrayList<>();
+        try (Cursor<String> cursor = redisUtil.scan("user:*", 10)) {
+            while (cursor.hasNext()) {
+                scanned.add(cursor.next());
+                if (scanned.size() == 50) {
+                    Map<String, String> values = new HashMap<>();
+                    for (int i = 0; i < 5000; i++) {
+                        values.put("other:" + i, "v");
+                    }
+                    template.opsForValue().multiSet(values);
+                }
+            }
+        }
+        assertTrue(scanned.size() >= USERS);
+        assertEquals(users, new HashSet<>(scanned));
+        assertEquals(users, redisUtil.keys("user:*"));
+    }
+
+    @Test
+    public void scanStreamMatchesPattern() {
+        try (Stream<String> stream = redisUtil.scanStream("user:*", 100)) {
+            assertEquals(users, stream.collect(Collectors.toSet()));
+        }
+        try (Stream<String> stream = redisUtil.scanStream("order:*", 100)) {
+            assertEquals(10, stream.distinct().count());
+        }
+        //游标关闭后连接已归还,可以继续使用
+        assertEquals("v", template.opsForValue().get("order:0"));
+    }
+
+    @Test
+    public void deleteByPatternInBatches() {
+        RedisNearCacheProperties properties = new RedisNearCacheProperties();
+        properties.setExpireAfterWrite(60000);
+        ReflectionTestUtils.setField(redisUtil, "redisNearCache", new RedisNearCache(template, properties));
+        assertEquals("v", redisUtil.get("user:0"));
+
+        //最后一批不足batchSize
+        assertEquals(USERS, redisUtil.deleteByPattern("user:*", 100));
+        assertTrue(redisUtil.keys("user:*").isEmpty());
+        assertEquals(10, redisUtil.keys("order:*").size());
+        //近端缓存中的副本已失效
+        assertNull(redisUtil.get("user:0"));
+        assertEquals(0, redisUtil.deleteByPattern("user:*", 100));
+    }
+
+}
@@ -0,0 +1,141 @@
+package com.pzl.program.frametool.redis.benchmark;
+
+import com.pzl.program.frametool.redis.AsyncRedisUtil;
+import com.pzl.program.frametool.redis.RedisUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 扇出查询测试: 同步逐个查询 / 同步查询提交到线程池并发 / AsyncRedisUtil
+ * <p>
+ * 模拟接口请求:每个请求查询fanOut个不同的key(如一个页面上的几十个商品),多个请求线程(模拟Tomcat线程)同时处理,
+ * 统计每个请求的平均耗时、总吞吐量、为等待Redis占用的线程数,以及AsyncRedisUtil平均每次流水线携带的命令数。
+ * 运行参数: [请求线程数, 默认32] [每个请求查询的key数, 默认30] [每个线程的请求数, 默认200] [模拟RTT微秒, 默认200]
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class AsyncRedisBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int fanOut = args.length > 1 ? Integer.parseInt(args[1]) : 30;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 200;
+        long rttMicros = args.length > 3 ? Long.parseLong(args[3]) : 200;
+        System.out.println("threads=" + threads + ", fanOut=" + fanOut + ", requests/thread=" + requests
+                + ", rtt=" + rttMicros + "us");
+
+        InMemoryRedisConnectionFactory factory = new InMemoryRedisConnectionFactory(rttMicros, TimeUnit.MICROSECONDS);
+        RedisUtil redisUtil = factory.newRedisUtil();
+        AsyncRedisUtil asyncRedisUtil = factory.newComponent(AsyncRedisUtil.class);
+        asyncRedisUtil.start();
+        Map<String, String> items = new HashMap<>();
+        for (int i = 0; i < 1000; i++) {
+            items.put("item:" + i, "value" + i);
+        }
+        asyncRedisUtil.multiSet(items).join();
+        //同一个key的状态命令和普通命令先后提交不等待,检查执行顺序和回复对应关系
+        CompletableFuture<Void> set = asyncRedisUtil.set("check", "1");
+        CompletableFuture<Long> incr = asyncRedisUtil.incrBy("check", 5);
+        CompletableFuture<String> get = asyncRedisUtil.get("check");
+        if (set.join() != null || incr.join() != 6L || !"6".equals(get.join())) {
+            throw new IllegalStateException("async reply mismatch: " + incr.join() + ", " + get.join());
+        }
+
+        //同步逐个查询,一个请求fanOut次往返
+        run("sync sequential", threads, Math.max(1, requests / 10), fanOut, keys -> {
+            for (String key : keys) {
+                check(redisUtil.get(key), key);
+            }
+        });
+
+        //同步查询提交到线程池,一个请求占用fanOut个线程
+        ExecutorService pool = Executors.newFixedThreadPool(threads * fanOut);
+        run("sync thread pool", threads, requests, fanOut, keys -> {
+            List<Future<String>> futures = new ArrayList<>(keys.size());
+            for (String key : keys) {
+                futures.add(pool.submit(() -> redisUtil.get(key)));
+            }
+            for (int i = 0; i < keys.size(); i++) {
+                check(futures.get(i).get(), keys.get(i));
+            }
+        });
+        pool.shutdown();
+
+        //异步
+        long pipelinesBefore = asyncRedisUtil.getPipelineCount();
+        long commandsBefore = asyncRedisUtil.getCommandCount();
+        run("async", threads, requests, fanOut, keys -> {
+            List<CompletableFuture<String>> futures = new ArrayList<>(keys.size());
+            for (String key : keys) {
+                futures.add(asyncRedisUtil.get(key));
+            }
+            CompletableFuture.allOf(futures.toArray(new CompletableFuture<?>[0])).join();
+            for (int i = 0; i < keys.size(); i++) {
+                check(futures.get(i).join(), keys.get(i));
+            }
+        });
+        long pipelines = asyncRedisUtil.getPipelineCount() - pipelinesBefore;
+        System.out.println(String.format("%-18s commands/pipeline=%.1f, dispatcher threads=4",
+                "", (asyncRedisUtil.getCommandCount() - commandsBefore) / (double) Math.max(1, pipelines)));
+        asyncRedisUtil.shutdown();
+    }
+
+    private static void run(String label, int threads, int requests, int fanOut, Request request) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(threads);
+        AtomicInteger errors = new AtomicInteger();
+        long[] latencies = new long[threads * requests];
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            new Thread(() -> {
+                try {
+                    for (int r = 0; r < requests; r++) {
+                        List<String> keys = new ArrayList<>(fanOut);
+                        for (int i = 0; i < fanOut; i++) {
+                            keys.add("item:" + ((thread * 31 + r * 7 + i) % 1000));
+                        }
+                        long begin = System.nanoTime();
+                        request.handle(keys);
+                        latencies[thread * requests + r] = System.nanoTime() - begin;
+                    }
+                } catch (Exception e) {
+                    errors.incrementAndGet();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        Arrays.sort(latencies);
+        System.out.println(String.format("%-18s %8.0f requests/s, p50=%6.2fms, p99=%6.2fms, errors=%d",
+                label, threads * requests / (elapsed / 1e9), latencies[latencies.length / 2] / 1e6,
+                latencies[(int) (latencies.length * 0.99)] / 1e6, errors.get()));
+    }
+
+    private static void check(String value, String key) {
+        if (!("value" + key.substring("item:".length())).equals(value)) {
+            throw new IllegalStateException("unexpected value of " + key + ": " + value);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Request {
+
+        void handle(List<String> keys) throws Exception;
+
+    }
+
+}
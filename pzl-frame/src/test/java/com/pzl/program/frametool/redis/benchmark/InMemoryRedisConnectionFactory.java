@@ -0,0 +1,1324 @@
+package com.pzl.program.frametool.redis.benchmark;
+
+import com.google.common.hash.Hashing;
+import com.pzl.program.frametool.redis.RedisScripts;
+import com.pzl.program.frametool.redis.RedisUtil;
+import org.springframework.beans.BeanUtils;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.connection.DefaultTuple;
+import org.springframework.data.redis.connection.RedisClusterConnection;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.connection.RedisSentinelConnection;
+import org.springframework.data.redis.connection.RedisStringCommands.BitOperation;
+import org.springframework.data.redis.connection.RedisZSetCommands.Tuple;
+import org.springframework.data.redis.core.Cursor;
+import org.springframework.data.redis.core.RedisTemplate;
+import org.springframework.data.redis.core.ScanCursor;
+import org.springframework.data.redis.core.ScanIteration;
+import org.springframework.data.redis.core.ScanOptions;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DigestUtils;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.regex.Pattern;
+
+/**
+ * 基于内存的Redis替身,仅用于基准测试
+ * <p>
+ * 每条非流水线命令模拟一次网络往返(RTT),流水线在closePipeline时只模拟一次往返,
+ * 这样可以在没有Redis服务的环境下对比单条调用和批量调用的差异。
+ * 只实现了RedisUtil常用的部分命令和RedisScripts中的脚本,未实现的命令会抛出UnsupportedOperationException。
+ * <p>
+ * 与JedisConnectionFactory默认行为一致:状态命令(SET/SETEX/HMSET)不会出现在流水线结果中。
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class InMemoryRedisConnectionFactory implements RedisConnectionFactory {
+
+    //模拟的网络往返时间(纳秒)
+    private final long rttNanos;
+
+    //网络往返次数
+    private final AtomicLong roundTrips = new AtomicLong();
+
+    private final Store store = new Store();
+
+    public InMemoryRedisConnectionFactory(long rtt, TimeUnit unit) {
+        this.rttNanos = unit.toNanos(rtt);
+    }
+
+    @Override
+    public RedisConnection getConnection() {
+        return (RedisConnection) Proxy.newProxyInstance(RedisConnection.class.getClassLoader(),
+                new Class<?>[]{RedisConnection.class}, new ConnectionHandler());
+    }
+
+    @Override
+    public RedisClusterConnection getClusterConnection() {
+        throw new UnsupportedOperationException("cluster is not supported");
+    }
+
+    @Override
+    public boolean getConvertPipelineAndTxResults() {
+        return true;
+    }
+
+    @Override
+    public RedisSentinelConnection getSentinelConnection() {
+        throw new UnsupportedOperationException("sentinel is not supported");
+    }
+
+    @Override
+    public DataAccessException translateExceptionIfPossible(RuntimeException ex) {
+        return null;
+    }
+
+    /**
+     * 网络往返次数
+     *
+     * @return 往返次数
+     */
+    public long getRoundTrips() {
+        return roundTrips.get();
+    }
+
+    /**
+     * 清空数据和往返计数
+     */
+    public void reset() {
+        store.flushAll();
+        roundTrips.set(0);
+    }
+
+    /**
+     * 创建使用当前连接工厂的RedisUtil
+     *
+     * @return RedisUtil
+     */
+    public RedisUtil newRedisUtil() {
+        return newComponent(RedisUtil.class);
+    }
+
+    /**
+     * 创建使用当前连接工厂的组件,代替Spring完成@Autowired字段注入
+     * RedisTemplate/StringRedisTemplate注入当前工厂的模板,@Component类型的必需依赖递归创建,非必需依赖不注入
+     *
+     * @param type 组件类型,需要无参构造
+     * @return 组件
+     */
+    public <T> T newComponent(Class<T> type) {
+        T component = BeanUtils.instantiateClass(type);
+        ReflectionUtils.doWithFields(type, field -> {
+            Autowired autowired = field.getAnnotation(Autowired.class);
+            if (autowired == null || !autowired.required()) {
+                return;
+            }
+            Object value;
+            if (field.getType() == StringRedisTemplate.class) {
+                value = new StringRedisTemplate(this);
+            } else if (field.getType() == RedisTemplate.class) {
+                RedisTemplate<Object, Object> redisTemplate = new RedisTemplate<>();
+                redisTemplate.setConnectionFactory(this);
+                redisTemplate.afterPropertiesSet();
+                value = redisTemplate;
+            } else if (field.getType().isAnnotationPresent(Component.class)) {
+                value = newComponent(field.getType());
+            } else {
+                return;
+            }
+            ReflectionUtils.makeAccessible(field);
+            ReflectionUtils.setField(field, component, value);
+        });
+        return component;
+    }
+
+    private void roundTrip() {
+        roundTrips.incrementAndGet();
+        long deadline = System.nanoTime() + rttNanos;
+        long remaining = rttNanos;
+        while (remaining > 0) {
+            LockSupport.parkNanos(remaining);
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    /**
+     * 单个连接,记录流水线状态
+     */
+    private class ConnectionHandler implements InvocationHandler {
+
+        private boolean closed;
+
+        private List<Object> pipelineResults;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "InMemoryRedisConnection";
+                case "isClosed":
+                    return closed;
+                case "close":
+                    closed = true;
+                    return null;
+                case "getNativeConnection":
+                    return store;
+                case "isQueueing":
+                    return false;
+                case "isPipelined":
+                    return pipelineResults != null;
+                case "openPipeline":
+                    if (pipelineResults == null) {
+                        pipelineResults = new ArrayList<>();
+                    }
+                    return null;
+                case "scan":
+                    return scan((ScanOptions) args[0]);
+                case "closePipeline":
+                    if (pipelineResults == null) {
+                        return Collections.emptyList();
+                    }
+                    List<Object> results = pipelineResults;
+                    pipelineResults = null;
+                    roundTrip();
+                    return results;
+                default:
+                    boolean status = method.getReturnType() == void.class;
+                    Object result = store.execute(method.getName(), args == null ? new Object[0] : args);
+                    if (pipelineResults != null) {
+                        if (!status) {
+                            pipelineResults.add(result);
+                        }
+                        return null;
+                    }
+                    roundTrip();
+                    return status ? null : result;
+            }
+        }
+
+        //游标值为已迭代的key数量,每次迭代模拟一次网络往返
+        private Cursor<byte[]> scan(ScanOptions options) {
+            ScanOptions scanOptions = options == null ? ScanOptions.NONE : options;
+            return new ScanCursor<byte[]>(0, scanOptions) {
+
+                @Override
+                protected ScanIteration<byte[]> doScan(long cursorId, ScanOptions options) {
+                    roundTrip();
+                    return store.scan(cursorId, options.getPattern(), options.getCount() == null ? 10 : options.getCount());
+                }
+
+                @Override
+                protected void doClose() {
+                    closed = true;
+                }
+
+            }.open();
+        }
+
+    }
+
+    /**
+     * Lua脚本的Java实现
+     */
+    private interface ScriptEmulation {
+
+        Object execute(List<String> keys, List<String> argv);
+
+    }
+
+    /**
+     * 有序集合,成员到分数的映射加上按(分数, 成员)排序的索引,按分数范围查询不需要全量扫描
+     */
+    private static class ZSet extends HashMap<String, Double> {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final Comparator<Map.Entry<String, Double>> ORDER =
+                Map.Entry.<String, Double>comparingByValue().thenComparing(Map.Entry.comparingByKey());
+
+        private final TreeSet<Map.Entry<String, Double>> index = new TreeSet<>(ORDER);
+
+        @Override
+        public Double put(String member, Double score) {
+            Double old = super.put(member, score);
+            if (old != null) {
+                index.remove(new AbstractMap.SimpleImmutableEntry<>(member, old));
+            }
+            index.add(new AbstractMap.SimpleImmutableEntry<>(member, score));
+            return old;
+        }
+
+        @Override
+        public Double remove(Object member) {
+            Double old = super.remove(member);
+            if (old != null) {
+                index.remove(new AbstractMap.SimpleImmutableEntry<>((String) member, old));
+            }
+            return old;
+        }
+
+        @Override
+        public Double merge(String member, Double delta,
+                            java.util.function.BiFunction<? super Double, ? super Double, ? extends Double> function) {
+            Double old = get(member);
+            Double score = old == null ? delta : function.apply(old, delta);
+            put(member, score);
+            return score;
+        }
+
+        @Override
+        public void clear() {
+            super.clear();
+            index.clear();
+        }
+
+        //分数不大于max的成员,按分数从小到大取前limit个
+        List<String> headMembers(double max, int limit) {
+            List<String> members = new ArrayList<>();
+            for (Map.Entry<String, Double> entry : index) {
+                if (entry.getValue() > max || members.size() >= limit) {
+                    break;
+                }
+                members.add(entry.getKey());
+            }
+            return members;
+        }
+
+    }
+
+    /**
+     * HyperLogLog,与Redis相同使用2^14个寄存器、哈希值剩余50位计算前导位置,标准误差约0.81%
+     * 寄存器每个占一个字节(Redis稠密编码为6位),估算时小基数使用线性计数修正
+     */
+    private static class HyperLogLog {
+
+        private static final int P = 14;
+
+        private static final int M = 1 << P;
+
+        private static final double ALPHA = 0.7213 / (1 + 1.079 / M);
+
+        private final byte[] registers = new byte[M];
+
+        boolean add(byte[] value) {
+            long hash = Hashing.murmur3_128().hashBytes(value).asLong();
+            int index = (int) (hash & (M - 1));
+            byte rank = (byte) (Long.numberOfTrailingZeros((hash >>> P) | (1L << (64 - P))) + 1);
+            if (registers[index] >= rank) {
+                return false;
+            }
+            registers[index] = rank;
+            return true;
+        }
+
+        void merge(HyperLogLog other) {
+            for (int i = 0; i < M; i++) {
+                registers[i] = (byte) Math.max(registers[i], other.registers[i]);
+            }
+        }
+
+        long count() {
+            double sum = 0;
+            int zeros = 0;
+            for (byte register : registers) {
+                sum += 1.0 / (1L << register);
+                if (register == 0) {
+                    zeros++;
+                }
+            }
+            double estimate = ALPHA * M * M / sum;
+            if (estimate <= 2.5 * M && zeros > 0) {
+                estimate = M * Math.log((double) M / zeros);
+            }
+            return Math.round(estimate);
+        }
+
+    }
+
+    /**
+     * Stream,消息按写入序号排序,id为 毫秒时间戳-序号;裁剪是精确的(Redis的MAXLEN ~按宏节点近似裁剪)
+     */
+    private static class StreamData {
+
+        private final TreeMap<Long, StreamEntry> entries = new TreeMap<>();
+
+        private final Map<String, StreamGroup> groups = new HashMap<>();
+
+        private long sequence;
+
+        String add(String payload, long maxLength) {
+            long seq = ++sequence;
+            StreamEntry entry = new StreamEntry(seq, System.currentTimeMillis() + "-" + seq, payload);
+            entries.put(seq, entry);
+            while (entries.size() > maxLength) {
+                entries.pollFirstEntry();
+            }
+            return entry.id;
+        }
+
+    }
+
+    private static class StreamEntry {
+
+        private final long seq;
+
+        private final String id;
+
+        private final String payload;
+
+        StreamEntry(long seq, String id, String payload) {
+            this.seq = seq;
+            this.id = id;
+            this.payload = payload;
+        }
+
+    }
+
+    /**
+     * 消费组,pending按投递顺序保存待确认消息(PEL)
+     */
+    private static class StreamGroup {
+
+        private long lastDelivered;
+
+        private final LinkedHashMap<String, StreamPending> pending = new LinkedHashMap<>();
+
+    }
+
+    private static class StreamPending {
+
+        private final long seq;
+
+        private long deliveredAt = System.currentTimeMillis();
+
+        private int deliveries = 1;
+
+        StreamPending(long seq) {
+            this.seq = seq;
+        }
+
+    }
+
+    /**
+     * 数据存储,单线程执行语义和Redis一致
+     * key和成员使用ISO_8859_1编码的String保存,可以无损还原为byte[]
+     */
+    private static class Store {
+
+        private final Map<String, Object> data = new HashMap<>();
+
+        private final Map<String, Long> expireAt = new HashMap<>();
+
+        //Lua脚本的Java实现,按sha1和脚本原文注册,在Store的锁内执行保证原子性
+        private final Map<String, ScriptEmulation> scripts = new HashMap<>();
+
+        Store() {
+            script(RedisScripts.SET_IF_ABSENT_PX, (keys, argv) -> {
+                if (lookup(keys.get(0)) != null) {
+                    return 0L;
+                }
+                put(keys.get(0), argv.get(0), Long.parseLong(argv.get(1)));
+                return 1L;
+            });
+            script(RedisScripts.COMPARE_AND_DELETE, (keys, argv) ->
+                    argv.get(0).equals(lookup(keys.get(0))) && remove(keys.get(0)) != null ? 1L : 0L);
+            script(RedisScripts.LOCK_ACQUIRE, (keys, argv) -> {
+                if (lookup(keys.get(0)) != null) {
+                    return 0L;
+                }
+                put(keys.get(0), argv.get(0), Long.parseLong(argv.get(1)));
+                return incrBy(keys.get(1), 1L);
+            });
+            script(RedisScripts.COMPARE_AND_PEXPIRE, (keys, argv) ->
+                    argv.get(0).equals(lookup(keys.get(0))) && expire(keys.get(0), Long.parseLong(argv.get(1))) ? 1L : 0L);
+            script(RedisScripts.RATE_LIMIT, this::rateLimit);
+            script(RedisScripts.DELAY_SCHEDULE, (keys, argv) -> {
+                long added = 0;
+                for (int i = 0; i < argv.size(); i += 3) {
+                    hash(keys.get(1), true).put(argv.get(i), argv.get(i + 2) + ":" + argv.get(i + 1));
+                    hDel(keys.get(2), argv.get(i));
+                    if (zset(keys.get(0), true).put(argv.get(i), Double.parseDouble(argv.get(i + 2))) == null) {
+                        added++;
+                    }
+                }
+                return added;
+            });
+            script(RedisScripts.DELAY_CANCEL, (keys, argv) -> {
+                if (!zRem(keys.get(0), argv.get(0))) {
+                    return 0L;
+                }
+                hDel(keys.get(1), argv.get(0));
+                hDel(keys.get(2), argv.get(0));
+                return 1L;
+            });
+            script(RedisScripts.DELAY_TRANSFER, (keys, argv) -> {
+                double now = Double.parseDouble(argv.get(0));
+                int limit = Integer.parseInt(argv.get(1));
+                for (int i = 0; i < 2; i++) {
+                    for (String id : rangeByScore(keys.get(i), now, limit)) {
+                        zRem(keys.get(i), id);
+                        list(keys.get(2), true).addLast(id);
+                    }
+                }
+                LinkedList<String> ready = list(keys.get(2), false);
+                return ready == null ? 0L : (long) ready.size();
+            });
+            script(RedisScripts.DELAY_CLAIM, (keys, argv) -> {
+                List<byte[]> result = new ArrayList<>();
+                int count = Integer.parseInt(argv.get(1));
+                for (int i = 0; i < count; i++) {
+                    LinkedList<String> ready = list(keys.get(0), false);
+                    if (ready == null) {
+                        break;
+                    }
+                    String id = ready.pollFirst();
+                    removeIfEmpty(keys.get(0), ready);
+                    Map<String, String> jobs = hash(keys.get(2), false);
+                    String payload = jobs == null ? null : jobs.get(id);
+                    Map<String, String> attempts = hash(keys.get(3), true);
+                    long previous = Long.parseLong(attempts.getOrDefault(id, "0"));
+                    if (payload != null && previous >= Long.parseLong(argv.get(2))) {
+                        list(keys.get(4), true).addLast(id);
+                    } else if (payload != null) {
+                        zset(keys.get(1), true).put(id, Double.parseDouble(argv.get(0)));
+                        String attempt = String.valueOf(previous + 1);
+                        attempts.put(id, attempt);
+                        result.add(bytes(id));
+                        result.add(bytes(payload));
+                        result.add(bytes(attempt));
+                    }
+                }
+                return result;
+            });
+            script(RedisScripts.DELAY_ACK, (keys, argv) -> {
+                long acked = 0;
+                for (String id : argv) {
+                    if (zRem(keys.get(0), id)) {
+                        acked++;
+                    }
+                    Map<String, Double> delayed = zset(keys.get(3), false);
+                    if (delayed == null || !delayed.containsKey(id)) {
+                        hDel(keys.get(1), id);
+                        hDel(keys.get(2), id);
+                    }
+                }
+                return acked;
+            });
+            script(RedisScripts.DELAY_RETRY, (keys, argv) -> {
+                long retried = 0;
+                for (int i = 0; i < argv.size(); i += 2) {
+                    if (zRem(keys.get(0), argv.get(i))) {
+                        if ("-1".equals(argv.get(i + 1))) {
+                            list(keys.get(2), true).addLast(argv.get(i));
+                        } else {
+                            zset(keys.get(1), true).put(argv.get(i), Double.parseDouble(argv.get(i + 1)));
+                        }
+                        retried++;
+                    }
+                }
+                return retried;
+            });
+            script(RedisScripts.LEADERBOARD_FLUSH, (keys, argv) -> {
+                Map<String, String> flushed = hash(keys.get(1), true);
+                if (Long.parseLong(flushed.getOrDefault(argv.get(0), "0")) >= Long.parseLong(argv.get(1))) {
+                    return 0L;
+                }
+                Map<String, Double> zset = zset(keys.get(0), true);
+                for (int i = 3; i + 1 < argv.size(); i += 2) {
+                    zset.merge(argv.get(i), Double.parseDouble(argv.get(i + 1)), Double::sum);
+                }
+                flushed.put(argv.get(0), argv.get(1));
+                expire(keys.get(1), Long.parseLong(argv.get(2)));
+                return (long) (argv.size() - 3) / 2;
+            });
+            script(RedisScripts.LEADERBOARD_AROUND, (keys, argv) -> {
+                List<Object> result = new ArrayList<>();
+                Long rank = rank(keys.get(0), argv.get(0), true);
+                if (rank == null) {
+                    return result;
+                }
+                long radius = Long.parseLong(argv.get(1));
+                long from = Math.max(rank - radius, 0);
+                result.add(from);
+                for (Map.Entry<String, Double> entry : sorted(keys.get(0), true, from, rank + radius)) {
+                    result.add(bytes(entry.getKey()));
+                    double score = entry.getValue();
+                    result.add(bytes(score == Math.rint(score) && Math.abs(score) < 1e15
+                            ? String.valueOf((long) score) : String.valueOf(score)));
+                }
+                return result;
+            });
+            script(RedisScripts.STREAM_ADD, (keys, argv) -> {
+                StreamData stream = stream(keys.get(0), true);
+                List<byte[]> ids = new ArrayList<>();
+                for (int i = 1; i < argv.size(); i++) {
+                    ids.add(bytes(stream.add(argv.get(i), Long.parseLong(argv.get(0)))));
+                }
+                return ids;
+            });
+            script(RedisScripts.STREAM_CREATE_GROUP, (keys, argv) ->
+                    stream(keys.get(0), true).groups.putIfAbsent(argv.get(0), new StreamGroup()) == null ? 1L : 0L);
+            script(RedisScripts.STREAM_READ, (keys, argv) -> {
+                List<byte[]> result = new ArrayList<>();
+                StreamData stream = stream(keys.get(0), false);
+                StreamGroup group = stream == null ? null : stream.groups.get(argv.get(0));
+                if (group == null) {
+                    throw new IllegalStateException("NOGROUP " + keys.get(0) + " " + argv.get(0));
+                }
+                int count = Integer.parseInt(argv.get(2));
+                for (StreamEntry entry : stream.entries.tailMap(group.lastDelivered, false).values()) {
+                    if (result.size() >= count * 3) {
+                        break;
+                    }
+                    group.lastDelivered = entry.seq;
+                    group.pending.put(entry.id, new StreamPending(entry.seq));
+                    result.add(bytes(entry.id));
+                    result.add(bytes(entry.payload));
+                    result.add(bytes("1"));
+                }
+                return result;
+            });
+            script(RedisScripts.STREAM_ACK, (keys, argv) -> {
+                StreamData stream = stream(keys.get(0), false);
+                StreamGroup group = stream == null ? null : stream.groups.get(argv.get(0));
+                long acked = 0;
+                for (int i = 1; group != null && i < argv.size(); i++) {
+                    if (group.pending.remove(argv.get(i)) != null) {
+                        acked++;
+                    }
+                }
+                return acked;
+            });
+            script(RedisScripts.STREAM_RECLAIM, (keys, argv) -> {
+                List<byte[]> result = new ArrayList<>();
+                StreamData stream = stream(keys.get(0), false);
+                StreamGroup group = stream == null ? null : stream.groups.get(argv.get(0));
+                if (group == null) {
+                    return result;
+                }
+                long now = System.currentTimeMillis();
+                long minIdle = Long.parseLong(argv.get(2));
+                int count = Integer.parseInt(argv.get(3));
+                int maxDeliveries = Integer.parseInt(argv.get(4));
+                Iterator<Map.Entry<String, StreamPending>> iterator = group.pending.entrySet().iterator();
+                for (int i = 0; i < count && iterator.hasNext(); i++) {
+                    Map.Entry<String, StreamPending> pending = iterator.next();
+                    StreamPending state = pending.getValue();
+                    if (now - state.deliveredAt < minIdle) {
+                        continue;
+                    }
+                    StreamEntry entry = stream.entries.get(state.seq);
+                    if (state.deliveries >= maxDeliveries || entry == null) {
+                        if (entry != null) {
+                            list(keys.get(1), true).addFirst(entry.id + ":" + entry.payload);
+                        }
+                        iterator.remove();
+                        continue;
+                    }
+                    state.deliveredAt = now;
+                    state.deliveries++;
+                    result.add(bytes(entry.id));
+                    result.add(bytes(entry.payload));
+                    result.add(bytes(String.valueOf(state.deliveries)));
+                }
+                return result;
+            });
+            script(RedisScripts.STREAM_STATS, (keys, argv) -> {
+                StreamData stream = stream(keys.get(0), false);
+                StreamGroup group = stream == null ? null : stream.groups.get(argv.get(0));
+                LinkedList<String> dead = list(keys.get(1), false);
+                return Arrays.asList(stream == null ? 0L : (long) stream.entries.size(),
+                        group == null ? 0L : (long) group.pending.size(), dead == null ? 0L : (long) dead.size());
+            });
+        }
+
+        private void script(RedisScript<?> script, ScriptEmulation emulation) {
+            scripts.put(script.getSha1(), emulation);
+            scripts.put(script.getScriptAsString(), emulation);
+        }
+
+        //按key的hash排序迭代,游标为下一个hash值+1,迭代期间删除key不会导致遗漏
+        synchronized ScanIteration<byte[]> scan(long cursorId, String pattern, long count) {
+            long from = cursorId == 0 ? 0 : cursorId - 1;
+            List<String> keys = new ArrayList<>();
+            for (String key : data.keySet()) {
+                if (position(key) >= from) {
+                    keys.add(key);
+                }
+            }
+            keys.sort(Comparator.comparingLong(Store::position).thenComparing(Comparator.naturalOrder()));
+            Pattern regex = pattern == null ? null : Pattern.compile(globToRegex(pattern));
+            List<byte[]> items = new ArrayList<>();
+            int i = 0;
+            while (i < keys.size() && (i < Math.max(1, count) || position(keys.get(i)) == position(keys.get(i - 1)))) {
+                String key = keys.get(i++);
+                if (lookup(key) != null && (regex == null || regex.matcher(key).matches())) {
+                    items.add(bytes(key));
+                }
+            }
+            return new ScanIteration<>(i >= keys.size() ? 0 : position(keys.get(i)) + 1, items);
+        }
+
+        private static long position(String key) {
+            return key.hashCode() & 0xFFFFFFFFL;
+        }
+
+        //Redis的glob模式转换为正则: * ? [abc]
+        private static String globToRegex(String glob) {
+            StringBuilder regex = new StringBuilder();
+            for (char c : glob.toCharArray()) {
+                switch (c) {
+                    case '*':
+                        regex.append(".*");
+                        break;
+                    case '?':
+                        regex.append('.');
+                        break;
+                    case '[':
+                    case ']':
+                        regex.append(c);
+                        break;
+                    default:
+                        regex.append(Pattern.quote(String.valueOf(c)));
+                        break;
+                }
+            }
+            return regex.toString();
+        }
+
+        synchronized void flushAll() {
+            data.clear();
+            expireAt.clear();
+        }
+
+        @SuppressWarnings("unchecked")
+        synchronized Object execute(String command, Object[] args) {
+            switch (command) {
+                /*------------------------key------------------------*/
+                case "del": {
+                    long count = 0;
+                    for (byte[] key : (byte[][]) args[0]) {
+                        if (remove(str(key)) != null) {
+                            count++;
+                        }
+                    }
+                    return count;
+                }
+                case "exists":
+                    return lookup(str(args[0])) != null;
+                case "expire":
+                    return expire(str(args[0]), TimeUnit.SECONDS.toMillis((Long) args[1]));
+                case "pExpire":
+                    return expire(str(args[0]), (Long) args[1]);
+                case "pTtl": {
+                    String key = str(args[0]);
+                    if (lookup(key) == null) {
+                        return -2L;
+                    }
+                    Long at = expireAt.get(key);
+                    return at == null ? -1L : Math.max(0L, at - System.currentTimeMillis());
+                }
+                /*------------------------string------------------------*/
+                case "get": {
+                    String value = (String) lookup(str(args[0]));
+                    return value == null ? null : bytes(value);
+                }
+                case "mGet": {
+                    List<byte[]> values = new ArrayList<>();
+                    for (byte[] key : (byte[][]) args[0]) {
+                        Object value = lookup(str(key));
+                        values.add(value instanceof String ? bytes((String) value) : null);
+                    }
+                    return values;
+                }
+                case "mSet":
+                    for (Map.Entry<byte[], byte[]> entry : ((Map<byte[], byte[]>) args[0]).entrySet()) {
+                        put(str(entry.getKey()), str(entry.getValue()), -1);
+                    }
+                    return null;
+                case "set":
+                    if (args.length == 4) {
+                        return setWithOptions(args);
+                    }
+                    put(str(args[0]), str(args[1]), -1);
+                    return null;
+                case "setNX": {
+                    String key = str(args[0]);
+                    if (lookup(key) != null) {
+                        return false;
+                    }
+                    put(key, str(args[1]), -1);
+                    return true;
+                }
+                case "setEx":
+                    put(str(args[0]), str(args[2]), TimeUnit.SECONDS.toMillis((Long) args[1]));
+                    return null;
+                case "pSetEx":
+                    put(str(args[0]), str(args[2]), (Long) args[1]);
+                    return null;
+                case "incr":
+                    return incrBy(str(args[0]), 1L);
+                case "incrBy":
+                    if (args[1] instanceof Double) {
+                        break;
+                    }
+                    return incrBy(str(args[0]), (Long) args[1]);
+                case "getBit": {
+                    String value = (String) lookup(str(args[0]));
+                    long offset = (Long) args[1];
+                    int index = (int) (offset >> 3);
+                    if (value == null || index >= value.length()) {
+                        return false;
+                    }
+                    return (value.charAt(index) & (0x80 >> (offset & 7))) != 0;
+                }
+                case "setBit": {
+                    String key = str(args[0]);
+                    long offset = (Long) args[1];
+                    int index = (int) (offset >> 3);
+                    String value = (String) lookup(key);
+                    byte[] raw = value == null ? new byte[0] : bytes(value);
+                    if (index >= raw.length) {
+                        raw = Arrays.copyOf(raw, index + 1);
+                    }
+                    int mask = 0x80 >> (offset & 7);
+                    boolean old = (raw[index] & mask) != 0;
+                    raw[index] = (byte) ((Boolean) args[2] ? raw[index] | mask : raw[index] & ~mask);
+                    data.put(key, str(raw));
+                    return old;
+                }
+                case "bitCount": {
+                    if (args.length != 1) {
+                        break;
+                    }
+                    String value = (String) lookup(str(args[0]));
+                    long count = 0;
+                    for (int i = 0; value != null && i < value.length(); i++) {
+                        count += Integer.bitCount(value.charAt(i));
+                    }
+                    return count;
+                }
+                case "bitOp": {
+                    BitOperation op = (BitOperation) args[0];
+                    byte[][] sources = (byte[][]) args[2];
+                    int length = 0;
+                    for (byte[] source : sources) {
+                        String value = (String) lookup(str(source));
+                        length = Math.max(length, value == null ? 0 : value.length());
+                    }
+                    byte[] result = new byte[length];
+                    for (int k = 0; k < sources.length; k++) {
+                        String value = (String) lookup(str(sources[k]));
+                        byte[] raw = Arrays.copyOf(value == null ? new byte[0] : bytes(value), length);
+                        for (int i = 0; i < length; i++) {
+                            if (op == BitOperation.NOT) {
+                                result[i] = (byte) ~raw[i];
+                            } else if (k == 0) {
+                                result[i] = raw[i];
+                            } else if (op == BitOperation.AND) {
+                                result[i] &= raw[i];
+                            } else if (op == BitOperation.OR) {
+                                result[i] |= raw[i];
+                            } else {
+                                result[i] ^= raw[i];
+                            }
+                        }
+                    }
+                    String dest = str(args[1]);
+                    if (length == 0) {
+                        remove(dest);
+                    } else {
+                        put(dest, str(result), -1);
+                    }
+                    return (long) length;
+                }
+                /*------------------------hash------------------------*/
+                case "hSet":
+                    return hash(str(args[0]), true).put(str(args[1]), str(args[2])) == null;
+                case "hSetNX": {
+                    Map<String, String> hash = hash(str(args[0]), true);
+                    return hash.putIfAbsent(str(args[1]), str(args[2])) == null;
+                }
+                case "hMSet": {
+                    Map<String, String> hash = hash(str(args[0]), true);
+                    for (Map.Entry<byte[], byte[]> entry : ((Map<byte[], byte[]>) args[1]).entrySet()) {
+                        hash.put(str(entry.getKey()), str(entry.getValue()));
+                    }
+                    return null;
+                }
+                case "hGet": {
+                    Map<String, String> hash = hash(str(args[0]), false);
+                    String value = hash == null ? null : hash.get(str(args[1]));
+                    return value == null ? null : bytes(value);
+                }
+                case "hGetAll": {
+                    Map<byte[], byte[]> result = new LinkedHashMap<>();
+                    Map<String, String> hash = hash(str(args[0]), false);
+                    if (hash != null) {
+                        hash.forEach((field, value) -> result.put(bytes(field), bytes(value)));
+                    }
+                    return result;
+                }
+                case "hDel": {
+                    String key = str(args[0]);
+                    Map<String, String> hash = hash(key, false);
+                    long count = 0;
+                    for (byte[] field : (byte[][]) args[1]) {
+                        if (hash != null && hash.remove(str(field)) != null) {
+                            count++;
+                        }
+                    }
+                    removeIfEmpty(key, hash);
+                    return count;
+                }
+                case "hIncrBy": {
+                    if (args[2] instanceof Double) {
+                        break;
+                    }
+                    Map<String, String> hash = hash(str(args[0]), true);
+                    String field = str(args[1]);
+                    long value = Long.parseLong(hash.getOrDefault(field, "0")) + (Long) args[2];
+                    hash.put(field, String.valueOf(value));
+                    return value;
+                }
+                case "hLen": {
+                    Map<String, String> hash = hash(str(args[0]), false);
+                    return hash == null ? 0L : (long) hash.size();
+                }
+                /*------------------------list------------------------*/
+                case "lPush":
+                case "rPush": {
+                    LinkedList<String> list = list(str(args[0]), true);
+                    for (byte[] value : (byte[][]) args[1]) {
+                        if ("lPush".equals(command)) {
+                            list.addFirst(str(value));
+                        } else {
+                            list.addLast(str(value));
+                        }
+                    }
+                    return (long) list.size();
+                }
+                case "lPop":
+                case "rPop": {
+                    String key = str(args[0]);
+                    LinkedList<String> list = list(key, false);
+                    if (list == null) {
+                        return null;
+                    }
+                    String value = "lPop".equals(command) ? list.pollFirst() : list.pollLast();
+                    removeIfEmpty(key, list);
+                    return value == null ? null : bytes(value);
+                }
+                case "lRange": {
+                    LinkedList<String> list = list(str(args[0]), false);
+                    List<byte[]> result = new ArrayList<>();
+                    if (list != null) {
+                        int[] range = range(list.size(), (Long) args[1], (Long) args[2]);
+                        for (int i = range[0]; i <= range[1]; i++) {
+                            result.add(bytes(list.get(i)));
+                        }
+                    }
+                    return result;
+                }
+                case "lLen": {
+                    LinkedList<String> list = list(str(args[0]), false);
+                    return list == null ? 0L : (long) list.size();
+                }
+                /*------------------------set------------------------*/
+                case "sAdd": {
+                    Set<String> set = set(str(args[0]), true);
+                    long count = 0;
+                    for (byte[] value : (byte[][]) args[1]) {
+                        if (set.add(str(value))) {
+                            count++;
+                        }
+                    }
+                    return count;
+                }
+                case "sRem": {
+                    String key = str(args[0]);
+                    Set<String> set = set(key, false);
+                    long count = 0;
+                    for (byte[] value : (byte[][]) args[1]) {
+                        if (set != null && set.remove(str(value))) {
+                            count++;
+                        }
+                    }
+                    removeIfEmpty(key, set);
+                    return count;
+                }
+                case "sIsMember": {
+                    Set<String> set = set(str(args[0]), false);
+                    return set != null && set.contains(str(args[1]));
+                }
+                case "sMembers": {
+                    Set<byte[]> result = new LinkedHashSet<>();
+                    Set<String> set = set(str(args[0]), false);
+                    if (set != null) {
+                        set.forEach(value -> result.add(bytes(value)));
+                    }
+                    return result;
+                }
+                case "sCard": {
+                    Set<String> set = set(str(args[0]), false);
+                    return set == null ? 0L : (long) set.size();
+                }
+                /*------------------------zset------------------------*/
+                case "zAdd": {
+                    if (args[1] instanceof Set) {
+                        Map<String, Double> zset = zset(str(args[0]), true);
+                        long count = 0;
+                        for (Tuple tuple : (Set<Tuple>) args[1]) {
+                            if (zset.put(str(tuple.getValue()), tuple.getScore()) == null) {
+                                count++;
+                            }
+                        }
+                        return count;
+                    }
+                    return zset(str(args[0]), true).put(str(args[2]), (Double) args[1]) == null;
+                }
+                case "zIncrBy": {
+                    Map<String, Double> zset = zset(str(args[0]), true);
+                    return zset.merge(str(args[2]), (Double) args[1], Double::sum);
+                }
+                case "zScore": {
+                    Map<String, Double> zset = zset(str(args[0]), false);
+                    return zset == null ? null : zset.get(str(args[1]));
+                }
+                case "zRank":
+                case "zRevRank":
+                    return rank(str(args[0]), str(args[1]), command.equals("zRevRank"));
+                case "zCard": {
+                    Map<String, Double> zset = zset(str(args[0]), false);
+                    return zset == null ? 0L : (long) zset.size();
+                }
+                case "zRem": {
+                    String key = str(args[0]);
+                    Map<String, Double> zset = zset(key, false);
+                    long count = 0;
+                    for (byte[] value : (byte[][]) args[1]) {
+                        if (zset != null && zset.remove(str(value)) != null) {
+                            count++;
+                        }
+                    }
+                    removeIfEmpty(key, zset);
+                    return count;
+                }
+                case "zRange":
+                case "zRangeWithScores":
+                case "zRevRange":
+                case "zRevRangeWithScores": {
+                    boolean withScores = command.endsWith("WithScores");
+                    Set<Object> result = new LinkedHashSet<>();
+                    for (Map.Entry<String, Double> entry : sorted(str(args[0]), command.startsWith("zRev"),
+                            (Long) args[1], (Long) args[2])) {
+                        result.add(withScores ? new DefaultTuple(bytes(entry.getKey()), entry.getValue())
+                                : bytes(entry.getKey()));
+                    }
+                    return result;
+                }
+                /*------------------------hyperloglog------------------------*/
+                case "pfAdd": {
+                    HyperLogLog hll = hyperLogLog(str(args[0]), true);
+                    boolean changed = false;
+                    for (byte[] value : (byte[][]) args[1]) {
+                        changed |= hll.add(value);
+                    }
+                    return changed ? 1L : 0L;
+                }
+                case "pfCount": {
+                    HyperLogLog union = new HyperLogLog();
+                    for (byte[] key : (byte[][]) args[0]) {
+                        HyperLogLog hll = hyperLogLog(str(key), false);
+                        if (hll != null) {
+                            union.merge(hll);
+                        }
+                    }
+                    return union.count();
+                }
+                case "pfMerge": {
+                    HyperLogLog dest = hyperLogLog(str(args[0]), true);
+                    for (byte[] key : (byte[][]) args[1]) {
+                        HyperLogLog hll = hyperLogLog(str(key), false);
+                        if (hll != null) {
+                            dest.merge(hll);
+                        }
+                    }
+                    return null;
+                }
+                /*------------------------script------------------------*/
+                case "eval":
+                case "evalSha": {
+                    String script = args[0] instanceof String ? (String) args[0] : str(args[0]);
+                    ScriptEmulation emulation = scripts.get(script);
+                    if (emulation == null) {
+                        break;
+                    }
+                    int numKeys = (Integer) args[2];
+                    List<String> keys = new ArrayList<>();
+                    List<String> argv = new ArrayList<>();
+                    byte[][] keysAndArgs = (byte[][]) args[3];
+                    for (int i = 0; i < keysAndArgs.length; i++) {
+                        (i < numKeys ? keys : argv).add(str(keysAndArgs[i]));
+                    }
+                    return emulation.execute(keys, argv);
+                }
+                case "scriptLoad": {
+                    String script = str(args[0]);
+                    return scripts.containsKey(script) ? DigestUtils.sha1DigestAsHex(script) : null;
+                }
+                /*------------------------pub/sub------------------------*/
+                case "publish":
+                    //没有订阅者
+                    return 0L;
+                default:
+                    break;
+            }
+            throw new UnsupportedOperationException("command is not supported: " + command);
+        }
+
+        private List<Long> rateLimit(List<String> keys, List<String> argv) {
+            long now = Long.parseLong(argv.get(1));
+            double capacity = Double.parseDouble(argv.get(2));
+            double param = Double.parseDouble(argv.get(3));
+            long permits = Long.parseLong(argv.get(4));
+            List<Long> result = new ArrayList<>();
+            for (int i = 0; i < keys.size(); i++) {
+                String key = keys.get(i);
+                if ("tb".equals(argv.get(0))) {
+                    Map<String, String> state = hash(key, true);
+                    double tokens = state.containsKey("tokens") ? Double.parseDouble(state.get("tokens")) : capacity;
+                    long ts = state.containsKey("ts") ? Long.parseLong(state.get("ts")) : now;
+                    tokens = Math.min(capacity, tokens + Math.max(0, now - ts) * param / 1000);
+                    boolean allowed = tokens >= permits;
+                    if (allowed) {
+                        tokens -= permits;
+                    }
+                    state.put("tokens", String.valueOf(tokens));
+                    state.put("ts", String.valueOf(now));
+                    expire(key, (long) Math.ceil(capacity * 1000 / param) + 1000);
+                    result.add(allowed ? 1L : 0L);
+                } else {
+                    ZSet zset = zset(key, true);
+                    zset.headMembers(now - param, Integer.MAX_VALUE).forEach(zset::remove);
+                    boolean allowed = zset.size() + permits <= capacity;
+                    if (allowed) {
+                        for (int j = 1; j <= permits; j++) {
+                            zset.put(argv.get(5) + ":" + (i + 1) + ":" + j, (double) now);
+                        }
+                        expire(key, (long) param);
+                    }
+                    removeIfEmpty(key, zset);
+                    result.add(allowed ? 1L : 0L);
+                }
+            }
+            return result;
+        }
+
+        private boolean zRem(String key, String member) {
+            Map<String, Double> zset = zset(key, false);
+            boolean removed = zset != null && zset.remove(member) != null;
+            removeIfEmpty(key, zset);
+            return removed;
+        }
+
+        private void hDel(String key, String field) {
+            Map<String, String> hash = hash(key, false);
+            if (hash != null) {
+                hash.remove(field);
+                removeIfEmpty(key, hash);
+            }
+        }
+
+        private List<String> rangeByScore(String key, double max, int limit) {
+            ZSet zset = zset(key, false);
+            return zset == null ? Collections.<String>emptyList() : zset.headMembers(max, limit);
+        }
+
+        private Object setWithOptions(Object[] args) {
+            String key = str(args[0]);
+            Expiration expiration = (Expiration) args[2];
+            String option = String.valueOf(args[3]);
+            boolean exists = lookup(key) != null;
+            if (("SET_IF_ABSENT".equals(option) && exists) || ("SET_IF_PRESENT".equals(option) && !exists)) {
+                return null;
+            }
+            long ttl = expiration == null || expiration.isPersistent() ? -1 : expiration.getExpirationTimeInMilliseconds();
+            put(key, str(args[1]), ttl);
+            return null;
+        }
+
+        private long incrBy(String key, long increment) {
+            String value = (String) lookup(key);
+            long result = (value == null ? 0L : Long.parseLong(value)) + increment;
+            data.put(key, String.valueOf(result));
+            return result;
+        }
+
+        private boolean expire(String key, long millis) {
+            if (lookup(key) == null) {
+                return false;
+            }
+            expireAt.put(key, System.currentTimeMillis() + millis);
+            return true;
+        }
+
+        private void put(String key, Object value, long ttlMillis) {
+            data.put(key, value);
+            if (ttlMillis > 0) {
+                expireAt.put(key, System.currentTimeMillis() + ttlMillis);
+            } else {
+                expireAt.remove(key);
+            }
+        }
+
+        private Object remove(String key) {
+            Object value = lookup(key);
+            data.remove(key);
+            expireAt.remove(key);
+            return value;
+        }
+
+        private void removeIfEmpty(String key, Object value) {
+            if ((value instanceof Collection && ((Collection<?>) value).isEmpty())
+                    || (value instanceof Map && ((Map<?, ?>) value).isEmpty())) {
+                remove(key);
+            }
+        }
+
+        //惰性删除过期key
+        private Object lookup(String key) {
+            Long at = expireAt.get(key);
+            if (at != null && at <= System.currentTimeMillis()) {
+                data.remove(key);
+                expireAt.remove(key);
+                return null;
+            }
+            return data.get(key);
+        }
+
+        @SuppressWarnings("unchecked")
+        private Map<String, String> hash(String key, boolean create) {
+            Object value = lookup(key);
+            if (value == null && create) {
+                value = new LinkedHashMap<String, String>();
+                data.put(key, value);
+            }
+            return (Map<String, String>) value;
+        }
+
+        @SuppressWarnings("unchecked")
+        private LinkedList<String> list(String key, boolean create) {
+            Object value = lookup(key);
+            if (value == null && create) {
+                value = new LinkedList<String>();
+                data.put(key, value);
+            }
+            return (LinkedList<String>) value;
+        }
+
+        @SuppressWarnings("unchecked")
+        private Set<String> set(String key, boolean create) {
+            Object value = lookup(key);
+            if (value == null && create) {
+                value = new LinkedHashSet<String>();
+                data.put(key, value);
+            }
+            return (Set<String>) value;
+        }
+
+        @SuppressWarnings("unchecked")
+        private ZSet zset(String key, boolean create) {
+            Object value = lookup(key);
+            if (value == null && create) {
+                value = new ZSet();
+                data.put(key, value);
+            }
+            return (ZSet) value;
+        }
+
+        private StreamData stream(String key, boolean create) {
+            Object value = lookup(key);
+            if (value == null && create) {
+                value = new StreamData();
+                data.put(key, value);
+            }
+            return (StreamData) value;
+        }
+
+        private HyperLogLog hyperLogLog(String key, boolean create) {
+            Object value = lookup(key);
+            if (value == null && create) {
+                value = new HyperLogLog();
+                data.put(key, value);
+            }
+            return (HyperLogLog) value;
+        }
+
+        //按排名取成员,reverse为true时按分数从大到小,只遍历到end为止
+        private List<Map.Entry<String, Double>> sorted(String key, boolean reverse, long start, long end) {
+            ZSet zset = zset(key, false);
+            List<Map.Entry<String, Double>> sorted = new ArrayList<>();
+            if (zset == null) {
+                return sorted;
+            }
+            int[] range = range(zset.size(), start, end);
+            int rank = 0;
+            for (Map.Entry<String, Double> entry : reverse ? zset.index.descendingSet() : zset.index) {
+                if (rank > range[1]) {
+                    break;
+                }
+                if (rank++ >= range[0]) {
+                    sorted.add(entry);
+                }
+            }
+            return sorted;
+        }
+
+        //成员的排名,不存在返回null
+        private Long rank(String key, String member, boolean reverse) {
+            ZSet zset = zset(key, false);
+            Double score = zset == null ? null : zset.get(member);
+            if (score == null) {
+                return null;
+            }
+            Map.Entry<String, Double> entry = new AbstractMap.SimpleImmutableEntry<>(member, score);
+            return (long) (reverse ? zset.index.tailSet(entry, false).size() : zset.index.headSet(entry, false).size());
+        }
+
+        //按Redis规则换算下标,负数表示从尾部开始
+        private static int[] range(int size, long start, long end) {
+            long from = start < 0 ? Math.max(0, size + start) : start;
+            long to = end < 0 ? size + end : Math.min(end, size - 1);
+            return new int[]{(int) from, (int) to};
+        }
+
+        private static String str(Object raw) {
+            return new String((byte[]) raw, StandardCharsets.ISO_8859_1);
+        }
+
+        private static byte[] bytes(String value) {
+            return value.getBytes(StandardCharsets.ISO_8859_1);
+        }
+
+    }
+
+}
@@ -0,0 +1,103 @@
+package com.pzl.program.frametool.redis.benchmark;
+
+import com.pzl.program.frametool.redis.RedisBatch;
+import com.pzl.program.frametool.redis.RedisUtil;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * RedisUtil 单条调用 与 RedisBatch 流水线分段调用 的吞吐量对比
+ * <p>
+ * 使用InMemoryRedisConnectionFactory模拟网络往返,写入操作轮流覆盖string/hash/list/set/zset五种类型。
+ * 运行参数: [操作数, 默认10000] [模拟RTT微秒, 默认200]
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class RedisBatchBenchmark {
+
+    private static final int[] CHUNK_SIZES = {10, 100, 500, 2000};
+
+    public static void main(String[] args) {
+        int operations = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        long rttMicros = args.length > 1 ? Long.parseLong(args[1]) : 200;
+        InMemoryRedisConnectionFactory factory = new InMemoryRedisConnectionFactory(rttMicros, TimeUnit.MICROSECONDS);
+        RedisUtil redisUtil = factory.newRedisUtil();
+        System.out.println("operations=" + operations + ", rtt=" + rttMicros + "us");
+
+        //预热
+        single(redisUtil, 1000);
+        batch(redisUtil, 1000, 100);
+        factory.reset();
+
+        long start = System.nanoTime();
+        single(redisUtil, operations);
+        report("single", operations, System.nanoTime() - start, factory.getRoundTrips());
+        factory.reset();
+
+        for (int chunkSize : CHUNK_SIZES) {
+            start = System.nanoTime();
+            batch(redisUtil, operations, chunkSize);
+            report("pipeline chunk=" + chunkSize, operations, System.nanoTime() - start, factory.getRoundTrips());
+            factory.reset();
+        }
+    }
+
+    private static void single(RedisUtil redisUtil, int operations) {
+        for (int i = 0; i < operations; i++) {
+            String member = String.valueOf(i);
+            switch (i % 5) {
+                case 0:
+                    redisUtil.set("bench:string:" + i, member);
+                    break;
+                case 1:
+                    redisUtil.hPut("bench:hash", member, member);
+                    break;
+                case 2:
+                    redisUtil.lRightPush("bench:list", member);
+                    break;
+                case 3:
+                    redisUtil.sAdd("bench:set", member);
+                    break;
+                default:
+                    redisUtil.zAdd("bench:zset", member, i);
+                    break;
+            }
+        }
+    }
+
+    private static void batch(RedisUtil redisUtil, int operations, int chunkSize) {
+        RedisBatch batch = redisUtil.batch(chunkSize);
+        for (int i = 0; i < operations; i++) {
+            String member = String.valueOf(i);
+            switch (i % 5) {
+                case 0:
+                    batch.set("bench:string:" + i, member);
+                    break;
+                case 1:
+                    batch.hPut("bench:hash", member, member);
+                    break;
+                case 2:
+                    batch.lRightPush("bench:list", member);
+                    break;
+                case 3:
+                    batch.sAdd("bench:set", member);
+                    break;
+                default:
+                    batch.zAdd("bench:zset", member, i);
+                    break;
+            }
+        }
+        RedisBatch.Result result = batch.execute();
+        if (result.size() != operations) {
+            throw new IllegalStateException("unexpected result size " + result.size());
+        }
+    }
+
+    private static void report(String name, int operations, long elapsedNanos, long roundTrips) {
+        double seconds = elapsedNanos / 1e9;
+        System.out.println(String.format("%-24s ops/sec=%12.0f  elapsed=%8.1fms  roundTrips=%d",
+                name, operations / seconds, elapsedNanos / 1e6, roundTrips));
+    }
+
+}
@@ -0,0 +1,101 @@
+package com.pzl.program.frametool.redis.benchmark;
+
+import com.pzl.program.frametool.redis.RedisCardinalityCounter;
+import com.pzl.program.frametool.redis.RedisUtil;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 基数统计测试: set / HyperLogLog / bitmap
+ * <p>
+ * 每天从用户池中随机抽取访客(天与天之间部分重复),对比逐条sAdd、逐条pfAdd和批量写入的吞吐量,
+ * 以及单日、多天并集、每天都活跃三种统计的结果与精确值的误差和大致内存占用。
+ * 运行参数: [每天访客数, 默认100000] [天数, 默认7] [模拟RTT微秒, 默认200]
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class RedisCardinalityBenchmark {
+
+    private static final String METRIC = "home";
+
+    public static void main(String[] args) {
+        int visitors = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int days = args.length > 1 ? Integer.parseInt(args[1]) : 7;
+        long rttMicros = args.length > 2 ? Long.parseLong(args[2]) : 200;
+        System.out.println("visitors/day=" + visitors + ", days=" + days + ", rtt=" + rttMicros + "us");
+
+        InMemoryRedisConnectionFactory factory = new InMemoryRedisConnectionFactory(rttMicros, TimeUnit.MICROSECONDS);
+        RedisUtil redisUtil = factory.newRedisUtil();
+        RedisCardinalityCounter counter = factory.newComponent(RedisCardinalityCounter.class);
+
+        //用户池为每天访客数的2倍,每天抽取的访客与前一天大约重复一半
+        Random random = new Random(42);
+        LocalDate first = LocalDate.of(2026, 10, 1);
+        LocalDate last = first.plusDays(days - 1);
+        List<List<Long>> daily = new ArrayList<>();
+        for (int d = 0; d < days; d++) {
+            Set<Long> ids = new HashSet<>();
+            while (ids.size() < visitors) {
+                ids.add((long) random.nextInt(visitors * 2));
+            }
+            daily.add(new ArrayList<>(ids));
+        }
+
+        //写入吞吐,逐条调用只取前2000个事件
+        List<Long> sample = daily.get(0).subList(0, Math.min(2000, visitors));
+        write("sAdd per call", factory, sample.size(), () -> sample.forEach(id -> redisUtil.sAdd("set:" + METRIC, String.valueOf(id))));
+        write("pfAdd per call", factory, sample.size(), () -> sample.forEach(id -> redisUtil.pfAdd("hll:" + METRIC, String.valueOf(id))));
+        write("addUnique batch", factory, visitors, () ->
+                counter.addUnique(METRIC, first, daily.get(0).stream().map(String::valueOf).collect(Collectors.toList())));
+        write("markActive batch", factory, visitors, () -> counter.markActive(METRIC, first, daily.get(0)));
+        for (int d = 1; d < days; d++) {
+            counter.addUnique(METRIC, first.plusDays(d), daily.get(d).stream().map(String::valueOf).collect(Collectors.toList()));
+            counter.markActive(METRIC, first.plusDays(d), daily.get(d));
+        }
+
+        //精确值
+        Set<Long> union = new HashSet<>();
+        Set<Long> everyDay = new HashSet<>(daily.get(0));
+        for (List<Long> ids : daily) {
+            union.addAll(ids);
+            everyDay.retainAll(ids);
+        }
+        System.out.println();
+        report("day uv (hll)", visitors, counter.countUnique(METRIC, first));
+        report("day dau (bitmap)", visitors, counter.countActive(METRIC, first));
+        report("range uv (pfcount)", union.size(), counter.countUnique(METRIC, first, last));
+        report("range uv (rollup)", union.size(), counter.rollupUnique(METRIC, first, last));
+        report("range dau (or)", union.size(), counter.countActive(METRIC, first, last));
+        report("every day (and)", everyDay.size(), counter.countActiveEveryDay(METRIC, first, last));
+
+        //内存估算: set只计成员字节(实际还有每个元素几十字节的结构开销),HyperLogLog为Redis稠密编码大小,bitmap为最大ID/8
+        long setBytes = daily.get(0).stream().mapToLong(id -> String.valueOf(id).length()).sum();
+        long bitmapBytes = visitors * 2 / 8 + 1;
+        System.out.println();
+        System.out.println(String.format("memory per day: set >= %d KB, hll = 12 KB, bitmap = %d KB",
+                setBytes / 1024, bitmapBytes / 1024));
+    }
+
+    private static void write(String label, InMemoryRedisConnectionFactory factory, int events, Runnable write) {
+        long roundTrips = factory.getRoundTrips();
+        long start = System.nanoTime();
+        write.run();
+        long elapsed = System.nanoTime() - start;
+        System.out.println(String.format("%-18s %10.0f events/s, round trips=%d",
+                label, events / (elapsed / 1e9), factory.getRoundTrips() - roundTrips));
+    }
+
+    private static void report(String label, long exact, long estimate) {
+        System.out.println(String.format("%-18s exact=%8d, counted=%8d, error=%.2f%%",
+                label, exact, estimate, exact == 0 ? 0 : Math.abs(estimate - exact) * 100.0 / exact));
+    }
+
+}
@@ -0,0 +1,126 @@
+package com.pzl.program.frametool.redis.benchmark;
+
+import com.pzl.program.frametool.elasticsearch.UserInfo;
+import com.pzl.program.frametool.mysql.data.User;
+import com.pzl.program.frametool.redis.codec.CompactBinaryCodec;
+import com.pzl.program.frametool.redis.codec.CompressingRedisCodec;
+import com.pzl.program.frametool.redis.codec.CompressingRedisCodec.Compression;
+import com.pzl.program.frametool.redis.codec.FastjsonRedisCodec;
+import com.pzl.program.frametool.redis.codec.JdkRedisCodec;
+import com.pzl.program.frametool.redis.codec.RedisCodec;
+import lombok.Data;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 对象编解码对比: JDK序列化 / fastjson / 紧凑二进制 / 紧凑二进制+LZ4 / 紧凑二进制+Deflate
+ * <p>
+ * 统计编码后字节数(即网络传输和Redis内存占用)以及编码、解码每次耗时,
+ * 数据使用项目中的User、UserInfo,以及100个UserInfo组成的分页对象(压缩在大对象上才有效果)。
+ * 运行参数: [单对象迭代次数, 默认200000]
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class RedisCodecBenchmark {
+
+    //压缩阈值
+    private static final int THRESHOLD = 256;
+
+    public static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        Map<String, RedisCodec> codecs = new LinkedHashMap<>();
+        codecs.put("jdk", new JdkRedisCodec());
+        codecs.put("fastjson", new FastjsonRedisCodec());
+        codecs.put("compact", new CompactBinaryCodec());
+        codecs.put("compact+lz4", new CompressingRedisCodec(new CompactBinaryCodec(), Compression.LZ4, THRESHOLD));
+        codecs.put("compact+deflate", new CompressingRedisCodec(new CompactBinaryCodec(), Compression.DEFLATE, THRESHOLD));
+
+        UserInfoPage page = new UserInfoPage();
+        page.setTotal(100);
+        page.setUsers(new ArrayList<>());
+        for (int i = 0; i < 100; i++) {
+            page.getUsers().add(userInfo(i));
+        }
+
+        run("User", user(), codecs, iterations);
+        run("UserInfo", userInfo(1), codecs, iterations);
+        run("UserInfoPage(100)", page, codecs, Math.max(1, iterations / 100));
+    }
+
+    private static void run(String label, Object value, Map<String, RedisCodec> codecs, int iterations) {
+        System.out.println("---- " + label + ", iterations=" + iterations);
+        for (Map.Entry<String, RedisCodec> entry : codecs.entrySet()) {
+            RedisCodec codec = entry.getValue();
+            byte[] bytes = codec.encode(value);
+            Object decoded = codec.decode(bytes, value.getClass());
+            if (!value.equals(decoded)) {
+                throw new IllegalStateException(entry.getKey() + " round trip mismatch: " + decoded);
+            }
+            //预热
+            loop(codec, value, bytes, iterations);
+
+            long start = System.nanoTime();
+            long sink = 0;
+            for (int i = 0; i < iterations; i++) {
+                sink += codec.encode(value).length;
+            }
+            long encodeNanos = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int i = 0; i < iterations; i++) {
+                sink += codec.decode(bytes, value.getClass()).hashCode();
+            }
+            long decodeNanos = System.nanoTime() - start;
+            System.out.println(String.format("%-16s bytes=%6d, encode=%9.0f ns/op, decode=%9.0f ns/op (%d)",
+                    entry.getKey(), bytes.length, (double) encodeNanos / iterations,
+                    (double) decodeNanos / iterations, sink & 1));
+        }
+    }
+
+    private static void loop(RedisCodec codec, Object value, byte[] bytes, int iterations) {
+        for (int i = 0; i < iterations; i++) {
+            codec.encode(value);
+            codec.decode(bytes, value.getClass());
+        }
+    }
+
+    private static User user() {
+        User user = new User();
+        user.setId(10086);
+        user.setName("张三");
+        user.setEmail("zhangsan@example.com");
+        return user;
+    }
+
+    private static UserInfo userInfo(int i) {
+        UserInfo userInfo = new UserInfo();
+        userInfo.setName("user" + i);
+        userInfo.setAge(20 + i % 40);
+        userInfo.setSalary(8000.5f + i);
+        userInfo.setAddress("浙江省杭州市西湖区文三路" + i + "号");
+        userInfo.setRemark("普通会员");
+        userInfo.setCreateTime(new Date(1600000000000L + i * 1000L));
+        userInfo.setBirthday("1990-01-" + (10 + i % 20));
+        return userInfo;
+    }
+
+    /**
+     * 分页结果
+     */
+    @Data
+    public static class UserInfoPage implements Serializable {
+
+        private static final long serialVersionUID = 1L;
+
+        private int total;
+
+        private List<UserInfo> users;
+
+    }
+
+}
@@ -0,0 +1,119 @@
+package com.pzl.program.frametool.redis.benchmark;
+
+import com.pzl.program.frametool.redis.DelayJob;
+import com.pzl.program.frametool.redis.RedisDelayQueue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 延迟队列测试: 写入吞吐、到期投递延迟、失败重试
+ * <p>
+ * 1、写入:对比逐个schedule和scheduleAll批量写入的吞吐量和每个任务的往返次数
+ * 2、消费:任务到期时间均匀分布在几秒内,多个订阅模拟多个节点同时消费,
+ * 统计端到端吞吐量、实际执行时间比到期时间晚多少(p50/p99)、每个任务的往返次数,
+ * 部分任务第一次处理时抛出异常,检查重试后所有任务都被处理
+ * 运行参数: [任务数, 默认100000] [模拟RTT微秒, 默认200] [订阅数, 默认2] [每个订阅的线程数, 默认16] [首次失败比例, 默认0.01]
+ * [到期时间分布秒数, 默认5]
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class RedisDelayQueueBenchmark {
+
+    private static final String QUEUE = "bench";
+
+    public static void main(String[] args) throws InterruptedException {
+        int jobs = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        long rttMicros = args.length > 1 ? Long.parseLong(args[1]) : 200;
+        int subscribers = args.length > 2 ? Integer.parseInt(args[2]) : 2;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : 16;
+        double failRate = args.length > 4 ? Double.parseDouble(args[4]) : 0.01;
+        int spread = args.length > 5 ? Integer.parseInt(args[5]) : 5;
+        InMemoryRedisConnectionFactory factory = new InMemoryRedisConnectionFactory(rttMicros, TimeUnit.MICROSECONDS);
+        RedisDelayQueue queue = factory.newComponent(RedisDelayQueue.class);
+        System.out.println("jobs=" + jobs + ", rtt=" + rttMicros + "us, subscribers=" + subscribers
+                + ", threads=" + threads + ", failRate=" + failRate + ", spread=" + spread + "s");
+
+        //逐个写入,写入后取消
+        int single = Math.min(jobs, 2000);
+        long start = System.nanoTime();
+        for (int i = 0; i < single; i++) {
+            queue.schedule(QUEUE, DelayJob.of("single" + i, "payload" + i, 1, TimeUnit.HOURS));
+        }
+        report("schedule x" + single, single, System.nanoTime() - start, factory.getRoundTrips());
+        for (int i = 0; i < single; i++) {
+            queue.cancel(QUEUE, "single" + i);
+        }
+        factory.reset();
+
+        //批量写入,到期时间从3秒后开始,均匀分布在spread秒内
+        List<DelayJob> batch = new ArrayList<>(jobs);
+        long base = System.currentTimeMillis() + 3000;
+        for (int i = 0; i < jobs; i++) {
+            batch.add(DelayJob.at("job" + i, "payload" + i, base + ThreadLocalRandom.current().nextLong(spread * 1000L)));
+        }
+        start = System.nanoTime();
+        queue.scheduleAll(QUEUE, batch);
+        report("scheduleAll x" + jobs, jobs, System.nanoTime() - start, factory.getRoundTrips());
+
+        //消费
+        Set<String> done = ConcurrentHashMap.newKeySet();
+        List<Long> lateness = Collections.synchronizedList(new ArrayList<>());
+        AtomicLong lastDone = new AtomicLong();
+        long roundTripsBefore = factory.getRoundTrips();
+        List<RedisDelayQueue.Subscription> subscriptions = new ArrayList<>();
+        for (int i = 0; i < subscribers; i++) {
+            subscriptions.add(queue.subscribe(QUEUE, job -> {
+                if (job.getAttempts() == 1 && ThreadLocalRandom.current().nextDouble() < failRate) {
+                    throw new IllegalStateException("simulated failure");
+                }
+                long now = System.currentTimeMillis();
+                if (done.add(job.getId())) {
+                    lateness.add(now - job.getDueTime());
+                }
+                lastDone.accumulateAndGet(now, Math::max);
+            }, threads));
+        }
+        long deadline = System.currentTimeMillis() + 60000;
+        while (done.size() < jobs && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        long roundTrips = factory.getRoundTrips() - roundTripsBefore;
+        long delivered = 0;
+        long failed = 0;
+        for (RedisDelayQueue.Subscription subscription : subscriptions) {
+            subscription.close();
+            delivered += subscription.getDelivered();
+            failed += subscription.getFailed();
+        }
+        Map<String, Long> stats = queue.stats(QUEUE);
+
+        long[] all = lateness.stream().mapToLong(Long::longValue).sorted().toArray();
+        long lastDue = batch.stream().mapToLong(DelayJob::getDueTime).max().orElse(base);
+        System.out.println(String.format("consume              done=%d/%d, delivered=%d, failed(retried)=%d, due %.0f jobs/s, "
+                        + "late p50=%dms p99=%dms max=%dms, drained %dms after last due, roundTrips/job=%.3f, left=%s",
+                done.size(), jobs, delivered, failed, jobs / (double) spread, percentile(all, 0.5), percentile(all, 0.99),
+                all.length == 0 ? 0 : all[all.length - 1], lastDone.get() - lastDue,
+                roundTrips / (double) jobs, stats));
+        queue.shutdown();
+    }
+
+    private static void report(String label, int count, long nanos, long roundTrips) {
+        System.out.println(String.format("%-20s %9.0f jobs/s, roundTrips/job=%.3f",
+                label, count / (nanos / 1e9), roundTrips / (double) count));
+    }
+
+    private static long percentile(long[] sorted, double p) {
+        return sorted.length == 0 ? 0 : sorted[Math.min(sorted.length - 1, (int) (sorted.length * p))];
+    }
+
+}
@@ -0,0 +1,144 @@
+package com.pzl.program.frametool.redis.benchmark;
+
+import com.pzl.program.frametool.redis.LeaderboardEntry;
+import com.pzl.program.frametool.redis.RedisLeaderboard;
+import com.pzl.program.frametool.redis.RedisUtil;
+import org.springframework.data.redis.core.ZSetOperations.TypedTuple;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 排行榜压测: 每个事件直接ZINCRBY / RedisLeaderboard本地聚合后批量刷新
+ * <p>
+ * 多个写线程按偏斜分布(少数成员占大部分事件)给成员加分,统计每秒事件数和平均每个事件的网络往返次数,
+ * 刷新后校验总分没有丢失;写入的同时另一个线程读取榜单,统计top(直接查询/本地缓存)和around的延迟。
+ * 运行参数: [写线程数, 默认8] [每个线程的事件数, 默认20000] [成员数, 默认10000] [模拟RTT微秒, 默认200]
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class RedisLeaderboardBenchmark {
+
+    private static final String BOARD = "benchmark";
+
+    //与RedisLeaderboard的key一致,直接写入和本地聚合写入同一个排行榜
+    private static final String KEY = "leaderboard:{" + BOARD + "}";
+
+    public static void main(String[] args) throws Exception {
+        int writers = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int events = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        int members = args.length > 2 ? Integer.parseInt(args[2]) : 10000;
+        long rttMicros = args.length > 3 ? Long.parseLong(args[3]) : 200;
+        System.out.println("writers=" + writers + ", events/writer=" + events + ", members=" + members
+                + ", rtt=" + rttMicros + "us");
+
+        InMemoryRedisConnectionFactory factory = new InMemoryRedisConnectionFactory(rttMicros, TimeUnit.MICROSECONDS);
+        RedisUtil redisUtil = factory.newRedisUtil();
+        RedisLeaderboard leaderboard = factory.newComponent(RedisLeaderboard.class);
+        leaderboard.start();
+
+        //每个事件一次ZINCRBY,事件数取1/10,否则耗时过长
+        int directEvents = Math.max(1, events / 10);
+        factory.reset();
+        write("direct zincrby", factory, writers, directEvents, members,
+                member -> redisUtil.zIncrementScore(KEY, member, 1));
+        verify(redisUtil, (long) writers * directEvents);
+
+        //本地聚合
+        factory.reset();
+        write("aggregated", factory, writers, events, members, member -> leaderboard.incrementScore(BOARD, member, 1));
+        leaderboard.flush();
+        verify(redisUtil, (long) writers * events);
+        System.out.println(String.format("%-16s zincrby commands=%d", "", leaderboard.getFlushedCommands()));
+
+        //写入的同时读取榜单
+        AtomicBoolean running = new AtomicBoolean(true);
+        Thread[] threads = new Thread[writers];
+        for (int t = 0; t < writers; t++) {
+            threads[t] = new Thread(() -> {
+                while (running.get()) {
+                    leaderboard.incrementScore(BOARD, member(members), 1);
+                }
+            });
+            threads[t].start();
+        }
+        read("top direct", () -> redisUtil.zReverseRangeWithScores(KEY, 0, 9));
+        read("top cached", () -> leaderboard.top(BOARD, 0, 10));
+        read("around(5)", () -> leaderboard.around(BOARD, member(members), 5));
+        running.set(false);
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        List<LeaderboardEntry> top = leaderboard.top(BOARD, 0, 3);
+        LeaderboardEntry first = top.get(0);
+        List<LeaderboardEntry> around = leaderboard.around(BOARD, first.getMember(), 1);
+        System.out.println("top3=" + top);
+        System.out.println("around(top1, 1)=" + around);
+        leaderboard.shutdown();
+    }
+
+    private static void write(String label, InMemoryRedisConnectionFactory factory, int writers, int events,
+                              int members, Event event) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(writers);
+        long start = System.nanoTime();
+        for (int t = 0; t < writers; t++) {
+            new Thread(() -> {
+                try {
+                    for (int i = 0; i < events; i++) {
+                        event.handle(member(members));
+                    }
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        long total = (long) writers * events;
+        System.out.println(String.format("%-16s %10.0f events/s, round trips/event=%.5f",
+                label, total / (elapsed / 1e9), factory.getRoundTrips() / (double) total));
+    }
+
+    private static void verify(RedisUtil redisUtil, long expected) {
+        double sum = 0;
+        for (TypedTuple<String> tuple : redisUtil.zReverseRangeWithScores(KEY, 0, -1)) {
+            sum += tuple.getScore();
+        }
+        if ((long) sum != expected) {
+            throw new IllegalStateException("score lost, expected " + expected + ", actual " + (long) sum);
+        }
+        redisUtil.delete(KEY);
+    }
+
+    private static void read(String label, Runnable read) {
+        int count = 2000;
+        long[] latencies = new long[count];
+        for (int i = 0; i < count; i++) {
+            long begin = System.nanoTime();
+            read.run();
+            latencies[i] = System.nanoTime() - begin;
+        }
+        Arrays.sort(latencies);
+        System.out.println(String.format("%-16s p50=%8.1fus, p99=%8.1fus",
+                label, latencies[count / 2] / 1e3, latencies[(int) (count * 0.99)] / 1e3));
+    }
+
+    //偏斜分布,编号越小的成员事件越多
+    private static String member(int members) {
+        double r = ThreadLocalRandom.current().nextDouble();
+        return "user:" + (int) (members * r * r * r);
+    }
+
+    @FunctionalInterface
+    private interface Event {
+
+        void handle(String member);
+
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.pzl.program.frametool.redis.benchmark;
+
+import com.pzl.program.frametool.redis.RedisDistributedLock;
+import com.pzl.program.frametool.redis.RedisUtil;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 分布式锁竞争测试: 多线程争抢少量锁名称
+ * <p>
+ * 对比手写的 setIfAbsent + expire(两次往返) 和 RedisDistributedLock(一次往返、带防护令牌),
+ * 统计吞吐量、等待延迟、每次加锁的往返次数,并在临界区内检查互斥性和令牌单调递增。
+ * 运行参数: [线程数, 默认32] [锁名称数, 默认4] [每轮秒数, 默认3] [模拟RTT微秒, 默认200]
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class RedisLockBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 32;
+        int names = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        long rttMicros = args.length > 3 ? Long.parseLong(args[3]) : 200;
+        InMemoryRedisConnectionFactory factory = new InMemoryRedisConnectionFactory(rttMicros, TimeUnit.MICROSECONDS);
+        RedisUtil redisUtil = factory.newRedisUtil();
+        RedisDistributedLock redisDistributedLock = factory.newComponent(RedisDistributedLock.class);
+        System.out.println("threads=" + threads + ", names=" + names + ", seconds=" + seconds + ", rtt=" + rttMicros + "us");
+
+        run("setIfAbsent+expire", factory, threads, names, seconds, name -> {
+            String key = "legacy:" + name;
+            long backoff = 1;
+            while (!redisUtil.setIfAbsent(key, "1")) {
+                Thread.sleep(1 + ThreadLocalRandom.current().nextLong(backoff));
+                backoff = Math.min(backoff * 2, 50);
+            }
+            redisUtil.expire(key, 30L, TimeUnit.SECONDS);
+            return new Held(0, () -> redisUtil.delete(key));
+        });
+        factory.reset();
+
+        run("RedisDistributedLock", factory, threads, names, seconds, name -> {
+            RedisDistributedLock.Lease lease = redisDistributedLock.tryLock(name, 10, TimeUnit.SECONDS);
+            if (lease == null) {
+                throw new IllegalStateException("lock wait timeout: " + name);
+            }
+            return new Held(lease.getFencingToken(), lease::unlock);
+        });
+        redisDistributedLock.shutdown();
+    }
+
+    private static void run(String label, InMemoryRedisConnectionFactory factory, int threads, int names, int seconds,
+                            Locker locker) throws InterruptedException {
+        AtomicInteger[] holders = new AtomicInteger[names];
+        AtomicLong[] lastTokens = new AtomicLong[names];
+        for (int i = 0; i < names; i++) {
+            holders[i] = new AtomicInteger();
+            lastTokens[i] = new AtomicLong();
+        }
+        AtomicLong violations = new AtomicLong();
+        List<Long> waits = Collections.synchronizedList(new ArrayList<>());
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                List<Long> samples = new ArrayList<>();
+                try {
+                    while (System.nanoTime() < deadline) {
+                        int index = ThreadLocalRandom.current().nextInt(names);
+                        long start = System.nanoTime();
+                        Held held = locker.lock("bench" + index);
+                        samples.add(System.nanoTime() - start);
+                        if (holders[index].incrementAndGet() != 1) {
+                            violations.incrementAndGet();
+                        }
+                        //令牌应严格大于上一次持有者的令牌
+                        if (held.fencingToken != 0 && held.fencingToken <= lastTokens[index].getAndSet(held.fencingToken)) {
+                            violations.incrementAndGet();
+                        }
+                        //临界区
+                        Thread.sleep(0, 100000);
+                        holders[index].decrementAndGet();
+                        held.release.run();
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    waits.addAll(samples);
+                    done.countDown();
+                }
+            }).start();
+        }
+        done.await();
+
+        long[] all = waits.stream().mapToLong(Long::longValue).sorted().toArray();
+        double avg = Arrays.stream(all).average().orElse(0);
+        long p99 = all.length == 0 ? 0 : all[(int) (all.length * 0.99)];
+        System.out.println(String.format("%-22s acquires=%8d, %9.0f ops/s, wait avg=%7.2fms p99=%7.2fms, roundTrips/acquire=%5.2f, violations=%d",
+                label, all.length, all.length / (double) seconds, avg / 1e6, p99 / 1e6,
+                all.length == 0 ? 0 : factory.getRoundTrips() / (double) all.length, violations.get()));
+    }
+
+    private interface Locker {
+
+        Held lock(String name) throws InterruptedException;
+
+    }
+
+    private static class Held {
+
+        private final long fencingToken;
+
+        private final Runnable release;
+
+        private Held(long fencingToken, Runnable release) {
+            this.fencingToken = fencingToken;
+            this.release = release;
+        }
+
+    }
+
+}
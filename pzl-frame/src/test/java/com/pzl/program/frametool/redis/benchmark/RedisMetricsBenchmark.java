@@ -0,0 +1,108 @@
+package com.pzl.program.frametool.redis.benchmark;
+
+import com.pzl.program.frametool.redis.RedisUtil;
+import com.pzl.program.frametool.redis.metrics.HotKeySketch;
+import com.pzl.program.frametool.redis.metrics.RedisMetricsAspect;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * 监控开销和热点key准确度测试
+ * <p>
+ * 1、开销:不加代理、加代理在不同采样率下,RedisUtil.get的每次耗时,RTT为0时是最坏情况(只剩本地开销),
+ * 同时给出RTT为100微秒时开销占一次调用的比例
+ * 2、准确度:按Zipf分布访问key,对比HotKeySketch给出的top-K与精确计数的top-K,统计命中率和计数误差
+ * 运行参数: [调用次数, 默认2000000] [key个数, 默认100000] [Zipf指数, 默认1.1] [top-K, 默认20]
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class RedisMetricsBenchmark {
+
+    public static void main(String[] args) {
+        int calls = args.length > 0 ? Integer.parseInt(args[0]) : 2000000;
+        int keys = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        double exponent = args.length > 2 ? Double.parseDouble(args[2]) : 1.1;
+        int top = args.length > 3 ? Integer.parseInt(args[3]) : 20;
+        System.out.println("calls=" + calls + ", keys=" + keys + ", zipf=" + exponent + ", top=" + top);
+
+        String[] workload = zipf(calls, keys, exponent);
+        InMemoryRedisConnectionFactory factory = new InMemoryRedisConnectionFactory(0, TimeUnit.MICROSECONDS);
+        RedisUtil target = factory.newRedisUtil();
+        target.set("key0", "value");
+
+        double base = run("no aspect", target, workload);
+        for (double sampleRate : new double[]{0, 0.01, 0.1, 1}) {
+            RedisMetricsAspect aspect = new RedisMetricsAspect();
+            aspect.init();
+            aspect.setSampleRate(sampleRate);
+            AspectJProxyFactory proxyFactory = new AspectJProxyFactory(target);
+            proxyFactory.setProxyTargetClass(true);
+            proxyFactory.addAspect(aspect);
+            RedisUtil proxy = proxyFactory.getProxy();
+            double nanos = run("sampleRate=" + sampleRate, proxy, workload);
+            System.out.println(String.format("%-20s overhead=%6.0f ns/op, %.2f%% of a 100us round trip",
+                    "", nanos - base, (nanos - base) / 1000));
+            aspect.destroy();
+        }
+
+        //准确度
+        Map<String, Long> exact = new HashMap<>();
+        HotKeySketch sketch = new HotKeySketch(4096, 4, top, 0);
+        for (String key : workload) {
+            exact.merge(key, 1L, Long::sum);
+            sketch.add(key);
+        }
+        List<String> exactTop = exact.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .limit(top).map(Map.Entry::getKey).collect(Collectors.toList());
+        Map<String, Long> estimated = sketch.top();
+        Set<String> hit = estimated.keySet().stream().filter(exactTop::contains).collect(Collectors.toSet());
+        double maxError = estimated.entrySet().stream()
+                .mapToDouble(entry -> (entry.getValue() - exact.getOrDefault(entry.getKey(), 0L)) / (double) calls)
+                .max().orElse(0);
+        System.out.println(String.format("top-%d recall=%.2f, max overestimate=%.4f%% of calls, exact #1=%s(%d), sketch #1=%s",
+                top, hit.size() / (double) top, maxError * 100, exactTop.get(0), exact.get(exactTop.get(0)),
+                estimated.entrySet().iterator().next()));
+    }
+
+    private static double run(String label, RedisUtil redisUtil, String[] workload) {
+        //预热
+        for (String key : workload) {
+            redisUtil.get(key);
+        }
+        long start = System.nanoTime();
+        long sink = 0;
+        for (String key : workload) {
+            sink += redisUtil.get(key) == null ? 0 : 1;
+        }
+        double nanos = (System.nanoTime() - start) / (double) workload.length;
+        System.out.println(String.format("%-20s %6.0f ns/op (%d)", label, nanos, sink & 1));
+        return nanos;
+    }
+
+    private static String[] zipf(int calls, int keys, double exponent) {
+        double[] cumulative = new double[keys];
+        double sum = 0;
+        for (int i = 0; i < keys; i++) {
+            sum += 1 / Math.pow(i + 1, exponent);
+            cumulative[i] = sum;
+        }
+        Random random = new Random(42);
+        String[] workload = new String[calls];
+        for (int i = 0; i < calls; i++) {
+            int index = Arrays.binarySearch(cumulative, random.nextDouble() * sum);
+            workload[i] = "key" + (index < 0 ? -index - 1 : index);
+        }
+        return workload;
+    }
+
+}
@@ -0,0 +1,153 @@
+package com.pzl.program.frametool.redis.benchmark;
+
+import com.pzl.program.frametool.redis.RedisStreamQueue;
+import com.pzl.program.frametool.redis.RedisUtil;
+import org.springframework.util.ReflectionUtils;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Stream队列测试: list队列(lLeftPush/lRightPop) / RedisStreamQueue
+ * <p>
+ * 1、写入:逐条lLeftPush和addAll批量写入的吞吐量和每条消息的往返次数
+ * 2、消费:相同线程数下,list队列每个线程逐条弹出,Stream队列成批读取、批量确认,统计吞吐量和每条消息的往返次数
+ * 3、宕机:一个消费者取走一批消息后宕机(不确认),list队列的这批消息丢失,
+ * Stream队列的这批消息空闲超过minIdle后被另一个消费者接管,检查所有消息都被处理
+ * 运行参数: [消息数, 默认20000] [处理线程数, 默认8] [每条消息处理微秒, 默认100] [模拟RTT微秒, 默认200]
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class RedisStreamQueueBenchmark {
+
+    private static final String QUEUE = "bench";
+
+    public static void main(String[] args) throws InterruptedException {
+        int messages = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        long workMicros = args.length > 2 ? Long.parseLong(args[2]) : 100;
+        long rttMicros = args.length > 3 ? Long.parseLong(args[3]) : 200;
+        System.out.println("messages=" + messages + ", threads=" + threads + ", work=" + workMicros
+                + "us, rtt=" + rttMicros + "us");
+
+        InMemoryRedisConnectionFactory factory = new InMemoryRedisConnectionFactory(rttMicros, TimeUnit.MICROSECONDS);
+        RedisUtil redisUtil = factory.newRedisUtil();
+        RedisStreamQueue queue = factory.newComponent(RedisStreamQueue.class);
+        //接管等待时间缩短到1秒
+        Field minIdle = ReflectionUtils.findField(RedisStreamQueue.class, "minIdle");
+        ReflectionUtils.makeAccessible(minIdle);
+        ReflectionUtils.setField(minIdle, queue, 1000L);
+        List<String> payloads = new ArrayList<>(messages);
+        for (int i = 0; i < messages; i++) {
+            payloads.add("message" + i);
+        }
+
+        //写入
+        long roundTrips = factory.getRoundTrips();
+        long start = System.nanoTime();
+        for (String payload : payloads) {
+            redisUtil.lLeftPush("list:" + QUEUE, payload);
+        }
+        report("lLeftPush", messages, System.nanoTime() - start, factory.getRoundTrips() - roundTrips);
+        roundTrips = factory.getRoundTrips();
+        start = System.nanoTime();
+        queue.addAll(QUEUE, payloads);
+        report("addAll", messages, System.nanoTime() - start, factory.getRoundTrips() - roundTrips);
+
+        //list队列消费
+        roundTrips = factory.getRoundTrips();
+        Set<String> done = ConcurrentHashMap.newKeySet();
+        CountDownLatch workers = new CountDownLatch(threads);
+        start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                String payload;
+                while ((payload = redisUtil.lRightPop("list:" + QUEUE)) != null) {
+                    work(workMicros);
+                    done.add(payload);
+                }
+                workers.countDown();
+            }).start();
+        }
+        workers.await();
+        report("list consume", done.size(), System.nanoTime() - start, factory.getRoundTrips() - roundTrips);
+
+        //Stream队列消费
+        roundTrips = factory.getRoundTrips();
+        done.clear();
+        CountDownLatch finished = new CountDownLatch(messages);
+        start = System.nanoTime();
+        RedisStreamQueue.Subscription subscription = queue.subscribe(QUEUE, "bench", message -> {
+            work(workMicros);
+            if (done.add(message.getPayload())) {
+                finished.countDown();
+            }
+        }, threads);
+        finished.await();
+        long elapsed = System.nanoTime() - start;
+        subscription.close();
+        report("stream consume", done.size(), elapsed, factory.getRoundTrips() - roundTrips);
+
+        //宕机:第一个消费者取走消息后不确认就退出
+        int crashed = Math.min(200, messages);
+        for (int i = 0; i < messages; i++) {
+            redisUtil.lLeftPush("list:crash", "message" + i);
+        }
+        for (int i = 0; i < crashed; i++) {
+            redisUtil.lRightPop("list:crash");
+        }
+        System.out.println(String.format("%-16s lost=%d of %d", "list crash", crashed, messages));
+
+        queue.addAll("crash", payloads);
+        AtomicInteger taken = new AtomicInteger();
+        RedisStreamQueue.Subscription dying = queue.subscribe("crash", "bench", message -> {
+            taken.incrementAndGet();
+            throw new IllegalStateException("consumer crashed");
+        }, 1);
+        while (taken.get() == 0) {
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+        dying.close();
+        done.clear();
+        CountDownLatch recovered = new CountDownLatch(messages);
+        start = System.nanoTime();
+        RedisStreamQueue.Subscription survivor = queue.subscribe("crash", "bench", message -> {
+            if (done.add(message.getPayload())) {
+                recovered.countDown();
+            }
+        }, threads);
+        boolean complete = recovered.await(30, TimeUnit.SECONDS);
+        elapsed = System.nanoTime() - start;
+        survivor.close();
+        System.out.println(String.format("%-16s crashed consumer took %d, processed=%d of %d, reclaimed=%d, %.1fs, stats=%s",
+                "stream crash", taken.get(), done.size(), messages, survivor.getReclaimed(),
+                elapsed / 1e9, queue.stats("crash", "bench")));
+        if (!complete) {
+            throw new IllegalStateException("stream messages lost after consumer crash");
+        }
+    }
+
+    //模拟调用下游等IO等待,不占用CPU
+    private static void work(long micros) {
+        long deadline = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(micros);
+        long remaining = deadline - System.nanoTime();
+        while (remaining > 0) {
+            LockSupport.parkNanos(remaining);
+            remaining = deadline - System.nanoTime();
+        }
+    }
+
+    private static void report(String label, int messages, long elapsed, long roundTrips) {
+        System.out.println(String.format("%-16s %9.0f messages/s, round trips/message=%.3f",
+                label, messages / (elapsed / 1e9), roundTrips / (double) messages));
+    }
+
+}
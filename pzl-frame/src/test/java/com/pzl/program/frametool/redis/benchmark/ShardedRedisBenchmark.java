@@ -0,0 +1,130 @@
+package com.pzl.program.frametool.redis.benchmark;
+
+import com.pzl.program.frametool.redis.RedisUtil;
+import com.pzl.program.frametool.redis.sharding.ConsistentHashRing;
+import com.pzl.program.frametool.redis.sharding.ShardedRedisUtil;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 客户端分片测试: key分布均匀度、扩容迁移比例、跨节点multiGet耗时
+ * <p>
+ * 1、分布:不同虚拟节点数下各节点分到的key数与平均值的最大偏差
+ * 2、扩容:增加一个节点后需要迁移的key比例,理想值为 1/(N+1)
+ * 3、multiGet:单节点一次MGET、分片后各节点并发MGET、分片后串行MGET的每次耗时和各节点的命令数
+ * 运行参数: [节点数, 默认4] [key数, 默认1000000] [每次multiGet的key数, 默认100] [模拟RTT微秒, 默认200]
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class ShardedRedisBenchmark {
+
+    public static void main(String[] args) {
+        int nodes = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int keys = args.length > 1 ? Integer.parseInt(args[1]) : 1000000;
+        int batch = args.length > 2 ? Integer.parseInt(args[2]) : 100;
+        long rttMicros = args.length > 3 ? Long.parseLong(args[3]) : 200;
+        System.out.println("nodes=" + nodes + ", keys=" + keys + ", batch=" + batch + ", rtt=" + rttMicros + "us");
+
+        //分布
+        for (int virtualNodes : new int[]{1, 16, 160, 500}) {
+            ConsistentHashRing<String> ring = new ConsistentHashRing<>(names(nodes), virtualNodes);
+            Map<String, Integer> counts = new HashMap<>();
+            for (int i = 0; i < keys; i++) {
+                counts.merge(ring.get("user:" + i), 1, Integer::sum);
+            }
+            double mean = keys / (double) nodes;
+            double maxDeviation = counts.values().stream().mapToDouble(count -> Math.abs(count - mean) / mean).max().orElse(0);
+            System.out.println(String.format("virtualNodes=%-4d max deviation from mean=%5.1f%%, counts=%s",
+                    virtualNodes, maxDeviation * 100, counts.values()));
+        }
+
+        //扩容
+        ConsistentHashRing<String> before = new ConsistentHashRing<>(names(nodes), 160);
+        ConsistentHashRing<String> after = new ConsistentHashRing<>(names(nodes + 1), 160);
+        int moved = 0;
+        for (int i = 0; i < keys; i++) {
+            if (!before.get("user:" + i).equals(after.get("user:" + i))) {
+                moved++;
+            }
+        }
+        System.out.println(String.format("add 1 node: moved %.1f%% of keys (ideal %.1f%%)",
+                moved * 100.0 / keys, 100.0 / (nodes + 1)));
+
+        //multiGet
+        InMemoryRedisConnectionFactory single = new InMemoryRedisConnectionFactory(rttMicros, TimeUnit.MICROSECONDS);
+        RedisUtil redisUtil = single.newRedisUtil();
+        List<InMemoryRedisConnectionFactory> factories = new ArrayList<>();
+        Map<String, StringRedisTemplate> shards = new LinkedHashMap<>();
+        for (String name : names(nodes).keySet()) {
+            InMemoryRedisConnectionFactory factory = new InMemoryRedisConnectionFactory(rttMicros, TimeUnit.MICROSECONDS);
+            factories.add(factory);
+            shards.put(name, new StringRedisTemplate(factory));
+        }
+        ShardedRedisUtil sharded = new ShardedRedisUtil(shards, 160, 16);
+        List<String> batchKeys = new ArrayList<>();
+        Map<String, String> values = new HashMap<>();
+        for (int i = 0; i < batch; i++) {
+            batchKeys.add("user:" + i);
+            values.put("user:" + i, "value" + i);
+        }
+        redisUtil.multiSet(values);
+        sharded.multiSet(values);
+        if (!sharded.multiGet(batchKeys).equals(redisUtil.multiGet(batchKeys))) {
+            throw new IllegalStateException("sharded multiGet mismatch");
+        }
+        int iterations = 2000;
+        single.reset();
+        factories.forEach(InMemoryRedisConnectionFactory::reset);
+        redisUtil.multiSet(values);
+        sharded.multiSet(values);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            redisUtil.multiGet(batchKeys);
+        }
+        report("single node", start, iterations);
+
+        long[] roundTripsBefore = factories.stream().mapToLong(InMemoryRedisConnectionFactory::getRoundTrips).toArray();
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            sharded.multiGet(batchKeys);
+        }
+        report("sharded parallel", start, iterations);
+        long[] perNode = new long[nodes];
+        for (int i = 0; i < nodes; i++) {
+            perNode[i] = factories.get(i).getRoundTrips() - roundTripsBefore[i];
+        }
+        System.out.println("                     commands per node=" + Arrays.toString(perNode));
+
+        start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            for (List<String> shardKeys : sharded.getRing().group(batchKeys).values()) {
+                sharded.template(shardKeys.get(0)).opsForValue().multiGet(shardKeys);
+            }
+        }
+        report("sharded sequential", start, iterations);
+        sharded.shutdown();
+    }
+
+    private static Map<String, String> names(int nodes) {
+        Map<String, String> names = new LinkedHashMap<>();
+        for (int i = 0; i < nodes; i++) {
+            String name = "10.0.0." + (i + 1) + ":6379";
+            names.put(name, name);
+        }
+        return names;
+    }
+
+    private static void report(String label, long start, int iterations) {
+        System.out.println(String.format("%-20s %8.0f us/multiGet", label, (System.nanoTime() - start) / 1e3 / iterations));
+    }
+
+}
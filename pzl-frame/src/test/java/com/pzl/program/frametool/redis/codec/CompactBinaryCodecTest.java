@@ -0,0 +1,237 @@
+package com.pzl.program.frametool.redis.codec;
+
+import org.junit.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.util.*;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * CompactBinaryCodec编解码
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class CompactBinaryCodecTest {
+
+    private final CompactBinaryCodec codec = new CompactBinaryCodec();
+
+    @Test
+    public void roundTripBean() {
+        User user = new User();
+        user.id = -3L;
+        user.age = 300;
+        user.name = "张三";
+        user.active = true;
+        user.score = 1.5;
+        user.balance = new BigDecimal("12.34");
+        user.big = new BigInteger("123456789012345678901234567890");
+        user.birthday = new Date(1700000000000L);
+        user.avatar = new byte[]{1, 2, 3};
+        user.level = Level.GOLD;
+        user.tags = new ArrayList<>(Arrays.asList("a", "b"));
+        user.addresses = new LinkedHashMap<>();
+        user.addresses.put("home", new Address("杭州"));
+        user.addresses.put("work", new Address("上海"));
+        user.extra = new Address("北京");
+        user.secret = "transient";
+
+        User decoded = codec.decode(codec.encode(user), User.class);
+        assertEquals(user.id, decoded.id);
+        assertEquals(user.age, decoded.age);
+        assertEquals(user.name, decoded.name);
+        assertTrue(decoded.active);
+        assertEquals(user.score, decoded.score, 0);
+        assertEquals(user.balance, decoded.balance);
+        assertEquals(user.big, decoded.big);
+        assertEquals(user.birthday, decoded.birthday);
+        assertArrayEquals(user.avatar, decoded.avatar);
+        assertEquals(Level.GOLD, decoded.level);
+        assertEquals(user.tags, decoded.tags);
+        assertEquals("上海", decoded.addresses.get("work").city);
+        //Object字段写入实际类名
+        assertEquals("北京", ((Address) decoded.extra).city);
+        assertNull(decoded.secret);
+    }
+
+    @Test
+    public void roundTripCollections() {
+        List<Object> list = Arrays.asList(1, 2L, "x", null, (short) 3, (byte) 4, 'c', 2.5f, Collections.singleton("s"));
+        assertEquals(list, codec.decode(codec.encode(list), List.class));
+        Map<String, Integer> map = new HashMap<>();
+        map.put("a", Integer.MIN_VALUE);
+        map.put("b", Integer.MAX_VALUE);
+        assertEquals(map, codec.decode(codec.encode(map), Map.class));
+    }
+
+    @Test
+    public void smallIntegerUsesOneByte() {
+        //版本 + 类型标记 + 1字节zigzag
+        assertEquals(3, codec.encode(-1).length);
+        assertEquals(3, codec.encode(63).length);
+    }
+
+    @Test
+    public void truncatedDataRejected() {
+        byte[] bytes = codec.encode(new Address("杭州"));
+        try {
+            codec.decode(Arrays.copyOf(bytes, bytes.length - 1), Address.class);
+            fail();
+        } catch (SerializationException expected) {
+            //数据不完整
+        }
+    }
+
+    @Test(expected = SerializationException.class)
+    public void truncatedCollectionRejected() {
+        //声明3个元素,只有1个
+        byte[] bytes = codec.encode(Arrays.asList(1, 2, 3));
+        codec.decode(Arrays.copyOf(bytes, 5), List.class);
+    }
+
+    @Test
+    public void hugeLengthRejectedBeforeAllocation() {
+        //版本 + LIST + 元素个数0x7FFFFFF0,按个数预分配会OutOfMemoryError
+        byte[] list = {1, 16, (byte) 0xF0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07};
+        byte[] set = list.clone();
+        set[1] = 17;
+        byte[] map = list.clone();
+        map[1] = 18;
+        //超出int范围和负数的长度
+        byte[] string = {1, 10, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF,
+                (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x01};
+        byte[] bytes = {1, 14, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x0F};
+        for (byte[] data : Arrays.asList(list, set, map, string, bytes)) {
+            try {
+                codec.decode(data, Object.class);
+                fail();
+            } catch (SerializationException e) {
+                assertTrue(e.getMessage().contains("invalid length"));
+            }
+        }
+    }
+
+    @Test(expected = SerializationException.class)
+    public void unknownVersionRejected() {
+        byte[] bytes = codec.encode("x");
+        bytes[0] = 99;
+        codec.decode(bytes, String.class);
+    }
+
+    @Test(expected = SerializationException.class)
+    public void schemaChangeRejected() {
+        byte[] bytes = codec.encode(new Address("杭州"));
+        codec.decode(bytes, OtherAddress.class);
+    }
+
+    @Test
+    public void classOutsideAllowedPackagesRejected() {
+        Holder holder = new Holder();
+        holder.items = Collections.singletonList(new Address("杭州"));
+        byte[] bytes = codec.encode(holder);
+        assertEquals("杭州", ((Address) codec.decode(bytes, Holder.class).items.get(0)).city);
+        try {
+            new CompactBinaryCodec(Collections.singletonList("org.example.")).decode(bytes, Holder.class);
+            fail();
+        } catch (SerializationException e) {
+            assertTrue(e.getMessage().contains("not allowed"));
+        }
+    }
+
+    @Test
+    public void classNotAssignableToDeclaredTypeRejected() {
+        //数据中写的是Address,字段声明为List<Level>
+        Holder holder = new Holder();
+        holder.items = Collections.singletonList(new Address("杭州"));
+        try {
+            codec.decode(codec.encode(holder), TypedHolder.class);
+            fail();
+        } catch (SerializationException e) {
+            assertTrue(e.getMessage().contains("not assignable"));
+        }
+    }
+
+    @Test
+    public void declaredTypeOutsideAllowedPackagesAccepted() {
+        CompactBinaryCodec strict = new CompactBinaryCodec(Collections.<String>emptyList());
+        assertEquals(Level.GOLD, strict.decode(strict.encode(Level.GOLD), Level.class));
+        assertEquals("杭州", strict.decode(strict.encode(new Address("杭州")), Address.class).city);
+    }
+
+    public enum Level {
+        SILVER, GOLD
+    }
+
+    public static class Address {
+
+        private String city;
+
+        public Address() {
+        }
+
+        Address(String city) {
+            this.city = city;
+        }
+
+    }
+
+    public static class OtherAddress {
+
+        private String city;
+
+        private int zip;
+
+    }
+
+    public static class Holder {
+
+        private List<Object> items;
+
+    }
+
+    public static class TypedHolder {
+
+        private List<Level> items;
+
+    }
+
+    public static class User {
+
+        private Long id;
+
+        private int age;
+
+        private String name;
+
+        private boolean active;
+
+        private double score;
+
+        private BigDecimal balance;
+
+        private BigInteger big;
+
+        private Date birthday;
+
+        private byte[] avatar;
+
+        private Level level;
+
+        private ArrayList<String> tags;
+
+        private Map<String, Address> addresses;
+
+        private Object extra;
+
+        private transient String secret;
+
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.pzl.program.frametool.redis.codec;
+
+import com.pzl.program.frametool.redis.codec.CompressingRedisCodec.Compression;
+import org.junit.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * CompressingRedisCodec压缩格式,损坏或篡改的数据一律抛出SerializationException
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class CompressingRedisCodecTest {
+
+    private static final String TEXT = repeat("redis value compression ", 200);
+
+    @Test
+    public void roundTrip() {
+        for (Compression compression : Compression.values()) {
+            CompressingRedisCodec codec = new CompressingRedisCodec(new CompactBinaryCodec(), compression, 64);
+            byte[] bytes = codec.encode(TEXT);
+            assertEquals(compression.ordinal(), bytes[0]);
+            assertEquals(TEXT, codec.decode(bytes, String.class));
+            //小于阈值不压缩
+            assertEquals(0, codec.encode("short")[0]);
+        }
+    }
+
+    @Test
+    public void tamperedLengthRejected() {
+        for (Compression compression : new Compression[]{Compression.LZ4, Compression.DEFLATE}) {
+            CompressingRedisCodec codec = new CompressingRedisCodec(new CompactBinaryCodec(), compression, 64);
+            for (int length : new int[]{-1, 0, Integer.MAX_VALUE, 1 << 28}) {
+                byte[] bytes = codec.encode(TEXT);
+                writeLength(bytes, length);
+                assertRejected(codec, bytes);
+            }
+            //长度与实际解压结果不一致
+            byte[] bytes = codec.encode(TEXT);
+            writeLength(bytes, readLength(bytes) + 1);
+            assertRejected(codec, bytes);
+        }
+    }
+
+    @Test
+    public void corruptDataRejected() {
+        for (Compression compression : new Compression[]{Compression.LZ4, Compression.DEFLATE}) {
+            CompressingRedisCodec codec = new CompressingRedisCodec(new CompactBinaryCodec(), compression, 64);
+            byte[] bytes = codec.encode(TEXT);
+            assertRejected(codec, Arrays.copyOf(bytes, bytes.length / 2));
+            byte[] garbage = bytes.clone();
+            for (int i = 5; i < garbage.length; i++) {
+                garbage[i] = (byte) (i * 31);
+            }
+            assertRejected(codec, garbage);
+        }
+        CompressingRedisCodec codec = new CompressingRedisCodec(new CompactBinaryCodec(), Compression.LZ4, 64);
+        assertRejected(codec, new byte[0]);
+        assertRejected(codec, new byte[]{1, 2});
+        assertRejected(codec, new byte[]{9, 0, 0, 0, 0});
+    }
+
+    private static void assertRejected(CompressingRedisCodec codec, byte[] bytes) {
+        try {
+            codec.decode(bytes, String.class);
+            fail("decoded " + bytes.length + " bytes");
+        } catch (SerializationException expected) {
+            //损坏的数据
+        }
+    }
+
+    private static void writeLength(byte[] bytes, int value) {
+        for (int i = 0; i < 4; i++) {
+            bytes[1 + i] = (byte) (value >>> (i * 8));
+        }
+    }
+
+    private static int readLength(byte[] bytes) {
+        int value = 0;
+        for (int i = 0; i < 4; i++) {
+            value |= (bytes[1 + i] & 0xFF) << (i * 8);
+        }
+        return value;
+    }
+
+    private static String repeat(String value, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+
+}
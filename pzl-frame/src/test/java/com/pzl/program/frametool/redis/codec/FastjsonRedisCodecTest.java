@@ -0,0 +1,71 @@
+package com.pzl.program.frametool.redis.codec;
+
+import org.junit.Test;
+import org.springframework.data.redis.serializer.SerializationException;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * FastjsonRedisCodec编解码,损坏的数据抛出SerializationException
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class FastjsonRedisCodecTest {
+
+    private final FastjsonRedisCodec codec = new FastjsonRedisCodec();
+
+    @Test
+    public void roundTrip() {
+        Item item = new Item();
+        item.setName("张三");
+        item.setCount(3);
+        Item decoded = codec.decode(codec.encode(item), Item.class);
+        assertEquals("张三", decoded.getName());
+        assertEquals(3, decoded.getCount());
+    }
+
+    @Test
+    public void corruptDataRejected() {
+        byte[] bytes = codec.encode(new Item());
+        for (byte[] data : Arrays.asList(Arrays.copyOf(bytes, bytes.length / 2),
+                "{\"count\":\"abc\"}".getBytes(StandardCharsets.UTF_8),
+                "not json".getBytes(StandardCharsets.UTF_8))) {
+            try {
+                codec.decode(data, Item.class);
+                fail();
+            } catch (SerializationException expected) {
+                //按缓存未命中处理
+            }
+        }
+    }
+
+    public static class Item {
+
+        private String name;
+
+        private int count;
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.pzl.program.frametool.redis.metrics;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * HotKeySketch的top-k、并发计数和衰减
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class HotKeySketchTest {
+
+    @Test
+    public void topKeysOrderedByCount() {
+        HotKeySketch sketch = new HotKeySketch(1024, 4, 3, 0);
+        for (int i = 0; i < 100; i++) {
+            sketch.add("a");
+            if (i % 2 == 0) {
+                sketch.add("b");
+            }
+            if (i % 4 == 0) {
+                sketch.add("c");
+            }
+            //只出现一次的key进不了集合或很快被淘汰
+            sketch.add("cold" + i);
+        }
+        LinkedHashMap<String, Long> top = sketch.top();
+        assertEquals(Arrays.asList("a", "b", "c"), new ArrayList<>(top.keySet()));
+        assertTrue(top.get("a") >= 100);
+        assertTrue(sketch.estimate("b") >= 50);
+    }
+
+    @Test
+    public void concurrentAddsCountedOnce() throws InterruptedException {
+        HotKeySketch sketch = new HotKeySketch(4096, 4, 10, 0);
+        int threads = 8;
+        int perThread = 20000;
+        CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            Thread worker = new Thread(() -> {
+                for (int i = 0; i < perThread; i++) {
+                    sketch.add("hot" + ((i + offset) % 5));
+                    sketch.add("cold" + offset + "-" + i);
+                }
+                done.countDown();
+            });
+            worker.start();
+        }
+        done.await();
+        LinkedHashMap<String, Long> top = sketch.top();
+        for (int i = 0; i < 5; i++) {
+            //估计值不小于实际次数,并发的CAS更新不会丢失最终的最大值
+            assertTrue(top.containsKey("hot" + i));
+            assertTrue(top.get("hot" + i) >= threads * perThread / 5);
+        }
+        assertTrue(top.size() <= 10);
+    }
+
+    @Test
+    public void decayHalvesCounts() {
+        HotKeySketch sketch = new HotKeySketch(1024, 4, 2, 0);
+        for (int i = 0; i < 8; i++) {
+            sketch.add("a");
+        }
+        sketch.add("b");
+        sketch.decay();
+        assertEquals(Long.valueOf(4), sketch.top().get("a"));
+        //减半后为0的key移出集合
+        assertEquals(1, sketch.top().size());
+        assertEquals(4, sketch.estimate("a"));
+    }
+
+}
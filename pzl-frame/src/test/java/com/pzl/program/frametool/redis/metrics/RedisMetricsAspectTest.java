@@ -0,0 +1,78 @@
+package com.pzl.program.frametool.redis.metrics;
+
+import com.pzl.program.frametool.redis.EmbeddedRedis;
+import com.pzl.program.frametool.redis.RedisUtil;
+import io.prometheus.client.CollectorRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * RedisMetricsAspect的慢调用统计:按设计阻塞的方法不计为慢调用
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class RedisMetricsAspectTest {
+
+    private RedisMetricsAspect aspect;
+
+    private RedisUtil redisUtil;
+
+    @Before
+    public void setUp() {
+        EmbeddedRedis redis = EmbeddedRedis.start();
+        aspect = new RedisMetricsAspect();
+        //所有调用都超过阈值
+        ReflectionTestUtils.setField(aspect, "slowThreshold", 0L);
+        aspect.init();
+        AspectJProxyFactory factory = new AspectJProxyFactory(redis.newComponent(RedisUtil.class));
+        factory.setProxyTargetClass(true);
+        factory.addAspect(aspect);
+        redisUtil = factory.getProxy();
+    }
+
+    @After
+    public void tearDown() {
+        aspect.destroy();
+    }
+
+    @Test
+    public void ordinaryCommandCountedAsSlow() {
+        double before = slow("get");
+        redisUtil.get("metrics:k");
+        assertEquals(before + 1, slow("get"), 0);
+    }
+
+    @Test
+    public void blockingCommandsNotCountedAsSlow() {
+        double pop = slow("lBLeftPop");
+        double load = slow("getOrLoad");
+        //空队列上等待到超时
+        assertNull(redisUtil.lBLeftPop("metrics:queue", 100, TimeUnit.MILLISECONDS));
+        redisUtil.getOrLoad("metrics:loaded", 1, TimeUnit.MINUTES, () -> {
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return "v";
+        });
+        assertEquals(pop, slow("lBLeftPop"), 0);
+        assertEquals(load, slow("getOrLoad"), 0);
+    }
+
+    private static double slow(String command) {
+        Double value = CollectorRegistry.defaultRegistry.getSampleValue("redis_slow_commands_total",
+                new String[]{"command"}, new String[]{command});
+        return value == null ? 0 : value;
+    }
+
+}
@@ -0,0 +1,102 @@
+package com.pzl.program.frametool.redis.sharding;
+
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * ConsistentHashRing分布、迁移和哈希标签
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class ConsistentHashRingTest {
+
+    private static final int KEYS = 100000;
+
+    @Test
+    public void hashTag() {
+        assertEquals("user:1", ConsistentHashRing.hashTag("{user:1}:follow"));
+        assertEquals("a", ConsistentHashRing.hashTag("x{a}{b}"));
+        //空标签使用整个key
+        assertEquals("{}x", ConsistentHashRing.hashTag("{}x"));
+        assertEquals("plain", ConsistentHashRing.hashTag("plain"));
+    }
+
+    @Test
+    public void sameTagSameNode() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(nodes(4), 160);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(ring.get("{user:" + i + "}:follow"), ring.get("{user:" + i + "}:fans"));
+        }
+    }
+
+    @Test
+    public void evenDistribution() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(nodes(4), 160);
+        Map<String, Integer> counts = new HashMap<>();
+        for (int i = 0; i < KEYS; i++) {
+            counts.merge(ring.get("key:" + i), 1, Integer::sum);
+        }
+        assertEquals(4, counts.size());
+        for (int count : counts.values()) {
+            assertTrue("count=" + count, Math.abs(count - KEYS / 4) < KEYS / 4 * 0.15);
+        }
+    }
+
+    @Test
+    public void addingNodeMovesOnlyItsShare() {
+        ConsistentHashRing<String> before = new ConsistentHashRing<>(nodes(4), 160);
+        ConsistentHashRing<String> after = new ConsistentHashRing<>(nodes(5), 160);
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String from = before.get("key:" + i);
+            String to = after.get("key:" + i);
+            if (!from.equals(to)) {
+                //只会迁移到新节点
+                assertEquals("node4", to);
+                moved++;
+            }
+        }
+        assertTrue("moved=" + moved, moved > KEYS / 5 * 0.8 && moved < KEYS / 5 * 1.2);
+    }
+
+    @Test
+    public void groupKeepsOrder() {
+        ConsistentHashRing<String> ring = new ConsistentHashRing<>(nodes(3), 160);
+        List<String> keys = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            keys.add("k" + i);
+        }
+        Map<String, List<String>> groups = ring.group(keys);
+        int total = 0;
+        for (Map.Entry<String, List<String>> group : groups.entrySet()) {
+            List<String> members = group.getValue();
+            for (int i = 0; i < members.size(); i++) {
+                assertEquals(group.getKey(), ring.get(members.get(i)));
+                if (i > 0) {
+                    assertTrue(keys.indexOf(members.get(i - 1)) < keys.indexOf(members.get(i)));
+                }
+            }
+            total += members.size();
+        }
+        assertEquals(keys.size(), total);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void emptyNodesRejected() {
+        new ConsistentHashRing<>(Collections.<String, String>emptyMap(), 160);
+    }
+
+    private static Map<String, String> nodes(int count) {
+        Map<String, String> nodes = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            nodes.put("node" + i, "node" + i);
+        }
+        return nodes;
+    }
+
+}
@@ -0,0 +1,130 @@
+package com.pzl.program.juc.blockingqueue;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * RingBuffer单/多生产者的容量、顺序和并发正确性
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class RingBufferTest {
+
+    @Test
+    public void capacityRoundsUpToPowerOfTwo() {
+        assertEquals(8, RingBuffer.singleProducer(5, WaitStrategy.PARK).capacity());
+        assertEquals(1, RingBuffer.multiProducer(1, WaitStrategy.PARK).capacity());
+    }
+
+    @Test
+    public void offerUntilFullThenPollInOrder() {
+        for (RingBuffer<Integer> buffer : buffers(4)) {
+            for (int i = 0; i < 4; i++) {
+                assertTrue(buffer.offer(i));
+            }
+            assertFalse(buffer.offer(4));
+            assertEquals(4, buffer.size());
+            for (int i = 0; i < 4; i++) {
+                assertEquals(Integer.valueOf(i), buffer.poll());
+            }
+            assertNull(buffer.poll());
+            assertTrue(buffer.isEmpty());
+        }
+    }
+
+    @Test
+    public void drainRespectsLimit() {
+        for (RingBuffer<Integer> buffer : buffers(16)) {
+            for (int i = 0; i < 10; i++) {
+                buffer.offer(i);
+            }
+            List<Integer> drained = new ArrayList<>();
+            assertEquals(6, buffer.drain(drained::add, 6));
+            assertEquals(4, buffer.drain(drained::add, 100));
+            assertEquals(0, buffer.drain(drained::add, 100));
+            for (int i = 0; i < 10; i++) {
+                assertEquals(Integer.valueOf(i), drained.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void timedOperationsTimeOut() throws InterruptedException {
+        RingBuffer<Integer> buffer = RingBuffer.singleProducer(1, WaitStrategy.PARK);
+        assertNull(buffer.poll(10, TimeUnit.MILLISECONDS));
+        assertTrue(buffer.offer(1, 10, TimeUnit.MILLISECONDS));
+        assertFalse(buffer.offer(2, 10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void singleProducerKeepsOrderAcrossWraps() throws InterruptedException {
+        RingBuffer<Integer> buffer = RingBuffer.singleProducer(8, WaitStrategy.PARK);
+        int total = 100000;
+        Thread producer = new Thread(() -> {
+            try {
+                for (int i = 0; i < total; i++) {
+                    buffer.put(i);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        for (int i = 0; i < total; i++) {
+            assertEquals(Integer.valueOf(i), buffer.take());
+        }
+        producer.join();
+    }
+
+    @Test
+    public void multiProducerLosesNothing() throws InterruptedException {
+        RingBuffer<Long> buffer = RingBuffer.multiProducer(64, WaitStrategy.PARK);
+        int producers = 4;
+        int perProducer = 20000;
+        CountDownLatch done = new CountDownLatch(producers);
+        for (int p = 0; p < producers; p++) {
+            long base = (long) p << 32;
+            new Thread(() -> {
+                try {
+                    for (int i = 0; i < perProducer; i++) {
+                        buffer.put(base | i);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            }).start();
+        }
+        //每个生产者内部保持顺序
+        int[] next = new int[producers];
+        for (int received = 0; received < producers * perProducer; ) {
+            received += buffer.awaitDrain(value -> {
+                int producer = (int) (value >>> 32);
+                assertEquals(next[producer]++, (int) (long) value);
+            }, 256);
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (int count : next) {
+            assertEquals(perProducer, count);
+        }
+        assertTrue(buffer.isEmpty());
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static RingBuffer<Integer>[] buffers(int capacity) {
+        return new RingBuffer[]{RingBuffer.singleProducer(capacity, WaitStrategy.PARK),
+                RingBuffer.multiProducer(capacity, WaitStrategy.PARK)};
+    }
+
+}
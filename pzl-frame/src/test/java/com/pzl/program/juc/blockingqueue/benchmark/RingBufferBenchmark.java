@@ -0,0 +1,176 @@
+package com.pzl.program.juc.blockingqueue.benchmark;
+
+import com.pzl.program.juc.blockingqueue.RingBuffer;
+import com.pzl.program.juc.blockingqueue.WaitStrategy;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.LinkedTransferQueue;
+
+/**
+ * 生产者到单消费者的交接测试: ArrayBlockingQueue / LinkedBlockingQueue / LinkedTransferQueue / RingBuffer
+ * <p>
+ * producers个生产者共发送messages个元素,一个消费者取出并累加,统计每微秒交接的元素数。
+ * 阻塞队列用put/take;RingBuffer单生产者时用singleProducer,否则multiProducer,消费者分别测试take和一批最多256个的awaitDrain。
+ * 每组先预热一轮再计时。BUSY_SPIN要求生产者、消费者各有独占的核,核数不够时会非常慢,只在核数足够时测试。
+ * 运行参数: [生产者数列表, 默认1,4] [元素数, 默认2000000] [容量, 默认1024]
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class RingBufferBenchmark {
+
+    //复用同一个元素,只测交接开销,不测分配
+    private static final Long MESSAGE = 1L;
+
+    public static void main(String[] args) throws InterruptedException {
+        String[] producerCounts = (args.length > 0 ? args[0] : "1,4").split(",");
+        int messages = args.length > 1 ? Integer.parseInt(args[1]) : 2000000;
+        int capacity = args.length > 2 ? Integer.parseInt(args[2]) : 1024;
+        int cpus = Runtime.getRuntime().availableProcessors();
+        System.out.println("cpus=" + cpus + ", messages=" + messages + ", capacity=" + capacity + ", unit=msgs/us");
+        for (String count : producerCounts) {
+            int producers = Integer.parseInt(count.trim());
+            System.out.println("producers=" + producers);
+            run("ArrayBlockingQueue", new Blocking(new ArrayBlockingQueue<>(capacity)), producers, messages);
+            run("LinkedBlockingQueue", new Blocking(new LinkedBlockingQueue<>(capacity)), producers, messages);
+            run("LinkedTransferQueue", new Blocking(new LinkedTransferQueue<>()), producers, messages);
+            for (WaitStrategy waitStrategy : new WaitStrategy[]{WaitStrategy.YIELD, WaitStrategy.PARK, WaitStrategy.BUSY_SPIN}) {
+                if (waitStrategy == WaitStrategy.BUSY_SPIN && cpus <= producers) {
+                    continue;
+                }
+                String name = waitStrategy == WaitStrategy.YIELD ? "yield" : waitStrategy == WaitStrategy.PARK ? "park" : "busy-spin";
+                run("RingBuffer " + name, new Ring(ring(producers, capacity, waitStrategy), false), producers, messages);
+                run("RingBuffer " + name + " drain", new Ring(ring(producers, capacity, waitStrategy), true), producers, messages);
+            }
+        }
+    }
+
+    private static RingBuffer<Long> ring(int producers, int capacity, WaitStrategy waitStrategy) {
+        return producers == 1 ? RingBuffer.singleProducer(capacity, waitStrategy)
+                : RingBuffer.multiProducer(capacity, waitStrategy);
+    }
+
+    private static void run(String name, Target target, int producers, int messages) throws InterruptedException {
+        measure(target, producers, messages / 4);
+        System.out.printf("  %-28s %10.2f%n", name, measure(target, producers, messages));
+    }
+
+    private static double measure(Target target, int producers, int messages) throws InterruptedException {
+        int perProducer = messages / producers;
+        int total = perProducer * producers;
+        CountDownLatch start = new CountDownLatch(1);
+        long[] received = new long[1];
+        Thread consumer = new Thread(() -> {
+            try {
+                start.await();
+                received[0] = target.consume(total);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }, "bench-consumer");
+        consumer.start();
+        Thread[] threads = new Thread[producers];
+        for (int p = 0; p < producers; p++) {
+            threads[p] = new Thread(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < perProducer; i++) {
+                        target.put(MESSAGE);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }, "bench-producer-" + p);
+            threads[p].start();
+        }
+        long begin = System.nanoTime();
+        start.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        consumer.join();
+        long elapsed = System.nanoTime() - begin;
+        if (received[0] != total) {
+            System.out.println("  mismatch: received=" + received[0] + ", sent=" + total);
+        }
+        return total / (elapsed / 1000.0);
+    }
+
+    private interface Target {
+
+        void put(Long message) throws InterruptedException;
+
+        /**
+         * 取出total个元素,返回元素之和
+         */
+        long consume(int total) throws InterruptedException;
+
+    }
+
+    private static class Blocking implements Target {
+
+        private final BlockingQueue<Long> queue;
+
+        Blocking(BlockingQueue<Long> queue) {
+            this.queue = queue;
+        }
+
+        @Override
+        public void put(Long message) throws InterruptedException {
+            queue.put(message);
+        }
+
+        @Override
+        public long consume(int total) throws InterruptedException {
+            long sum = 0;
+            for (int i = 0; i < total; i++) {
+                sum += queue.take();
+            }
+            return sum;
+        }
+
+    }
+
+    private static class Ring implements Target {
+
+        private final RingBuffer<Long> ring;
+
+        private final boolean drain;
+
+        private long sum;
+
+        Ring(RingBuffer<Long> ring, boolean drain) {
+            this.ring = ring;
+            this.drain = drain;
+        }
+
+        @Override
+        public void put(Long message) throws InterruptedException {
+            ring.put(message);
+        }
+
+        @Override
+        public long consume(int total) throws InterruptedException {
+            sum = 0;
+            if (drain) {
+                for (int n = 0; n < total; ) {
+                    n += ring.awaitDrain(this::add, Math.min(256, total - n));
+                }
+            } else {
+                for (int i = 0; i < total; i++) {
+                    sum += ring.take();
+                }
+            }
+            return sum;
+        }
+
+        private void add(Long message) {
+            sum += message;
+        }
+
+    }
+
+}
@@ -0,0 +1,134 @@
+package com.pzl.program.juc.lock;
+
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * ReadMostlyCache的Map语义(与HashMap对照)和并发读写
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class ReadMostlyCacheTest {
+
+    @Test
+    public void basicOperations() {
+        ReadMostlyCache<String, Integer> cache = new ReadMostlyCache<>();
+        assertNull(cache.put("a", 1));
+        assertEquals(Integer.valueOf(1), cache.put("a", 2));
+        assertEquals(Integer.valueOf(2), cache.putIfAbsent("a", 3));
+        assertEquals(Integer.valueOf(2), cache.get("a"));
+        assertEquals(Integer.valueOf(9), cache.getOrDefault("b", 9));
+        assertFalse(cache.containsKey("b"));
+        assertEquals(Integer.valueOf(5), cache.computeIfAbsent("b", key -> 5));
+        assertNull(cache.computeIfAbsent("c", key -> null));
+        assertEquals(2, cache.size());
+        assertEquals(Integer.valueOf(2), cache.remove("a"));
+        assertNull(cache.remove("a"));
+        cache.clear();
+        assertTrue(cache.isEmpty());
+    }
+
+    @Test
+    public void matchesHashMapUnderRandomOperations() {
+        //hashCode只有16种,探测链长,覆盖删除后移的各种情况
+        ReadMostlyCache<Key, Integer> cache = new ReadMostlyCache<>(4);
+        Map<Key, Integer> expected = new HashMap<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 200000; i++) {
+            Key key = new Key(random.nextInt(500));
+            int op = random.nextInt(3);
+            if (op == 0) {
+                assertEquals(expected.put(key, i), cache.put(key, i));
+            } else if (op == 1) {
+                assertEquals(expected.remove(key), cache.remove(key));
+            } else {
+                assertEquals(expected.get(key), cache.get(key));
+            }
+        }
+        assertEquals(expected.size(), cache.size());
+        for (Map.Entry<Key, Integer> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), cache.get(entry.getKey()));
+        }
+    }
+
+    @Test
+    public void readersNeverSeeMissingStableKeys() throws InterruptedException {
+        ReadMostlyCache<Integer, Integer> cache = new ReadMostlyCache<>();
+        for (int i = 0; i < 100; i++) {
+            cache.put(i, i);
+        }
+        long stop = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(300);
+        AtomicReference<String> error = new AtomicReference<>();
+        AtomicInteger reads = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(3);
+        //写线程反复增删其他key,触发扩容和删除后移;0-99一直存在,读线程必须总能读到
+        new Thread(() -> {
+            int i = 0;
+            while (System.nanoTime() < stop) {
+                cache.put(1000 + i % 5000, i);
+                cache.remove(1000 + (i + 2500) % 5000);
+                i++;
+            }
+            done.countDown();
+        }).start();
+        for (int t = 0; t < 2; t++) {
+            new Thread(() -> {
+                Random random = new Random();
+                while (System.nanoTime() < stop) {
+                    int key = random.nextInt(100);
+                    Integer value = cache.get(key);
+                    if (value == null || value != key) {
+                        error.compareAndSet(null, "key=" + key + ", value=" + value);
+                    }
+                    reads.incrementAndGet();
+                }
+                done.countDown();
+            }).start();
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertNull(error.get());
+        assertTrue(reads.get() > 0);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void nullValueRejected() {
+        new ReadMostlyCache<String, String>().put("a", null);
+    }
+
+    /**
+     * hashCode冲突多的key
+     */
+    private static final class Key {
+
+        private final int id;
+
+        Key(int id) {
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Key && ((Key) o).id == id;
+        }
+
+        @Override
+        public int hashCode() {
+            return id % 16;
+        }
+
+    }
+
+}
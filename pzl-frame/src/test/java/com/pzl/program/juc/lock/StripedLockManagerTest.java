@@ -0,0 +1,161 @@
+package com.pzl.program.juc.lock;
+
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * StripedLockManager的多key加锁顺序、超时和中断时的释放、去重和弱引用锁的回收
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class StripedLockManagerTest {
+
+    @Test
+    public void oppositeOrderNoDeadlock() throws InterruptedException {
+        for (StripedLockManager locks : Arrays.asList(StripedLockManager.striped(64), StripedLockManager.weak())) {
+            CountDownLatch done = new CountDownLatch(2);
+            Thread forward = transfer(locks, "a", "b", done);
+            Thread backward = transfer(locks, "b", "a", done);
+            forward.start();
+            backward.start();
+            assertTrue(done.await(10, TimeUnit.SECONDS));
+        }
+    }
+
+    @Test
+    public void tryLockAllReleasesOnTimeout() throws InterruptedException {
+        StripedLockManager locks = StripedLockManager.weak();
+        //按创建顺序,a在b之前加锁
+        StripedLockManager.OrderedLock a = locks.lockFor("a");
+        StripedLockManager.OrderedLock b = locks.lockFor("b");
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread owner = new Thread(() -> {
+            try (StripedLockManager.Held ignored = locks.lock("b")) {
+                held.countDown();
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        owner.start();
+        held.await();
+        assertNull(locks.tryLockAll(Arrays.asList("b", "a"), 100, TimeUnit.MILLISECONDS));
+        //已加上的a被释放
+        assertFalse(a.isLocked());
+        release.countDown();
+        owner.join();
+        try (StripedLockManager.Held all = locks.tryLockAll(Arrays.asList("b", "a"), 1, TimeUnit.SECONDS)) {
+            assertNotNull(all);
+            assertTrue(a.isHeldByCurrentThread());
+            assertTrue(b.isHeldByCurrentThread());
+        }
+        assertFalse(a.isLocked());
+        assertFalse(b.isLocked());
+    }
+
+    @Test
+    public void tryLockAllReleasesOnInterrupt() throws InterruptedException {
+        StripedLockManager locks = StripedLockManager.weak();
+        StripedLockManager.OrderedLock a = locks.lockFor("a");
+        StripedLockManager.OrderedLock b = locks.lockFor("b");
+        AtomicBoolean interrupted = new AtomicBoolean();
+        AtomicBoolean heldAfterInterrupt = new AtomicBoolean(true);
+        Thread waiter;
+        try (StripedLockManager.Held ignored = locks.lock("b")) {
+            waiter = new Thread(() -> {
+                try {
+                    locks.tryLockAll(Arrays.asList("a", "b"), 10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                    heldAfterInterrupt.set(locks.isHeldByCurrentThread("a"));
+                }
+            });
+            waiter.start();
+            //等待者已经拿到a,阻塞在b上
+            while (!b.hasQueuedThread(waiter)) {
+                Thread.sleep(1);
+            }
+            assertTrue(a.isLocked());
+            waiter.interrupt();
+            waiter.join();
+        }
+        assertTrue(interrupted.get());
+        assertFalse(heldAfterInterrupt.get());
+        assertFalse(a.isLocked());
+    }
+
+    @Test
+    public void duplicateAndSameStripeKeysLockedOnce() {
+        //只有一把锁,所有key映射到同一把
+        StripedLockManager striped = StripedLockManager.striped(1);
+        try (StripedLockManager.Held ignored = striped.lockAll(Arrays.asList("x", "y", "x"))) {
+            assertEquals(1, striped.lockFor("x").getHoldCount());
+        }
+        assertFalse(striped.lockFor("x").isLocked());
+        StripedLockManager weak = StripedLockManager.weak();
+        try (StripedLockManager.Held ignored = weak.lockAll(Arrays.asList("x", "x", 1L, 1L))) {
+            assertEquals(1, weak.lockFor("x").getHoldCount());
+            assertEquals(1, weak.lockFor(1L).getHoldCount());
+        }
+        assertFalse(weak.lockFor("x").isLocked());
+    }
+
+    @Test
+    public void weakLockKeptWhileHeldAndPurgedAfterGc() throws InterruptedException {
+        StripedLockManager locks = StripedLockManager.weak();
+        Map<?, ?> entries = (Map<?, ?>) ReflectionTestUtils.getField(locks, "locks");
+        holdAcrossGc(locks, "order-1");
+        assertTrue(entries.containsKey("order-1"));
+        //释放后没有引用,GC后条目在下一次调用中被清理
+        StripedLockManager.OrderedLock other = null;
+        for (int i = 0; i < 50 && entries.containsKey("order-1"); i++) {
+            gc();
+            other = locks.lockFor("order-2");
+        }
+        assertFalse(entries.containsKey("order-1"));
+        assertSame(other, locks.lockFor("order-2"));
+    }
+
+    //锁对象的引用只在这个方法的栈帧中
+    private static void holdAcrossGc(StripedLockManager locks, String key) throws InterruptedException {
+        try (StripedLockManager.Held ignored = locks.lock(key)) {
+            int identity = System.identityHashCode(locks.lockFor(key));
+            gc();
+            //持有期间即使GC也是同一把锁,其他线程看到的锁与持有的一致
+            assertEquals(identity, System.identityHashCode(locks.lockFor(key)));
+            assertTrue(locks.isHeldByCurrentThread(key));
+        }
+    }
+
+    private static Thread transfer(StripedLockManager locks, String from, String to, CountDownLatch done) {
+        return new Thread(() -> {
+            for (int i = 0; i < 10000; i++) {
+                try (StripedLockManager.Held ignored = locks.lockAll(Arrays.asList(from, to))) {
+                    assertTrue(locks.isHeldByCurrentThread(from));
+                }
+            }
+            done.countDown();
+        });
+    }
+
+    private static void gc() throws InterruptedException {
+        System.gc();
+        Thread.sleep(10);
+    }
+
+}
@@ -0,0 +1,189 @@
+package com.pzl.program.juc.lock.benchmark;
+
+import com.pzl.program.juc.lock.ReadMostlyCache;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * 读多写少的Map测试: synchronized / ReentrantReadWriteLock / StampedLock乐观读(ReadMostlyCache) / ConcurrentHashMap
+ * <p>
+ * 每个线程在keys个key上随机读写,写比例为writePercent,持续durationMillis,统计每微秒完成的操作数。
+ * 每组先预热一轮再计时。线程数超过CPU核数时结果主要反映调度开销,应在与生产相同核数的机器上运行。
+ * 运行参数: [线程数列表, 默认1,2,4,8,16,32] [写比例%列表, 默认0,1,10,50] [每组毫秒, 默认1000] [key数, 默认1024]
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class ReadMostlyMapBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int[] threadCounts = parse(args.length > 0 ? args[0] : "1,2,4,8,16,32");
+        int[] writePercents = parse(args.length > 1 ? args[1] : "0,1,10,50");
+        long durationMillis = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+        int keys = args.length > 3 ? Integer.parseInt(args[3]) : 1024;
+        System.out.println("cpus=" + Runtime.getRuntime().availableProcessors() + ", duration=" + durationMillis
+                + "ms, keys=" + keys + ", unit=ops/us");
+        System.out.printf("%-8s %-8s %14s %14s %14s %14s%n", "threads", "write%", "synchronized", "rwlock",
+                "stamped", "concurrent");
+        for (int writePercent : writePercents) {
+            for (int threads : threadCounts) {
+                System.out.printf("%-8d %-8d", threads, writePercent);
+                for (Target target : new Target[]{new SynchronizedTarget(), new ReadWriteLockTarget(),
+                        new StampedTarget(), new ConcurrentTarget()}) {
+                    for (int i = 0; i < keys; i++) {
+                        target.put(i, i);
+                    }
+                    run(target, threads, writePercent, durationMillis / 2, keys);
+                    System.out.printf(" %14.2f", run(target, threads, writePercent, durationMillis, keys));
+                }
+                System.out.println();
+            }
+        }
+    }
+
+    private static double run(Target target, int threads, int writePercent, long durationMillis, int keys)
+            throws InterruptedException {
+        LongAdder ops = new LongAdder();
+        CountDownLatch start = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(threads);
+        long[] stopAt = new long[1];
+        for (int t = 0; t < threads; t++) {
+            Thread thread = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                long sink = 0;
+                try {
+                    start.await();
+                    long stop = stopAt[0];
+                    //每64次操作检查一次时间,减少nanoTime的开销
+                    while ((count & 63) != 0 || System.nanoTime() < stop) {
+                        Integer key = random.nextInt(keys);
+                        if (random.nextInt(100) < writePercent) {
+                            target.put(key, (int) count);
+                        } else {
+                            Integer value = target.get(key);
+                            sink += value == null ? 0 : value;
+                        }
+                        count++;
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    ops.add(count + (sink == 42 ? 1 : 0));
+                    done.countDown();
+                }
+            }, "bench-" + t);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        long begin = System.nanoTime();
+        stopAt[0] = begin + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        start.countDown();
+        done.await();
+        return ops.sum() / ((System.nanoTime() - begin) / 1000.0);
+    }
+
+    private static int[] parse(String list) {
+        String[] parts = list.split(",");
+        int[] values = new int[parts.length];
+        for (int i = 0; i < parts.length; i++) {
+            values[i] = Integer.parseInt(parts[i].trim());
+        }
+        return values;
+    }
+
+    private interface Target {
+
+        Integer get(Integer key);
+
+        void put(Integer key, Integer value);
+
+    }
+
+    private static class SynchronizedTarget implements Target {
+
+        private final Map<Integer, Integer> map = new HashMap<>();
+
+        @Override
+        public synchronized Integer get(Integer key) {
+            return map.get(key);
+        }
+
+        @Override
+        public synchronized void put(Integer key, Integer value) {
+            map.put(key, value);
+        }
+
+    }
+
+    /**
+     * ReadWriteLockUtil的写法
+     */
+    private static class ReadWriteLockTarget implements Target {
+
+        private final Map<Integer, Integer> map = new HashMap<>();
+
+        private final ReentrantReadWriteLock rwLock = new ReentrantReadWriteLock();
+
+        @Override
+        public Integer get(Integer key) {
+            rwLock.readLock().lock();
+            try {
+                return map.get(key);
+            } finally {
+                rwLock.readLock().unlock();
+            }
+        }
+
+        @Override
+        public void put(Integer key, Integer value) {
+            rwLock.writeLock().lock();
+            try {
+                map.put(key, value);
+            } finally {
+                rwLock.writeLock().unlock();
+            }
+        }
+
+    }
+
+    private static class StampedTarget implements Target {
+
+        private final ReadMostlyCache<Integer, Integer> cache = new ReadMostlyCache<>();
+
+        @Override
+        public Integer get(Integer key) {
+            return cache.get(key);
+        }
+
+        @Override
+        public void put(Integer key, Integer value) {
+            cache.put(key, value);
+        }
+
+    }
+
+    private static class ConcurrentTarget implements Target {
+
+        private final Map<Integer, Integer> map = new ConcurrentHashMap<>();
+
+        @Override
+        public Integer get(Integer key) {
+            return map.get(key);
+        }
+
+        @Override
+        public void put(Integer key, Integer value) {
+            map.put(key, value);
+        }
+
+    }
+
+}
@@ -0,0 +1,121 @@
+package com.pzl.program.juc.lock.benchmark;
+
+import com.pzl.program.juc.lock.StripedLockManager;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 按ID加锁的竞争测试: 全局锁 / StripedLockManager.striped(16、1024) / StripedLockManager.weak()
+ * <p>
+ * 每个线程随机取一个订单ID,加锁后执行一小段计算并更新该订单的计数,持续durationMillis,统计每毫秒完成的操作数。
+ * 第二列为转账场景:一次锁两个ID(lockAll),全局锁时直接锁一次。结束时校验每个订单的计数,加锁有误时打印mismatch。
+ * 运行参数: [线程数, 默认8] [订单数, 默认10000] [每组毫秒, 默认1000] [临界区计算量, 默认200]
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class StripedLockBenchmark {
+
+    //消费临界区的计算结果,避免被JIT优化掉
+    private static long blackhole;
+
+    public static void main(String[] args) throws InterruptedException {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        int orders = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+        long durationMillis = args.length > 2 ? Long.parseLong(args[2]) : 1000;
+        int work = args.length > 3 ? Integer.parseInt(args[3]) : 200;
+        System.out.println("cpus=" + Runtime.getRuntime().availableProcessors() + ", threads=" + threads
+                + ", orders=" + orders + ", duration=" + durationMillis + "ms, work=" + work + ", unit=ops/ms");
+        System.out.printf("%-16s %12s %12s%n", "locks", "single", "transfer");
+        run("global", null, threads, orders, durationMillis, work);
+        run("striped 16", StripedLockManager.striped(16), threads, orders, durationMillis, work);
+        run("striped 1024", StripedLockManager.striped(1024), threads, orders, durationMillis, work);
+        run("weak", StripedLockManager.weak(), threads, orders, durationMillis, work);
+    }
+
+    private static void run(String name, StripedLockManager locks, int threads, int orders, long durationMillis,
+                            int work) throws InterruptedException {
+        ReentrantLock global = new ReentrantLock();
+        //预热
+        measure(locks, global, false, threads, orders, durationMillis / 2, work);
+        double single = measure(locks, global, false, threads, orders, durationMillis, work);
+        double transfer = measure(locks, global, true, threads, orders, durationMillis, work);
+        System.out.printf("%-16s %12.1f %12.1f%n", name, single, transfer);
+    }
+
+    //try-with-resources只用于释放锁,不引用held
+    @SuppressWarnings("try")
+    private static double measure(StripedLockManager locks, ReentrantLock global, boolean transfer, int threads,
+                                  int orders, long durationMillis, int work) throws InterruptedException {
+        long[] balances = new long[orders];
+        LongAdder ops = new LongAdder();
+        CountDownLatch done = new CountDownLatch(threads);
+        long stop = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(durationMillis);
+        long begin = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            Thread thread = new Thread(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                long count = 0;
+                try {
+                    while (System.nanoTime() < stop) {
+                        Long from = (long) random.nextInt(orders);
+                        Long to = (long) random.nextInt(orders);
+                        if (locks == null) {
+                            global.lock();
+                            try {
+                                update(balances, from, to, transfer, work);
+                            } finally {
+                                global.unlock();
+                            }
+                        } else if (transfer) {
+                            try (StripedLockManager.Held held = locks.lockAll(Arrays.asList(from, to))) {
+                                update(balances, from, to, true, work);
+                            }
+                        } else {
+                            try (StripedLockManager.Held held = locks.lock(from)) {
+                                update(balances, from, to, false, work);
+                            }
+                        }
+                        count++;
+                    }
+                } finally {
+                    ops.add(count);
+                    done.countDown();
+                }
+            }, "bench-" + t);
+            thread.setDaemon(true);
+            thread.start();
+        }
+        done.await();
+        long elapsed = System.nanoTime() - begin;
+        //单ID每次+1,转账总额不变
+        long sum = Arrays.stream(balances).sum();
+        if (sum != (transfer ? 0 : ops.sum())) {
+            System.out.println("mismatch: sum=" + sum + ", ops=" + ops.sum());
+        }
+        return ops.sum() / (elapsed / 1e6);
+    }
+
+    //非原子的读-改-写,没有正确加锁时计数会丢失
+    private static void update(long[] balances, long from, long to, boolean transfer, int work) {
+        long x = from;
+        for (int i = 0; i < work; i++) {
+            x = x * 31 + i;
+        }
+        if (transfer) {
+            if (from != to) {
+                balances[(int) from] -= 1 + (x & 1);
+                balances[(int) to] += 1 + (x & 1);
+            }
+        } else {
+            balances[(int) from]++;
+        }
+        blackhole ^= x;
+    }
+
+}
@@ -0,0 +1,99 @@
+package com.pzl.program.juc.sync;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.Collections;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * FanOut的部分结果、超时取消和对冲
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class FanOutTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(8);
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void timeoutReturnsPartialResultAndInterruptsStragglers() throws InterruptedException {
+        CountDownLatch interrupted = new CountDownLatch(1);
+        FanOut.Result<String, String> result = FanOut.<String, String>on(executor)
+                .timeout(100, TimeUnit.MILLISECONDS)
+                .call("fast", () -> "v")
+                .call("slow", () -> {
+                    try {
+                        Thread.sleep(5000);
+                    } catch (InterruptedException e) {
+                        interrupted.countDown();
+                    }
+                    return "late";
+                })
+                .call("fail", () -> {
+                    throw new IllegalStateException("boom");
+                })
+                .gather();
+        assertEquals(Collections.singletonMap("fast", "v"), result.getValues());
+        assertEquals(Collections.singleton("slow"), result.getTimedOut());
+        assertTrue(result.getFailures().get("fail") instanceof IllegalStateException);
+        assertTrue(interrupted.await(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void hedgeWinsOverSlowPrimary() {
+        String name = "test-" + System.nanoTime();
+        //积累样本,p95接近0
+        for (int i = 0; i < 30; i++) {
+            FanOut.<Integer, Integer>on(null).hedge(name).callAsync(i, () -> CompletableFuture.completedFuture(1)).gather();
+        }
+        AtomicInteger calls = new AtomicInteger();
+        long start = System.nanoTime();
+        FanOut.Result<String, String> result = FanOut.<String, String>on(executor)
+                .timeout(3, TimeUnit.SECONDS)
+                .hedge(name)
+                .call("k", () -> {
+                    if (calls.incrementAndGet() == 1) {
+                        try {
+                            Thread.sleep(2000);
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        return "primary";
+                    }
+                    return "hedge";
+                })
+                .gather();
+        assertEquals("hedge", result.get("k"));
+        assertEquals(1, result.getHedged());
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void latencyTrackerSurvivesIntOverflow() {
+        FanOut.LatencyTracker tracker = new FanOut.LatencyTracker("test-overflow");
+        //模拟已经记录了接近2^31次
+        ((AtomicLong) ReflectionTestUtils.getField(tracker, "count")).set(Integer.MAX_VALUE - 10);
+        for (int i = 0; i < 2048; i++) {
+            tracker.record(i < 1024 ? 1 : 5);
+        }
+        //超过2^31次后仍然使用全部样本计算分位数,不会关闭对冲
+        assertEquals(5, tracker.percentile(0.95));
+    }
+
+}
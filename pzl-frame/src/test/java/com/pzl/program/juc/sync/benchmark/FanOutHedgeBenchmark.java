@@ -0,0 +1,84 @@
+package com.pzl.program.juc.sync.benchmark;
+
+import com.pzl.program.juc.sync.FanOut;
+
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 扇出尾延迟测试: 不对冲 / 按p95对冲
+ * <p>
+ * 每轮并发fanOut个调用并gather,调用耗时在2到8毫秒之间均匀分布,其中slowRatio的调用耗时slowMillis,
+ * 模拟下游偶发的GC停顿、慢查询。一轮的耗时取决于最慢的调用,扇出越大越容易碰上慢调用。
+ * 对冲组先预热让耗时统计积累样本,统计每轮gather耗时的p50/p95/p99和发出对冲请求的比例。
+ * 运行参数: [轮数, 默认1000] [扇出数, 默认10] [慢调用比例, 默认0.02] [慢调用毫秒, 默认200]
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class FanOutHedgeBenchmark {
+
+    private static final int WARMUP = 100;
+
+    public static void main(String[] args) throws InterruptedException {
+        int rounds = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int fanOut = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        double slowRatio = args.length > 2 ? Double.parseDouble(args[2]) : 0.02;
+        long slowMillis = args.length > 3 ? Long.parseLong(args[3]) : 200;
+        System.out.println("rounds=" + rounds + ", fanOut=" + fanOut + ", slowRatio=" + slowRatio
+                + ", slow=" + slowMillis + "ms");
+        //对冲会多占线程,线程数留足,避免排队影响结果
+        ExecutorService executor = Executors.newFixedThreadPool(fanOut * 4);
+        run("no hedge", executor, null, rounds, fanOut, slowRatio, slowMillis);
+        run("hedge p95", executor, "benchmark-" + System.nanoTime(), rounds, fanOut, slowRatio, slowMillis);
+        executor.shutdownNow();
+    }
+
+    private static void run(String label, ExecutorService executor, String hedgeName, int rounds, int fanOut,
+                            double slowRatio, long slowMillis) throws InterruptedException {
+        long[] latencies = new long[rounds];
+        long hedged = 0;
+        for (int round = -WARMUP; round < rounds; round++) {
+            FanOut<Integer, Integer> fan = FanOut.<Integer, Integer>on(executor).timeout(1, TimeUnit.SECONDS);
+            if (hedgeName != null) {
+                fan.hedge(hedgeName);
+            }
+            for (int i = 0; i < fanOut; i++) {
+                int key = i;
+                fan.call(key, () -> {
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    long micros = random.nextDouble() < slowRatio ? slowMillis * 1000 : random.nextLong(2000, 8000);
+                    try {
+                        TimeUnit.MICROSECONDS.sleep(micros);
+                    } catch (InterruptedException e) {
+                        //对冲中落后或超时被取消
+                        Thread.currentThread().interrupt();
+                        throw new IllegalStateException(e);
+                    }
+                    return key;
+                });
+            }
+            long start = System.nanoTime();
+            FanOut.Result<Integer, Integer> result = fan.gather();
+            long elapsed = System.nanoTime() - start;
+            if (round >= 0) {
+                latencies[round] = elapsed;
+                hedged += result.getHedged();
+            }
+            //各轮之间留出间隔,让被取消的线程回到线程池
+            Thread.sleep(1);
+        }
+        Arrays.sort(latencies);
+        System.out.println(String.format("%-10s p50=%6.1fms, p95=%6.1fms, p99=%6.1fms, max=%6.1fms, hedged=%.1f%% of calls",
+                label, millis(latencies, 0.5), millis(latencies, 0.95), millis(latencies, 0.99),
+                latencies[rounds - 1] / 1e6, hedged * 100.0 / ((long) rounds * fanOut)));
+    }
+
+    private static double millis(long[] sorted, double percentile) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * percentile))] / 1e6;
+    }
+
+}
@@ -0,0 +1,113 @@
+package com.pzl.program.juc.threadpool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * BackpressureMonitor的水位切换和监听器通知顺序
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class BackpressureMonitorTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private ThreadPoolExecutor executor;
+
+    private BackpressureMonitor monitor;
+
+    @Before
+    public void setUp() {
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(4));
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        //后台检查间隔足够长,测试中只由调用方触发
+        monitor = new BackpressureMonitor(executor, 0.75, 0.25, 60000);
+    }
+
+    @After
+    public void tearDown() {
+        monitor.close();
+        release.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void hysteresis() {
+        assertFalse(monitor.isPaused());
+        fill(3);
+        assertTrue(monitor.isPaused());
+        //高低水位之间保持暂停
+        executor.getQueue().poll();
+        assertTrue(monitor.isPaused());
+        executor.getQueue().clear();
+        assertFalse(monitor.isPaused());
+    }
+
+    @Test
+    public void listenersNotifiedInTransitionOrder() throws InterruptedException {
+        List<String> events = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch pausing = new CountDownLatch(1);
+        monitor.addListener(new BackpressureMonitor.Listener() {
+            @Override
+            public void onPause(double saturation) {
+                pausing.countDown();
+                //暂停回调较慢,期间另一个线程观察到恢复
+                sleep(200);
+                events.add("pause");
+            }
+
+            @Override
+            public void onResume(double saturation) {
+                events.add("resume");
+            }
+        });
+        fill(4);
+        Thread consumer = new Thread(monitor::isPaused);
+        consumer.start();
+        pausing.await();
+        executor.getQueue().clear();
+        Thread scheduler = new Thread(monitor::isPaused);
+        scheduler.start();
+        consumer.join();
+        scheduler.join();
+        assertEquals(Arrays.asList("pause", "resume"), events);
+        assertFalse(monitor.isPaused());
+    }
+
+    private void fill(int tasks) {
+        for (int i = 0; i < tasks; i++) {
+            executor.execute(() -> {
+            });
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,47 @@
+package com.pzl.program.juc.threadpool;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * DeadlineTaskExecutor的截止时间计算
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class DeadlineTaskExecutorTest {
+
+    private final DeadlineTaskExecutor executor = new DeadlineTaskExecutor(1, 10, 10,
+            Executors.defaultThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    public void hugeTimeoutMeansNoDeadline() throws Exception {
+        //System.nanoTime() + toNanos溢出后会变成已过期
+        DeadlineTask<String> task = executor.submit("t", 0, Long.MAX_VALUE, TimeUnit.DAYS, () -> "done");
+        assertEquals("done", task.get(1, TimeUnit.SECONDS));
+        assertEquals(DeadlineTask.NO_DEADLINE, DeadlineTaskExecutor.deadline(Long.MAX_VALUE, TimeUnit.NANOSECONDS));
+        assertEquals(DeadlineTask.NO_DEADLINE, DeadlineTaskExecutor.deadline(200 * 365, TimeUnit.DAYS));
+        assertEquals(DeadlineTask.NO_DEADLINE, DeadlineTaskExecutor.deadline(0, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void ordinaryTimeoutKeepsDeadline() {
+        long before = System.nanoTime();
+        long deadline = DeadlineTaskExecutor.deadline(1, TimeUnit.SECONDS);
+        assertTrue(deadline - before >= TimeUnit.SECONDS.toNanos(1));
+        assertTrue(deadline - System.nanoTime() <= TimeUnit.SECONDS.toNanos(1));
+    }
+
+}
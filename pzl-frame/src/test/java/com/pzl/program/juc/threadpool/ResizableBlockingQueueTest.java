@@ -0,0 +1,89 @@
+package com.pzl.program.juc.threadpool;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * ResizableBlockingQueue的扩容和缩容
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class ResizableBlockingQueueTest {
+
+    @Test
+    public void shrinkKeepsQueuedElements() {
+        ResizableBlockingQueue<Integer> queue = new ResizableBlockingQueue<>(5);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(queue.offer(i));
+        }
+        queue.setCapacity(2);
+        //已入队的元素全部保留
+        assertEquals(5, queue.size());
+        assertEquals(0, queue.remainingCapacity());
+        //降到新容量以下之前不接受新元素
+        assertFalse(queue.offer(5));
+        queue.poll();
+        queue.poll();
+        queue.poll();
+        assertFalse(queue.offer(5));
+        queue.poll();
+        assertTrue(queue.offer(5));
+        assertFalse(queue.offer(6));
+        List<Integer> drained = new ArrayList<>();
+        queue.drainTo(drained);
+        assertEquals(Arrays.asList(4, 5), drained);
+    }
+
+    @Test
+    public void growWakesBlockedProducers() throws InterruptedException {
+        ResizableBlockingQueue<Integer> queue = new ResizableBlockingQueue<>(1);
+        queue.put(0);
+        CountDownLatch started = new CountDownLatch(2);
+        CountDownLatch done = new CountDownLatch(2);
+        AtomicBoolean offered = new AtomicBoolean();
+        Thread putter = new Thread(() -> {
+            started.countDown();
+            try {
+                queue.put(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        });
+        Thread offerer = new Thread(() -> {
+            started.countDown();
+            try {
+                offered.set(queue.offer(2, 10, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        });
+        putter.start();
+        offerer.start();
+        started.await();
+        //两个线程都阻塞在队列满上
+        assertFalse(done.await(100, TimeUnit.MILLISECONDS));
+        queue.setCapacity(3);
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertTrue(offered.get());
+        assertEquals(3, queue.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidCapacityRejected() {
+        new ResizableBlockingQueue<Integer>(1).setCapacity(0);
+    }
+
+}
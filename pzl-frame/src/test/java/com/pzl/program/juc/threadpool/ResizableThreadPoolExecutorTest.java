@@ -0,0 +1,138 @@
+package com.pzl.program.juc.threadpool;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.cloud.context.environment.EnvironmentChangeEvent;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * ResizableThreadPoolExecutor运行时调整线程数和队列容量,以及配置变更时的调整
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class ResizableThreadPoolExecutorTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private ResizableThreadPoolExecutor executor;
+
+    private AnnotationConfigApplicationContext context;
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+        if (context != null) {
+            context.close();
+        }
+    }
+
+    @Test
+    public void resizeInBothDirections() {
+        executor = new ResizableThreadPoolExecutor(2, 4, 1000, TimeUnit.MILLISECONDS, 10,
+                Executors.defaultThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        //{core, max}:新max小于旧core、新core大于旧max、只改其中一个
+        int[][] targets = {{1, 1}, {6, 8}, {8, 8}, {0, 2}, {5, 5}, {5, 9}, {3, 3}};
+        for (int[] target : targets) {
+            executor.resize(target[0], target[1], 5);
+            assertEquals(target[0], executor.getCorePoolSize());
+            assertEquals(target[1], executor.getMaximumPoolSize());
+        }
+        try {
+            executor.resize(4, 3, 5);
+            fail();
+        } catch (IllegalArgumentException expected) {
+            //core大于max
+        }
+        assertEquals(3, executor.getCorePoolSize());
+        assertEquals(3, executor.getMaximumPoolSize());
+    }
+
+    @Test
+    public void shrinkQueueKeepsQueuedTasks() throws InterruptedException {
+        executor = new ResizableThreadPoolExecutor(1, 1, 1000, TimeUnit.MILLISECONDS, 4,
+                Executors.defaultThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        AtomicInteger ran = new AtomicInteger();
+        executor.execute(this::await);
+        for (int i = 0; i < 4; i++) {
+            executor.execute(ran::incrementAndGet);
+        }
+        executor.resize(1, 1, 1);
+        try {
+            executor.execute(ran::incrementAndGet);
+            fail();
+        } catch (RejectedExecutionException expected) {
+            //队列降到新容量以下之前拒绝
+        }
+        release.countDown();
+        executor.shutdown();
+        assertTrue(executor.awaitTermination(5, TimeUnit.SECONDS));
+        //排队中的任务都执行了
+        assertEquals(4, ran.get());
+    }
+
+    @Test
+    public void resizedOnEnvironmentChange() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("thread.pool.corePoolSize", "2");
+        properties.put("thread.pool.maximumPoolSize", "4");
+        properties.put("thread.pool.keepAliveTime", "1000");
+        properties.put("thread.pool.queueCapacity", "10");
+        context = new AnnotationConfigApplicationContext();
+        context.getEnvironment().getPropertySources().addFirst(new MapPropertySource("test", properties));
+        context.register(ThreadPoolConfig.class);
+        context.refresh();
+        ResizableThreadPoolExecutor pool = context.getBean(ResizableThreadPoolExecutor.class);
+        assertEquals(2, pool.getCorePoolSize());
+
+        properties.put("thread.pool.corePoolSize", "6");
+        properties.put("thread.pool.maximumPoolSize", "8");
+        properties.put("thread.pool.queueCapacity", "20");
+        properties.put("thread.pool.rejectionPolicy", SubmissionPolicies.BLOCK);
+        context.publishEvent(new EnvironmentChangeEvent(Collections.singleton("thread.pool.corePoolSize")));
+        //调整的是容器中的同一个线程池
+        assertSame(pool, context.getBean(ResizableThreadPoolExecutor.class));
+        assertEquals(6, pool.getCorePoolSize());
+        assertEquals(8, pool.getMaximumPoolSize());
+        assertEquals(20, pool.getQueueCapacity());
+
+        //无效配置保持原配置
+        properties.put("thread.pool.corePoolSize", "9");
+        context.publishEvent(new EnvironmentChangeEvent(Collections.singleton("thread.pool.corePoolSize")));
+        assertEquals(6, pool.getCorePoolSize());
+        assertEquals(8, pool.getMaximumPoolSize());
+
+        //其他前缀的变更不处理
+        properties.put("thread.pool.corePoolSize", "1");
+        context.publishEvent(new EnvironmentChangeEvent(Collections.singleton("redis.metrics.sample-rate")));
+        assertEquals(6, pool.getCorePoolSize());
+    }
+
+    private void await() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
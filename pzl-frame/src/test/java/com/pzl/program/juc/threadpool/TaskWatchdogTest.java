@@ -0,0 +1,149 @@
+package com.pzl.program.juc.threadpool;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * TaskWatchdog发现超过预算的任务:记录、栈采样、只中断一次,且不会中断同一线程上的下一个任务
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class TaskWatchdogTest {
+
+    private TaskWatchdog watchdog;
+
+    private ResizableThreadPoolExecutor executor;
+
+    @Before
+    public void setUp() {
+        watchdog = new TaskWatchdog("test-watchdog", 100, 20, true, 10);
+        executor = new ResizableThreadPoolExecutor(1, 1, 1000, TimeUnit.MILLISECONDS, 10,
+                Executors.defaultThreadFactory(), new ThreadPoolExecutor.AbortPolicy());
+        executor.setWatchdog(watchdog);
+    }
+
+    @After
+    public void tearDown() {
+        executor.shutdownNow();
+        watchdog.close();
+    }
+
+    @Test
+    public void overrunningTaskFlaggedAndInterruptedOnce() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger interrupts = new AtomicInteger();
+        executor.execute(new TypedTask("slow", () -> {
+            //被中断后继续等待,看门狗之后的检查不再中断
+            while (release.getCount() > 0) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    interrupts.incrementAndGet();
+                }
+            }
+        }));
+        Map<String, Object> stuck = awaitStuck(3);
+        assertEquals("slow", stuck.get("type"));
+        assertEquals(true, stuck.get("interrupted"));
+        release.countDown();
+
+        AtomicBoolean nextInterrupted = new AtomicBoolean();
+        CountDownLatch done = new CountDownLatch(2);
+        for (int i = 0; i < 2; i++) {
+            executor.execute(new TypedTask("fast", () -> {
+                try {
+                    Thread.sleep(30);
+                } catch (InterruptedException e) {
+                    nextInterrupted.set(true);
+                }
+                done.countDown();
+            }));
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(1, interrupts.get());
+        assertFalse(nextInterrupted.get());
+
+        Map<String, Object> slow = stats("slow");
+        Map<String, Object> fast = stats("fast");
+        assertEquals(1L, slow.get("count"));
+        assertEquals(1L, slow.get("stuck"));
+        assertTrue((Long) slow.get("wallMillis") >= 100);
+        assertEquals(2L, fast.get("count"));
+        assertEquals(0L, fast.get("stuck"));
+        assertTrue(watchdog.stuckTasks().isEmpty());
+    }
+
+    @Test
+    public void lambdaTypeIsEnclosingClass() {
+        Runnable task = () -> {
+        };
+        assertEquals(TaskWatchdogTest.class.getName(), TaskWatchdog.typeOf(task));
+    }
+
+    //等到卡住的任务积累了指定数量的栈采样
+    @SuppressWarnings("unchecked")
+    private Map<String, Object> awaitStuck(int samples) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            List<Map<String, Object>> stuck = watchdog.stuckTasks();
+            if (!stuck.isEmpty() && ((List<List<String>>) stuck.get(0).get("samples")).size() >= samples) {
+                return stuck.get(0);
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("task not flagged as stuck");
+    }
+
+    private Map<String, Object> stats(String type) throws InterruptedException {
+        //afterExecute在任务返回后执行
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            for (Map<String, Object> item : watchdog.taskStats()) {
+                if (type.equals(item.get("type")) && executor.getActiveCount() == 0) {
+                    return item;
+                }
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("no stats for " + type);
+    }
+
+    private static class TypedTask implements Runnable, TaskWatchdog.Typed {
+
+        private final String type;
+
+        private final Runnable body;
+
+        TypedTask(String type, Runnable body) {
+            this.type = type;
+            this.body = body;
+        }
+
+        @Override
+        public void run() {
+            body.run();
+        }
+
+        @Override
+        public String getTaskType() {
+            return type;
+        }
+
+    }
+
+}
@@ -0,0 +1,122 @@
+package com.pzl.program.juc.threadpool;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * TenantFairBlockingQueue的租户轮转、优先级、容量限制和过期处理
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class TenantFairBlockingQueueTest {
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final List<DeadlineTask<?>> expired = new ArrayList<>();
+
+    @Test
+    public void tenantsTakeTurns() {
+        TenantFairBlockingQueue queue = new TenantFairBlockingQueue(100, 100);
+        for (int i = 0; i < 5; i++) {
+            queue.offer(task("big", 0, DeadlineTask.NO_DEADLINE));
+        }
+        queue.offer(task("small", 0, DeadlineTask.NO_DEADLINE));
+        //大租户积压5个,小租户的任务第二个出队
+        assertEquals("big", tenant(queue.poll()));
+        assertEquals("small", tenant(queue.poll()));
+        assertEquals("big", tenant(queue.poll()));
+        assertEquals(3, queue.size());
+    }
+
+    @Test
+    public void priorityThenDeadlineThenSequence() {
+        TenantFairBlockingQueue queue = new TenantFairBlockingQueue(100, 100);
+        long now = System.nanoTime();
+        DeadlineTask<?> low = task("t", 0, now + TimeUnit.SECONDS.toNanos(1));
+        DeadlineTask<?> later = task("t", 5, now + TimeUnit.SECONDS.toNanos(20));
+        DeadlineTask<?> sooner = task("t", 5, now + TimeUnit.SECONDS.toNanos(10));
+        DeadlineTask<?> first = task("t", 9, DeadlineTask.NO_DEADLINE);
+        DeadlineTask<?> second = task("t", 9, DeadlineTask.NO_DEADLINE);
+        for (DeadlineTask<?> task : new DeadlineTask<?>[]{low, later, sooner, second, first}) {
+            queue.offer(task);
+        }
+        //second的序号更大,即使先入队也排在first之后
+        assertSame(first, queue.poll());
+        assertSame(second, queue.poll());
+        assertSame(sooner, queue.poll());
+        assertSame(later, queue.poll());
+        assertSame(low, queue.poll());
+    }
+
+    @Test
+    public void perTenantAndTotalLimits() {
+        TenantFairBlockingQueue queue = new TenantFairBlockingQueue(3, 2);
+        assertTrue(queue.offer(task("a", 0, DeadlineTask.NO_DEADLINE)));
+        assertTrue(queue.offer(task("a", 0, DeadlineTask.NO_DEADLINE)));
+        assertFalse(queue.offer(task("a", 0, DeadlineTask.NO_DEADLINE)));
+        assertTrue(queue.offer(task("b", 0, DeadlineTask.NO_DEADLINE)));
+        assertFalse(queue.offer(task("c", 0, DeadlineTask.NO_DEADLINE)));
+        assertEquals(0, queue.remainingCapacity());
+        assertEquals(Integer.valueOf(2), queue.tenantSizes().get("a"));
+    }
+
+    @Test
+    public void expiredTasksSkippedAndPurgedWhenFull() throws Exception {
+        TenantFairBlockingQueue queue = new TenantFairBlockingQueue(2, 2);
+        DeadlineTask<?> stale = task("a", 9, System.nanoTime() - 1);
+        queue.offer(stale);
+        DeadlineTask<?> live = task("a", 0, DeadlineTask.NO_DEADLINE);
+        queue.offer(live);
+        //队列满时先清理过期任务
+        assertTrue(queue.offer(task("b", 0, DeadlineTask.NO_DEADLINE)));
+        assertEquals(1, expired.size());
+        assertSame(stale, expired.get(0));
+        try {
+            stale.get();
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof TimeoutException);
+        }
+        assertSame(live, queue.poll());
+        assertEquals("b", tenant(queue.poll()));
+        assertNull(queue.poll(10, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void removeAndDrain() {
+        TenantFairBlockingQueue queue = new TenantFairBlockingQueue(10, 10);
+        DeadlineTask<?> removed = task("a", 0, DeadlineTask.NO_DEADLINE);
+        queue.offer(removed);
+        queue.offer(task("a", 0, DeadlineTask.NO_DEADLINE));
+        queue.offer(task("b", 0, DeadlineTask.NO_DEADLINE));
+        assertTrue(queue.remove(removed));
+        assertFalse(queue.remove(removed));
+        List<Runnable> drained = new ArrayList<>();
+        assertEquals(2, queue.drainTo(drained));
+        assertEquals(0, queue.size());
+        assertTrue(queue.tenantSizes().isEmpty());
+    }
+
+    private DeadlineTask<?> task(String tenant, int priority, long deadline) {
+        return new DeadlineTask<>(() -> tenant, tenant, priority, deadline, sequence.incrementAndGet(), expired::add);
+    }
+
+    private static String tenant(Runnable task) {
+        return ((DeadlineTask<?>) task).getTenant();
+    }
+
+}
@@ -0,0 +1,128 @@
+package com.pzl.program.juc.threadpool;
+
+import io.prometheus.client.CollectorRegistry;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.RejectedExecutionHandler;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * ThreadPoolMetrics的拒绝和丢弃计数:只有任务最终没有被接受时才计为拒绝
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class ThreadPoolMetricsTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private ThreadPoolExecutor executor;
+
+    @After
+    public void tearDown() {
+        release.countDown();
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void abortCounted() {
+        ThreadPoolMetrics metrics = new ThreadPoolMetrics("test-abort", 0);
+        saturate(metrics.rejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy()));
+        try {
+            executor.execute(() -> {
+            });
+            fail();
+        } catch (RejectedExecutionException expected) {
+            //队列已满
+        }
+        assertEquals(1, rejected("test-abort"), 0);
+    }
+
+    @Test
+    public void acceptedByPolicyNotCounted() {
+        ThreadPoolMetrics metrics = new ThreadPoolMetrics("test-caller-runs", 0);
+        saturate(metrics.rejectedExecutionHandler(
+                SubmissionPolicies.of(SubmissionPolicies.CALLER_RUNS, 10, 1000)));
+        boolean[] ran = new boolean[1];
+        executor.execute(() -> ran[0] = true);
+        assertTrue(ran[0]);
+        assertEquals(0, rejected("test-caller-runs"), 0);
+    }
+
+    @Test
+    public void shedCountedSeparately() {
+        ThreadPoolMetrics metrics = new ThreadPoolMetrics("test-shed", 0);
+        saturate(metrics.rejectedExecutionHandler(
+                SubmissionPolicies.of(SubmissionPolicies.SHED_OLDEST, 10, 1000, task -> metrics.recordShed())));
+        //队列中是普通优先级的任务,高优先级任务挤掉它
+        executor.execute(new Task(Prioritized.MAX_PRIORITY));
+        assertEquals(1, shed("test-shed"), 0);
+        assertEquals(0, rejected("test-shed"), 0);
+        //没有更低优先级的任务可丢弃,最终被拒绝
+        try {
+            executor.execute(new Task(Prioritized.MIN_PRIORITY));
+            fail();
+        } catch (RejectedExecutionException expected) {
+            //无可丢弃的任务
+        }
+        assertEquals(1, rejected("test-shed"), 0);
+    }
+
+    //一个线程被占住,容量为1的队列已满
+    private void saturate(RejectedExecutionHandler handler) {
+        executor = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(1), handler);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        executor.execute(() -> {
+        });
+    }
+
+    private static double rejected(String pool) {
+        return sample("thread_pool_rejected_total", pool);
+    }
+
+    private static double shed(String pool) {
+        return sample("thread_pool_shed_total", pool);
+    }
+
+    private static double sample(String name, String pool) {
+        Double value = CollectorRegistry.defaultRegistry.getSampleValue(name, new String[]{"pool"}, new String[]{pool});
+        return value == null ? 0 : value;
+    }
+
+    private static class Task implements Runnable, Prioritized {
+
+        private final int priority;
+
+        Task(int priority) {
+            this.priority = priority;
+        }
+
+        @Override
+        public void run() {
+        }
+
+        @Override
+        public int getPriority() {
+            return priority;
+        }
+
+    }
+
+}
@@ -0,0 +1,164 @@
+package com.pzl.program.juc.threadpool;
+
+import org.junit.After;
+import org.junit.Test;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * VirtualThreadTaskExecutor的并发上限、拒绝和许可释放,使用普通平台线程工厂
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class VirtualThreadTaskExecutorTest {
+
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @After
+    public void tearDown() {
+        release.countDown();
+    }
+
+    @Test
+    public void concurrencyCapped() throws InterruptedException {
+        VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor(Executors.defaultThreadFactory(), 2, 5000);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger max = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(20);
+        for (int i = 0; i < 20; i++) {
+            //许可用完时提交方等待
+            executor.execute(() -> {
+                max.accumulateAndGet(running.incrementAndGet(), Math::max);
+                sleep(10);
+                running.decrementAndGet();
+                done.countDown();
+            });
+            assertTrue(executor.getActiveCount() <= 2);
+        }
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(2, max.get());
+        assertTrue(executor.shutdown(1, TimeUnit.SECONDS));
+        assertEquals(0, executor.getActiveCount());
+    }
+
+    @Test
+    public void rejectedAfterAcquireTimeout() {
+        VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor(Executors.defaultThreadFactory(), 1, 100);
+        executor.execute(this::await);
+        long start = System.nanoTime();
+        try {
+            executor.execute(() -> {
+            });
+            fail();
+        } catch (TaskRejectedException expected) {
+            //等待acquireTimeout后拒绝
+        }
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(90));
+        assertEquals(1, executor.getActiveCount());
+    }
+
+    @Test
+    public void immediateTimeoutDoesNotWait() {
+        VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor(Executors.defaultThreadFactory(), 1, 10000);
+        executor.execute(this::await);
+        long start = System.nanoTime();
+        try {
+            executor.execute(() -> {
+            }, AsyncTaskExecutor.TIMEOUT_IMMEDIATE);
+            fail();
+        } catch (TaskRejectedException expected) {
+            //不等待许可
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(1));
+    }
+
+    @Test
+    public void permitReleasedWhenThreadCannotStart() throws InterruptedException {
+        ThreadFactory failing = r -> {
+            throw new IllegalStateException("no more threads");
+        };
+        //返回已经启动过的线程,start抛IllegalThreadStateException
+        Thread started = new Thread(() -> {
+        });
+        started.start();
+        started.join();
+        ThreadFactory startFails = r -> started;
+        for (ThreadFactory factory : new ThreadFactory[]{failing, startFails}) {
+            VirtualThreadTaskExecutor executor = new VirtualThreadTaskExecutor(factory, 1, 0);
+            for (int i = 0; i < 3; i++) {
+                try {
+                    executor.execute(() -> {
+                    });
+                    fail();
+                } catch (TaskRejectedException e) {
+                    //许可已归还,下一次仍然是启动失败而不是并发数已满
+                    assertTrue(e.getMessage().startsWith("Failed to start thread"));
+                }
+            }
+            assertEquals(0, executor.getActiveCount());
+        }
+    }
+
+    @Test
+    public void virtualThreadFactoryFallback() {
+        ThreadFactory factory = VirtualThreadTaskExecutor.virtualThreadFactory("test-vt-");
+        boolean supported;
+        try {
+            Thread.class.getMethod("ofVirtual");
+            supported = true;
+        } catch (NoSuchMethodException e) {
+            supported = false;
+        }
+        //开启虚拟线程模式
+        ThreadPool2SpringBoot config = new ThreadPool2SpringBoot();
+        ReflectionTestUtils.setField(config, "virtual", true);
+        Executor executor = config.asyncServiceExecutor();
+        try {
+            if (supported) {
+                assertNotNull(factory);
+                assertTrue(executor instanceof VirtualThreadTaskExecutor);
+            } else {
+                //JDK8等不支持虚拟线程时返回null,回退到平台线程池
+                assertNull(factory);
+                assertTrue(executor instanceof ThreadPoolTaskExecutor);
+            }
+        } finally {
+            if (executor instanceof ThreadPoolTaskExecutor) {
+                ((ThreadPoolTaskExecutor) executor).shutdown();
+            }
+        }
+    }
+
+    private void await() {
+        try {
+            release.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+package com.pzl.program.juc.threadpool.benchmark;
+
+import com.pzl.program.juc.threadpool.VirtualThreadTaskExecutor;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 阻塞IO任务测试: 固定线程池 / 每个任务一个线程+信号量限流
+ * <p>
+ * 每个任务阻塞ioMillis模拟JDBC、RestTemplate调用,一次性提交全部任务,统计完成数、拒绝数和吞吐量:
+ * 1、fixed 5/50 abort:asyncServiceExecutor原配置,5个线程、50个队列、AbortPolicy
+ * 2、fixed 5/unbounded:5个线程、无界队列,不拒绝但吞吐量受线程数限制
+ * 3、semaphore:VirtualThreadTaskExecutor,JDK21及以上使用虚拟线程,否则每个任务一个平台线程(结果中标注)
+ * 运行参数: [任务数, 默认10000] [每个任务IO毫秒, 默认20] [并发上限, 默认1000]
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class VirtualThreadExecutorBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        int tasks = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        long ioMillis = args.length > 1 ? Long.parseLong(args[1]) : 20;
+        int concurrencyLimit = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        System.out.println("tasks=" + tasks + ", io=" + ioMillis + "ms, concurrencyLimit=" + concurrencyLimit
+                + ", java=" + System.getProperty("java.version"));
+
+        ThreadPoolTaskExecutor bounded = fixedPool(5, 50);
+        run("fixed 5/50 abort", bounded, tasks, ioMillis);
+        bounded.shutdown();
+
+        ThreadPoolTaskExecutor unbounded = fixedPool(5, Integer.MAX_VALUE);
+        run("fixed 5/unbounded", unbounded, Math.min(tasks, 1000), ioMillis);
+        unbounded.shutdown();
+
+        ThreadFactory threadFactory = VirtualThreadTaskExecutor.virtualThreadFactory("bench-");
+        String label = threadFactory != null ? "semaphore virtual" : "semaphore platform";
+        if (threadFactory == null) {
+            threadFactory = Executors.defaultThreadFactory();
+        }
+        VirtualThreadTaskExecutor semaphore = new VirtualThreadTaskExecutor(threadFactory, concurrencyLimit, 60000);
+        run(label, semaphore, tasks, ioMillis);
+        semaphore.shutdown(10, TimeUnit.SECONDS);
+    }
+
+    private static ThreadPoolTaskExecutor fixedPool(int threads, int queueCapacity) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("bench-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.initialize();
+        return executor;
+    }
+
+    private static void run(String label, AsyncTaskExecutor executor, int tasks, long ioMillis)
+            throws InterruptedException {
+        AtomicInteger completed = new AtomicInteger();
+        int rejected = 0;
+        CountDownLatch finished = new CountDownLatch(tasks);
+        long start = System.nanoTime();
+        for (int i = 0; i < tasks; i++) {
+            try {
+                executor.execute(() -> {
+                    try {
+                        Thread.sleep(ioMillis);
+                        completed.incrementAndGet();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        finished.countDown();
+                    }
+                });
+            } catch (TaskRejectedException e) {
+                finished.countDown();
+                rejected++;
+            }
+        }
+        finished.await();
+        long elapsed = System.nanoTime() - start;
+        System.out.println(String.format("%-20s submitted=%6d, completed=%6d, rejected=%6d, %8.0f tasks/s, %.2fs",
+                label, tasks, completed.get(), rejected, completed.get() / (elapsed / 1e9), elapsed / 1e9));
+    }
+
+}
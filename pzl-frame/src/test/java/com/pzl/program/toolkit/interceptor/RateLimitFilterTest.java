@@ -0,0 +1,72 @@
+package com.pzl.program.toolkit.interceptor;
+
+import com.pzl.program.frametool.redis.RedisRateLimiter;
+import com.pzl.program.toolkit.properties.RateLimitProperties;
+import org.junit.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+
+/**
+ * RateLimitFilter取客户端IP:只信任受信任代理追加的X-Forwarded-For
+ *
+ * @author pzl
+ * @date 2026-10-17
+ */
+public class RateLimitFilterTest {
+
+    @Test
+    public void forwardedHeaderIgnoredWithoutTrustedProxies() {
+        RateLimitFilter filter = filter();
+        assertEquals("203.0.113.9", filter.clientIp(request("203.0.113.9", "1.1.1.1")));
+        assertEquals("10.0.0.2", filter.clientIp(request("10.0.0.2", "1.1.1.1")));
+    }
+
+    @Test
+    public void forwardedHeaderIgnoredFromUntrustedPeer() {
+        RateLimitFilter filter = filter("10.0.0.0/8");
+        assertEquals("203.0.113.9", filter.clientIp(request("203.0.113.9", "1.1.1.1")));
+    }
+
+    @Test
+    public void rightMostUntrustedAddressUsed() {
+        RateLimitFilter filter = filter("10.0.0.0/8", "192.168.1.1");
+        //客户端伪造了1.1.1.1,真实地址是代理追加的198.51.100.7
+        assertEquals("198.51.100.7", filter.clientIp(request("10.0.0.2", "1.1.1.1, 198.51.100.7, 192.168.1.1")));
+        assertEquals("198.51.100.7", filter.clientIp(request("10.0.0.2", "198.51.100.7")));
+        //全部是受信任代理时取最左边的
+        assertEquals("10.1.1.1", filter.clientIp(request("10.0.0.2", "10.1.1.1, 10.2.2.2")));
+        //不是IP的值不使用
+        assertEquals("10.0.0.2", filter.clientIp(request("10.0.0.2", "1.1.1.1, unknown")));
+        assertEquals("10.0.0.2", filter.clientIp(request("10.0.0.2", " ")));
+    }
+
+    @Test
+    public void ipv6Ranges() {
+        RateLimitFilter filter = filter("fd00::/8");
+        assertEquals("2001:db8::1", filter.clientIp(request("fd00::5", "2001:db8::1")));
+        assertEquals("fc00::5", filter.clientIp(request("fc00::5", "2001:db8::1")));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void invalidTrustedProxyRejected() {
+        filter("proxy.example.com");
+    }
+
+    private static RateLimitFilter filter(String... trustedProxies) {
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setTrustedProxies(Arrays.asList(trustedProxies));
+        return new RateLimitFilter(mock(RedisRateLimiter.class), properties);
+    }
+
+    private static MockHttpServletRequest request(String remoteAddr, String forwarded) {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.setRemoteAddr(remoteAddr);
+        request.addHeader("X-Forwarded-For", forwarded);
+        return request;
+    }
+
+}